@@ -1,5 +1,7 @@
 package de.cavdar.gui.itsq.model;
 
+import de.cavdar.itsq.ItsqFiles;
+
 import java.io.File;
 
 /**
@@ -22,13 +24,13 @@ public interface ItsqItem {
      * Returns true if this item represents a file (not a directory).
      */
     default boolean isFile() {
-        return getFile() != null && getFile().isFile();
+        return getFile() != null && ItsqFiles.isFile(getFile());
     }
 
     /**
      * Returns true if this item represents a directory.
      */
     default boolean isDirectory() {
-        return getFile() != null && getFile().isDirectory();
+        return getFile() != null && ItsqFiles.isDirectory(getFile());
     }
 }
@@ -2,15 +2,18 @@ package de.cavdar.gui.itsq.tree;
 
 import de.cavdar.gui.itsq.model.*;
 import de.cavdar.gui.util.TimelineLogger;
+import de.cavdar.itsq.ItsqFiles;
 
 import javax.swing.tree.DefaultTreeModel;
 import java.io.File;
+import java.nio.file.Path;
 import java.util.Arrays;
 import java.util.Comparator;
 
 /**
  * Tree model for the ITSQ directory structure.
  * Creates typed tree nodes based on the directory structure.
+ * The directory may also be a mounted testfaelle ZIP (see ItsqZipTestSet).
  *
  * Structure:
  * - ITSQ (root)
@@ -36,7 +39,7 @@ public class ItsqTreeModel extends DefaultTreeModel {
 
     public ItsqTreeModel(File itsqDir) {
         super(null);
-        if (itsqDir != null && itsqDir.exists()) {
+        if (itsqDir != null && ItsqFiles.exists(itsqDir)) {
             reload(itsqDir);
         }
     }
@@ -47,7 +50,7 @@ public class ItsqTreeModel extends DefaultTreeModel {
      * @param itsqDir the ITSQ directory to scan
      */
     public void reload(File itsqDir) {
-        if (itsqDir == null || !itsqDir.exists() || !itsqDir.isDirectory()) {
+        if (itsqDir == null || !ItsqFiles.isDirectory(itsqDir)) {
             TimelineLogger.warn(ItsqTreeModel.class, "Invalid ITSQ directory: {}", itsqDir);
             return;
         }
@@ -71,6 +74,84 @@ public class ItsqTreeModel extends DefaultTreeModel {
                 itsqDir.getAbsolutePath(), totalFiles, totalDirs);
     }
 
+    /**
+     * Returns the node of the given directory, or of its nearest ancestor in the tree if the directory has no node
+     * (e.g. a new scenario). Returns null if the directory is not below the loaded ITSQ directory.
+     */
+    public ItsqTreeNode findNearestNode(File dir) {
+        if (!(getRoot() instanceof ItsqTreeNode rootNode)) {
+            return null;
+        }
+        Path rootPath = toNormalizedPath(rootNode.getItsqItem().getFile());
+        Path dirPath = toNormalizedPath(dir);
+        if (!dirPath.startsWith(rootPath)) {
+            return null;
+        }
+        ItsqTreeNode node = rootNode;
+        for (Path segment : rootPath.relativize(dirPath)) {
+            ItsqTreeNode childNode = findChild(node, segment.toString());
+            if (childNode == null) {
+                break;
+            }
+            node = childNode;
+        }
+        return node;
+    }
+
+    /**
+     * Rescans the children of the given node instead of reloading the whole tree.
+     */
+    public void refresh(ItsqTreeNode node) {
+        uncountChildren(node);
+        node.removeAllChildren();
+        File dir = node.getItsqItem().getFile();
+        if (ItsqFiles.isDirectory(dir)) {
+            scanDirectory(dir, node, contextOfChildren(node));
+        }
+        nodeStructureChanged(node);
+    }
+
+    /**
+     * The context for the children of the node, determined along its path like in {@link #scanDirectory}.
+     */
+    private NodeContext contextOfChildren(ItsqTreeNode node) {
+        NodeContext context = NodeContext.ROOT;
+        Object[] path = node.getUserObjectPath();
+        for (int i = 1; i < path.length; i++) {
+            context = determineChildContext(((ItsqItem) path[i]).getFile(), context);
+        }
+        return context;
+    }
+
+    private static ItsqTreeNode findChild(ItsqTreeNode node, String name) {
+        for (int i = 0; i < node.getChildCount(); i++) {
+            if (node.getChildAt(i) instanceof ItsqTreeNode childNode && name.equals(childNode.getItsqItem().getFile().getName())) {
+                return childNode;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Subtracts the files and dirs below the node from the statistics (the files may already be gone from disk).
+     */
+    private void uncountChildren(ItsqTreeNode node) {
+        for (int i = 0; i < node.getChildCount(); i++) {
+            if (node.getChildAt(i) instanceof ItsqTreeNode childNode) {
+                if (childNode instanceof ItsqXmlTreeNode || childNode instanceof ItsqOptionsTreeNode || childNode instanceof ItsqPropertiesTreeNode) {
+                    totalFiles--;
+                } else {
+                    totalDirs--;
+                    uncountChildren(childNode);
+                }
+            }
+        }
+    }
+
+    private static Path toNormalizedPath(File file) {
+        return file.toPath().toAbsolutePath().normalize();
+    }
+
     /**
      * Recursively scans a directory and creates typed tree nodes.
      *
@@ -79,21 +160,21 @@ public class ItsqTreeModel extends DefaultTreeModel {
      * @param context    the current node context
      */
     private void scanDirectory(File dir, ItsqTreeNode parentNode, NodeContext context) {
-        File[] children = dir.listFiles();
+        File[] children = ItsqFiles.listFiles(dir);
         if (children == null) {
             return;
         }
 
         // Sort: directories first, then by name
         Arrays.sort(children, Comparator
-                .comparing(File::isFile)
+                .comparing(ItsqFiles::isFile)
                 .thenComparing(File::getName));
 
         for (File child : children) {
             ItsqTreeNode childNode = createNodeForFile(child, context);
             parentNode.add(childNode);
 
-            if (child.isDirectory()) {
+            if (ItsqFiles.isDirectory(child)) {
                 totalDirs++;
                 NodeContext childContext = determineChildContext(child, context);
                 scanDirectory(child, childNode, childContext);
@@ -111,7 +192,7 @@ public class ItsqTreeModel extends DefaultTreeModel {
         String lowerName = name.toLowerCase();
 
         // Files: check extension first
-        if (file.isFile()) {
+        if (ItsqFiles.isFile(file)) {
             if (lowerName.endsWith(".xml")) {
                 return new ItsqXmlTreeNode(new ItsqXmlFile(file));
             }
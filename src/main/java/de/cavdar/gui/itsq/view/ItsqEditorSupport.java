@@ -0,0 +1,36 @@
+package de.cavdar.gui.itsq.view;
+
+import de.cavdar.gui.itsq.model.ItsqItem;
+import de.cavdar.itsq.ItsqFiles;
+
+import javax.swing.*;
+import java.awt.*;
+
+/**
+ * Checks shared by the ITSQ editor views.
+ */
+final class ItsqEditorSupport {
+
+    private ItsqEditorSupport() {
+    }
+
+    /**
+     * Whether the item's file is an entry of a mounted testfaelle ZIP (see ItsqZipTestSet) and cannot be saved.
+     */
+    static boolean isReadOnly(ItsqItem item) {
+        return item != null && item.getFile() != null && ItsqFiles.isZipEntry(item.getFile());
+    }
+
+    /**
+     * Tells the user when the item's file cannot be saved.
+     *
+     * @return true if the file can be saved
+     */
+    static boolean checkWritable(Component parent, ItsqItem item) {
+        if (isReadOnly(item)) {
+            JOptionPane.showMessageDialog(parent, "Dateien in einem Testfaelle-ZIP koennen nicht gespeichert werden");
+            return false;
+        }
+        return true;
+    }
+}
@@ -3,6 +3,7 @@ package de.cavdar.gui.itsq.view;
 import de.cavdar.gui.itsq.design.ItsqEditorPanel;
 import de.cavdar.gui.itsq.model.ItsqItem;
 import de.cavdar.gui.util.TimelineLogger;
+import de.cavdar.itsq.ItsqFiles;
 import org.fife.ui.rsyntaxtextarea.RSyntaxTextArea;
 import org.fife.ui.rsyntaxtextarea.SyntaxConstants;
 import org.fife.ui.rtextarea.RTextScrollPane;
@@ -175,8 +176,8 @@ public class ItsqEditorView extends ItsqEditorPanel implements ItsqItemSelectabl
 
     @Override
     public void setSelectedItem(ItsqItem item) {
-        // Check for unsaved changes
-        if (modified && selectedItem != null) {
+        // Check for unsaved changes (files inside a mounted ZIP cannot be saved)
+        if (modified && selectedItem != null && !ItsqEditorSupport.isReadOnly(selectedItem)) {
             int result = JOptionPane.showConfirmDialog(this,
                     "Änderungen in " + selectedItem.getName() + " speichern?",
                     "Ungespeicherte Änderungen",
@@ -189,6 +190,7 @@ public class ItsqEditorView extends ItsqEditorPanel implements ItsqItemSelectabl
         }
 
         this.selectedItem = item;
+        getButtonSave().setEnabled(!ItsqEditorSupport.isReadOnly(selectedItem));
         loadFile();
     }
 
@@ -209,14 +211,14 @@ public class ItsqEditorView extends ItsqEditorPanel implements ItsqItemSelectabl
         }
 
         File file = selectedItem.getFile();
-        if (!file.exists() || !file.isFile()) {
+        if (!ItsqFiles.isFile(file)) {
             textArea.setText("Datei nicht gefunden: " + file.getAbsolutePath());
             updateStatus(file.getName() + " (nicht gefunden)");
             return;
         }
 
         try {
-            String content = Files.readString(file.toPath(), StandardCharsets.UTF_8);
+            String content = Files.readString(ItsqFiles.toPath(file), StandardCharsets.UTF_8);
             textArea.setText(content);
             textArea.setCaretPosition(0);
             setModified(false);
@@ -237,10 +239,13 @@ public class ItsqEditorView extends ItsqEditorPanel implements ItsqItemSelectabl
             JOptionPane.showMessageDialog(this, "Keine Datei ausgewaehlt");
             return;
         }
+        if (!ItsqEditorSupport.checkWritable(this, selectedItem)) {
+            return;
+        }
 
         File file = selectedItem.getFile();
         try {
-            Files.writeString(file.toPath(), textArea.getText(), StandardCharsets.UTF_8);
+            ItsqFiles.writeAtomically(file, textArea.getText().getBytes(StandardCharsets.UTF_8));
             setModified(false);
             updateStatus("Gespeichert: " + file.getName());
             TimelineLogger.info(ItsqEditorView.class, "Saved XML file: {}", file.getAbsolutePath());
@@ -3,9 +3,19 @@ package de.cavdar.gui.itsq.view;
 import de.cavdar.gui.itsq.design.ItsqMainPanel;
 import de.cavdar.gui.model.base.AppConfig;
 import de.cavdar.gui.util.TimelineLogger;
+import de.cavdar.itsq.ITSQModelWatcher;
+import de.cavdar.itsq.ITSQTestSetLoader;
+import de.cavdar.itsq.ItsqFiles;
+import de.cavdar.itsq.ItsqZipTestSet;
+import de.cavdar.itsq.TestCustomer;
+import de.cavdar.itsq.TestScenario;
 
 import javax.swing.*;
 import java.io.File;
+import java.io.IOException;
+import java.util.LinkedHashSet;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
 
 import static de.cavdar.gui.util.AppConstants.*;
 
@@ -25,6 +35,9 @@ public class ItsqMainView extends ItsqMainPanel {
     private boolean updatingComboBox = false;
     private boolean initialLoadDone = false;
     private String lastValidSelection = null;
+    // keeps the tree in sync with changes on disk, null for ZIPs
+    private ITSQModelWatcher modelWatcher;
+    private File watchedItsqDir;
 
     public ItsqMainView(AppConfig config) {
         super();
@@ -136,8 +149,8 @@ public class ItsqMainView extends ItsqMainPanel {
     }
 
     private void loadTestSetPath(String path) {
-        File dir = new File(path);
-        if (dir.exists() && dir.isDirectory()) {
+        File dir = mountIfZip(new File(path));
+        if (ItsqFiles.isDirectory(dir)) {
             cfg.setProperty(ITSQ_PATH_KEY, path);
             cfg.save();
             lastValidSelection = path;
@@ -165,9 +178,9 @@ public class ItsqMainView extends ItsqMainPanel {
     // ===== Load Directory =====
 
     private void loadItsqDirectory() {
-        File itsqDir = resolveItsqPath();
+        File itsqDir = mountIfZip(resolveItsqPath());
 
-        if (!itsqDir.exists() || !itsqDir.isDirectory()) {
+        if (!ItsqFiles.isDirectory(itsqDir)) {
             TimelineLogger.warn(ItsqMainView.class, "ITSQ directory not found: {}", itsqDir.getAbsolutePath());
             JOptionPane.showMessageDialog(this,
                     "ITSQ-Verzeichnis nicht gefunden: " + itsqDir.getAbsolutePath(),
@@ -177,6 +190,7 @@ public class ItsqMainView extends ItsqMainPanel {
 
         // Delegate to TreeView (no filters)
         getPanelItsqTree().reload(itsqDir);
+        startModelWatcher(itsqDir);
 
         // Show root card
         getPanelItsqView().showRootCard();
@@ -190,6 +204,84 @@ public class ItsqMainView extends ItsqMainPanel {
                 path, getPanelItsqTree().getTotalFiles(), getPanelItsqTree().getTotalDirs());
     }
 
+    // ===== Model Watcher =====
+
+    /**
+     * Loads the test set model in the background and watches it for changes on disk.
+     * The watcher applies the changes to the model on the EDT, where only the changed directories of the tree are rescanned.
+     */
+    private void startModelWatcher(File itsqDir) {
+        stopModelWatcher();
+        watchedItsqDir = itsqDir;
+        if (ItsqFiles.isZipEntry(itsqDir)) {
+            // a mounted ZIP does not change
+            return;
+        }
+        new SwingWorker<ITSQModelWatcher, Void>() {
+            @Override
+            protected ITSQModelWatcher doInBackground() throws Exception {
+                ITSQTestSetLoader loader = new ITSQTestSetLoader(itsqDir);
+                loader.setLazyScenarios(true);
+                ITSQModelWatcher watcher = new ITSQModelWatcher(itsqDir, loader.load(), loader);
+                watcher.setModelExecutor(SwingUtilities::invokeLater);
+                watcher.addListener(event -> onModelChanged(itsqDir, event));
+                watcher.start();
+                return watcher;
+            }
+
+            @Override
+            protected void done() {
+                try {
+                    ITSQModelWatcher watcher = get();
+                    if (itsqDir.equals(watchedItsqDir)) {
+                        modelWatcher = watcher;
+                    } else {
+                        // another test set was loaded in the meantime
+                        watcher.close();
+                    }
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                } catch (ExecutionException e) {
+                    TimelineLogger.warn(ItsqMainView.class, "Cannot watch ITSQ directory {}: {}", itsqDir.getAbsolutePath(), e.getCause().getMessage());
+                }
+            }
+        }.execute();
+    }
+
+    private void stopModelWatcher() {
+        watchedItsqDir = null;
+        if (modelWatcher != null) {
+            modelWatcher.close();
+            modelWatcher = null;
+        }
+    }
+
+    private void onModelChanged(File itsqDir, ITSQModelWatcher.ModelChangeEvent event) {
+        if (!itsqDir.equals(watchedItsqDir) || (!event.isModelChanged() && event.getArchivBestandFiles().isEmpty())) {
+            return;
+        }
+        // only the directories whose content changed are rescanned
+        Set<File> changedDirs = new LinkedHashSet<>();
+        for (TestScenario scenario : event.getUpdatedScenarios()) {
+            changedDirs.add(scenario.getItsqRefExportsFile());
+        }
+        for (TestScenario scenario : event.getRemovedScenarios()) {
+            changedDirs.add(scenario.getItsqRefExportsFile().getParentFile());
+        }
+        for (TestCustomer customer : event.getAddedCustomers()) {
+            changedDirs.add(customer.getItsqRefExportsDir().getParentFile());
+        }
+        for (TestCustomer customer : event.getRemovedCustomers()) {
+            changedDirs.add(customer.getItsqRefExportsDir().getParentFile());
+        }
+        for (File archivBestandFile : event.getArchivBestandFiles()) {
+            changedDirs.add(archivBestandFile.getParentFile());
+        }
+        getPanelItsqTree().refresh(itsqDir, changedDirs);
+        TimelineLogger.info(ItsqMainView.class, "ITSQ tree refreshed in {} directories after {} file events ({} scenarios updated, {} removed)",
+                changedDirs.size(), event.getFileEventCount(), event.getUpdatedScenarios().size(), event.getRemovedScenarios().size());
+    }
+
     private File resolveItsqPath() {
         String configPath = cfg.getProperty(ITSQ_PATH_KEY);
         if (!configPath.isEmpty()) {
@@ -209,15 +301,33 @@ public class ItsqMainView extends ItsqMainPanel {
         File targetTestfaelle = new File("target/testfaelle");
         if (targetTestfaelle.exists()) return targetTestfaelle;
 
+        // Testfaelle-ZIP der gewaehlten Revision, wird ohne Entpacken eingehaengt
+        File revisionZip = ItsqZipTestSet.findRevisionZip(new File("target/testfaelle-zip"), cfg.getProperty("LAST_ITSQ_REVISION"));
+        if (revisionZip != null) return revisionZip;
+
         return new File(DEFAULT_ITSQ_PATH);
     }
 
+    /**
+     * Mounts a testfaelle ZIP so that it can be used like a directory (see ItsqZipTestSet).
+     */
+    private File mountIfZip(File file) {
+        if (file.isFile() && file.getName().toLowerCase().endsWith(".zip")) {
+            try {
+                return ItsqZipTestSet.mount(file).getRootDir();
+            } catch (IOException e) {
+                TimelineLogger.warn(ItsqMainView.class, "Cannot mount ZIP {}: {}", file.getAbsolutePath(), e.getMessage());
+            }
+        }
+        return file;
+    }
+
     // ===== Actions =====
 
     private void browseItsqPath() {
         JFileChooser chooser = new JFileChooser();
-        chooser.setFileSelectionMode(JFileChooser.DIRECTORIES_ONLY);
-        chooser.setDialogTitle("ITSQ-Verzeichnis waehlen");
+        chooser.setFileSelectionMode(JFileChooser.FILES_AND_DIRECTORIES);
+        chooser.setDialogTitle("ITSQ-Verzeichnis oder Testfaelle-ZIP waehlen");
 
         File currentPath = resolveItsqPath();
         if (currentPath.exists()) {
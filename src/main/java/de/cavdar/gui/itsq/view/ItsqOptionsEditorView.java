@@ -3,6 +3,7 @@ package de.cavdar.gui.itsq.view;
 import de.cavdar.gui.itsq.design.ItsqOptionsEditorPanel;
 import de.cavdar.gui.itsq.model.ItsqItem;
 import de.cavdar.gui.util.TimelineLogger;
+import de.cavdar.itsq.ItsqFiles;
 
 import javax.swing.*;
 import javax.swing.event.ListSelectionEvent;
@@ -195,8 +196,8 @@ public class ItsqOptionsEditorView extends ItsqOptionsEditorPanel implements Its
 
     @Override
     public void setSelectedItem(ItsqItem item) {
-        // Check for unsaved changes
-        if (modified && selectedItem != null) {
+        // Check for unsaved changes (files inside a mounted ZIP cannot be saved)
+        if (modified && selectedItem != null && !ItsqEditorSupport.isReadOnly(selectedItem)) {
             int result = JOptionPane.showConfirmDialog(this,
                     "Aenderungen in " + selectedItem.getName() + " speichern?",
                     "Ungespeicherte Aenderungen",
@@ -209,6 +210,7 @@ public class ItsqOptionsEditorView extends ItsqOptionsEditorPanel implements Its
         }
 
         this.selectedItem = item;
+        getButtonSave().setEnabled(!ItsqEditorSupport.isReadOnly(selectedItem));
         loadOptionsFile();
     }
 
@@ -229,14 +231,14 @@ public class ItsqOptionsEditorView extends ItsqOptionsEditorPanel implements Its
         }
 
         File file = selectedItem.getFile();
-        if (!file.exists() || !file.isFile()) {
+        if (!ItsqFiles.isFile(file)) {
             tableModel.clear();
             updateStatus(file.getName() + " (nicht gefunden)");
             return;
         }
 
         try {
-            List<String> lines = Files.readAllLines(file.toPath(), StandardCharsets.UTF_8);
+            List<String> lines = Files.readAllLines(ItsqFiles.toPath(file), StandardCharsets.UTF_8);
             tableModel.loadFromLines(lines);
             setModified(false);
             updateStatus("Geladen: " + file.getName() + " (" + tableModel.getRowCount() + " Eintraege)");
@@ -256,11 +258,14 @@ public class ItsqOptionsEditorView extends ItsqOptionsEditorPanel implements Its
             JOptionPane.showMessageDialog(this, "Keine Datei ausgewaehlt");
             return;
         }
+        if (!ItsqEditorSupport.checkWritable(this, selectedItem)) {
+            return;
+        }
 
         File file = selectedItem.getFile();
         try {
             List<String> lines = tableModel.toLines();
-            Files.write(file.toPath(), lines, StandardCharsets.UTF_8);
+            ItsqFiles.writeLinesAtomically(file, StandardCharsets.UTF_8, lines);
             setModified(false);
             updateStatus("Gespeichert: " + file.getName());
             TimelineLogger.info(ItsqOptionsEditorView.class, "Saved Options.cfg file: {}", file.getAbsolutePath());
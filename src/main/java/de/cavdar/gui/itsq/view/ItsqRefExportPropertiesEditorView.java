@@ -3,6 +3,9 @@ package de.cavdar.gui.itsq.view;
 import de.cavdar.gui.itsq.design.ItsqRefExportPropertiesEditorPanel;
 import de.cavdar.gui.itsq.model.ItsqItem;
 import de.cavdar.gui.util.TimelineLogger;
+import de.cavdar.itsq.ItsqFiles;
+import de.cavdar.itsq.ItsqPathTable;
+import de.cavdar.itsq.RefExportXmlIndex;
 import de.cavdar.itsq.TestCrefo;
 
 import javax.swing.*;
@@ -191,7 +194,7 @@ public class ItsqRefExportPropertiesEditorView extends ItsqRefExportPropertiesEd
             File archivBestandFile = new File(itsqRoot,
                     "ARCHIV-BESTAND/" + phaseName + "/" + crefoNr + ".xml");
 
-            if (archivBestandFile.exists()) {
+            if (ItsqFiles.exists(archivBestandFile)) {
                 return archivBestandFile.getName();
             } else {
                 return crefoNr + ".xml (nicht gefunden)";
@@ -271,8 +274,8 @@ public class ItsqRefExportPropertiesEditorView extends ItsqRefExportPropertiesEd
 
     @Override
     public void setSelectedItem(ItsqItem item) {
-        // Check for unsaved changes
-        if (modified && selectedItem != null) {
+        // Check for unsaved changes (files inside a mounted ZIP cannot be saved)
+        if (modified && selectedItem != null && !ItsqEditorSupport.isReadOnly(selectedItem)) {
             int result = JOptionPane.showConfirmDialog(this,
                     "Aenderungen in " + selectedItem.getName() + " speichern?",
                     "Ungespeicherte Aenderungen",
@@ -285,6 +288,7 @@ public class ItsqRefExportPropertiesEditorView extends ItsqRefExportPropertiesEd
         }
 
         this.selectedItem = item;
+        getButtonSave().setEnabled(!ItsqEditorSupport.isReadOnly(selectedItem));
         loadPropertiesFile();
     }
 
@@ -306,14 +310,14 @@ public class ItsqRefExportPropertiesEditorView extends ItsqRefExportPropertiesEd
         }
 
         File file = selectedItem.getFile();
-        if (!file.exists() || !file.isFile()) {
+        if (!ItsqFiles.isFile(file)) {
             tableModel.clear();
             updateStatus(file.getName() + " (nicht gefunden)");
             return;
         }
 
         try {
-            List<String> lines = Files.readAllLines(file.toPath(), StandardCharsets.UTF_8);
+            List<String> lines = Files.readAllLines(ItsqFiles.toPath(file), StandardCharsets.UTF_8);
             File scenarioDir = file.getParentFile();
             tableModel.loadFromLines(lines, scenarioDir);
             setModified(false);
@@ -334,11 +338,14 @@ public class ItsqRefExportPropertiesEditorView extends ItsqRefExportPropertiesEd
             JOptionPane.showMessageDialog(this, "Keine Datei ausgewaehlt");
             return;
         }
+        if (!ItsqEditorSupport.checkWritable(this, selectedItem)) {
+            return;
+        }
 
         File file = selectedItem.getFile();
         try {
             List<String> lines = tableModel.toLines();
-            Files.write(file.toPath(), lines, StandardCharsets.UTF_8);
+            ItsqFiles.writeLinesAtomically(file, StandardCharsets.UTF_8, lines);
             setModified(false);
             updateStatus("Gespeichert: " + file.getName());
             TimelineLogger.info(ItsqRefExportPropertiesEditorView.class, "Saved Relevanz.properties file: {}", file.getAbsolutePath());
@@ -379,7 +386,7 @@ public class ItsqRefExportPropertiesEditorView extends ItsqRefExportPropertiesEd
             if (!testName.isEmpty() && !crefoNrStr.isEmpty()) {
                 try {
                     Long crefoNr = Long.parseLong(crefoNrStr);
-                    TestCrefo testCrefo = new TestCrefo(testName, crefoNr, info, shouldExport, null);
+                    TestCrefo testCrefo = new TestCrefo(testName, crefoNr, info, shouldExport, tableModel.getPathTable(), null);
                     tableModel.addEntry(testCrefo);
                     setModified(true);
                     // Select the new row
@@ -562,7 +569,7 @@ public class ItsqRefExportPropertiesEditorView extends ItsqRefExportPropertiesEd
         // Target: .../ARCHIV-BESTAND/PHASE-X/
         if (selectedItem != null && selectedItem.getFile() != null) {
             File archivBestandDir = deriveArchivBestandDirectory(selectedItem.getFile());
-            if (archivBestandDir != null && archivBestandDir.exists()) {
+            if (archivBestandDir != null && ItsqFiles.exists(archivBestandDir)) {
                 fileChooser.setCurrentDirectory(archivBestandDir);
             }
         }
@@ -638,6 +645,8 @@ public class ItsqRefExportPropertiesEditorView extends ItsqRefExportPropertiesEd
         private final List<TestCrefo> filteredEntries = new ArrayList<>();
         private final List<String> comments = new ArrayList<>();
         private String filterText = "";
+        // shared by all entries of the loaded file, replaced on every load
+        private ItsqPathTable pathTable = new ItsqPathTable(null);
 
         @Override
         public int getRowCount() {
@@ -690,6 +699,10 @@ public class ItsqRefExportPropertiesEditorView extends ItsqRefExportPropertiesEd
             return false; // Non-editable table
         }
 
+        public ItsqPathTable getPathTable() {
+            return pathTable;
+        }
+
         public TestCrefo getTestCrefoAt(int rowIndex) {
             if (rowIndex >= 0 && rowIndex < filteredEntries.size()) {
                 return filteredEntries.get(rowIndex);
@@ -704,6 +717,9 @@ public class ItsqRefExportPropertiesEditorView extends ItsqRefExportPropertiesEd
         public void loadFromLines(List<String> lines, File scenarioDir) {
             allEntries.clear();
             comments.clear();
+            pathTable = new ItsqPathTable(scenarioDir);
+            // list the scenario directory once for all lines
+            RefExportXmlIndex refExportXmlIndex = RefExportXmlIndex.forDirectory(scenarioDir, false);
 
             for (String line : lines) {
                 String trimmed = line.trim();
@@ -740,8 +756,8 @@ public class ItsqRefExportPropertiesEditorView extends ItsqRefExportPropertiesEd
 
                         if (crefoNr != null) {
                             // Try to find matching REF-Export XML file
-                            File refExportFile = findRefExportFile(scenarioDir, testName, crefoNr);
-                            TestCrefo testCrefo = new TestCrefo(testName, crefoNr, info, shouldExport, refExportFile);
+                            File refExportFile = refExportXmlIndex.findXmlFileByNamePattern(testName, crefoNr);
+                            TestCrefo testCrefo = new TestCrefo(testName, crefoNr, info, shouldExport, pathTable, refExportFile);
                             allEntries.add(testCrefo);
                         }
                     }
@@ -750,24 +766,6 @@ public class ItsqRefExportPropertiesEditorView extends ItsqRefExportPropertiesEd
             applyFilter();
         }
 
-        /**
-         * Finds a matching REF-Export XML file in the scenario directory.
-         */
-        private File findRefExportFile(File scenarioDir, String testName, Long crefoNr) {
-            if (scenarioDir == null || !scenarioDir.isDirectory()) {
-                return null;
-            }
-
-            // Pattern: {testName}_*_{crefoNr}.xml
-            String prefix = testName + "_";
-            String suffix = "_" + crefoNr + ".xml";
-
-            File[] files = scenarioDir.listFiles((dir, name) ->
-                    name.startsWith(prefix) && name.endsWith(suffix));
-
-            return (files != null && files.length > 0) ? files[0] : null;
-        }
-
         /**
          * Converts entries back to properties file lines.
          * Format: testname=crefonummer # comment
@@ -4,6 +4,7 @@ import de.cavdar.gui.itsq.design.ItsqTestCrefosPropertiesEditorPanel;
 import de.cavdar.gui.itsq.model.ItsqItem;
 import de.cavdar.gui.util.TimelineLogger;
 import de.cavdar.itsq.AB30XMLProperties;
+import de.cavdar.itsq.ItsqFiles;
 
 import javax.swing.*;
 import javax.swing.event.ListSelectionEvent;
@@ -227,8 +228,8 @@ public class ItsqTestCrefosPropertiesEditorView extends ItsqTestCrefosProperties
 
     @Override
     public void setSelectedItem(ItsqItem item) {
-        // Check for unsaved changes
-        if (modified && selectedItem != null) {
+        // Check for unsaved changes (files inside a mounted ZIP cannot be saved)
+        if (modified && selectedItem != null && !ItsqEditorSupport.isReadOnly(selectedItem)) {
             int result = JOptionPane.showConfirmDialog(this,
                     "Aenderungen in " + selectedItem.getName() + " speichern?",
                     "Ungespeicherte Aenderungen",
@@ -241,6 +242,7 @@ public class ItsqTestCrefosPropertiesEditorView extends ItsqTestCrefosProperties
         }
 
         this.selectedItem = item;
+        getButtonSave().setEnabled(!ItsqEditorSupport.isReadOnly(selectedItem));
         loadPropertiesFile();
     }
 
@@ -262,14 +264,14 @@ public class ItsqTestCrefosPropertiesEditorView extends ItsqTestCrefosProperties
         }
 
         File file = selectedItem.getFile();
-        if (!file.exists() || !file.isFile()) {
+        if (!ItsqFiles.isFile(file)) {
             tableModel.clear();
             updateStatus(file.getName() + " (nicht gefunden)");
             return;
         }
 
         try {
-            List<String> lines = Files.readAllLines(file.toPath(), StandardCharsets.UTF_8);
+            List<String> lines = Files.readAllLines(ItsqFiles.toPath(file), StandardCharsets.UTF_8);
             fileVersion = detectVersion(lines);
             tableModel.loadFromLines(lines, fileVersion);
             setModified(false);
@@ -306,11 +308,14 @@ public class ItsqTestCrefosPropertiesEditorView extends ItsqTestCrefosProperties
             JOptionPane.showMessageDialog(this, "Keine Datei ausgewaehlt");
             return;
         }
+        if (!ItsqEditorSupport.checkWritable(this, selectedItem)) {
+            return;
+        }
 
         File file = selectedItem.getFile();
         try {
             List<String> lines = tableModel.toLines(fileVersion);
-            Files.write(file.toPath(), lines, StandardCharsets.UTF_8);
+            ItsqFiles.writeLinesAtomically(file, StandardCharsets.UTF_8, lines);
             setModified(false);
             updateStatus("Gespeichert: " + file.getName());
             TimelineLogger.info(ItsqTestCrefosPropertiesEditorView.class, "Saved TestCrefos.properties file: {}", file.getAbsolutePath());
@@ -8,6 +8,12 @@ import de.cavdar.gui.util.TimelineLogger;
 import javax.swing.*;
 import javax.swing.tree.TreePath;
 import java.io.File;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Enumeration;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
 import java.util.function.Consumer;
 
 /**
@@ -57,6 +63,43 @@ public class ItsqTreeView extends ItsqTreePanel {
                 treeModel.getTotalFiles(), treeModel.getTotalDirs());
     }
 
+    /**
+     * Rescans only the given directories (or their nearest ancestors in the tree) and keeps their expanded
+     * subfolders expanded. Falls back to a full reload for directories outside the loaded tree.
+     *
+     * @param itsqDir the ITSQ directory of the tree
+     * @param dirs    the directories whose content changed
+     */
+    public void refresh(File itsqDir, Collection<File> dirs) {
+        Set<ItsqTreeNode> nodes = new LinkedHashSet<>();
+        for (File dir : dirs) {
+            ItsqTreeNode node = treeModel.findNearestNode(dir);
+            if (node == null) {
+                reload(itsqDir);
+                return;
+            }
+            nodes.add(node);
+        }
+        // a node below another refreshed node is rescanned with it
+        nodes.removeIf(node -> nodes.stream().anyMatch(other -> other != node && node.isNodeAncestor(other)));
+        for (ItsqTreeNode node : nodes) {
+            List<File> expandedDirs = new ArrayList<>();
+            Enumeration<TreePath> expandedPaths = getTreeItsq().getExpandedDescendants(new TreePath(node.getPath()));
+            while (expandedPaths != null && expandedPaths.hasMoreElements()) {
+                expandedDirs.add(((ItsqTreeNode) expandedPaths.nextElement().getLastPathComponent()).getItsqItem().getFile());
+            }
+            treeModel.refresh(node);
+            for (File expandedDir : expandedDirs) {
+                ItsqTreeNode expandedNode = treeModel.findNearestNode(expandedDir);
+                if (expandedNode != null) {
+                    getTreeItsq().expandPath(new TreePath(expandedNode.getPath()));
+                }
+            }
+        }
+        TimelineLogger.debug(ItsqTreeView.class, "Tree refreshed: {} nodes, {} files, {} dirs",
+                nodes.size(), treeModel.getTotalFiles(), treeModel.getTotalDirs());
+    }
+
     /**
      * Expands the tree to the specified level.
      *
@@ -0,0 +1,340 @@
+package de.cavdar.itsq;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Byte-Scanner für die Crefonummern einer AB30-XML: die Datei wird per FileChannel#map eingeblendet und
+ * direkt auf den Bytes nach den Tags "crefonummer" und "crefonummer-beteiligter" sowie den Namen ihrer
+ * Eltern-Elemente durchsucht, ohne Zeichen zu dekodieren.
+ * <p>
+ * Das Ergebnis entspricht dem von {@link AB30CrefoStaxExtractor}. Für alles, was der Scanner nicht sicher
+ * auswerten kann (Kommentare, CDATA, DOCTYPE, Entity-Referenzen in Crefos, Nicht-ASCII-Namen, nicht ASCII-kompatible Kodierung,
+ * unerwarteter Inhalt oder fehlerhafte Struktur), liefert {@link #scan(File)} null und der Aufrufer
+ * benutzt den vollständigen Parser.
+ */
+public class AB30CrefoByteScanner {
+    private static final byte[] TAG_CREFONUMMER = "crefonummer".getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] TAG_CREFONUMMER_BETEILIGTER = "crefonummer-beteiligter".getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] UTF8_BOM = {(byte) 0xEF, (byte) 0xBB, (byte) 0xBF};
+    private static final Set<String> ASCII_COMPATIBLE_ENCODINGS = Set.of("UTF-8", "UTF8", "US-ASCII", "ASCII",
+            "ISO-8859-1", "ISO-8859-15", "LATIN1", "WINDOWS-1252", "CP1252");
+    private static final int MAX_CREFO_DIGITS = 18;
+
+    /**
+     * Liefert die Crefo-Listen der XML oder null, wenn die Datei mit dem vollständigen Parser gelesen werden muss.
+     */
+    public Map<String, List<Long>> scan(File ab30CrefoXmlFile) throws IOException {
+        try (FileChannel fileChannel = FileChannel.open(ab30CrefoXmlFile.toPath(), StandardOpenOption.READ)) {
+            long fileSize = fileChannel.size();
+            if (fileSize == 0 || fileSize > Integer.MAX_VALUE) {
+                return null;
+            }
+            MappedByteBuffer buffer = fileChannel.map(FileChannel.MapMode.READ_ONLY, 0, fileSize);
+            return new Scan(buffer, (int) fileSize).run();
+        }
+    }
+
+    /**
+     * Wie {@link #scan(File)} für den bereits gelesenen Inhalt einer XML.
+     */
+    public Map<String, List<Long>> scan(byte[] content) {
+        if (content.length == 0) {
+            return null;
+        }
+        return new Scan(ByteBuffer.wrap(content), content.length).run();
+    }
+
+    private static final class Scan {
+        private final ByteBuffer buffer;
+        private final int limit;
+        // Stack der offenen Elemente als Start/Länge des Namens im Puffer
+        private int[] nameStarts = new int[32];
+        private int[] nameLengths = new int[32];
+        private int depth;
+
+        private Scan(ByteBuffer buffer, int limit) {
+            this.buffer = buffer;
+            this.limit = limit;
+        }
+
+        private Map<String, List<Long>> run() {
+            Map<String, List<Long>> crefoListsMap = new HashMap<>();
+            crefoListsMap.put(AB30MapperUtil.TAG_STEUERUNGSDATEN, new ArrayList<>());
+            crefoListsMap.put(AB30MapperUtil.TAG_FIRMENBETEILIGTER, new ArrayList<>());
+            crefoListsMap.put(AB30MapperUtil.TAG_VERFAHRENSBETEILIGTER, new ArrayList<>());
+
+            int pos = startsWith(0, UTF8_BOM) ? UTF8_BOM.length : 0;
+            if (pos < limit && (buffer.get(pos) == (byte) 0xFE || buffer.get(pos) == (byte) 0xFF || buffer.get(pos) == 0)) {
+                return null; // UTF-16/32
+            }
+            boolean rootSeen = false;
+            while (pos < limit) {
+                byte b = buffer.get(pos);
+                if (b != '<') {
+                    // Text außerhalb einer Crefo (auch mit Entity-Referenzen) ist für das Ergebnis irrelevant
+                    if (depth == 0 && !isWhitespace(b)) {
+                        return null; // Text außerhalb des Wurzel-Elements
+                    }
+                    pos++;
+                    continue;
+                }
+                if (pos + 1 >= limit) {
+                    return null;
+                }
+                byte next = buffer.get(pos + 1);
+                if (next == '?') {
+                    int end = indexOf(pos + 2, (byte) '?', (byte) '>');
+                    if (end < 0 || (!rootSeen && pos <= UTF8_BOM.length && !hasAsciiCompatibleEncoding(pos, end))) {
+                        return null;
+                    }
+                    pos = end + 2;
+                } else if (next == '!') {
+                    return null; // Kommentar, CDATA oder DOCTYPE
+                } else if (next == '/') {
+                    int nameStart = pos + 2;
+                    int nameEnd = scanName(nameStart);
+                    if (nameEnd < 0 || depth == 0 || !nameEquals(nameStarts[depth - 1], nameLengths[depth - 1], nameStart, nameEnd - nameStart)) {
+                        return null;
+                    }
+                    int end = skipWhitespace(nameEnd);
+                    if (end >= limit || buffer.get(end) != '>') {
+                        return null;
+                    }
+                    depth--;
+                    pos = end + 1;
+                } else {
+                    if (depth == 0 && rootSeen) {
+                        return null; // zweites Wurzel-Element
+                    }
+                    int nameStart = pos + 1;
+                    int nameEnd = scanName(nameStart);
+                    if (nameEnd < 0) {
+                        return null;
+                    }
+                    int tagEnd = skipAttributes(nameEnd);
+                    if (tagEnd < 0) {
+                        return null;
+                    }
+                    rootSeen = true;
+                    boolean emptyElement = buffer.get(tagEnd - 1) == '/';
+                    if (isCrefoElement(nameStart, nameEnd)) {
+                        String parentKey = depth > 0 ? toKey(nameStarts[depth - 1], nameLengths[depth - 1]) : "#DOCUMENT";
+                        if (emptyElement) {
+                            return null; // leerer Inhalt: der vollständige Parser liefert den Fehler
+                        }
+                        pos = readCrefo(tagEnd + 1, nameStart, nameEnd - nameStart, parentKey, crefoListsMap);
+                        if (pos < 0) {
+                            return null;
+                        }
+                        continue;
+                    }
+                    if (!emptyElement) {
+                        push(nameStart, nameEnd - nameStart);
+                    }
+                    pos = tagEnd + 1;
+                }
+            }
+            return (rootSeen && depth == 0) ? crefoListsMap : null;
+        }
+
+        /**
+         * Liest die Ziffern bis zum End-Tag der Crefo; liefert die Position nach dem End-Tag oder -1.
+         */
+        private int readCrefo(int pos, int nameStart, int nameLength, String parentKey, Map<String, List<Long>> crefoListsMap) {
+            long crefoNr = 0;
+            int digits = 0;
+            while (pos < limit) {
+                byte b = buffer.get(pos);
+                if (b >= '0' && b <= '9') {
+                    if (++digits > MAX_CREFO_DIGITS) {
+                        return -1;
+                    }
+                    crefoNr = crefoNr * 10 + (b - '0');
+                    pos++;
+                } else if (b == '<') {
+                    break;
+                } else {
+                    return -1; // Leerzeichen, Vorzeichen, Entities usw.: der vollständige Parser entscheidet
+                }
+            }
+            if (digits == 0 || pos + 1 >= limit || buffer.get(pos + 1) != '/') {
+                return -1;
+            }
+            int endNameStart = pos + 2;
+            int endNameEnd = scanName(endNameStart);
+            if (endNameEnd < 0 || !nameEquals(nameStart, nameLength, endNameStart, endNameEnd - endNameStart)) {
+                return -1;
+            }
+            int end = skipWhitespace(endNameEnd);
+            if (end >= limit || buffer.get(end) != '>') {
+                return -1;
+            }
+            crefoListsMap.computeIfAbsent(parentKey, key -> new ArrayList<>()).add(crefoNr);
+            return end + 1;
+        }
+
+        private void push(int nameStart, int nameLength) {
+            if (depth == nameStarts.length) {
+                nameStarts = Arrays.copyOf(nameStarts, depth * 2);
+                nameLengths = Arrays.copyOf(nameLengths, depth * 2);
+            }
+            nameStarts[depth] = nameStart;
+            nameLengths[depth] = nameLength;
+            depth++;
+        }
+
+        /**
+         * Liefert das Ende des Element-Namens oder -1 bei leeren oder Nicht-ASCII-Namen.
+         */
+        private int scanName(int pos) {
+            int start = pos;
+            while (pos < limit) {
+                byte b = buffer.get(pos);
+                if (isWhitespace(b) || b == '>' || b == '/') {
+                    break;
+                }
+                if (b < 0 || b == '<' || b == '"' || b == '\'' || b == '=') {
+                    return -1;
+                }
+                pos++;
+            }
+            return (pos > start && pos < limit) ? pos : -1;
+        }
+
+        /**
+         * Überspringt die Attribute (Werte in Anführungszeichen dürfen '>' enthalten) und liefert die Position von '>'.
+         */
+        private int skipAttributes(int pos) {
+            byte quote = 0;
+            while (pos < limit) {
+                byte b = buffer.get(pos);
+                if (quote != 0) {
+                    if (b == quote) {
+                        quote = 0;
+                    }
+                } else if (b == '"' || b == '\'') {
+                    quote = b;
+                } else if (b == '<') {
+                    return -1;
+                } else if (b == '>') {
+                    return pos;
+                }
+                pos++;
+            }
+            return -1;
+        }
+
+        private boolean isCrefoElement(int nameStart, int nameEnd) {
+            int localStart = nameStart;
+            for (int i = nameStart; i < nameEnd; i++) {
+                if (buffer.get(i) == ':') {
+                    localStart = i + 1;
+                    break;
+                }
+            }
+            return regionEquals(localStart, nameEnd - localStart, TAG_CREFONUMMER)
+                    || regionEquals(localStart, nameEnd - localStart, TAG_CREFONUMMER_BETEILIGTER);
+        }
+
+        private boolean regionEquals(int start, int length, byte[] bytes) {
+            if (length != bytes.length) {
+                return false;
+            }
+            for (int i = 0; i < length; i++) {
+                if (buffer.get(start + i) != bytes[i]) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        private boolean nameEquals(int start1, int length1, int start2, int length2) {
+            if (length1 != length2) {
+                return false;
+            }
+            for (int i = 0; i < length1; i++) {
+                if (buffer.get(start1 + i) != buffer.get(start2 + i)) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        private String toKey(int nameStart, int nameLength) {
+            byte[] nameBytes = new byte[nameLength];
+            buffer.get(nameStart, nameBytes);
+            String key = new String(nameBytes, StandardCharsets.US_ASCII).toUpperCase(Locale.ROOT);
+            if (key.startsWith("ARC:")) {
+                key = key.substring(4);
+            }
+            return key;
+        }
+
+        private boolean hasAsciiCompatibleEncoding(int declStart, int declEnd) {
+            byte[] declBytes = new byte[declEnd - declStart];
+            buffer.get(declStart, declBytes);
+            String declaration = new String(declBytes, StandardCharsets.US_ASCII);
+            int encodingIndex = declaration.indexOf("encoding");
+            if (encodingIndex < 0) {
+                return true;
+            }
+            int quoteStart = encodingIndex + "encoding".length();
+            while (quoteStart < declaration.length() && declaration.charAt(quoteStart) != '"' && declaration.charAt(quoteStart) != '\'') {
+                quoteStart++;
+            }
+            if (quoteStart >= declaration.length()) {
+                return false;
+            }
+            int quoteEnd = declaration.indexOf(declaration.charAt(quoteStart), quoteStart + 1);
+            if (quoteEnd < 0) {
+                return false;
+            }
+            return ASCII_COMPATIBLE_ENCODINGS.contains(declaration.substring(quoteStart + 1, quoteEnd).toUpperCase(Locale.ROOT));
+        }
+
+        private int indexOf(int pos, byte b1, byte b2) {
+            for (int i = pos; i + 1 < limit; i++) {
+                if (buffer.get(i) == b1 && buffer.get(i + 1) == b2) {
+                    return i;
+                }
+            }
+            return -1;
+        }
+
+        private boolean startsWith(int pos, byte[] bytes) {
+            if (limit - pos < bytes.length) {
+                return false;
+            }
+            for (int i = 0; i < bytes.length; i++) {
+                if (buffer.get(pos + i) != bytes[i]) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        private int skipWhitespace(int pos) {
+            while (pos < limit && isWhitespace(buffer.get(pos))) {
+                pos++;
+            }
+            return pos;
+        }
+
+        private static boolean isWhitespace(byte b) {
+            return b == ' ' || b == '\t' || b == '\n' || b == '\r';
+        }
+    }
+}
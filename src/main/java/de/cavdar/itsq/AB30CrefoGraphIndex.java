@@ -0,0 +1,455 @@
+package de.cavdar.itsq;
+
+import de.cavdar.gui.util.TimelineLogger;
+
+import java.io.*;
+import java.nio.file.*;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.*;
+
+/**
+ * Persistenter Index der Beteiligungen zwischen den Crefos eines ARCHIV-BESTAND-Phasen-Verzeichnisses.
+ * <p>
+ * Für jede Crefo-XML ("&lt;crefo&gt;.xml") werden die Firmen- und Verfahrens-Beteiligten
+ * (FIRMENBETEILIGTER/VERFAHRENSBETEILIGTER aus AB30MapperUtil#parseCrefosFromXmlContent) als Kanten gespeichert.
+ * Abfragen laufen auf kompakten Arrays (CSR): die Crefos sortiert in einem long-Array, Vorwärts- und Rückwärts-Kanten
+ * als Offset- und Ziel-Index-Arrays. Damit sind "wer referenziert X" und "transitive Beteiligte von Y"
+ * ohne erneutes Parsen beantwortbar.
+ * <p>
+ * Änderungen einzelner XMLs werden über {@link #update(File)} bzw. {@link #refresh()} (Vergleich von Größe und
+ * Änderungszeit) eingearbeitet. Die Arrays bleiben dabei bestehen, die geänderten Quell-Crefos werden als Differenz
+ * geführt und bei Abfragen mit den Arrays verrechnet. Erst wenn die Differenz zu groß wird, werden die Arrays bei der
+ * nächsten Abfrage neu aufgebaut. Der Index ist thread-safe.
+ */
+public class AB30CrefoGraphIndex {
+    public static final String INDEX_FILENAME = ".crefo-graph-index";
+    private static final int MAGIC = 0x41423347; // "AB3G"
+    private static final int FORMAT_VERSION = 1;
+    // MAGIC, FORMAT_VERSION und Anzahl der Einträge
+    private static final int HEADER_BYTES = 3 * Integer.BYTES;
+    // Crefo, Größe, Änderungszeit und Anzahl der Beteiligten eines Eintrags
+    private static final int ENTRY_BYTES = 3 * Long.BYTES + Integer.BYTES;
+    private static final long[] NO_CREFOS = {};
+    // ab so vielen geänderten Quell-Crefos (mindestens) werden die Arrays neu aufgebaut
+    private static final int MIN_CHANGES_BEFORE_REBUILD = 64;
+
+    private final File ab30XmlsDir;
+    private final File indexFile;
+    private final AB30CrefoParseCache.CrefoXmlParser crefoXmlParser;
+    // Quell-Crefo -> Stand der XML und deren Beteiligte
+    private final LongObjectHashMap<SourceEntry> sourceEntries = new LongObjectHashMap<>();
+    private boolean dirty;
+
+    // kompakte Darstellung; null, bis sie bei der ersten Abfrage aufgebaut wird
+    private long[] nodeCrefos;
+    private int[] forwardOffsets;
+    private int[] forwardTargets;
+    private int[] reverseOffsets;
+    private int[] reverseTargets;
+    // seit dem Aufbau der Arrays geänderte, hinzugekommene oder entfernte Quell-Crefos; ihr aktueller Stand steht in sourceEntries
+    private final LongSortedSet changedSources = new LongSortedSet();
+
+    public AB30CrefoGraphIndex(File ab30XmlsDir, AB30CrefoParseCache.CrefoXmlParser crefoXmlParser) {
+        this.ab30XmlsDir = ab30XmlsDir;
+        this.indexFile = new File(ab30XmlsDir, INDEX_FILENAME);
+        this.crefoXmlParser = crefoXmlParser;
+    }
+
+    /**
+     * Lädt den gespeicherten Index des Verzeichnisses und gleicht ihn mit den aktuellen XMLs ab.
+     */
+    public static AB30CrefoGraphIndex forDirectory(File ab30XmlsDir, AB30MapperUtil ab30MapperUtil) throws Exception {
+        AB30CrefoGraphIndex graphIndex = new AB30CrefoGraphIndex(ab30XmlsDir, ab30MapperUtil::parseCrefosFromXmlContent);
+        graphIndex.load();
+        graphIndex.refresh();
+        return graphIndex;
+    }
+
+    /**
+     * Gleicht den Index mit den XMLs im Verzeichnis ab: neue und geänderte XMLs werden geparst,
+     * gelöschte entfernt. Liefert die Anzahl der geänderten Einträge.
+     */
+    public synchronized int refresh() throws Exception {
+        int changes = 0;
+        LongSortedSet existingCrefos = new LongSortedSet();
+        try (DirectoryStream<Path> xmlPaths = Files.newDirectoryStream(ab30XmlsDir.toPath(), "*.xml")) {
+            for (Path xmlPath : xmlPaths) {
+                long crefoNr = toCrefoNr(xmlPath);
+                if (crefoNr < 0) {
+                    continue;
+                }
+                existingCrefos.add(crefoNr);
+                if (updateIfChanged(crefoNr, xmlPath)) {
+                    changes++;
+                }
+            }
+        }
+        for (long crefoNr : sourceEntries.keys()) {
+            if (!existingCrefos.contains(crefoNr)) {
+                remove(crefoNr);
+                changes++;
+            }
+        }
+        return changes;
+    }
+
+    /**
+     * Arbeitet eine einzelne geänderte, neue oder gelöschte XML in den Index ein.
+     */
+    public synchronized void update(File ab30CrefoXmlFile) throws Exception {
+        long crefoNr = toCrefoNr(ab30CrefoXmlFile.toPath());
+        if (crefoNr < 0) {
+            throw new IllegalArgumentException("Der Dateiname '" + ab30CrefoXmlFile.getName() + "' entspricht keiner Crefo-XML!");
+        }
+        if (ab30CrefoXmlFile.exists()) {
+            updateIfChanged(crefoNr, ab30CrefoXmlFile.toPath());
+        } else {
+            remove(crefoNr);
+        }
+    }
+
+    public synchronized void remove(long crefoNr) {
+        if (sourceEntries.remove(crefoNr) != null) {
+            markChanged(crefoNr);
+        }
+    }
+
+    private boolean updateIfChanged(long crefoNr, Path xmlPath) throws Exception {
+        BasicFileAttributes attributes = Files.readAttributes(xmlPath, BasicFileAttributes.class);
+        long size = attributes.size();
+        long lastModified = attributes.lastModifiedTime().toMillis();
+        SourceEntry sourceEntry = sourceEntries.get(crefoNr);
+        if (sourceEntry != null && sourceEntry.size == size && sourceEntry.lastModified == lastModified) {
+            return false;
+        }
+        Map<String, List<Long>> crefoListsMap = crefoXmlParser.parse(xmlPath.toFile());
+        LongSortedSet participants = new LongSortedSet();
+        addParticipants(participants, crefoListsMap.get(AB30MapperUtil.TAG_FIRMENBETEILIGTER));
+        addParticipants(participants, crefoListsMap.get(AB30MapperUtil.TAG_VERFAHRENSBETEILIGTER));
+        // wie in AB30MapperUtil#handleBtlgOrEntg: die Haupt-Crefo ist nicht ihr eigener Beteiligter
+        participants.remove(crefoNr);
+        sourceEntries.put(crefoNr, new SourceEntry(size, lastModified, participants.toLongArray()));
+        markChanged(crefoNr);
+        return true;
+    }
+
+    private static void addParticipants(LongSortedSet participants, List<Long> crefosList) {
+        if (crefosList != null) {
+            for (Long crefo : crefosList) {
+                participants.add(crefo.longValue());
+            }
+        }
+    }
+
+    private void markChanged(long crefoNr) {
+        if (nodeCrefos != null) {
+            changedSources.add(crefoNr);
+        }
+        dirty = true;
+    }
+
+    /**
+     * Anzahl der noch nicht in die Arrays übernommenen Änderungen.
+     */
+    synchronized int getPendingChangeCount() {
+        return changedSources.size();
+    }
+
+    /**
+     * Direkte Beteiligte der Crefo, aufsteigend sortiert.
+     */
+    public synchronized long[] getParticipants(long crefoNr) {
+        SourceEntry sourceEntry = sourceEntries.get(crefoNr);
+        return sourceEntry == null ? NO_CREFOS : sourceEntry.participants.clone();
+    }
+
+    /**
+     * Alle Crefos, deren XML die angegebene Crefo als Beteiligten enthält, aufsteigend sortiert.
+     */
+    public synchronized long[] getReferencingCrefos(long participantCrefoNr) {
+        ensureCompacted(false);
+        int node = Arrays.binarySearch(nodeCrefos, participantCrefoNr);
+        if (changedSources.isEmpty()) {
+            return node < 0 ? NO_CREFOS : toCrefos(reverseTargets, reverseOffsets[node], reverseOffsets[node + 1]);
+        }
+        // Kanten unveränderter Quellen aus den Arrays, die der geänderten aus ihrem aktuellen Stand
+        LongSortedSet referencingCrefos = new LongSortedSet();
+        if (node >= 0) {
+            for (int i = reverseOffsets[node]; i < reverseOffsets[node + 1]; i++) {
+                long sourceCrefo = nodeCrefos[reverseTargets[i]];
+                if (!changedSources.contains(sourceCrefo)) {
+                    referencingCrefos.add(sourceCrefo);
+                }
+            }
+        }
+        for (int i = 0; i < changedSources.size(); i++) {
+            long sourceCrefo = changedSources.get(i);
+            SourceEntry sourceEntry = sourceEntries.get(sourceCrefo);
+            if (sourceEntry != null && Arrays.binarySearch(sourceEntry.participants, participantCrefoNr) >= 0) {
+                referencingCrefos.add(sourceCrefo);
+            }
+        }
+        return referencingCrefos.toLongArray();
+    }
+
+    /**
+     * Alle direkt und indirekt (über Beteiligte von Beteiligten) erreichbaren Crefos ohne die Crefo selbst, aufsteigend sortiert.
+     */
+    public synchronized long[] getTransitiveParticipants(long crefoNr) {
+        ensureCompacted(false);
+        if (!changedSources.isEmpty()) {
+            return getTransitiveParticipantsWithChanges(crefoNr);
+        }
+        int startNode = Arrays.binarySearch(nodeCrefos, crefoNr);
+        if (startNode < 0) {
+            return NO_CREFOS;
+        }
+        BitSet visitedNodes = new BitSet(nodeCrefos.length);
+        int[] queue = new int[nodeCrefos.length];
+        int queueHead = 0;
+        int queueTail = 0;
+        visitedNodes.set(startNode);
+        queue[queueTail++] = startNode;
+        while (queueHead < queueTail) {
+            int node = queue[queueHead++];
+            for (int i = forwardOffsets[node]; i < forwardOffsets[node + 1]; i++) {
+                int target = forwardTargets[i];
+                if (!visitedNodes.get(target)) {
+                    visitedNodes.set(target);
+                    queue[queueTail++] = target;
+                }
+            }
+        }
+        visitedNodes.clear(startNode);
+        long[] result = new long[visitedNodes.cardinality()];
+        int k = 0;
+        // die Knoten sind nach Crefo sortiert, die Bit-Reihenfolge ist also aufsteigend
+        for (int node = visitedNodes.nextSetBit(0); node >= 0; node = visitedNodes.nextSetBit(node + 1)) {
+            result[k++] = nodeCrefos[node];
+        }
+        return result;
+    }
+
+    /**
+     * Breitensuche über die Crefo-Nummern, solange Änderungen ausstehen: die Beteiligten jeder Quelle stehen
+     * aktuell in sourceEntries, besucht wird per Bit je Knoten der Arrays bzw. für neue Crefos in einer Menge.
+     */
+    private long[] getTransitiveParticipantsWithChanges(long crefoNr) {
+        if (sourceEntries.get(crefoNr) == null) {
+            return NO_CREFOS;
+        }
+        BitSet visitedNodes = new BitSet(nodeCrefos.length);
+        LongSortedSet visitedNewCrefos = new LongSortedSet();
+        long[] queue = new long[16];
+        int queueHead = 0;
+        int queueTail = 0;
+        markVisited(crefoNr, visitedNodes, visitedNewCrefos);
+        queue[queueTail++] = crefoNr;
+        while (queueHead < queueTail) {
+            SourceEntry sourceEntry = sourceEntries.get(queue[queueHead++]);
+            if (sourceEntry == null) {
+                continue;
+            }
+            for (long participant : sourceEntry.participants) {
+                if (markVisited(participant, visitedNodes, visitedNewCrefos)) {
+                    if (queueTail == queue.length) {
+                        queue = Arrays.copyOf(queue, queue.length * 2);
+                    }
+                    queue[queueTail++] = participant;
+                }
+            }
+        }
+        long[] result = Arrays.copyOfRange(queue, 1, queueTail);
+        Arrays.sort(result);
+        return result;
+    }
+
+    private boolean markVisited(long crefoNr, BitSet visitedNodes, LongSortedSet visitedNewCrefos) {
+        int node = Arrays.binarySearch(nodeCrefos, crefoNr);
+        if (node < 0) {
+            return visitedNewCrefos.add(crefoNr);
+        }
+        if (visitedNodes.get(node)) {
+            return false;
+        }
+        visitedNodes.set(node);
+        return true;
+    }
+
+    public synchronized int getCrefoCount() {
+        ensureCompacted(true);
+        return nodeCrefos.length;
+    }
+
+    public synchronized int getEdgeCount() {
+        ensureCompacted(true);
+        return forwardTargets.length;
+    }
+
+    private long[] toCrefos(int[] targets, int from, int to) {
+        long[] crefos = new long[to - from];
+        for (int i = from; i < to; i++) {
+            crefos[i - from] = nodeCrefos[targets[i]];
+        }
+        return crefos;
+    }
+
+    /**
+     * Baut die Arrays auf, wenn es sie noch nicht gibt oder zu viele Änderungen ausstehen (mit complete bei jeder Änderung).
+     */
+    private void ensureCompacted(boolean complete) {
+        if (nodeCrefos != null && (complete ? changedSources.isEmpty()
+                : changedSources.size() < Math.max(MIN_CHANGES_BEFORE_REBUILD, nodeCrefos.length / 16))) {
+            return;
+        }
+        long[] sourceCrefos = sourceEntries.sortedKeys();
+        LongSortedSet allCrefos = new LongSortedSet();
+        int edgeCount = 0;
+        for (long sourceCrefo : sourceCrefos) {
+            allCrefos.add(sourceCrefo);
+            for (long participant : sourceEntries.get(sourceCrefo).participants) {
+                allCrefos.add(participant);
+            }
+            edgeCount += sourceEntries.get(sourceCrefo).participants.length;
+        }
+        long[] crefos = allCrefos.toLongArray();
+        int[] forwardCounts = new int[crefos.length + 1];
+        int[] reverseCounts = new int[crefos.length + 1];
+        int[] edgeSources = new int[edgeCount];
+        int[] edgeTargets = new int[edgeCount];
+        int edge = 0;
+        for (long sourceCrefo : sourceCrefos) {
+            int sourceNode = Arrays.binarySearch(crefos, sourceCrefo);
+            for (long participant : sourceEntries.get(sourceCrefo).participants) {
+                int targetNode = Arrays.binarySearch(crefos, participant);
+                edgeSources[edge] = sourceNode;
+                edgeTargets[edge] = targetNode;
+                forwardCounts[sourceNode + 1]++;
+                reverseCounts[targetNode + 1]++;
+                edge++;
+            }
+        }
+        for (int i = 0; i < crefos.length; i++) {
+            forwardCounts[i + 1] += forwardCounts[i];
+            reverseCounts[i + 1] += reverseCounts[i];
+        }
+        int[] newForwardTargets = new int[edgeCount];
+        int[] newReverseTargets = new int[edgeCount];
+        int[] forwardPositions = Arrays.copyOf(forwardCounts, crefos.length);
+        int[] reversePositions = Arrays.copyOf(reverseCounts, crefos.length);
+        // die Kanten sind nach Quelle und Ziel sortiert, dadurch sind auch die Listen sortiert
+        for (int i = 0; i < edgeCount; i++) {
+            newForwardTargets[forwardPositions[edgeSources[i]]++] = edgeTargets[i];
+            newReverseTargets[reversePositions[edgeTargets[i]]++] = edgeSources[i];
+        }
+        forwardOffsets = forwardCounts;
+        forwardTargets = newForwardTargets;
+        reverseOffsets = reverseCounts;
+        reverseTargets = newReverseTargets;
+        nodeCrefos = crefos;
+        changedSources.clear();
+    }
+
+    private static long toCrefoNr(Path xmlPath) {
+        String fileName = xmlPath.getFileName().toString();
+        int length = fileName.length() - ".xml".length();
+        if (length <= 0 || length > 18 || !fileName.endsWith(".xml")) {
+            return -1;
+        }
+        long crefoNr = 0;
+        for (int i = 0; i < length; i++) {
+            char c = fileName.charAt(i);
+            if (c < '0' || c > '9') {
+                return -1;
+            }
+            crefoNr = crefoNr * 10 + (c - '0');
+        }
+        return crefoNr;
+    }
+
+    /**
+     * Liest den gespeicherten Index. Ein defekter Index (auch mit Anzahlen, die nicht zur Dateigröße passen) wird
+     * verworfen und beim nächsten {@link #refresh()} neu aufgebaut.
+     */
+    public synchronized void load() {
+        if (!indexFile.exists()) {
+            return;
+        }
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(indexFile)))) {
+            if (in.readInt() != MAGIC || in.readInt() != FORMAT_VERSION) {
+                throw new IOException("Unbekanntes Format");
+            }
+            // die Anzahlen werden gegen die restlichen Bytes geprüft, bevor Arrays dafür angelegt werden
+            long remainingBytes = indexFile.length() - HEADER_BYTES;
+            int count = in.readInt();
+            if (count < 0 || count > remainingBytes / ENTRY_BYTES) {
+                throw new IOException("Ungültige Anzahl der Einträge: " + count);
+            }
+            for (int i = 0; i < count; i++) {
+                long crefoNr = in.readLong();
+                long size = in.readLong();
+                long lastModified = in.readLong();
+                int participantsCount = in.readInt();
+                remainingBytes -= ENTRY_BYTES;
+                if (participantsCount < 0 || participantsCount > remainingBytes / Long.BYTES) {
+                    throw new IOException("Ungültige Anzahl der Beteiligten von " + crefoNr + ": " + participantsCount);
+                }
+                long[] participants = new long[participantsCount];
+                for (int j = 0; j < participants.length; j++) {
+                    participants[j] = in.readLong();
+                }
+                remainingBytes -= (long) participantsCount * Long.BYTES;
+                sourceEntries.put(crefoNr, new SourceEntry(size, lastModified, participants));
+            }
+            nodeCrefos = null;
+            changedSources.clear();
+        } catch (IOException | RuntimeException ex) {
+            // ein defekter Index wird einfach neu aufgebaut
+            TimelineLogger.warn(this.getClass(), "Crefo-Index '" + indexFile.getAbsolutePath() + "' konnte nicht gelesen werden und wird neu aufgebaut: " + ex.getMessage());
+            sourceEntries.clear();
+            nodeCrefos = null;
+            changedSources.clear();
+            dirty = true;
+        }
+    }
+
+    /**
+     * Schreibt den Index, falls er sich geändert hat (atomar über eine temporäre Datei).
+     */
+    public synchronized void save() throws IOException {
+        if (!dirty) {
+            return;
+        }
+        File tmpFile = new File(indexFile.getParentFile(), indexFile.getName() + ".tmp");
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(tmpFile)))) {
+            out.writeInt(MAGIC);
+            out.writeInt(FORMAT_VERSION);
+            long[] sourceCrefos = sourceEntries.sortedKeys();
+            out.writeInt(sourceCrefos.length);
+            for (long sourceCrefo : sourceCrefos) {
+                SourceEntry sourceEntry = sourceEntries.get(sourceCrefo);
+                out.writeLong(sourceCrefo);
+                out.writeLong(sourceEntry.size);
+                out.writeLong(sourceEntry.lastModified);
+                out.writeInt(sourceEntry.participants.length);
+                for (long participant : sourceEntry.participants) {
+                    out.writeLong(participant);
+                }
+            }
+        }
+        ItsqFiles.moveAtomically(tmpFile.toPath(), indexFile.toPath());
+        dirty = false;
+    }
+
+    private static final class SourceEntry {
+        private final long size;
+        private final long lastModified;
+        private final long[] participants;
+
+        private SourceEntry(long size, long lastModified, long[] participants) {
+            this.size = size;
+            this.lastModified = lastModified;
+            this.participants = participants;
+        }
+    }
+}
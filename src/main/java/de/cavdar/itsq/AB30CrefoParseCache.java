@@ -0,0 +1,334 @@
+package de.cavdar.itsq;
+
+import de.cavdar.gui.util.TimelineLogger;
+
+import java.io.*;
+import java.nio.file.*;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Persistenter Cache für die aus den AB30-XMLs ermittelten Crefo-Listen (siehe AB30MapperUtil#parseCrefosFromXmlContent).
+ * <p>
+ * Ein Eintrag gilt pro XML-Datei (relativer Pfad zum Cache-Verzeichnis) und speichert Größe, Änderungszeit und
+ * SHA-256 des Inhalts. Stimmen Größe und Änderungszeit überein, wird der Eintrag ohne Lesen der Datei geliefert;
+ * hat sich nur die Änderungszeit geändert, entscheidet der Inhalts-Hash, ob neu geparst werden muss.
+ * <p>
+ * Bei einem Fehltreffer wird die Datei einmal gelesen; Hash und Parser arbeiten auf denselben Bytes.
+ * <p>
+ * Der Cache ist thread-safe. Beim Speichern wird der aktuelle Stand auf der Platte übernommen, in eine eigene
+ * Temp-Datei geschrieben und die Cache-Datei atomar ersetzt. Ohne Sperre (FileLock ist unter Windows zwischen
+ * Prozessen unzuverlässig, siehe docs/ENVIRONMENT_LOCKING.md) kann bei gleichzeitigem Speichern ein Lauf die neuen
+ * Einträge des anderen verlieren; sie werden dann beim nächsten Lauf neu geparst, die Datei bleibt immer vollständig.
+ * Per {@link #invalidate(File)} entfernte Einträge werden beim Zusammenführen nicht wieder übernommen. Einträge für
+ * nicht mehr existierende Dateien sowie lange nicht benutzte Einträge werden entfernt.
+ */
+public class AB30CrefoParseCache {
+    public static final String CACHE_FILENAME = ".crefo-parse-cache";
+    private static final int MAGIC = 0x41423343; // "AB3C"
+    private static final int FORMAT_VERSION = 1;
+    private static final long MAX_UNUSED_MILLIS = TimeUnit.DAYS.toMillis(30);
+    private static final long ACCESS_UPDATE_MILLIS = TimeUnit.DAYS.toMillis(1);
+    private static final int DEFAULT_MAX_ENTRIES = 500_000;
+
+    @FunctionalInterface
+    public interface CrefoXmlParser {
+        Map<String, List<Long>> parse(File ab30CrefoXmlFile) throws Exception;
+
+        /**
+         * Parst den vom Cache bereits gelesenen Inhalt der XML. Parser, die mit Bytes arbeiten können,
+         * überschreiben die Methode, damit die Datei nicht ein zweites Mal gelesen wird.
+         */
+        default Map<String, List<Long>> parse(File ab30CrefoXmlFile, byte[] content) throws Exception {
+            return parse(ab30CrefoXmlFile);
+        }
+    }
+
+    private final File cacheFile;
+    private final Path baseDir;
+    private final Map<String, CacheEntry> entries = new ConcurrentHashMap<>();
+    // seit dem letzten Speichern invalidierte Schlüssel, die beim Zusammenführen nicht von der Platte zurückkommen dürfen
+    private final Set<String> removedKeys = ConcurrentHashMap.newKeySet();
+    // Verzeichnisse (relativ wie die Schlüssel), aus denen seit dem letzten Speichern gelesen wurde
+    private final Set<String> scannedDirKeys = ConcurrentHashMap.newKeySet();
+    private final AtomicInteger hits = new AtomicInteger();
+    private final AtomicInteger misses = new AtomicInteger();
+    private volatile boolean dirty;
+    private int maxEntries = DEFAULT_MAX_ENTRIES;
+
+    public AB30CrefoParseCache(File cacheFile) {
+        this.cacheFile = cacheFile;
+        this.baseDir = cacheFile.getAbsoluteFile().getParentFile().toPath();
+    }
+
+    /**
+     * Liefert den Cache für das angegebene ARCHIV-BESTAND-Verzeichnis und lädt ihn, falls vorhanden.
+     */
+    public static AB30CrefoParseCache forDirectory(File ab30XmlsDir) {
+        AB30CrefoParseCache parseCache = new AB30CrefoParseCache(new File(ab30XmlsDir, CACHE_FILENAME));
+        parseCache.load();
+        return parseCache;
+    }
+
+    public void setMaxEntries(int maxEntries) {
+        this.maxEntries = maxEntries;
+    }
+
+    public int getHits() {
+        return hits.get();
+    }
+
+    public int getMisses() {
+        return misses.get();
+    }
+
+    public int size() {
+        return entries.size();
+    }
+
+    public Map<String, List<Long>> get(File ab30CrefoXmlFile, CrefoXmlParser crefoXmlParser) throws Exception {
+        Path xmlPath = ab30CrefoXmlFile.toPath();
+        BasicFileAttributes attributes = Files.readAttributes(xmlPath, BasicFileAttributes.class);
+        long size = attributes.size();
+        long lastModified = attributes.lastModifiedTime().toMillis();
+        String key = toKey(xmlPath);
+        scannedDirKeys.add(dirKeyOf(key));
+        long now = System.currentTimeMillis();
+
+        CacheEntry cacheEntry = entries.get(key);
+        if (cacheEntry != null && cacheEntry.size == size && cacheEntry.lastModified == lastModified) {
+            return hit(key, cacheEntry, now);
+        }
+        byte[] content = Files.readAllBytes(xmlPath);
+        byte[] contentHash = hashContent(content);
+        if (cacheEntry != null && cacheEntry.size == content.length && Arrays.equals(cacheEntry.contentHash, contentHash)) {
+            // nur die Änderungszeit weicht ab
+            entries.put(key, new CacheEntry(content.length, lastModified, contentHash, now, cacheEntry.crefoListsMap));
+            dirty = true;
+            hits.incrementAndGet();
+            return cacheEntry.crefoListsMap;
+        }
+        misses.incrementAndGet();
+        Map<String, List<Long>> crefoListsMap = copyOf(crefoXmlParser.parse(ab30CrefoXmlFile, content));
+        entries.put(key, new CacheEntry(content.length, lastModified, contentHash, now, crefoListsMap));
+        removedKeys.remove(key);
+        dirty = true;
+        return crefoListsMap;
+    }
+
+    private Map<String, List<Long>> hit(String key, CacheEntry cacheEntry, long now) {
+        hits.incrementAndGet();
+        if (now - cacheEntry.lastAccess > ACCESS_UPDATE_MILLIS) {
+            entries.put(key, new CacheEntry(cacheEntry.size, cacheEntry.lastModified, cacheEntry.contentHash, now, cacheEntry.crefoListsMap));
+            dirty = true;
+        }
+        return cacheEntry.crefoListsMap;
+    }
+
+    public void invalidate(File ab30CrefoXmlFile) {
+        String key = toKey(ab30CrefoXmlFile.toPath());
+        removedKeys.add(key);
+        if (entries.remove(key) != null) {
+            dirty = true;
+        }
+    }
+
+    public void load() {
+        if (!cacheFile.exists()) {
+            return;
+        }
+        try {
+            entries.putAll(readEntries(cacheFile));
+        } catch (IOException ex) {
+            // ein defekter Cache wird einfach neu aufgebaut
+            TimelineLogger.warn(this.getClass(), "Parse-Cache '" + cacheFile.getAbsolutePath() + "' konnte nicht gelesen werden und wird neu aufgebaut: " + ex.getMessage());
+            entries.clear();
+        }
+    }
+
+    /**
+     * Schreibt den Cache, falls er sich geändert hat. Einträge aus einem parallel geschriebenen Stand
+     * werden übernommen (außer den hier invalidierten), veraltete Einträge entfernt.
+     */
+    public synchronized void save() throws IOException {
+        if (!dirty) {
+            return;
+        }
+        if (cacheFile.exists()) {
+            try {
+                readEntries(cacheFile).forEach((key, diskEntry) -> {
+                    if (!removedKeys.contains(key)) {
+                        entries.merge(key, diskEntry,
+                                (ownEntry, otherEntry) -> ownEntry.lastAccess >= otherEntry.lastAccess ? ownEntry : otherEntry);
+                    }
+                });
+            } catch (IOException ex) {
+                TimelineLogger.warn(this.getClass(), "Parse-Cache '" + cacheFile.getAbsolutePath() + "' ist defekt und wird überschrieben: " + ex.getMessage());
+            }
+        }
+        compact();
+        // eigene Temp-Datei pro Schreiber, damit parallele Läufe nicht in dieselbe Datei schreiben
+        Path tmpPath = Files.createTempFile(baseDir, cacheFile.getName(), ".tmp");
+        try {
+            writeEntries(tmpPath.toFile());
+            ItsqFiles.moveAtomically(tmpPath, cacheFile.toPath());
+        } finally {
+            Files.deleteIfExists(tmpPath);
+        }
+        removedKeys.clear();
+        scannedDirKeys.clear();
+        dirty = false;
+    }
+
+    /**
+     * Entfernt lange nicht benutzte Einträge und die Einträge gelöschter Dateien. Auf gelöschte Dateien
+     * werden nur die Verzeichnisse geprüft, aus denen seit dem letzten Speichern gelesen wurde, mit einem
+     * Listing pro Verzeichnis.
+     */
+    protected void compact() {
+        long oldestAllowedAccess = System.currentTimeMillis() - MAX_UNUSED_MILLIS;
+        entries.values().removeIf(cacheEntry -> cacheEntry.lastAccess < oldestAllowedAccess);
+        if (!scannedDirKeys.isEmpty()) {
+            Map<String, Set<String>> namesByDirKey = new HashMap<>();
+            for (String dirKey : scannedDirKeys) {
+                Set<String> names = listNames(dirKey.isEmpty() ? baseDir : baseDir.resolve(dirKey));
+                if (names != null) {
+                    namesByDirKey.put(dirKey, names);
+                }
+            }
+            entries.keySet().removeIf(key -> {
+                Set<String> names = namesByDirKey.get(dirKeyOf(key));
+                return names != null && !names.contains(Paths.get(key).getFileName().toString());
+            });
+        }
+        if (entries.size() > maxEntries) {
+            List<Map.Entry<String, CacheEntry>> entriesByAccess = new ArrayList<>(entries.entrySet());
+            entriesByAccess.sort(Comparator.comparingLong(entry -> entry.getValue().lastAccess));
+            int toRemove = entries.size() - maxEntries;
+            for (int i = 0; i < toRemove; i++) {
+                entries.remove(entriesByAccess.get(i).getKey());
+            }
+        }
+    }
+
+    private static Set<String> listNames(Path dir) {
+        Set<String> names = new HashSet<>();
+        try (DirectoryStream<Path> children = Files.newDirectoryStream(dir)) {
+            for (Path child : children) {
+                names.add(child.getFileName().toString());
+            }
+        } catch (NoSuchFileException | NotDirectoryException ex) {
+            // Verzeichnis gelöscht: alle seine Einträge entfallen
+        } catch (IOException ex) {
+            TimelineLogger.warn(AB30CrefoParseCache.class, "Verzeichnis '" + dir + "' konnte nicht gelesen werden: " + ex.getMessage());
+            return null;
+        }
+        return names;
+    }
+
+    private static String dirKeyOf(String key) {
+        Path parent = Paths.get(key).getParent();
+        return parent != null ? parent.toString() : "";
+    }
+
+    private String toKey(Path xmlPath) {
+        Path absolutePath = xmlPath.toAbsolutePath().normalize();
+        if (absolutePath.startsWith(baseDir)) {
+            return baseDir.relativize(absolutePath).toString();
+        }
+        return absolutePath.toString();
+    }
+
+    private static byte[] hashContent(byte[] content) {
+        try {
+            return MessageDigest.getInstance("SHA-256").digest(content);
+        } catch (NoSuchAlgorithmException ex) {
+            throw new IllegalStateException(ex);
+        }
+    }
+
+    private static Map<String, List<Long>> copyOf(Map<String, List<Long>> crefoListsMap) {
+        Map<String, List<Long>> copy = new HashMap<>();
+        crefoListsMap.forEach((key, crefosList) -> copy.put(key, List.copyOf(crefosList)));
+        return Collections.unmodifiableMap(copy);
+    }
+
+    private static Map<String, CacheEntry> readEntries(File file) throws IOException {
+        Map<String, CacheEntry> readEntries = new HashMap<>();
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)))) {
+            if (in.readInt() != MAGIC || in.readInt() != FORMAT_VERSION) {
+                throw new IOException("Unbekanntes Format");
+            }
+            int count = in.readInt();
+            for (int i = 0; i < count; i++) {
+                String key = in.readUTF();
+                long size = in.readLong();
+                long lastModified = in.readLong();
+                byte[] contentHash = new byte[in.readUnsignedByte()];
+                in.readFully(contentHash);
+                long lastAccess = in.readLong();
+                int mapSize = in.readInt();
+                Map<String, List<Long>> crefoListsMap = new HashMap<>();
+                for (int j = 0; j < mapSize; j++) {
+                    String tagName = in.readUTF();
+                    Long[] crefos = new Long[in.readInt()];
+                    for (int k = 0; k < crefos.length; k++) {
+                        crefos[k] = in.readLong();
+                    }
+                    crefoListsMap.put(tagName, List.of(crefos));
+                }
+                readEntries.put(key, new CacheEntry(size, lastModified, contentHash, lastAccess, Collections.unmodifiableMap(crefoListsMap)));
+            }
+        } catch (EOFException ex) {
+            throw new IOException("Unvollständige Cache-Datei", ex);
+        }
+        return readEntries;
+    }
+
+    private void writeEntries(File file) throws IOException {
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file)))) {
+            out.writeInt(MAGIC);
+            out.writeInt(FORMAT_VERSION);
+            Map<String, CacheEntry> snapshot = new TreeMap<>(entries);
+            out.writeInt(snapshot.size());
+            for (Map.Entry<String, CacheEntry> entry : snapshot.entrySet()) {
+                CacheEntry cacheEntry = entry.getValue();
+                out.writeUTF(entry.getKey());
+                out.writeLong(cacheEntry.size);
+                out.writeLong(cacheEntry.lastModified);
+                out.writeByte(cacheEntry.contentHash.length);
+                out.write(cacheEntry.contentHash);
+                out.writeLong(cacheEntry.lastAccess);
+                out.writeInt(cacheEntry.crefoListsMap.size());
+                for (Map.Entry<String, List<Long>> crefosEntry : cacheEntry.crefoListsMap.entrySet()) {
+                    out.writeUTF(crefosEntry.getKey());
+                    out.writeInt(crefosEntry.getValue().size());
+                    for (Long crefo : crefosEntry.getValue()) {
+                        out.writeLong(crefo);
+                    }
+                }
+            }
+        }
+    }
+
+    private static final class CacheEntry {
+        private final long size;
+        private final long lastModified;
+        private final byte[] contentHash;
+        private final long lastAccess;
+        private final Map<String, List<Long>> crefoListsMap;
+
+        private CacheEntry(long size, long lastModified, byte[] contentHash, long lastAccess, Map<String, List<Long>> crefoListsMap) {
+            this.size = size;
+            this.lastModified = lastModified;
+            this.contentHash = contentHash;
+            this.lastAccess = lastAccess;
+            this.crefoListsMap = crefoListsMap;
+        }
+    }
+}
@@ -0,0 +1,120 @@
+package de.cavdar.itsq;
+
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import java.io.BufferedInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Streaming-Variante von AB30MapperUtil#parseCrefosFromXmlContent:
+ * liest die AB30-XML in einem Durchlauf per StAX, ohne DOM aufzubauen.
+ * Gespeichert wird nur der Stack der offenen Element-Namen, der Speicherbedarf
+ * hängt also nur von der Verschachtelungstiefe ab, nicht von der Dateigröße.
+ * <p>
+ * Die Map ist identisch mit der des XPath-Modus: Schlüssel ist der Name des Eltern-Elements
+ * (in Großbuchstaben, ohne "ARC:"-Präfix), Werte in Dokument-Reihenfolge.
+ */
+public class AB30CrefoStaxExtractor {
+    private static final String TAG_CREFONUMMER = "crefonummer";
+    private static final String TAG_CREFONUMMER_BETEILIGTER = "crefonummer-beteiligter";
+
+    private static final XMLInputFactory XML_INPUT_FACTORY = createXmlInputFactory();
+
+    private static XMLInputFactory createXmlInputFactory() {
+        XMLInputFactory xmlInputFactory = XMLInputFactory.newInstance();
+        // nicht namespace-aware: die Präfixe bleiben Teil des Element-Namens (wie DOM#getNodeName),
+        // und ungebundene Präfixe wie "arc:" führen nicht zum Abbruch
+        xmlInputFactory.setProperty(XMLInputFactory.IS_NAMESPACE_AWARE, Boolean.FALSE);
+        xmlInputFactory.setProperty(XMLInputFactory.SUPPORT_DTD, Boolean.FALSE);
+        xmlInputFactory.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, Boolean.FALSE);
+        return xmlInputFactory;
+    }
+
+    public Map<String, List<Long>> extract(File ab30CrefoXmlFile) throws IOException, XMLStreamException {
+        try (InputStream inputStream = new BufferedInputStream(Files.newInputStream(ab30CrefoXmlFile.toPath()))) {
+            return extract(inputStream, ab30CrefoXmlFile.getAbsolutePath());
+        }
+    }
+
+    public Map<String, List<Long>> extract(InputStream inputStream, String systemId) throws XMLStreamException {
+        Map<String, List<Long>> crefoListsMap = new HashMap<>();
+        crefoListsMap.put(AB30MapperUtil.TAG_STEUERUNGSDATEN, new ArrayList<>());
+        crefoListsMap.put(AB30MapperUtil.TAG_FIRMENBETEILIGTER, new ArrayList<>());
+        crefoListsMap.put(AB30MapperUtil.TAG_VERFAHRENSBETEILIGTER, new ArrayList<>());
+
+        XMLStreamReader reader = XML_INPUT_FACTORY.createXMLStreamReader(systemId, inputStream);
+        try {
+            Deque<String> elementNamesStack = new ArrayDeque<>();
+            StringBuilder crefoText = new StringBuilder(16);
+            String crefoParentKey = null;
+            int crefoDepth = -1;
+            while (reader.hasNext()) {
+                int event = reader.next();
+                switch (event) {
+                    case XMLStreamConstants.START_ELEMENT -> {
+                        String elementName = getQualifiedName(reader);
+                        if (crefoParentKey == null && isCrefoElement(elementName)) {
+                            String parentName = elementNamesStack.peek();
+                            crefoParentKey = parentName != null ? toKey(parentName) : "#DOCUMENT";
+                            crefoDepth = elementNamesStack.size();
+                            crefoText.setLength(0);
+                        }
+                        elementNamesStack.push(elementName);
+                    }
+                    case XMLStreamConstants.CHARACTERS, XMLStreamConstants.CDATA, XMLStreamConstants.SPACE -> {
+                        if (crefoParentKey != null) {
+                            crefoText.append(reader.getTextCharacters(), reader.getTextStart(), reader.getTextLength());
+                        }
+                    }
+                    case XMLStreamConstants.END_ELEMENT -> {
+                        elementNamesStack.pop();
+                        if (crefoParentKey != null && elementNamesStack.size() == crefoDepth) {
+                            crefoListsMap.computeIfAbsent(crefoParentKey, key -> new ArrayList<>())
+                                    .add(Long.valueOf(crefoText.toString()));
+                            crefoParentKey = null;
+                            crefoDepth = -1;
+                        }
+                    }
+                    default -> {
+                        // Kommentare, Processing-Instructions usw. sind nicht relevant
+                    }
+                }
+            }
+        } finally {
+            reader.close();
+        }
+        return crefoListsMap;
+    }
+
+    private static String getQualifiedName(XMLStreamReader reader) {
+        String prefix = reader.getPrefix();
+        String localName = reader.getLocalName();
+        return (prefix == null || prefix.isEmpty()) ? localName : prefix + ":" + localName;
+    }
+
+    private static boolean isCrefoElement(String elementName) {
+        int colonIndex = elementName.indexOf(':');
+        String localName = colonIndex >= 0 ? elementName.substring(colonIndex + 1) : elementName;
+        return TAG_CREFONUMMER.equals(localName) || TAG_CREFONUMMER_BETEILIGTER.equals(localName);
+    }
+
+    private static String toKey(String elementName) {
+        String key = elementName.toUpperCase(Locale.ROOT);
+        if (key.startsWith("ARC:")) {
+            key = key.substring(4);
+        }
+        return key;
+    }
+}
@@ -0,0 +1,438 @@
+package de.cavdar.itsq;
+
+import de.cavdar.gui.util.TimelineLogger;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.*;
+
+/**
+ * Inkrementelle Variante der Pipeline aus TestFallExtendsArchivBestandCrefos#doForPhase
+ * (initAb30CrefoPropertiesMapFromRefExports → extendAb30CrefoPropertiesMapWithBtlgs → extendAb30CrefoPropertiesWithOldAttributes
+ * → ExtendedTestCrefos.properties / CrefosToCustomersMap.txt).
+ * <p>
+ * Im Phasen-Verzeichnis wird der Stand des letzten Laufs gespeichert: pro Test-Crefo aus den REF-EXPORTS die Kunden,
+ * Größe/Änderungszeit der XML und deren Beteiligte, dazu der Stand der alten TestCrefos.properties und die erzeugten Zeilen.
+ * Beim nächsten Lauf werden nur geänderte XMLs geparst und nur die Zeilen neu berechnet, deren Eingaben sich geändert haben
+ * (die Crefo selbst sowie ihre alten und neuen Beteiligten). Die Dateien werden nur geschrieben, wenn sich eine Zeile geändert hat.
+ * Das Ergebnis ist identisch mit einem vollständigen Lauf.
+ */
+public class AB30IncrementalExtender {
+    public static final String STATE_FILENAME = ".extended-crefos-state";
+    private static final int MAGIC = 0x41423349; // "AB3I"
+    private static final int FORMAT_VERSION = 1;
+
+    private final AB30MapperUtil ab30MapperUtil;
+    private final File ab30PhaseXmlsDir;
+    private final File stateFile;
+
+    public AB30IncrementalExtender(AB30MapperUtil ab30MapperUtil, File ab30PhaseXmlsDir) {
+        this.ab30MapperUtil = ab30MapperUtil;
+        this.ab30PhaseXmlsDir = ab30PhaseXmlsDir;
+        this.stateFile = new File(ab30PhaseXmlsDir, STATE_FILENAME);
+    }
+
+    public Result extend(String strInfoPrefix, Map<String, TestCustomer> customerTestInfoMap) throws Exception {
+        Map<Long, AB30XMLProperties> refExportsMap = ab30MapperUtil.initAb30CrefoPropertiesMapFromRefExports(strInfoPrefix, ab30PhaseXmlsDir, customerTestInfoMap);
+        File testCrefosFile = new File(ab30PhaseXmlsDir, TestSupportClientKonstanten.TEST_CREFOS_PROPS_FILENAME);
+        File extendedPropsFile = new File(ab30PhaseXmlsDir, TestSupportClientKonstanten.EXTENDED_CREFOS_PROPS_FILENAME);
+        File crefosToCustomersFile = new File(ab30PhaseXmlsDir, TestSupportClientKonstanten.CREFOS_TO_CUSTOMERS_MAP_FILENAME);
+
+        State previousState = extendedPropsFile.exists() ? loadState() : null;
+        if (previousState == null) {
+            return extendFully(strInfoPrefix, refExportsMap, testCrefosFile, extendedPropsFile, crefosToCustomersFile);
+        }
+
+        long parsedXmlFilesBefore = ab30MapperUtil.getParsedXmlFiles();
+        State newState = new State();
+        newState.oldPropsStamp = FileStamp.of(testCrefosFile);
+        boolean oldPropsChanged = !newState.oldPropsStamp.equals(previousState.oldPropsStamp);
+        LongList affectedCrefos = new LongList();
+        LongList allParticipants = new LongList();
+
+        for (long crefoNr : AB30MapperUtil.sortedCrefoNrs(refExportsMap)) {
+            File crefoXmlFile = new File(ab30PhaseXmlsDir, crefoNr + ".xml");
+            FileStamp xmlStamp = FileStamp.of(crefoXmlFile);
+            SourceEntry previousSource = previousState.sourceEntries.get(crefoNr);
+            long[] participants;
+            if (previousSource != null && previousSource.xmlStamp.equals(xmlStamp)) {
+                participants = previousSource.participants;
+            } else {
+                participants = parseParticipants(crefoNr, crefoXmlFile);
+            }
+            List<String> customers = new ArrayList<>(refExportsMap.get(crefoNr).getUsedByCustomersList());
+            if (previousSource == null || !previousSource.customers.equals(customers) || !Arrays.equals(previousSource.participants, participants)) {
+                affectedCrefos.add(crefoNr);
+                affectedCrefos.addAll(participants);
+                if (previousSource != null) {
+                    affectedCrefos.addAll(previousSource.participants);
+                }
+            }
+            allParticipants.addAll(participants);
+            newState.sourceEntries.put(crefoNr, new SourceEntry(customers, xmlStamp, participants));
+        }
+        for (long crefoNr : previousState.sourceEntries.keys()) {
+            if (!refExportsMap.containsKey(crefoNr)) {
+                affectedCrefos.add(crefoNr);
+                affectedCrefos.addAll(previousState.sourceEntries.get(crefoNr).participants);
+            }
+        }
+        long[] sortedParticipants = allParticipants.toSortedUniqueArray();
+
+        newState.outputMap = previousState.outputMap;
+        long[] crefosToRecompute;
+        if (oldPropsChanged) {
+            // andere Attribute können jede Zeile betreffen
+            LongList allCrefos = new LongList();
+            allCrefos.addAll(previousState.outputMap.keys());
+            allCrefos.addAll(AB30MapperUtil.sortedCrefoNrs(refExportsMap));
+            allCrefos.addAll(sortedParticipants);
+            crefosToRecompute = allCrefos.toSortedUniqueArray();
+        } else {
+            crefosToRecompute = affectedCrefos.toSortedUniqueArray();
+        }
+
+        int changedLines = 0;
+        if (crefosToRecompute.length > 0) {
+            Map<Long, AB30XMLProperties> oldAb30CrefoToPropertiesMap = ab30MapperUtil.initAb30CrefoPropertiesMap(testCrefosFile);
+            for (long crefoNr : crefosToRecompute) {
+                AB30XMLProperties newAb30XMLProperties = null;
+                AB30XMLProperties refExportsProperties = refExportsMap.get(crefoNr);
+                if (refExportsProperties != null) {
+                    newAb30XMLProperties = refExportsProperties;
+                    newAb30XMLProperties.setBtlgCrefosList(new LongSortedSet(toList(newState.sourceEntries.get(crefoNr).participants)));
+                } else if (Arrays.binarySearch(sortedParticipants, crefoNr) >= 0) {
+                    newAb30XMLProperties = new AB30XMLProperties(crefoNr);
+                }
+                if (newAb30XMLProperties != null) {
+                    applyOldAttributes(newAb30XMLProperties, oldAb30CrefoToPropertiesMap.get(crefoNr));
+                }
+                AB30XMLProperties previousAb30XMLProperties = newState.outputMap.get(crefoNr);
+                if (newAb30XMLProperties == null) {
+                    if (previousAb30XMLProperties != null) {
+                        newState.outputMap.remove(crefoNr);
+                        changedLines++;
+                    }
+                } else if (previousAb30XMLProperties == null || !previousAb30XMLProperties.toString().equals(newAb30XMLProperties.toString())) {
+                    newState.outputMap.put(crefoNr, newAb30XMLProperties);
+                    changedLines++;
+                }
+            }
+            renameDeletedXmls(strInfoPrefix, oldAb30CrefoToPropertiesMap, newState.outputMap);
+        }
+
+        boolean filesWritten = false;
+        if (changedLines > 0 || !crefosToCustomersFile.exists()) {
+            ab30MapperUtil.writeAb30CrefoToPropertiesMapToFile(extendedPropsFile, newState.outputMap);
+            ab30MapperUtil.writeCrefoToCustomerMappingFile(crefosToCustomersFile, newState.outputMap);
+            filesWritten = true;
+        }
+        saveState(newState);
+        TimelineLogger.info(this.getClass(), strInfoPrefix + " extend(): " + crefosToRecompute.length + " Crefos neu berechnet, " + changedLines + " Zeilen geändert.");
+        return new Result(false, refExportsMap.size(), newState.outputMap.size(), crefosToRecompute.length, changedLines,
+                ab30MapperUtil.getParsedXmlFiles() - parsedXmlFilesBefore, filesWritten);
+    }
+
+    private Result extendFully(String strInfoPrefix, Map<Long, AB30XMLProperties> refExportsMap, File testCrefosFile, File extendedPropsFile, File crefosToCustomersFile) throws Exception {
+        long parsedXmlFilesBefore = ab30MapperUtil.getParsedXmlFiles();
+        State newState = new State();
+        newState.oldPropsStamp = FileStamp.of(testCrefosFile);
+        Map<Long, List<String>> customersMap = new HashMap<>();
+        Map<Long, FileStamp> xmlStampsMap = new HashMap<>();
+        for (long crefoNr : AB30MapperUtil.sortedCrefoNrs(refExportsMap)) {
+            customersMap.put(crefoNr, new ArrayList<>(refExportsMap.get(crefoNr).getUsedByCustomersList()));
+            xmlStampsMap.put(crefoNr, FileStamp.of(new File(ab30PhaseXmlsDir, crefoNr + ".xml")));
+        }
+
+        Map<Long, AB30XMLProperties> ab30CrefoToPropertiesMap = ab30MapperUtil.extendAb30CrefoPropertiesMapWithBtlgs(strInfoPrefix, ab30PhaseXmlsDir, refExportsMap);
+        ab30CrefoToPropertiesMap = ab30MapperUtil.extendAb30CrefoPropertiesWithOldAttributes(strInfoPrefix, testCrefosFile, ab30CrefoToPropertiesMap);
+        ab30MapperUtil.writeAb30CrefoToPropertiesMapToFile(extendedPropsFile, ab30CrefoToPropertiesMap);
+        ab30MapperUtil.writeCrefoToCustomerMappingFile(crefosToCustomersFile, ab30CrefoToPropertiesMap);
+
+        // die Beteiligten einer Test-Crefo stehen nach dem Erweitern in ihrer Beteiligten-Liste
+        for (Map.Entry<Long, List<String>> customersEntry : customersMap.entrySet()) {
+            long[] participants = ab30CrefoToPropertiesMap.get(customersEntry.getKey()).getBtlgCrefosArray();
+            newState.sourceEntries.put(customersEntry.getKey(), new SourceEntry(customersEntry.getValue(), xmlStampsMap.get(customersEntry.getKey()), participants));
+        }
+        newState.outputMap = new LongObjectHashMap<>(ab30CrefoToPropertiesMap);
+        saveState(newState);
+        return new Result(true, customersMap.size(), ab30CrefoToPropertiesMap.size(), ab30CrefoToPropertiesMap.size(), ab30CrefoToPropertiesMap.size(),
+                ab30MapperUtil.getParsedXmlFiles() - parsedXmlFilesBefore, true);
+    }
+
+    private long[] parseParticipants(long crefoNr, File crefoXmlFile) throws Exception {
+        Map<String, List<Long>> crefoListsMap = ab30MapperUtil.parseCrefosFromXmlContent(crefoXmlFile);
+        LongList participants = new LongList();
+        for (Long btlgCrefo : crefoListsMap.get(AB30MapperUtil.TAG_FIRMENBETEILIGTER)) {
+            participants.add(btlgCrefo);
+        }
+        for (Long verfBtlgCrefo : crefoListsMap.get(AB30MapperUtil.TAG_VERFAHRENSBETEILIGTER)) {
+            participants.add(verfBtlgCrefo);
+        }
+        // wie in AB30MapperUtil#handleBtlgOrEntg: die Haupt-Crefo ist nicht ihr eigener Beteiligter
+        long[] sortedParticipants = participants.toSortedUniqueArray();
+        int selfIndex = Arrays.binarySearch(sortedParticipants, crefoNr);
+        if (selfIndex >= 0) {
+            long[] withoutSelf = new long[sortedParticipants.length - 1];
+            System.arraycopy(sortedParticipants, 0, withoutSelf, 0, selfIndex);
+            System.arraycopy(sortedParticipants, selfIndex + 1, withoutSelf, selfIndex, withoutSelf.length - selfIndex);
+            return withoutSelf;
+        }
+        return sortedParticipants;
+    }
+
+    /**
+     * Entspricht dem Übernehmen der Attribute in AB30MapperUtil#extendAb30CrefoPropertiesWithOldAttributes.
+     */
+    private static void applyOldAttributes(AB30XMLProperties newAb30XMLProperties, AB30XMLProperties oldAb30XMLProperties) {
+        if (oldAb30XMLProperties == null) {
+            return;
+        }
+        if (oldAb30XMLProperties.getAuftragClz() != null) {
+            newAb30XMLProperties.setAuftragClz(oldAb30XMLProperties.getAuftragClz());
+        }
+        if (oldAb30XMLProperties.getBilanzType() != null) {
+            newAb30XMLProperties.setBilanzType(oldAb30XMLProperties.getBilanzType());
+        }
+        if (oldAb30XMLProperties.getEhProduktAuftragType() != null) {
+            newAb30XMLProperties.setEhProdAuftrType(oldAb30XMLProperties.getEhProduktAuftragType());
+        }
+        newAb30XMLProperties.setMitCtaStatistik(oldAb30XMLProperties.isMitCtaStatistik());
+        newAb30XMLProperties.setDsgVoSperre(oldAb30XMLProperties.isMitDsgVoSperre());
+    }
+
+    /**
+     * Wie in AB30MapperUtil#extendAb30CrefoPropertiesWithOldAttributes werden die XMLs der Crefos aus der alten
+     * TestCrefos.properties, die nicht mehr im Testpaket sind, in "*.xml.deleted" umbenannt.
+     */
+    private void renameDeletedXmls(String strInfoPrefix, Map<Long, AB30XMLProperties> oldAb30CrefoToPropertiesMap, Map<Long, AB30XMLProperties> ab30CrefoToPropertiesMap) {
+        for (Long crefoNr : oldAb30CrefoToPropertiesMap.keySet()) {
+            if (!ab30CrefoToPropertiesMap.containsKey(crefoNr)) {
+                File xmlToRename = new File(ab30PhaseXmlsDir, crefoNr + ".xml");
+                if (xmlToRename.exists()) {
+                    TimelineLogger.info(this.getClass(), strInfoPrefix + " extend(): Crefo " + crefoNr + " aus altem 'TestCrefos.properties' - Datei ist nicht mehr im Testpaket!");
+                    xmlToRename.renameTo(new File(xmlToRename.getParentFile(), xmlToRename.getName() + ".deleted"));
+                }
+            }
+        }
+    }
+
+    private static List<Long> toList(long[] values) {
+        List<Long> list = new ArrayList<>(values.length);
+        for (long value : values) {
+            list.add(value);
+        }
+        return list;
+    }
+
+    private State loadState() {
+        if (!stateFile.exists()) {
+            return null;
+        }
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(stateFile)))) {
+            if (in.readInt() != MAGIC || in.readInt() != FORMAT_VERSION) {
+                throw new IOException("Unbekanntes Format");
+            }
+            State state = new State();
+            state.oldPropsStamp = new FileStamp(in.readLong(), in.readLong());
+            int sourceCount = in.readInt();
+            for (int i = 0; i < sourceCount; i++) {
+                long crefoNr = in.readLong();
+                FileStamp xmlStamp = new FileStamp(in.readLong(), in.readLong());
+                List<String> customers = new ArrayList<>();
+                int customerCount = in.readInt();
+                for (int j = 0; j < customerCount; j++) {
+                    customers.add(in.readUTF());
+                }
+                long[] participants = new long[in.readInt()];
+                for (int j = 0; j < participants.length; j++) {
+                    participants[j] = in.readLong();
+                }
+                state.sourceEntries.put(crefoNr, new SourceEntry(customers, xmlStamp, participants));
+            }
+            int lineCount = in.readInt();
+            state.outputMap = new LongObjectHashMap<>(lineCount);
+            for (int i = 0; i < lineCount; i++) {
+                byte[] lineBytes = new byte[in.readInt()];
+                in.readFully(lineBytes);
+                AB30XMLProperties ab30XMLProperties = AB30XMLPropertiesLineParser.parse(new String(lineBytes, StandardCharsets.UTF_8), AB30XMLProperties.VERSION);
+                state.outputMap.put(ab30XMLProperties.getCrefoNr(), ab30XMLProperties);
+            }
+            return state;
+        } catch (IOException | RuntimeException ex) {
+            // ohne gültigen Stand wird einfach vollständig neu aufgebaut
+            TimelineLogger.warn(this.getClass(), "Stand '" + stateFile.getAbsolutePath() + "' konnte nicht gelesen werden, es erfolgt ein vollständiger Lauf: " + ex.getMessage());
+            return null;
+        }
+    }
+
+    private void saveState(State state) throws IOException {
+        File tmpFile = new File(stateFile.getParentFile(), stateFile.getName() + ".tmp");
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(tmpFile)))) {
+            out.writeInt(MAGIC);
+            out.writeInt(FORMAT_VERSION);
+            out.writeLong(state.oldPropsStamp.size);
+            out.writeLong(state.oldPropsStamp.lastModified);
+            long[] sourceCrefos = state.sourceEntries.sortedKeys();
+            out.writeInt(sourceCrefos.length);
+            for (long crefoNr : sourceCrefos) {
+                SourceEntry sourceEntry = state.sourceEntries.get(crefoNr);
+                out.writeLong(crefoNr);
+                out.writeLong(sourceEntry.xmlStamp.size);
+                out.writeLong(sourceEntry.xmlStamp.lastModified);
+                out.writeInt(sourceEntry.customers.size());
+                for (String customer : sourceEntry.customers) {
+                    out.writeUTF(customer);
+                }
+                out.writeInt(sourceEntry.participants.length);
+                for (long participant : sourceEntry.participants) {
+                    out.writeLong(participant);
+                }
+            }
+            long[] outputCrefos = state.outputMap.sortedKeys();
+            out.writeInt(outputCrefos.length);
+            for (long crefoNr : outputCrefos) {
+                byte[] lineBytes = state.outputMap.get(crefoNr).toString().getBytes(StandardCharsets.UTF_8);
+                out.writeInt(lineBytes.length);
+                out.write(lineBytes);
+            }
+        }
+        ItsqFiles.moveAtomically(tmpFile.toPath(), stateFile.toPath());
+    }
+
+    /**
+     * Ergebnis eines Laufs.
+     */
+    public static class Result {
+        private final boolean fullRun;
+        private final int testCrefos;
+        private final int lines;
+        private final int recomputedCrefos;
+        private final int changedLines;
+        private final long parsedXmlFiles;
+        private final boolean filesWritten;
+
+        public Result(boolean fullRun, int testCrefos, int lines, int recomputedCrefos, int changedLines, long parsedXmlFiles, boolean filesWritten) {
+            this.fullRun = fullRun;
+            this.testCrefos = testCrefos;
+            this.lines = lines;
+            this.recomputedCrefos = recomputedCrefos;
+            this.changedLines = changedLines;
+            this.parsedXmlFiles = parsedXmlFiles;
+            this.filesWritten = filesWritten;
+        }
+
+        public boolean isFullRun() {
+            return fullRun;
+        }
+
+        public int getTestCrefos() {
+            return testCrefos;
+        }
+
+        public int getLines() {
+            return lines;
+        }
+
+        public int getRecomputedCrefos() {
+            return recomputedCrefos;
+        }
+
+        public int getChangedLines() {
+            return changedLines;
+        }
+
+        public long getParsedXmlFiles() {
+            return parsedXmlFiles;
+        }
+
+        public boolean isFilesWritten() {
+            return filesWritten;
+        }
+
+        @Override
+        public String toString() {
+            return (fullRun ? "vollständiger Lauf" : "inkrementeller Lauf") + ": " + lines + " Zeilen, " + recomputedCrefos + " neu berechnet, "
+                    + changedLines + " geändert, " + parsedXmlFiles + " XMLs geparst" + (filesWritten ? "" : ", Dateien unverändert");
+        }
+    }
+
+    private static final class State {
+        private FileStamp oldPropsStamp;
+        private final LongObjectHashMap<SourceEntry> sourceEntries = new LongObjectHashMap<>();
+        private LongObjectHashMap<AB30XMLProperties> outputMap = new LongObjectHashMap<>();
+    }
+
+    private static final class SourceEntry {
+        private final List<String> customers;
+        private final FileStamp xmlStamp;
+        private final long[] participants;
+
+        private SourceEntry(List<String> customers, FileStamp xmlStamp, long[] participants) {
+            this.customers = customers;
+            this.xmlStamp = xmlStamp;
+            this.participants = participants;
+        }
+    }
+
+    private static final class FileStamp {
+        private static final FileStamp MISSING = new FileStamp(-1, -1);
+        private final long size;
+        private final long lastModified;
+
+        private FileStamp(long size, long lastModified) {
+            this.size = size;
+            this.lastModified = lastModified;
+        }
+
+        private static FileStamp of(File file) throws IOException {
+            if (!file.exists()) {
+                return MISSING;
+            }
+            BasicFileAttributes attributes = Files.readAttributes(file.toPath(), BasicFileAttributes.class);
+            return new FileStamp(attributes.size(), attributes.lastModifiedTime().toMillis());
+        }
+
+        @Override
+        public boolean equals(Object object) {
+            return object instanceof FileStamp other && size == other.size && lastModified == other.lastModified;
+        }
+
+        @Override
+        public int hashCode() {
+            return Long.hashCode(size) * 31 + Long.hashCode(lastModified);
+        }
+    }
+
+    private static final class LongList {
+        private long[] values = new long[16];
+        private int size;
+
+        private void add(long value) {
+            if (size == values.length) {
+                values = Arrays.copyOf(values, size * 2);
+            }
+            values[size++] = value;
+        }
+
+        private void addAll(long[] otherValues) {
+            for (long value : otherValues) {
+                add(value);
+            }
+        }
+
+        private long[] toSortedUniqueArray() {
+            long[] sorted = Arrays.copyOf(values, size);
+            Arrays.sort(sorted);
+            int uniqueCount = 0;
+            for (int i = 0; i < sorted.length; i++) {
+                if (i == 0 || sorted[i] != sorted[i - 1]) {
+                    sorted[uniqueCount++] = sorted[i];
+                }
+            }
+            return Arrays.copyOf(sorted, uniqueCount);
+        }
+    }
+}
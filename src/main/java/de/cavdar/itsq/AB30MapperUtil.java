@@ -6,19 +6,149 @@ import org.w3c.dom.Node;
 import org.w3c.dom.NodeList;
 import org.xml.sax.InputSource;
 
+import javax.xml.stream.XMLStreamException;
 import javax.xml.xpath.XPath;
 import javax.xml.xpath.XPathConstants;
 import javax.xml.xpath.XPathExpressionException;
 import javax.xml.xpath.XPathFactory;
+import java.io.BufferedWriter;
+import java.io.ByteArrayInputStream;
 import java.io.File;
 import java.io.IOException;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
 import java.util.*;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicLong;
 
 public class AB30MapperUtil {
     protected static final String TAG_STEUERUNGSDATEN = "STEUERUNGSDATEN";
     protected static final String TAG_FIRMENBETEILIGTER = "FIRMENBETEILIGTER";
     protected static final String TAG_VERFAHRENSBETEILIGTER = "VERFAHRENSBETEILIGTER";
 
+    /**
+     * Sortiert Crefonummern so, wie die mit "::" beginnenden Zeilen als Strings sortiert würden
+     * (Crefonummern gleicher Stellenzahl numerisch, bei unterschiedlicher Stellenzahl entscheidet der Text).
+     */
+    static final Comparator<Long> CREFO_LINE_ORDER = (crefoNr1, crefoNr2) -> {
+        long value1 = crefoNr1;
+        long value2 = crefoNr2;
+        if (value1 >= 0 && value2 >= 0 && countDigits(value1) == countDigits(value2)) {
+            return Long.compare(value1, value2);
+        }
+        return (value1 + "::").compareTo(value2 + "::");
+    };
+
+    /**
+     * Aufsteigend sortierte Crefonummern der Map, ohne Boxing wenn die Map eine {@link LongObjectHashMap} ist.
+     */
+    static long[] sortedCrefoNrs(Map<Long, ?> ab30CrefoToPropertiesMap) {
+        if (ab30CrefoToPropertiesMap instanceof LongObjectHashMap<?> longObjectHashMap) {
+            return longObjectHashMap.sortedKeys();
+        }
+        long[] crefoNrs = new long[ab30CrefoToPropertiesMap.size()];
+        int index = 0;
+        for (Long crefoNr : ab30CrefoToPropertiesMap.keySet()) {
+            crefoNrs[index++] = crefoNr;
+        }
+        Arrays.sort(crefoNrs);
+        return crefoNrs;
+    }
+
+    /**
+     * true, wenn die aufsteigend sortierten Crefonummern auch in {@link #CREFO_LINE_ORDER} sortiert sind
+     * (alle nicht negativ und mit gleicher Stellenzahl, der Normalfall).
+     */
+    private static boolean isNumericLineOrder(long[] sortedCrefoNrs) {
+        return sortedCrefoNrs.length == 0
+                || (sortedCrefoNrs[0] >= 0 && countDigits(sortedCrefoNrs[0]) == countDigits(sortedCrefoNrs[sortedCrefoNrs.length - 1]));
+    }
+
+    private static int countDigits(long value) {
+        int digits = 1;
+        while (value >= 10) {
+            value /= 10;
+            digits++;
+        }
+        return digits;
+    }
+
+    /**
+     * Verfahren zum Ermitteln der Crefonummern aus den AB30-XMLs.
+     * XPATH baut pro Datei ein DOM auf, STAX liest die Datei in einem Durchlauf mit konstantem Speicher,
+     * MMAP durchsucht die eingeblendete Datei direkt auf Byte-Ebene und fällt bei ungewöhnlichem Inhalt auf STAX zurück.
+     */
+    public enum XML_PARSE_MODE {
+        XPATH, STAX, MMAP
+    }
+
+    private final AB30CrefoStaxExtractor crefoStaxExtractor = new AB30CrefoStaxExtractor();
+    private final AB30CrefoByteScanner crefoByteScanner = new AB30CrefoByteScanner();
+    private XML_PARSE_MODE xmlParseMode = XML_PARSE_MODE.STAX;
+    // Anzahl paralleler Threads für das Parsen der Crefo-XMLs in extendAb30CrefoPropertiesMapWithBtlgs(), 1 = sequentiell
+    private int btlgParallelism = 1;
+    private AB30CrefoParseCache parseCache;
+    // Statistik der tatsächlich geparsten XMLs (ohne Treffer im Parse-Cache)
+    private final AtomicLong parsedXmlFiles = new AtomicLong();
+    private final AtomicLong parsedXmlBytes = new AtomicLong();
+    // für den Parse-Cache: parst den dort schon gelesenen Inhalt, statt die Datei erneut zu lesen
+    private final AB30CrefoParseCache.CrefoXmlParser cachedXmlParser = new AB30CrefoParseCache.CrefoXmlParser() {
+        @Override
+        public Map<String, List<Long>> parse(File ab30CrefoXmlFile) throws Exception {
+            return parseCrefosFromXmlFile(ab30CrefoXmlFile);
+        }
+
+        @Override
+        public Map<String, List<Long>> parse(File ab30CrefoXmlFile, byte[] content) throws Exception {
+            return parseCrefosFromXmlBytes(ab30CrefoXmlFile, content);
+        }
+    };
+
+    public XML_PARSE_MODE getXmlParseMode() {
+        return xmlParseMode;
+    }
+
+    public void setXmlParseMode(XML_PARSE_MODE xmlParseMode) {
+        this.xmlParseMode = xmlParseMode;
+    }
+
+    public int getBtlgParallelism() {
+        return btlgParallelism;
+    }
+
+    /**
+     * Setzt die Anzahl der Threads, mit denen die Crefo-XMLs in extendAb30CrefoPropertiesMapWithBtlgs() geparst werden.
+     * Werte kleiner 2 schalten auf die sequentielle Verarbeitung.
+     */
+    public void setBtlgParallelism(int btlgParallelism) {
+        this.btlgParallelism = btlgParallelism;
+    }
+
+    public AB30CrefoParseCache getParseCache() {
+        return parseCache;
+    }
+
+    /**
+     * Setzt den Cache für die aus den XMLs ermittelten Crefo-Listen; null schaltet den Cache ab.
+     */
+    public void setParseCache(AB30CrefoParseCache parseCache) {
+        this.parseCache = parseCache;
+    }
+
+    public long getParsedXmlFiles() {
+        return parsedXmlFiles.get();
+    }
+
+    public long getParsedXmlBytes() {
+        return parsedXmlBytes.get();
+    }
+
     public Map<Long, AB30XMLProperties> extendAb30CrefoPropertiesWithOldAttributes(String strInfoPrefix, File testCrefosFile, Map<Long, AB30XMLProperties> ab30CrefoToPropertiesMap) throws IOException {
         Map<Long, AB30XMLProperties> oldAb30CrefoToPropertiesMap = initAb30CrefoPropertiesMap(testCrefosFile);
         Iterator<Long> iterator = oldAb30CrefoToPropertiesMap.keySet().iterator();
@@ -57,24 +187,63 @@ public class AB30MapperUtil {
     }
 
     public Map<Long, AB30XMLProperties> extendAb30CrefoPropertiesMapWithBtlgs(String strInfoPrefix, File archivBestandsPhaseFile, Map<Long, AB30XMLProperties> ab30CrefoToPropertiesMap) throws Exception {
-        Map<Long, AB30XMLProperties> ab30CrefoToPropertiesResult = new TreeMap<>(ab30CrefoToPropertiesMap);
-        Iterator<Long> iterator = ab30CrefoToPropertiesMap.keySet().iterator();
-        while (iterator.hasNext()) {
-            Long crefoNr = iterator.next();
-            AB30XMLProperties ab30XMLProperties = ab30CrefoToPropertiesMap.get(crefoNr);
-            if (ab30XMLProperties == null) {
-                throw new IllegalStateException("Für die Test-Crefo " + crefoNr + " existiert kein AB30XMLProperties-Eintrag in der Map!");
+        LongObjectHashMap<AB30XMLProperties> ab30CrefoToPropertiesResult = new LongObjectHashMap<>(ab30CrefoToPropertiesMap);
+        for (Map.Entry<Long, AB30XMLProperties> ab30XMLPropertiesEntry : ab30CrefoToPropertiesMap.entrySet()) {
+            if (ab30XMLPropertiesEntry.getValue() == null) {
+                throw new IllegalStateException("Für die Test-Crefo " + ab30XMLPropertiesEntry.getKey() + " existiert kein AB30XMLProperties-Eintrag in der Map!");
             }
+        }
+        // im parallelen Modus werden nur die XMLs parallel geparst, das Zusammenführen erfolgt in der Reihenfolge
+        // von ab30CrefoToPropertiesMap, damit das Ergebnis identisch mit dem sequentiellen Lauf ist
+        Map<Long, Map<String, List<Long>>> crefoToCrefoListsMap = null;
+        if (btlgParallelism > 1) {
+            crefoToCrefoListsMap = parseCrefoXmlFilesParallel(archivBestandsPhaseFile, ab30CrefoToPropertiesMap.keySet());
+        }
+        for (long crefoNr : sortedCrefoNrs(ab30CrefoToPropertiesMap)) {
+            AB30XMLProperties ab30XMLProperties = ab30CrefoToPropertiesMap.get(crefoNr);
             // behandle die Beteiligten...
-            handleBTLGsFromCrefoXMLFile(strInfoPrefix, archivBestandsPhaseFile, ab30XMLProperties, ab30CrefoToPropertiesResult);
+            if (crefoToCrefoListsMap != null) {
+                TimelineLogger.info(this.getClass(), strInfoPrefix + " handleBTLGsFromCrefoXMLFile(): Suche Beteiligten für Testfall-Crefo " + crefoNr + " in der XML-Datei...");
+                handleBTLGsFromCrefoListsMap(strInfoPrefix, archivBestandsPhaseFile, ab30XMLProperties, crefoToCrefoListsMap.get(crefoNr), ab30CrefoToPropertiesResult);
+            } else {
+                handleBTLGsFromCrefoXMLFile(strInfoPrefix, archivBestandsPhaseFile, ab30XMLProperties, ab30CrefoToPropertiesResult);
+            }
             TimelineLogger.info(this.getClass(), strInfoPrefix + "Mapping für Test-Crefo " + crefoNr + " wird angelegt.");
             ab30CrefoToPropertiesResult.put(crefoNr, ab30XMLProperties);
         }
-        return ab30CrefoToPropertiesResult;
+        // gearbeitet wird auf der LongObjectHashMap, Aufrufer erhalten wie bisher eine nach Crefonummer sortierte Map
+        return new TreeMap<>(ab30CrefoToPropertiesResult);
+    }
+
+    protected Map<Long, Map<String, List<Long>>> parseCrefoXmlFilesParallel(File ab30XmlsDir, Collection<Long> crefoNrs) throws Exception {
+        List<Long> crefoNrsList = new ArrayList<>(crefoNrs);
+        List<Callable<Map<String, List<Long>>>> parseTasks = new ArrayList<>(crefoNrsList.size());
+        for (Long crefoNr : crefoNrsList) {
+            File crefoXmlFile = new File(ab30XmlsDir, crefoNr + ".xml");
+            parseTasks.add(() -> parseCrefosFromXmlContent(crefoXmlFile));
+        }
+        LongObjectHashMap<Map<String, List<Long>>> crefoToCrefoListsMap = new LongObjectHashMap<>(crefoNrsList.size());
+        ExecutorService parseExecutor = Executors.newFixedThreadPool(btlgParallelism);
+        try {
+            List<Future<Map<String, List<Long>>>> parseResults = parseExecutor.invokeAll(parseTasks);
+            for (int i = 0; i < crefoNrsList.size(); i++) {
+                try {
+                    crefoToCrefoListsMap.put(crefoNrsList.get(i), parseResults.get(i).get());
+                } catch (ExecutionException ex) {
+                    if (ex.getCause() instanceof Exception) {
+                        throw (Exception) ex.getCause();
+                    }
+                    throw ex;
+                }
+            }
+        } finally {
+            parseExecutor.shutdownNow();
+        }
+        return crefoToCrefoListsMap;
     }
 
     public Map<Long, AB30XMLProperties> initAb30CrefoPropertiesMapFromRefExports(String strInfoPrefix, File archivBestandsPhaseFile, Map<String, TestCustomer> customerTestInfoMap) throws Exception {
-        Map<Long, AB30XMLProperties> ab30CrefoToPropertiesMap = new TreeMap<>();
+        LongObjectHashMap<AB30XMLProperties> ab30CrefoToPropertiesMap = new LongObjectHashMap<>();
         for (Map.Entry<String, TestCustomer> testCustomerEntry : customerTestInfoMap.entrySet()) {
             TestCustomer testCustomer = testCustomerEntry.getValue();
             List<TestCrefo> allTestCrefos = testCustomer.getAllTestCrefos(false, false);  // nur die aktive und positive+negative Testfälle!
@@ -98,31 +267,15 @@ public class AB30MapperUtil {
                 ab30CrefoToPropertiesMap.put(testCrefo.getItsqTestCrefoNr(), ab30XMLProperties);
             }
         }
-        return ab30CrefoToPropertiesMap;
+        return new TreeMap<>(ab30CrefoToPropertiesMap);
     }
 
     public Map<Long, AB30XMLProperties> initAb30CrefoPropertiesMap(File propsFile) throws IOException {
-        Map<Long, AB30XMLProperties> ab30CrefoToPropertiesMap = new HashMap<>();
+        LongObjectHashMap<AB30XMLProperties> ab30CrefoToPropertiesMap = new LongObjectHashMap<>();
         if (!propsFile.exists()) {
             return ab30CrefoToPropertiesMap;
         }
-        List<String> strLines = FileUtils.readLines(propsFile);
-        int version = 1;
-        for (String strLine : strLines) {
-            if (!strLine.isBlank()) {
-                if (strLine.startsWith(AB30XMLProperties.VERSION_STR)) {
-                    String[] split = strLine.split("::");
-                    if (split.length > 1) {
-                        version = Integer.valueOf(split[1].trim());
-                    }
-                }
-                if (!strLine.startsWith("#")) {
-                    AB30XMLProperties ab30XMLProperties = new AB30XMLProperties(strLine, version);
-                    ab30CrefoToPropertiesMap.put(ab30XMLProperties.getCrefoNr(), ab30XMLProperties);
-                }
-            }
-        }
-        return ab30CrefoToPropertiesMap;
+        return AB30XMLPropertiesLineParser.readInto(propsFile, Charset.defaultCharset(), ab30CrefoToPropertiesMap);
     }
 
     public void writeCrefoToCustomerMappingFile(File newFile, Map<Long, AB30XMLProperties> ab30CrefoToPropertiesMap) throws IOException {
@@ -131,7 +284,7 @@ public class AB30MapperUtil {
             newFile.delete();
         }
         Map<String, List<Long>> customerToCrefoListMap = new HashMap<>();
-        for (Long creoNummer : ab30CrefoToPropertiesMap.keySet()) {
+        for (Long creoNummer : sortedCrefoNrs(ab30CrefoToPropertiesMap)) {
             AB30XMLProperties ab30XMLProperties = ab30CrefoToPropertiesMap.get(creoNummer);
             List<String> customersList = ab30XMLProperties.getUsedByCustomersList();
             customersList.stream().forEach(customerKey -> {
@@ -151,20 +304,40 @@ public class AB30MapperUtil {
         FileUtils.writeLines(newFile, strLines);
     }
 
+    /**
+     * Schreibt die Map als ExtendedTestCrefos.properties.
+     * Die Zeilen werden über einen einzigen BufferedWriter in eine temporäre Datei geschrieben, die danach atomar
+     * an die Stelle der Ziel-Datei verschoben wird. Die Reihenfolge entspricht der bisherigen String-Sortierung der Zeilen,
+     * dafür werden aber nur die Crefonummern sortiert (siehe {@link #CREFO_LINE_ORDER}).
+     */
     public void writeAb30CrefoToPropertiesMapToFile(File newPorpsFile, Map<Long, AB30XMLProperties> ab30CrefoToPropertiesMap) throws IOException {
-        if (newPorpsFile.exists()) {
-            newPorpsFile.renameTo(new File(newPorpsFile.getParentFile(), TestSupportClientKonstanten.EXTENDED_CREFOS_PROPS_FILENAME + ".old"));
-            newPorpsFile.delete();
+        long[] crefoNrs = sortedCrefoNrs(ab30CrefoToPropertiesMap);
+        if (!isNumericLineOrder(crefoNrs)) {
+            crefoNrs = Arrays.stream(crefoNrs).boxed().sorted(CREFO_LINE_ORDER).mapToLong(Long::longValue).toArray();
         }
-        List<String> strLines = new ArrayList<>();
-        strLines.add(AB30XMLProperties.HEADER);
-        strLines.add(AB30XMLProperties.VERSION_STR + " " + AB30XMLProperties.VERSION);
-        for (Map.Entry<Long, AB30XMLProperties> ab30XMLPropertiesEntry : ab30CrefoToPropertiesMap.entrySet()) {
-            AB30XMLProperties ab30XMLProperties = ab30XMLPropertiesEntry.getValue();
-            strLines.add(ab30XMLProperties.toString());
+
+        Path targetPath = newPorpsFile.toPath();
+        Path tempPath = targetPath.resolveSibling(newPorpsFile.getName() + ".tmp");
+        try (BufferedWriter writer = Files.newBufferedWriter(tempPath, Charset.defaultCharset())) {
+            writer.write(AB30XMLProperties.HEADER);
+            writer.newLine();
+            writer.write(AB30XMLProperties.VERSION_STR + " " + AB30XMLProperties.VERSION);
+            writer.newLine();
+            StringBuilder stringBuilder = new StringBuilder(128);
+            for (long crefoNr : crefoNrs) {
+                stringBuilder.setLength(0);
+                ab30CrefoToPropertiesMap.get(crefoNr).appendTo(stringBuilder);
+                writer.append(stringBuilder);
+                writer.newLine();
+            }
+        } catch (IOException ex) {
+            Files.deleteIfExists(tempPath);
+            throw ex;
+        }
+        if (Files.exists(targetPath)) {
+            Files.copy(targetPath, targetPath.resolveSibling(TestSupportClientKonstanten.EXTENDED_CREFOS_PROPS_FILENAME + ".old"), StandardCopyOption.REPLACE_EXISTING);
         }
-        strLines.sort(Comparator.naturalOrder());
-        FileUtils.writeLines(newPorpsFile, strLines);
+        ItsqFiles.moveAtomically(tempPath, targetPath);
     }
 
     public void handleBTLGsFromCrefoXMLFile(String strInfoPrefix, File ab30XmlsDir, AB30XMLProperties ab30XMLPropertiesCrefo, Map<Long, AB30XMLProperties> ab30CrefoToPropertiesMap) throws Exception {
@@ -176,7 +349,10 @@ public class AB30MapperUtil {
 
         // Alle XML-Tags "crefonummer" aus der XML-Datei ermitteln...
         Map<String, List<Long>> crefoListsMap = parseCrefosFromXmlContent(crefoXmlFile);
+        handleBTLGsFromCrefoListsMap(strInfoPrefix, ab30XmlsDir, ab30XMLPropertiesCrefo, crefoListsMap, ab30CrefoToPropertiesMap);
+    }
 
+    public void handleBTLGsFromCrefoListsMap(String strInfoPrefix, File ab30XmlsDir, AB30XMLProperties ab30XMLPropertiesCrefo, Map<String, List<Long>> crefoListsMap, Map<Long, AB30XMLProperties> ab30CrefoToPropertiesMap) throws Exception {
         List<Long> btlgCrefosList = crefoListsMap.get(TAG_FIRMENBETEILIGTER);
         for (Long btlgCrefo : btlgCrefosList) {
             handleBtlgOrEntg(strInfoPrefix, "Beteiligten", btlgCrefo, ab30XmlsDir, ab30XMLPropertiesCrefo, ab30CrefoToPropertiesMap);
@@ -193,7 +369,7 @@ public class AB30MapperUtil {
             TimelineLogger.info(this.getClass(), strInfoPrefix + strBtlgEntg + " " + btlgEntgCrefo + " und Haupt-Crefo sind identisch, braucht nicht nochmal hochgeladen zu werden.");
             return;
         }
-        TreeSet<Long> btlgCrefosList = ab30XMLPropertiesCrefo.getBtlgCrefosList();
+        NavigableSet<Long> btlgCrefosList = ab30XMLPropertiesCrefo.getBtlgCrefosList();
         // prüfe, ob die XML-Datei für den Beteiligten der Test-Crefo existiert...
         File btlgCrefoXmlFile = new File(ab30XmlsDir, btlgEntgCrefo + ".xml");
         if (!btlgCrefoXmlFile.exists()) {
@@ -223,13 +399,59 @@ public class AB30MapperUtil {
         }
     }
 
-    protected Map<String, List<Long>> parseCrefosFromXmlContent(File ab30CrefoXmlFile) throws XPathExpressionException {
+    protected Map<String, List<Long>> parseCrefosFromXmlContent(File ab30CrefoXmlFile) throws Exception {
+        AB30CrefoParseCache theParseCache = parseCache;
+        if (theParseCache != null) {
+            return theParseCache.get(ab30CrefoXmlFile, cachedXmlParser);
+        }
+        return parseCrefosFromXmlFile(ab30CrefoXmlFile);
+    }
+
+    /**
+     * Wie {@link #parseCrefosFromXmlFile(File)} für den vom Parse-Cache bereits gelesenen (und gehashten) Inhalt.
+     */
+    protected Map<String, List<Long>> parseCrefosFromXmlBytes(File ab30CrefoXmlFile, byte[] content) throws XPathExpressionException, XMLStreamException {
+        parsedXmlFiles.incrementAndGet();
+        parsedXmlBytes.addAndGet(content.length);
+        if (xmlParseMode == XML_PARSE_MODE.XPATH) {
+            InputSource xml = new InputSource(new ByteArrayInputStream(content));
+            xml.setSystemId(ab30CrefoXmlFile.getAbsolutePath());
+            return parseCrefosFromXmlContentWithXPath(xml);
+        }
+        if (xmlParseMode == XML_PARSE_MODE.MMAP) {
+            Map<String, List<Long>> crefoListsMap = crefoByteScanner.scan(content);
+            if (crefoListsMap != null) {
+                return crefoListsMap;
+            }
+        }
+        return crefoStaxExtractor.extract(new ByteArrayInputStream(content), ab30CrefoXmlFile.getAbsolutePath());
+    }
+
+    protected Map<String, List<Long>> parseCrefosFromXmlFile(File ab30CrefoXmlFile) throws XPathExpressionException, XMLStreamException, IOException {
+        parsedXmlFiles.incrementAndGet();
+        parsedXmlBytes.addAndGet(ab30CrefoXmlFile.length());
+        if (xmlParseMode == XML_PARSE_MODE.XPATH) {
+            return parseCrefosFromXmlContentWithXPath(ab30CrefoXmlFile);
+        }
+        if (xmlParseMode == XML_PARSE_MODE.MMAP) {
+            Map<String, List<Long>> crefoListsMap = crefoByteScanner.scan(ab30CrefoXmlFile);
+            if (crefoListsMap != null) {
+                return crefoListsMap;
+            }
+        }
+        return crefoStaxExtractor.extract(ab30CrefoXmlFile);
+    }
+
+    protected Map<String, List<Long>> parseCrefosFromXmlContentWithXPath(File ab30CrefoXmlFile) throws XPathExpressionException {
+        return parseCrefosFromXmlContentWithXPath(new InputSource(ab30CrefoXmlFile.getAbsolutePath()));
+    }
+
+    private Map<String, List<Long>> parseCrefosFromXmlContentWithXPath(InputSource xml) throws XPathExpressionException {
         Map<String, List<Long>> crefoListsMap = new HashMap<>();
         crefoListsMap.put(TAG_STEUERUNGSDATEN, new ArrayList<>());
         crefoListsMap.put(TAG_FIRMENBETEILIGTER, new ArrayList<>());
         crefoListsMap.put(TAG_VERFAHRENSBETEILIGTER, new ArrayList<>());
         XPath xPath = XPathFactory.newInstance().newXPath();
-        InputSource xml = new InputSource(ab30CrefoXmlFile.getAbsolutePath());
         NodeList result = (NodeList) xPath.evaluate("//*[local-name() = 'crefonummer'] | //*[local-name() = 'crefonummer-beteiligter']", xml, XPathConstants.NODESET);
         for (int i = 0; i < result.getLength(); i++) {
             Node node = result.item(i);
@@ -1,8 +1,9 @@
 package de.cavdar.itsq;
 
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.List;
-import java.util.TreeSet;
+import java.util.NavigableSet;
 
 public class AB30XMLProperties {
     public static final String HEADER = "# CREFO::[{Used-By-Customer;...}],[IKA-AUFTR-CLZ],[{BTLG-CREFO;...}],[BEFR|BILANZ|BEIDES],[ABLEHNUNG_FIRMA_FIRMA|ABLEHNUNG_FIRMA_PRIVPERSON|...],[CTA_STATISTIK],[DSGVO_SPERRE]";
@@ -11,7 +12,7 @@ public class AB30XMLProperties {
     List<String> usedByCustomersList = new ArrayList<>();
     private Long crefoNr;
     private Long auftragClz;
-    private TreeSet<Long> btlgCrefosList = new TreeSet<>();
+    private LongSortedSet btlgCrefosList = new LongSortedSet();
     private BILANZEN_TYPE bilanzType;
     private EH_PROD_AUFTR_TYPE ehProdAuftrType;
     private boolean mitCtaStatistik;
@@ -37,83 +38,7 @@ public class AB30XMLProperties {
 
     public AB30XMLProperties(String strLine, int version) {
         // "# CREFO::[{Used-By-Customer;...}],[IKA-AUFTR-CLZ],[{BTLG-CREFO;...}],[BEFR|BILANZ|BEIDES],[ABLEHNUNG_FIRMA_FIRMA|ABLEHNUNG_FIRMA_PRIVPERSON|...],[CTA_STATISTIK],[DSGVO_SPERRE]"
-        if (strLine == null || strLine.isEmpty()) {
-            throw new IllegalArgumentException("\nDie Zeile darf nicht leer oder NULL sein!\nFormat: " + HEADER);
-        }
-        String[] groups1 = strLine.split("::"); // --> "4110106343"  "[411],[],[]"
-        if (groups1.length < 1) {
-            throw new IllegalArgumentException("\nDie Zeile '" + strLine + "' hat falsches Format!\nFormat: " + HEADER);
-        }
-        String strCrefo = groups1[0].trim();
-        crefoNr = Long.valueOf(strCrefo); // --> 4110106343
-
-        auftragClz = null;
-        bilanzType = BILANZEN_TYPE.KEINE;
-        ehProdAuftrType = EH_PROD_AUFTR_TYPE.KEINE;
-        mitCtaStatistik = false;
-        dsgVoSperre = false;
-        btlgCrefosList = new TreeSet<>();
-
-        if (groups1.length > 1) {
-            String[] groups2 = groups1[1].trim().split(","); // --> "[411]" "[]"...
-            int index = 0;
-            if ((version == 2) && groups2.length > index) {
-                String[] strUsedByCustomers = groups2[index++].trim().split(";");
-                extractAndAssignCustomers(strUsedByCustomers);
-            }
-            if (groups2.length > index) {
-                String strAuftrClz = extractToken(groups2[index++]);
-                if (!strAuftrClz.isEmpty()) {
-                    try {
-                        auftragClz = Long.valueOf(strAuftrClz).longValue(); // --> 411
-                    } catch (NumberFormatException ex) {
-                        throw new RuntimeException("CLZ '" + strAuftrClz + "' konnte nicht konvertiert werden! Crefo " + crefoNr, ex);
-                    }
-                }
-            }
-            if (groups2.length > index) {
-                String[] strEntgCrefos = groups2[index++].trim().split(";");
-                for (String strTemp : strEntgCrefos) {
-                    String strEntgCrefo = extractToken(strTemp);
-                    if (!strEntgCrefo.isEmpty()) {
-                        if (strEntgCrefo.length() == 10) {
-                            Long entgCrefo = Long.valueOf(strEntgCrefo);
-                            btlgCrefosList.add(entgCrefo);
-                        } else {
-                            throw new IllegalArgumentException("\nDie Zeile '" + strLine + "' hat falsches Format für Beteiligten-Crefo!");
-                        }
-                    }
-                }
-            }
-            if (groups2.length > index) {
-                String strBilanzType = extractToken(groups2[index++]);
-                if (!strBilanzType.isEmpty()) {
-                    bilanzType = BILANZEN_TYPE.valueOf(strBilanzType);
-                }
-            }
-            if (groups2.length > index) {
-                String strEhProdAuftrType = extractToken(groups2[index++]);
-                if (!strEhProdAuftrType.isEmpty()) {
-                    ehProdAuftrType = EH_PROD_AUFTR_TYPE.valueOf(strEhProdAuftrType);
-                }
-            }
-            if (groups2.length > index) {
-                String strMitCtaStatistik = extractToken(groups2[index++]);
-                if (!strMitCtaStatistik.isEmpty()) {
-                    mitCtaStatistik = true;
-                }
-            }
-            if ((version == 2) && groups2.length > index) {
-                String strDsgVoSperre = extractToken(groups2[index++]);
-                if (!strDsgVoSperre.isEmpty()) {
-                    dsgVoSperre = true;
-                }
-            }
-            if ((version == 1) && groups2.length > index) {
-                String[] strUsedByCustomers = groups2[index++].trim().split(";");
-                extractAndAssignCustomers(strUsedByCustomers);
-            }
-        }
+        AB30XMLPropertiesLineParser.parseInto(this, strLine, version);
     }
 
     /**
@@ -123,21 +48,6 @@ public class AB30XMLProperties {
         return ehProdAuftrType != null && ehProdAuftrType.isUploadErforderlich();
     }
 
-    private void extractAndAssignCustomers(String[] strUsedByCustomers) {
-        for (String strTemp : strUsedByCustomers) {
-            String strUsedByCustomer = extractToken(strTemp);
-            if (!strUsedByCustomer.isEmpty()) {
-                if (!usedByCustomersList.contains(strUsedByCustomer)) {
-                    getUsedByCustomersList().add(strUsedByCustomer);
-                }
-            }
-        }
-    }
-
-    private String extractToken(String strToken) {
-        return strToken.trim().replace("[", "").replace("]", "");
-    }
-
     public Long getCrefoNr() {
         return crefoNr;
     }
@@ -162,12 +72,23 @@ public class AB30XMLProperties {
         this.dsgVoSperre = dsgVoSperre;
     }
 
-    public TreeSet<Long> getBtlgCrefosList() {
+    /**
+     * Die Beteiligten-Crefos, aufsteigend sortiert. Die Menge ist keine TreeSet mehr, sondern eine {@link LongSortedSet}:
+     * Aufrufer nutzen nur die NavigableSet-API, Änderungen an der Menge wirken direkt auf diese Properties.
+     */
+    public NavigableSet<Long> getBtlgCrefosList() {
         return btlgCrefosList;
     }
 
-    public void setBtlgCrefosList(TreeSet<Long> btlgCrefosList) {
-        this.btlgCrefosList = btlgCrefosList;
+    /**
+     * Die Beteiligten-Crefos aufsteigend als long-Array, ohne Long-Objekte anzulegen.
+     */
+    public long[] getBtlgCrefosArray() {
+        return btlgCrefosList.toLongArray();
+    }
+
+    public void setBtlgCrefosList(Collection<? extends Long> btlgCrefosList) {
+        this.btlgCrefosList = btlgCrefosList instanceof LongSortedSet longSortedSet ? longSortedSet : new LongSortedSet(btlgCrefosList);
     }
 
     public BILANZEN_TYPE getBilanzType() {
@@ -202,30 +123,40 @@ public class AB30XMLProperties {
         this.usedByCustomersList = usedByCustomersList;
     }
 
-    private String getStrUsedByCustomers() {
-        String strUsedByCustomers = "";
-        for (String testCustomerKey : getUsedByCustomersList()) {
-            strUsedByCustomers += testCustomerKey;
-            strUsedByCustomers += ";";
-        }
-        return strUsedByCustomers.length() > 0 ? (strUsedByCustomers.substring(0, strUsedByCustomers.length() - 1)) : "";
-    }
-
     @Override
     public String toString() {
+        StringBuilder stringBuilder = new StringBuilder(64);
+        appendTo(stringBuilder);
+        return stringBuilder.toString();
+    }
+
+    /**
+     * Hängt die Zeile im Format von {@link #HEADER} an, ohne Zwischen-Strings zu erzeugen.
+     * Wird von toString() und beim Schreiben der ExtendedTestCrefos.properties benutzt.
+     */
+    public void appendTo(StringBuilder stringBuilder) {
         // "# CREFO::[{Used-By-Customer;...}],[IKA-AUFTR-CLZ],[{BTLG-CREFO;...}],[BEFR|BILANZ|BEIDES],[ABLEHNUNG_FIRMA_FIRMA|ABLEHNUNG_FIRMA_PRIVPERSON|...],[CTA_STATISTIK],[DSGVO_SPERRE]"
-        String strBtlgList = "";
-        if (!btlgCrefosList.isEmpty()) {
-            strBtlgList = btlgCrefosList.toString().replaceAll(",", ";");
-            strBtlgList = strBtlgList.replace("[", "").replace("]", "").replace(" ", "");
+        stringBuilder.append(crefoNr).append("::[");
+        String separator = "";
+        for (String testCustomerKey : getUsedByCustomersList()) {
+            stringBuilder.append(separator).append(testCustomerKey);
+            separator = ";";
+        }
+        stringBuilder.append("],[");
+        if (auftragClz != null) {
+            stringBuilder.append(auftragClz.longValue());
+        }
+        stringBuilder.append("],[");
+        separator = "";
+        for (int i = 0; i < btlgCrefosList.size(); i++) {
+            stringBuilder.append(separator).append(btlgCrefosList.get(i));
+            separator = ";";
         }
-        String strAuftrClz = auftragClz != null ? auftragClz.toString() : "";
-        String strUsedByCustomers = getStrUsedByCustomers();
-        String strInfo = String.format("%d::[%s],[%s],[%s],[%s],[%s],[%s],[%s]",
-                crefoNr, strUsedByCustomers, strAuftrClz, strBtlgList, bilanzType, ehProdAuftrType,
-                mitCtaStatistik ? "CTA_STATISTIK" : "",
-                dsgVoSperre ? "DSGVO_SPERRE" : "");
-        return strInfo;
+        stringBuilder.append("],[").append(bilanzType)
+                .append("],[").append(ehProdAuftrType)
+                .append("],[").append(mitCtaStatistik ? "CTA_STATISTIK" : "")
+                .append("],[").append(dsgVoSperre ? "DSGVO_SPERRE" : "")
+                .append(']');
     }
 
     public enum BILANZEN_TYPE {
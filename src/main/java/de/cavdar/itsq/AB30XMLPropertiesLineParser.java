@@ -0,0 +1,437 @@
+package de.cavdar.itsq;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CodingErrorAction;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Parser für die Zeilen der TestCrefos.properties (Format siehe {@link AB30XMLProperties#HEADER}, Version 1 und 2).
+ * <p>
+ * Die Zeile wird in einem Durchlauf über Positionen (Cursor) ausgewertet, ohne Zwischen-Strings oder -Arrays
+ * wie bei split()/replace() zu erzeugen. Es entstehen nur die Ergebnis-Objekte (Crefos, Kunden-Kürzel).
+ * Die Semantik entspricht der bisherigen split()-Variante: Felder werden getrimmt, danach werden alle '[' und ']'
+ * entfernt, leere Felder bleiben ohne Wirkung.
+ */
+public final class AB30XMLPropertiesLineParser {
+    private static final String SEPARATOR = "::";
+    private static final int READ_BUFFER_SIZE = 16 * 1024;
+    private static final AB30XMLProperties.BILANZEN_TYPE[] BILANZEN_TYPES = AB30XMLProperties.BILANZEN_TYPE.values();
+    private static final AB30XMLProperties.EH_PROD_AUFTR_TYPE[] EH_PROD_AUFTR_TYPES = AB30XMLProperties.EH_PROD_AUFTR_TYPE.values();
+
+    private AB30XMLPropertiesLineParser() {
+    }
+
+    public static AB30XMLProperties parse(CharSequence line, int version) {
+        AB30XMLProperties ab30XMLProperties = new AB30XMLProperties((Long) null);
+        parseInto(ab30XMLProperties, line, version);
+        return ab30XMLProperties;
+    }
+
+    static void parseInto(AB30XMLProperties target, CharSequence line, int version) {
+        if (line == null || line.length() == 0) {
+            throw new IllegalArgumentException("\nDie Zeile darf nicht leer oder NULL sein!\nFormat: " + AB30XMLProperties.HEADER);
+        }
+        int length = line.length();
+        int separatorPos = indexOfSeparator(line, 0);
+        int crefoEnd = separatorPos < 0 ? length : separatorPos;
+        if (crefoEnd == 0 && consistsOfSeparators(line, 0)) {
+            throw new IllegalArgumentException("\nDie Zeile '" + line + "' hat falsches Format!\nFormat: " + AB30XMLProperties.HEADER);
+        }
+        int crefoStart = trimStart(line, 0, crefoEnd);
+        crefoEnd = trimEnd(line, crefoStart, crefoEnd);
+        Long crefoNr = parseLong(line, crefoStart, crefoEnd, false);
+
+        target.setCrefoNr(crefoNr);
+        target.setAuftragClz(null);
+        target.setBilanzType(AB30XMLProperties.BILANZEN_TYPE.KEINE);
+        target.setEhProdAuftrType(AB30XMLProperties.EH_PROD_AUFTR_TYPE.KEINE);
+        target.setMitCtaStatistik(false);
+        target.setDsgVoSperre(false);
+        LongSortedSet btlgCrefosList = new LongSortedSet();
+        target.setBtlgCrefosList(btlgCrefosList);
+
+        if (separatorPos < 0) {
+            return;
+        }
+        int segmentStart = separatorPos + SEPARATOR.length();
+        int segmentEnd = indexOfSeparator(line, segmentStart);
+        if (segmentEnd < 0) {
+            segmentEnd = length;
+        }
+
+        int index = 0;
+        int fieldStart = segmentStart;
+        while (fieldStart <= segmentEnd) {
+            int fieldEnd = indexOf(line, ',', fieldStart, segmentEnd);
+            int fieldIndex = index++;
+            if ((version == 2) && fieldIndex == 0) {
+                addCustomers(target.getUsedByCustomersList(), line, fieldStart, fieldEnd);
+            } else {
+                int field = (version == 2) ? fieldIndex - 1 : fieldIndex;
+                int tokenStart = trimStart(line, fieldStart, fieldEnd);
+                int tokenEnd = trimEnd(line, tokenStart, fieldEnd);
+                switch (field) {
+                    case 0 -> {
+                        if (!isTokenEmpty(line, tokenStart, tokenEnd)) {
+                            try {
+                                target.setAuftragClz(parseLong(line, tokenStart, tokenEnd, true));
+                            } catch (NumberFormatException ex) {
+                                throw new RuntimeException("CLZ '" + tokenToString(line, tokenStart, tokenEnd) + "' konnte nicht konvertiert werden! Crefo " + crefoNr, ex);
+                            }
+                        }
+                    }
+                    case 1 -> addBtlgCrefos(btlgCrefosList, line, fieldStart, fieldEnd);
+                    case 2 -> {
+                        if (!isTokenEmpty(line, tokenStart, tokenEnd)) {
+                            target.setBilanzType(findEnum(BILANZEN_TYPES, AB30XMLProperties.BILANZEN_TYPE.class, line, tokenStart, tokenEnd));
+                        }
+                    }
+                    case 3 -> {
+                        if (!isTokenEmpty(line, tokenStart, tokenEnd)) {
+                            target.setEhProdAuftrType(findEnum(EH_PROD_AUFTR_TYPES, AB30XMLProperties.EH_PROD_AUFTR_TYPE.class, line, tokenStart, tokenEnd));
+                        }
+                    }
+                    case 4 -> {
+                        if (!isTokenEmpty(line, tokenStart, tokenEnd)) {
+                            target.setMitCtaStatistik(true);
+                        }
+                    }
+                    case 5 -> {
+                        if (version == 2) {
+                            if (!isTokenEmpty(line, tokenStart, tokenEnd)) {
+                                target.setDsgVoSperre(true);
+                            }
+                        } else if (version == 1) {
+                            addCustomers(target.getUsedByCustomersList(), line, fieldStart, fieldEnd);
+                        }
+                    }
+                    default -> {
+                        // weitere Felder werden ignoriert
+                    }
+                }
+            }
+            fieldStart = fieldEnd + 1;
+        }
+    }
+
+    /**
+     * Liest eine TestCrefos.properties-Datei zeilenweise direkt aus dem FileChannel in die Map.
+     * Kommentar- und Leerzeilen werden übersprungen, die Zeile "# Version:: n" setzt die Version der folgenden Zeilen.
+     */
+    public static Map<Long, AB30XMLProperties> readInto(File propsFile, Charset charset, Map<Long, AB30XMLProperties> ab30CrefoToPropertiesMap) throws IOException {
+        CharsetDecoder charsetDecoder = charset.newDecoder()
+                .onMalformedInput(CodingErrorAction.REPLACE)
+                .onUnmappableCharacter(CodingErrorAction.REPLACE);
+        try (FileChannel fileChannel = FileChannel.open(propsFile.toPath(), StandardOpenOption.READ);
+             Reader reader = Channels.newReader(fileChannel, charsetDecoder, READ_BUFFER_SIZE)) {
+            LineReader lineReader = new LineReader(ab30CrefoToPropertiesMap);
+            char[] buffer = new char[READ_BUFFER_SIZE];
+            int filled = 0;
+            int read;
+            while ((read = reader.read(buffer, filled, buffer.length - filled)) != -1) {
+                filled += read;
+                int consumed = lineReader.processLines(buffer, filled, false);
+                if (consumed == 0 && filled == buffer.length) {
+                    // die Zeile passt nicht in den Puffer
+                    char[] largerBuffer = new char[buffer.length * 2];
+                    System.arraycopy(buffer, 0, largerBuffer, 0, filled);
+                    buffer = largerBuffer;
+                } else if (consumed > 0) {
+                    System.arraycopy(buffer, consumed, buffer, 0, filled - consumed);
+                    filled -= consumed;
+                }
+            }
+            lineReader.processLines(buffer, filled, true);
+        }
+        return ab30CrefoToPropertiesMap;
+    }
+
+    private static final class LineReader {
+        private final Map<Long, AB30XMLProperties> ab30CrefoToPropertiesMap;
+        private final CharArraySequence line = new CharArraySequence();
+        private int version = 1;
+        private boolean skipLineFeed;
+
+        private LineReader(Map<Long, AB30XMLProperties> ab30CrefoToPropertiesMap) {
+            this.ab30CrefoToPropertiesMap = ab30CrefoToPropertiesMap;
+        }
+
+        /**
+         * Verarbeitet alle vollständigen Zeilen im Puffer und liefert die Anzahl der verbrauchten Zeichen.
+         */
+        private int processLines(char[] buffer, int filled, boolean endOfInput) {
+            int lineStart = 0;
+            for (int pos = 0; pos < filled; pos++) {
+                char c = buffer[pos];
+                if (skipLineFeed) {
+                    skipLineFeed = false;
+                    if (c == '\n') {
+                        lineStart = pos + 1;
+                        continue;
+                    }
+                }
+                if (c == '\n' || c == '\r') {
+                    processLine(buffer, lineStart, pos);
+                    skipLineFeed = c == '\r';
+                    lineStart = pos + 1;
+                }
+            }
+            if (endOfInput && lineStart < filled) {
+                processLine(buffer, lineStart, filled);
+                lineStart = filled;
+            }
+            return lineStart;
+        }
+
+        private void processLine(char[] buffer, int start, int end) {
+            line.set(buffer, start, end);
+            if (isBlank(line)) {
+                return;
+            }
+            if (startsWith(line, AB30XMLProperties.VERSION_STR)) {
+                int versionStart = indexOfSeparator(line, 0) + SEPARATOR.length();
+                int versionEnd = indexOfSeparator(line, versionStart);
+                if (versionEnd < 0) {
+                    versionEnd = line.length();
+                }
+                if (versionStart < line.length()) {
+                    version = Integer.valueOf(line.subSequence(versionStart, versionEnd).toString().trim());
+                }
+            }
+            if (line.charAt(0) != '#') {
+                AB30XMLProperties ab30XMLProperties = parse(line, version);
+                ab30CrefoToPropertiesMap.put(ab30XMLProperties.getCrefoNr(), ab30XMLProperties);
+            }
+        }
+    }
+
+    /**
+     * Wiederverwendbare Sicht auf einen Ausschnitt eines char-Arrays.
+     */
+    private static final class CharArraySequence implements CharSequence {
+        private char[] chars;
+        private int start;
+        private int end;
+
+        private void set(char[] chars, int start, int end) {
+            this.chars = chars;
+            this.start = start;
+            this.end = end;
+        }
+
+        @Override
+        public int length() {
+            return end - start;
+        }
+
+        @Override
+        public char charAt(int index) {
+            return chars[start + index];
+        }
+
+        @Override
+        public CharSequence subSequence(int from, int to) {
+            return new String(chars, start + from, to - from);
+        }
+
+        @Override
+        public String toString() {
+            return new String(chars, start, end - start);
+        }
+    }
+
+    private static void addCustomers(List<String> usedByCustomersList, CharSequence line, int fieldStart, int fieldEnd) {
+        int start = fieldStart;
+        while (start <= fieldEnd) {
+            int end = indexOf(line, ';', start, fieldEnd);
+            int tokenStart = trimStart(line, start, end);
+            int tokenEnd = trimEnd(line, tokenStart, end);
+            if (!isTokenEmpty(line, tokenStart, tokenEnd) && !containsToken(usedByCustomersList, line, tokenStart, tokenEnd)) {
+                usedByCustomersList.add(tokenToString(line, tokenStart, tokenEnd));
+            }
+            start = end + 1;
+        }
+    }
+
+    private static void addBtlgCrefos(LongSortedSet btlgCrefosList, CharSequence line, int fieldStart, int fieldEnd) {
+        int start = fieldStart;
+        while (start <= fieldEnd) {
+            int end = indexOf(line, ';', start, fieldEnd);
+            int tokenStart = trimStart(line, start, end);
+            int tokenEnd = trimEnd(line, tokenStart, end);
+            int tokenLength = tokenLength(line, tokenStart, tokenEnd);
+            if (tokenLength > 0) {
+                if (tokenLength == 10) {
+                    btlgCrefosList.add(parseLong(line, tokenStart, tokenEnd, true).longValue());
+                } else {
+                    throw new IllegalArgumentException("\nDie Zeile '" + line + "' hat falsches Format für Beteiligten-Crefo!");
+                }
+            }
+            start = end + 1;
+        }
+    }
+
+    private static <E extends Enum<E>> E findEnum(E[] constants, Class<E> enumType, CharSequence line, int tokenStart, int tokenEnd) {
+        for (E constant : constants) {
+            if (tokenEquals(constant.name(), line, tokenStart, tokenEnd)) {
+                return constant;
+            }
+        }
+        // wirft die gleiche IllegalArgumentException wie valueOf()
+        return Enum.valueOf(enumType, tokenToString(line, tokenStart, tokenEnd));
+    }
+
+    private static boolean containsToken(List<String> strings, CharSequence line, int tokenStart, int tokenEnd) {
+        for (String string : strings) {
+            if (tokenEquals(string, line, tokenStart, tokenEnd)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static boolean isBracket(char c) {
+        return c == '[' || c == ']';
+    }
+
+    private static int tokenLength(CharSequence line, int tokenStart, int tokenEnd) {
+        int tokenLength = 0;
+        for (int i = tokenStart; i < tokenEnd; i++) {
+            if (!isBracket(line.charAt(i))) {
+                tokenLength++;
+            }
+        }
+        return tokenLength;
+    }
+
+    private static boolean isTokenEmpty(CharSequence line, int tokenStart, int tokenEnd) {
+        for (int i = tokenStart; i < tokenEnd; i++) {
+            if (!isBracket(line.charAt(i))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static boolean tokenEquals(String string, CharSequence line, int tokenStart, int tokenEnd) {
+        int stringIndex = 0;
+        for (int i = tokenStart; i < tokenEnd; i++) {
+            char c = line.charAt(i);
+            if (isBracket(c)) {
+                continue;
+            }
+            if (stringIndex >= string.length() || string.charAt(stringIndex++) != c) {
+                return false;
+            }
+        }
+        return stringIndex == string.length();
+    }
+
+    private static String tokenToString(CharSequence line, int tokenStart, int tokenEnd) {
+        StringBuilder token = new StringBuilder(tokenEnd - tokenStart);
+        for (int i = tokenStart; i < tokenEnd; i++) {
+            char c = line.charAt(i);
+            if (!isBracket(c)) {
+                token.append(c);
+            }
+        }
+        return token.toString();
+    }
+
+    /**
+     * Wandelt die Ziffern im Bereich in eine Zahl um. Ungewöhnliche Eingaben (Vorzeichen, zu viele Stellen, ungültige Zeichen)
+     * werden an Long.valueOf() übergeben, damit Ergebnis bzw. NumberFormatException identisch sind.
+     */
+    private static Long parseLong(CharSequence line, int start, int end, boolean skipBrackets) {
+        long value = 0;
+        int digits = 0;
+        for (int i = start; i < end; i++) {
+            char c = line.charAt(i);
+            if (skipBrackets && isBracket(c)) {
+                continue;
+            }
+            if (c < '0' || c > '9' || digits == 18) {
+                String token = skipBrackets ? tokenToString(line, start, end) : line.subSequence(start, end).toString();
+                return Long.valueOf(token);
+            }
+            value = value * 10 + (c - '0');
+            digits++;
+        }
+        if (digits == 0) {
+            return Long.valueOf("");
+        }
+        return value;
+    }
+
+    private static int trimStart(CharSequence line, int start, int end) {
+        while (start < end && line.charAt(start) <= ' ') {
+            start++;
+        }
+        return start;
+    }
+
+    private static int trimEnd(CharSequence line, int start, int end) {
+        while (end > start && line.charAt(end - 1) <= ' ') {
+            end--;
+        }
+        return end;
+    }
+
+    private static int indexOf(CharSequence line, char c, int from, int to) {
+        for (int i = from; i < to; i++) {
+            if (line.charAt(i) == c) {
+                return i;
+            }
+        }
+        return to;
+    }
+
+    private static int indexOfSeparator(CharSequence line, int from) {
+        for (int i = from; i < line.length() - 1; i++) {
+            if (line.charAt(i) == ':' && line.charAt(i + 1) == ':') {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private static boolean consistsOfSeparators(CharSequence line, int from) {
+        int pos = from;
+        while (pos < line.length()) {
+            if (indexOfSeparator(line, pos) != pos) {
+                return false;
+            }
+            pos += SEPARATOR.length();
+        }
+        return true;
+    }
+
+    private static boolean isBlank(CharSequence line) {
+        for (int i = 0; i < line.length(); i++) {
+            if (!Character.isWhitespace(line.charAt(i))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static boolean startsWith(CharSequence line, String prefix) {
+        if (line.length() < prefix.length()) {
+            return false;
+        }
+        for (int i = 0; i < prefix.length(); i++) {
+            if (line.charAt(i) != prefix.charAt(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
@@ -0,0 +1,155 @@
+package de.cavdar.itsq;
+
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.function.Consumer;
+
+/**
+ * Map, die jede Änderung meldet, auch solche über keySet(), values() und entrySet().
+ * <p>
+ * onPut erhält jeden eingetragenen Wert (z.B. um die Rückreferenz auf den Besitzer zu setzen), onChange wird nach
+ * jeder Änderung aufgerufen. Reihenfolge und Sortierung entsprechen der zugrunde liegenden Map.
+ */
+final class ChangeNotifyingMap<K, V> extends AbstractMap<K, V> {
+    private final Map<K, V> delegate;
+    private final Consumer<? super V> onPut;
+    private final Runnable onChange;
+    private Set<Entry<K, V>> entrySet;
+
+    ChangeNotifyingMap(Map<K, V> delegate, Consumer<? super V> onPut, Runnable onChange) {
+        this.delegate = delegate;
+        this.onPut = onPut;
+        this.onChange = onChange;
+    }
+
+    @Override
+    public int size() {
+        return delegate.size();
+    }
+
+    @Override
+    public boolean containsKey(Object key) {
+        return delegate.containsKey(key);
+    }
+
+    @Override
+    public V get(Object key) {
+        return delegate.get(key);
+    }
+
+    @Override
+    public V put(K key, V value) {
+        V oldValue = delegate.put(key, value);
+        added(value);
+        return oldValue;
+    }
+
+    @Override
+    public V remove(Object key) {
+        if (!delegate.containsKey(key)) {
+            return null;
+        }
+        V oldValue = delegate.remove(key);
+        onChange.run();
+        return oldValue;
+    }
+
+    @Override
+    public void clear() {
+        if (!delegate.isEmpty()) {
+            delegate.clear();
+            onChange.run();
+        }
+    }
+
+    @Override
+    public Set<Entry<K, V>> entrySet() {
+        if (entrySet == null) {
+            entrySet = new AbstractSet<>() {
+                @Override
+                public Iterator<Entry<K, V>> iterator() {
+                    Iterator<Entry<K, V>> iterator = delegate.entrySet().iterator();
+                    return new Iterator<>() {
+                        @Override
+                        public boolean hasNext() {
+                            return iterator.hasNext();
+                        }
+
+                        @Override
+                        public Entry<K, V> next() {
+                            return new NotifyingEntry(iterator.next());
+                        }
+
+                        @Override
+                        public void remove() {
+                            iterator.remove();
+                            onChange.run();
+                        }
+                    };
+                }
+
+                @Override
+                public int size() {
+                    return delegate.size();
+                }
+
+                @Override
+                public void clear() {
+                    ChangeNotifyingMap.this.clear();
+                }
+            };
+        }
+        return entrySet;
+    }
+
+    private void added(V value) {
+        if (onPut != null && value != null) {
+            onPut.accept(value);
+        }
+        onChange.run();
+    }
+
+    private final class NotifyingEntry implements Entry<K, V> {
+        private final Entry<K, V> entry;
+
+        private NotifyingEntry(Entry<K, V> entry) {
+            this.entry = entry;
+        }
+
+        @Override
+        public K getKey() {
+            return entry.getKey();
+        }
+
+        @Override
+        public V getValue() {
+            return entry.getValue();
+        }
+
+        @Override
+        public V setValue(V value) {
+            V oldValue = entry.setValue(value);
+            added(value);
+            return oldValue;
+        }
+
+        @Override
+        public boolean equals(Object object) {
+            return object instanceof Entry<?, ?> other && Objects.equals(getKey(), other.getKey()) && Objects.equals(getValue(), other.getValue());
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hashCode(getKey()) ^ Objects.hashCode(getValue());
+        }
+
+        @Override
+        public String toString() {
+            return getKey() + "=" + getValue();
+        }
+    }
+}
@@ -0,0 +1,322 @@
+package de.cavdar.itsq;
+
+import de.cavdar.gui.util.TimelineLogger;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+
+/**
+ * Binärer Schnappschuss des TestCustomer/TestScenario/TestCrefo-Modells beider Phasen.
+ * <p>
+ * Alle Strings (Namen, Pfade, Infos) stehen einmal in einer String-Tabelle am Anfang, das Modell selbst
+ * verweist nur über int-Indizes darauf. Zusätzlich werden die Änderungszeiten aller Verzeichnisse unter
+ * REF-EXPORTS/PHASE-x sowie Größe und Änderungszeit der Properties-Dateien gespeichert: neue, gelöschte oder
+ * umbenannte Kunden, Szenarien und XMLs ändern die Zeit eines Verzeichnisses, Änderungen an Relevanz.properties
+ * die der Datei. Stimmt einer dieser Stände nicht mehr, ist der Schnappschuss veraltet. Die Stände werden vor dem
+ * Laden des Modells festgehalten ({@link #collectStamps(File)}), eine während des Ladens geänderte Datei macht den
+ * Schnappschuss also ebenfalls veraltet.
+ */
+public class ITSQModelSnapshot {
+    public static final String SNAPSHOT_FILENAME = ".itsq-model.snapshot";
+    private static final int MAGIC = 0x4954534D; // "ITSM"
+    private static final int FORMAT_VERSION = 2;
+    private static final int NO_STRING = -1;
+
+    private ITSQModelSnapshot() {
+    }
+
+    /**
+     * Hält die Stände der Verzeichnisse und Properties-Dateien des Testpakets fest. Muss vor dem Laden des Modells
+     * aufgerufen werden: eine während des Ladens geänderte Datei hat dann einen anderen Stand als den gespeicherten,
+     * der Schnappschuss gilt beim nächsten Lesen als veraltet.
+     */
+    public static Stamps collectStamps(File testSetRootDir) {
+        List<File> stampedFiles = new ArrayList<>();
+        // auch noch nicht existierende Verzeichnisse (Zeit 0) werden festgehalten, damit ihr Anlegen erkannt wird
+        stampedFiles.add(new File(testSetRootDir, TestSupportClientKonstanten.REF_EXPORTS_ROOT));
+        for (TestSupportClientKonstanten.TEST_PHASE testPhase : TestSupportClientKonstanten.TEST_PHASE.values()) {
+            collectStampedFiles(refExportsPhaseDir(testSetRootDir, testPhase), stampedFiles);
+        }
+        Stamps stamps = new Stamps(stampedFiles.size());
+        for (File stampedFile : stampedFiles) {
+            stamps.add(stampedFile.getPath(), ItsqFiles.isDirectory(stampedFile) ? -1 : stampedFile.length(), stampedFile.lastModified());
+        }
+        return stamps;
+    }
+
+    /**
+     * Schreibt das Modell samt den vor dem Laden festgehaltenen Ständen (siehe {@link #collectStamps(File)}).
+     * Noch nicht geladene Lazy-Szenarien werden ungeladen gespeichert und nach dem Lesen wieder erst beim ersten
+     * Zugriff geladen.
+     */
+    public static void write(File snapshotFile, File testSetRootDir, Stamps stamps, Map<TestSupportClientKonstanten.TEST_PHASE, Map<String, TestCustomer>> customerTestInfoMapMap,
+                             List<String> errors) throws IOException {
+        StringTable stringTable = new StringTable();
+        ByteArrayOutputStream modelBytes = new ByteArrayOutputStream(64 * 1024);
+        try (DataOutputStream out = new DataOutputStream(modelBytes)) {
+            out.writeInt(stamps.paths.size());
+            for (int i = 0; i < stamps.paths.size(); i++) {
+                out.writeInt(stringTable.indexOf(stamps.paths.get(i)));
+                out.writeLong(stamps.sizes[i]);
+                out.writeLong(stamps.lastModifieds[i]);
+            }
+
+            out.writeInt(errors.size());
+            for (String error : errors) {
+                out.writeInt(stringTable.indexOf(error));
+            }
+
+            out.writeInt(customerTestInfoMapMap.size());
+            for (Map.Entry<TestSupportClientKonstanten.TEST_PHASE, Map<String, TestCustomer>> phaseEntry : customerTestInfoMapMap.entrySet()) {
+                out.writeInt(phaseEntry.getKey().ordinal());
+                out.writeInt(phaseEntry.getValue().size());
+                for (TestCustomer testCustomer : phaseEntry.getValue().values()) {
+                    writeCustomer(out, stringTable, testCustomer);
+                }
+            }
+        }
+
+        File tmpFile = new File(snapshotFile.getParentFile(), snapshotFile.getName() + ".tmp");
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(tmpFile), 64 * 1024))) {
+            out.writeInt(MAGIC);
+            out.writeInt(FORMAT_VERSION);
+            out.writeUTF(testSetRootDir.getAbsolutePath());
+            stringTable.writeTo(out);
+            modelBytes.writeTo(out);
+        }
+        ItsqFiles.moveAtomically(tmpFile.toPath(), snapshotFile.toPath());
+    }
+
+    /**
+     * Liest den Schnappschuss, wenn er zum Testpaket passt und nicht veraltet ist, sonst null.
+     *
+     * @param errors erhält die beim Schreiben gesammelten Lade-Fehler
+     */
+    public static Map<TestSupportClientKonstanten.TEST_PHASE, Map<String, TestCustomer>> read(File snapshotFile, File testSetRootDir, List<String> errors) {
+        return read(snapshotFile, testSetRootDir, new ItsqPathTable(testSetRootDir), errors);
+    }
+
+    /**
+     * Wie {@link #read(File, File, List)}, die Pfade des Modells werden in pathTable abgelegt.
+     */
+    static Map<TestSupportClientKonstanten.TEST_PHASE, Map<String, TestCustomer>> read(File snapshotFile, File testSetRootDir, ItsqPathTable pathTable, List<String> errors) {
+        if (!snapshotFile.exists()) {
+            return null;
+        }
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(snapshotFile), 64 * 1024))) {
+            if (in.readInt() != MAGIC || in.readInt() != FORMAT_VERSION || !in.readUTF().equals(testSetRootDir.getAbsolutePath())) {
+                return null;
+            }
+            String[] strings = StringTable.readFrom(in);
+
+            int stampedFilesCount = in.readInt();
+            for (int i = 0; i < stampedFilesCount; i++) {
+                File stampedFile = new File(strings[in.readInt()]);
+                long size = in.readLong();
+                long lastModified = in.readLong();
+                if (stampedFile.lastModified() != lastModified || (size >= 0 && stampedFile.length() != size)) {
+                    TimelineLogger.info(ITSQModelSnapshot.class, "Schnappschuss '" + snapshotFile.getName() + "' ist veraltet: " + stampedFile.getPath() + " wurde geändert.");
+                    return null;
+                }
+            }
+
+            List<String> snapshotErrors = new ArrayList<>();
+            int errorsCount = in.readInt();
+            for (int i = 0; i < errorsCount; i++) {
+                snapshotErrors.add(strings[in.readInt()]);
+            }
+
+            Map<TestSupportClientKonstanten.TEST_PHASE, Map<String, TestCustomer>> customerTestInfoMapMap = new EnumMap<>(TestSupportClientKonstanten.TEST_PHASE.class);
+            int phasesCount = in.readInt();
+            for (int i = 0; i < phasesCount; i++) {
+                TestSupportClientKonstanten.TEST_PHASE testPhase = TestSupportClientKonstanten.TEST_PHASE.values()[in.readInt()];
+                Map<String, TestCustomer> customerTestInfoMap = new TreeMap<>();
+                int customersCount = in.readInt();
+                for (int j = 0; j < customersCount; j++) {
+                    TestCustomer testCustomer = readCustomer(in, strings, pathTable, errors);
+                    customerTestInfoMap.put(testCustomer.getCustomerKey(), testCustomer);
+                }
+                customerTestInfoMapMap.put(testPhase, customerTestInfoMap);
+            }
+            errors.addAll(snapshotErrors);
+            return customerTestInfoMapMap;
+        } catch (IOException | RuntimeException ex) {
+            TimelineLogger.warn(ITSQModelSnapshot.class, "Schnappschuss '" + snapshotFile.getAbsolutePath() + "' konnte nicht gelesen werden: " + ex.getMessage());
+            return null;
+        }
+    }
+
+    private static File refExportsPhaseDir(File testSetRootDir, TestSupportClientKonstanten.TEST_PHASE testPhase) {
+        return new File(new File(testSetRootDir, TestSupportClientKonstanten.REF_EXPORTS_ROOT), testPhase.getDirName());
+    }
+
+    /**
+     * dir, alle Verzeichnisse darunter und alle Properties-Dateien darin.
+     */
+    private static void collectStampedFiles(File dir, List<File> stampedFiles) {
+        stampedFiles.add(dir);
+        File[] files = ItsqFiles.listFiles(dir);
+        if (files == null) {
+            return;
+        }
+        for (File file : files) {
+            if (ItsqFiles.isDirectory(file)) {
+                collectStampedFiles(file, stampedFiles);
+            } else if (file.getName().endsWith(".properties")) {
+                stampedFiles.add(file);
+            }
+        }
+    }
+
+    private static void writeCustomer(DataOutputStream out, StringTable stringTable, TestCustomer testCustomer) throws IOException {
+        out.writeInt(stringTable.indexOf(testCustomer.getCustomerKey()));
+        out.writeInt(stringTable.indexOf(testCustomer.getCustomerName()));
+        out.writeInt(testCustomer.getTestPhase().ordinal());
+        out.writeInt(stringTable.indexOf(testCustomer.getItsqRefExportsDir()));
+        out.writeInt(stringTable.indexOf(testCustomer.getItsqAB30XmlsDir()));
+        List<TestScenario> testScenariosList = testCustomer.getTestScenariosList();
+        out.writeInt(testScenariosList.size());
+        for (TestScenario testScenario : testScenariosList) {
+            out.writeInt(stringTable.indexOf(testScenario.getScenarioName()));
+            out.writeBoolean(testScenario.isActivated());
+            out.writeInt(stringTable.indexOf(testScenario.getItsqRefExportsFile()));
+            out.writeInt(stringTable.indexOf(testScenario.getItsqRefExportsPropsFile()));
+            List<File> pendingRefExportXmlsList = testScenario.getPendingRefExportXmlsList();
+            out.writeBoolean(pendingRefExportXmlsList != null);
+            if (pendingRefExportXmlsList != null) {
+                // ungeladen: nur die XMLs, mit denen das Szenario beim ersten Zugriff geladen wird
+                out.writeInt(pendingRefExportXmlsList.size());
+                for (File xmlFile : pendingRefExportXmlsList) {
+                    out.writeInt(stringTable.indexOf(xmlFile));
+                }
+                continue;
+            }
+            Collection<TestCrefo> testCrefos = testScenario.getTestFallNameToTestCrefoMap().values();
+            out.writeInt(testCrefos.size());
+            for (TestCrefo testCrefo : testCrefos) {
+                out.writeInt(stringTable.indexOf(testCrefo.getTestFallName()));
+                out.writeLong(testCrefo.getItsqTestCrefoNr());
+                out.writeInt(stringTable.indexOf(testCrefo.getTestFallInfo()));
+                out.writeByte((testCrefo.isShouldBeExported() ? 1 : 0) | (testCrefo.isActivated() ? 2 : 0) | (testCrefo.isExported() ? 4 : 0));
+                out.writeInt(stringTable.indexOf(testCrefo.getItsqRexExportXmlFile()));
+            }
+        }
+    }
+
+    private static TestCustomer readCustomer(DataInputStream in, String[] strings, ItsqPathTable pathTable, List<String> errors) throws IOException {
+        TestCustomer testCustomer = new TestCustomer(stringAt(strings, in.readInt()), stringAt(strings, in.readInt()), pathTable);
+        testCustomer.setTestPhase(TestSupportClientKonstanten.TEST_PHASE.values()[in.readInt()]);
+        testCustomer.setItsqRefExportsDir(fileAt(strings, in.readInt()));
+        testCustomer.setItsqAB30XmlsDir(fileAt(strings, in.readInt()));
+        int scenariosCount = in.readInt();
+        for (int i = 0; i < scenariosCount; i++) {
+            String scenarioName = stringAt(strings, in.readInt());
+            boolean activated = in.readBoolean();
+            File itsqRefExportsFile = fileAt(strings, in.readInt());
+            File itsqRefExportsPropsFile = fileAt(strings, in.readInt());
+            if (in.readBoolean()) {
+                List<File> pendingRefExportXmlsList = new ArrayList<>();
+                int xmlFilesCount = in.readInt();
+                for (int j = 0; j < xmlFilesCount; j++) {
+                    pendingRefExportXmlsList.add(fileAt(strings, in.readInt()));
+                }
+                // die Zeilen-Probleme kommen wie beim Laden erst beim ersten Zugriff hinzu
+                String errorPrefix = testCustomer.getTestPhase().getDirName() + "/" + testCustomer.getCustomerKey() + "/" + scenarioName + ": ";
+                testCustomer.addTestScenario(new TestScenario(testCustomer, scenarioName, itsqRefExportsFile, itsqRefExportsPropsFile, activated,
+                        pendingRefExportXmlsList, message -> errors.add(errorPrefix + message)));
+                continue;
+            }
+            TestScenario testScenario = new TestScenario(testCustomer, scenarioName, itsqRefExportsFile, itsqRefExportsPropsFile, activated);
+            Map<String, TestCrefo> testFallNameToTestCrefoMap = testScenario.getTestFallNameToTestCrefoMap();
+            int crefosCount = in.readInt();
+            for (int j = 0; j < crefosCount; j++) {
+                String testFallName = stringAt(strings, in.readInt());
+                long crefoNr = in.readLong();
+                String testFallInfo = stringAt(strings, in.readInt());
+                int flags = in.readByte();
+                TestCrefo testCrefo = new TestCrefo(testFallName, crefoNr, testFallInfo, (flags & 1) != 0, (flags & 2) != 0, (flags & 4) != 0, pathTable, fileAt(strings, in.readInt()));
+                testFallNameToTestCrefoMap.put(testFallName, testCrefo);
+            }
+            testCustomer.addTestScenario(testScenario);
+        }
+        return testCustomer;
+    }
+
+    private static String stringAt(String[] strings, int index) {
+        return index == NO_STRING ? null : strings[index];
+    }
+
+    private static File fileAt(String[] strings, int index) {
+        return index == NO_STRING ? null : new File(strings[index]);
+    }
+
+    /**
+     * Die mit {@link #collectStamps(File)} festgehaltenen Stände: Pfad, Größe (-1 für Verzeichnisse) und Änderungszeit.
+     */
+    public static final class Stamps {
+        private final List<String> paths;
+        private final long[] sizes;
+        private final long[] lastModifieds;
+
+        private Stamps(int capacity) {
+            paths = new ArrayList<>(capacity);
+            sizes = new long[capacity];
+            lastModifieds = new long[capacity];
+        }
+
+        private void add(String path, long size, long lastModified) {
+            sizes[paths.size()] = size;
+            lastModifieds[paths.size()] = lastModified;
+            paths.add(path);
+        }
+    }
+
+    /**
+     * Jeder String wird nur einmal gespeichert, null wird als {@link #NO_STRING} kodiert.
+     */
+    private static final class StringTable {
+        private final Map<String, Integer> indexMap = new HashMap<>();
+        private final List<String> strings = new ArrayList<>();
+
+        private int indexOf(File file) {
+            return file == null ? NO_STRING : indexOf(file.getPath());
+        }
+
+        private int indexOf(String string) {
+            if (string == null) {
+                return NO_STRING;
+            }
+            Integer index = indexMap.get(string);
+            if (index == null) {
+                index = strings.size();
+                strings.add(string);
+                indexMap.put(string, index);
+            }
+            return index;
+        }
+
+        private void writeTo(DataOutputStream out) throws IOException {
+            out.writeInt(strings.size());
+            for (String string : strings) {
+                byte[] bytes = string.getBytes(StandardCharsets.UTF_8);
+                out.writeInt(bytes.length);
+                out.write(bytes);
+            }
+        }
+
+        private static String[] readFrom(DataInputStream in) throws IOException {
+            String[] strings = new String[in.readInt()];
+            byte[] buffer = new byte[256];
+            for (int i = 0; i < strings.length; i++) {
+                int length = in.readInt();
+                if (length > buffer.length) {
+                    buffer = new byte[Math.max(length, buffer.length * 2)];
+                }
+                in.readFully(buffer, 0, length);
+                strings[i] = new String(buffer, 0, length, StandardCharsets.UTF_8);
+            }
+            return strings;
+        }
+    }
+}
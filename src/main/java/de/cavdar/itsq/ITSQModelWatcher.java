@@ -0,0 +1,599 @@
+package de.cavdar.itsq;
+
+import de.cavdar.gui.util.TimelineLogger;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.*;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.*;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Hält ein geladenes Modell (siehe {@link ITSQTestSetLoader#load()}) per WatchService aktuell.
+ * <p>
+ * Beobachtet werden alle Verzeichnisse unter REF-EXPORTS und ARCHIV-BESTAND. Die Dateiereignisse werden gesammelt,
+ * bis {@link #getQuietMillis()} lang nichts mehr passiert ist (spätestens nach {@link #getMaxDelayMillis()}),
+ * und dann pro Szenario zusammengefasst: jedes betroffene Szenario wird genau einmal neu geladen und im TestCustomer
+ * ersetzt, neue und gelöschte Kunden bzw. Szenarien werden eingetragen bzw. entfernt. Das Kopieren von
+ * tausenden XMLs ergibt so ein einziges {@link ModelChangeEvent}. Ereignisse für Hilfsdateien (siehe
+ * {@link #isIgnored(Path)}) werden schon vor dem Sammeln verworfen.
+ * <p>
+ * Änderungen unter ARCHIV-BESTAND betreffen das Modell nicht direkt und werden nur im Event gemeldet.
+ * <p>
+ * Die Szenarien werden im Watcher-Thread gelesen, ohne das Modell zu ändern. Eingetragen bzw. entfernt werden sie
+ * danach im Modell-Executor ({@link #setModelExecutor(Executor)}, für das GUI z.B. SwingUtilities::invokeLater),
+ * der auch die Listener aufruft; dort wird auch der Stand des Modells für den Abgleich gelesen. So ändert sich das
+ * Modell nur in dem Thread, der es anzeigt. Ohne Modell-Executor läuft alles im Watcher-Thread.
+ */
+public class ITSQModelWatcher implements AutoCloseable {
+    public static final long DEFAULT_QUIET_MILLIS = 500;
+    public static final long DEFAULT_MAX_DELAY_MILLIS = 5000;
+    private static final List<String> IGNORED_SUFFIXES = List.of(".tmp", ".part", ".lock", ".old");
+
+    private final File testSetRootDir;
+    private final Map<TestSupportClientKonstanten.TEST_PHASE, Map<String, TestCustomer>> customerTestInfoMapMap;
+    private final ITSQTestSetLoader loader;
+    private final Path refExportsRoot;
+    private final Path archivBestandRoot;
+    private final List<ModelChangeListener> listeners = new CopyOnWriteArrayList<>();
+    private final Map<WatchKey, Path> watchKeys = new HashMap<>();
+    private long quietMillis = DEFAULT_QUIET_MILLIS;
+    private long maxDelayMillis = DEFAULT_MAX_DELAY_MILLIS;
+    private volatile Executor modelExecutor = Runnable::run;
+    private WatchService watchService;
+    private Thread watchThread;
+
+    /**
+     * Listener für die zusammengefassten Änderungen am Modell.
+     */
+    public interface ModelChangeListener {
+        void onModelChanged(ModelChangeEvent event);
+    }
+
+    /**
+     * @param testSetRootDir         das ITSQ-Verzeichnis mit ARCHIV-BESTAND und REF-EXPORTS
+     * @param customerTestInfoMapMap das geladene Modell, das aktualisiert wird
+     * @param loader                 lädt geänderte Szenarien (Lazy-Modus wie beim Laden des Modells)
+     */
+    public ITSQModelWatcher(File testSetRootDir, Map<TestSupportClientKonstanten.TEST_PHASE, Map<String, TestCustomer>> customerTestInfoMapMap, ITSQTestSetLoader loader) {
+        this.testSetRootDir = testSetRootDir;
+        this.customerTestInfoMapMap = customerTestInfoMapMap;
+        this.loader = loader;
+        this.refExportsRoot = new File(testSetRootDir, TestSupportClientKonstanten.REF_EXPORTS_ROOT).toPath().toAbsolutePath().normalize();
+        this.archivBestandRoot = new File(testSetRootDir, TestSupportClientKonstanten.ARCHIV_BESTAND_ROOT).toPath().toAbsolutePath().normalize();
+    }
+
+    public void addListener(ModelChangeListener listener) {
+        if (!listeners.contains(listener)) {
+            listeners.add(listener);
+        }
+    }
+
+    public void removeListener(ModelChangeListener listener) {
+        listeners.remove(listener);
+    }
+
+    public long getQuietMillis() {
+        return quietMillis;
+    }
+
+    /**
+     * So lange muss nach dem letzten Dateiereignis Ruhe sein, bevor die gesammelten Änderungen übernommen werden.
+     */
+    public void setQuietMillis(long quietMillis) {
+        this.quietMillis = Math.max(1, quietMillis);
+    }
+
+    public long getMaxDelayMillis() {
+        return maxDelayMillis;
+    }
+
+    /**
+     * Spätestens nach dieser Zeit seit dem ersten Ereignis werden die Änderungen übernommen, auch wenn noch kopiert wird.
+     */
+    public void setMaxDelayMillis(long maxDelayMillis) {
+        this.maxDelayMillis = Math.max(1, maxDelayMillis);
+    }
+
+    public Executor getModelExecutor() {
+        return modelExecutor;
+    }
+
+    /**
+     * Der Executor, in dem das Modell geändert und die Listener aufgerufen werden (Standard: der Watcher-Thread).
+     */
+    public void setModelExecutor(Executor modelExecutor) {
+        this.modelExecutor = modelExecutor != null ? modelExecutor : Runnable::run;
+    }
+
+    public synchronized boolean isRunning() {
+        return watchThread != null && watchThread.isAlive();
+    }
+
+    /**
+     * Registriert alle Verzeichnisse und startet den Watcher-Thread.
+     */
+    public synchronized void start() throws IOException {
+        if (watchThread != null) {
+            return;
+        }
+        watchKeys.clear();
+        watchService = FileSystems.getDefault().newWatchService();
+        // das Wurzelverzeichnis nur für das (Neu-)Anlegen von REF-EXPORTS und ARCHIV-BESTAND
+        registerDir(testSetRootDir.toPath().toAbsolutePath().normalize());
+        registerTree(refExportsRoot);
+        registerTree(archivBestandRoot);
+        watchThread = new Thread(this::watchLoop, "itsq-model-watcher");
+        watchThread.setDaemon(true);
+        watchThread.start();
+        TimelineLogger.info(this.getClass(), "ITSQModelWatcher#start(): " + watchKeys.size() + " Verzeichnisse unter '" + testSetRootDir.getAbsolutePath() + "' werden beobachtet.");
+    }
+
+    @Override
+    public void close() {
+        Thread thread;
+        synchronized (this) {
+            thread = watchThread;
+            watchThread = null;
+            if (watchService != null) {
+                try {
+                    watchService.close();
+                } catch (IOException ex) {
+                    TimelineLogger.warn(this.getClass(), "ITSQModelWatcher#close(): " + ex.getMessage());
+                }
+            }
+        }
+        if (thread != null) {
+            thread.interrupt();
+            try {
+                thread.join(TimeUnit.SECONDS.toMillis(5));
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    private void watchLoop() {
+        WatchService service = watchService;
+        try {
+            while (!Thread.currentThread().isInterrupted()) {
+                PendingChanges pendingChanges = new PendingChanges();
+                // erst ein relevantes Ereignis startet das Sammeln, eigene Hilfsdateien (Cache, Temp-Dateien) nicht
+                while (pendingChanges.isEmpty()) {
+                    collect(service.take(), pendingChanges);
+                }
+                long deadline = System.currentTimeMillis() + maxDelayMillis;
+                while (true) {
+                    long waitMillis = Math.min(quietMillis, deadline - System.currentTimeMillis());
+                    if (waitMillis <= 0) {
+                        break;
+                    }
+                    WatchKey watchKey = service.poll(waitMillis, TimeUnit.MILLISECONDS);
+                    if (watchKey == null) {
+                        break;
+                    }
+                    collect(watchKey, pendingChanges);
+                }
+                if (!pendingChanges.isEmpty()) {
+                    applyChanges(pendingChanges);
+                }
+            }
+        } catch (InterruptedException | ClosedWatchServiceException ex) {
+            // close()
+        }
+    }
+
+    private void collect(WatchKey watchKey, PendingChanges pendingChanges) {
+        Path dir = watchKeys.get(watchKey);
+        for (WatchEvent<?> watchEvent : watchKey.pollEvents()) {
+            if (watchEvent.kind() == StandardWatchEventKinds.OVERFLOW || dir == null) {
+                pendingChanges.eventCount++;
+                pendingChanges.fullRescan = true;
+                continue;
+            }
+            Path path = dir.resolve((Path) watchEvent.context());
+            if (isIgnored(path)) {
+                continue;
+            }
+            pendingChanges.eventCount++;
+            if (watchEvent.kind() == StandardWatchEventKinds.ENTRY_CREATE && Files.isDirectory(path, LinkOption.NOFOLLOW_LINKS)) {
+                // neue Verzeichnisse (auch kopierte Bäume) sofort beobachten, ihr Inhalt wird über das Szenario neu gelesen
+                try {
+                    registerTree(path);
+                } catch (IOException ex) {
+                    TimelineLogger.warn(this.getClass(), "ITSQModelWatcher#collect(): '" + path + "' kann nicht beobachtet werden: " + ex.getMessage());
+                }
+            }
+            pendingChanges.add(path);
+        }
+        if (!watchKey.reset()) {
+            watchKeys.remove(watchKey);
+        }
+    }
+
+    /**
+     * Ob die Datei nicht zum Modell gehört: die von der Anwendung selbst geschriebenen Hilfsdateien (Parse-Cache,
+     * Graph-Index, Zustand der Erweiterung, Schnappschuss usw.) beginnen mit einem Punkt, dazu kommen temporäre,
+     * halb geschriebene, Sperr- und Sicherungsdateien.
+     */
+    static boolean isIgnored(Path path) {
+        Path fileName = path.getFileName();
+        if (fileName == null) {
+            return false;
+        }
+        String name = fileName.toString();
+        if (name.startsWith(".")) {
+            return true;
+        }
+        for (String suffix : IGNORED_SUFFIXES) {
+            if (name.endsWith(suffix)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private void registerTree(Path root) throws IOException {
+        if (!Files.isDirectory(root)) {
+            return;
+        }
+        Files.walkFileTree(root, new SimpleFileVisitor<>() {
+            @Override
+            public FileVisitResult preVisitDirectory(Path dir, BasicFileAttributes attrs) throws IOException {
+                registerDir(dir);
+                return FileVisitResult.CONTINUE;
+            }
+        });
+    }
+
+    private void registerDir(Path dir) throws IOException {
+        WatchKey watchKey = dir.register(watchService, StandardWatchEventKinds.ENTRY_CREATE, StandardWatchEventKinds.ENTRY_DELETE, StandardWatchEventKinds.ENTRY_MODIFY);
+        watchKeys.put(watchKey, dir);
+    }
+
+    /**
+     * Liest die neuen und geänderten Szenarien im Watcher-Thread und übernimmt sie danach mit den Listenern
+     * im Modell-Executor.
+     */
+    private void applyChanges(PendingChanges pendingChanges) throws InterruptedException {
+        long startMillis = System.currentTimeMillis();
+        Map<TestSupportClientKonstanten.TEST_PHASE, Map<String, CustomerState>> modelState = callOnModelExecutor(this::readModelState);
+        List<CustomerUpdate> customerUpdates = new ArrayList<>();
+        for (TestSupportClientKonstanten.TEST_PHASE testPhase : TestSupportClientKonstanten.TEST_PHASE.values()) {
+            Map<String, CustomerState> customerStates = modelState.get(testPhase);
+            if (customerStates == null) {
+                continue;
+            }
+            File refExportsPhaseDir = refExportsRoot.resolve(testPhase.getDirName()).toFile();
+            if (pendingChanges.fullRescan || pendingChanges.phaseRescans.contains(testPhase)) {
+                // alle Kunden auf der Platte und im Modell, jeweils mit allen Szenarien
+                Set<String> customerDirNames = new TreeSet<>();
+                File[] customerDirs = refExportsPhaseDir.listFiles(File::isDirectory);
+                if (customerDirs != null) {
+                    for (File customerDir : customerDirs) {
+                        customerDirNames.add(customerDir.getName());
+                    }
+                }
+                for (CustomerState customerState : customerStates.values()) {
+                    customerDirNames.add(customerState.customerDirName);
+                }
+                for (String customerDirName : customerDirNames) {
+                    customerUpdates.add(rescanCustomer(testPhase, customerStates, new File(refExportsPhaseDir, customerDirName), null));
+                }
+            } else {
+                Map<String, Set<String>> changedScenarios = pendingChanges.refExportChanges.get(testPhase);
+                if (changedScenarios != null) {
+                    for (Map.Entry<String, Set<String>> entry : changedScenarios.entrySet()) {
+                        customerUpdates.add(rescanCustomer(testPhase, customerStates, new File(refExportsPhaseDir, entry.getKey()), entry.getValue()));
+                    }
+                }
+            }
+        }
+        long loadedMillis = System.currentTimeMillis();
+        runOnModelExecutor(() -> {
+            ModelChangeEvent modelChangeEvent = new ModelChangeEvent(pendingChanges.eventCount, pendingChanges.archivBestandFiles);
+            synchronized (customerTestInfoMapMap) {
+                for (CustomerUpdate customerUpdate : customerUpdates) {
+                    customerUpdate.applyTo(customerTestInfoMapMap.get(customerUpdate.testPhase), modelChangeEvent);
+                }
+            }
+            TimelineLogger.info(this.getClass(), "ITSQModelWatcher#applyChanges(): " + pendingChanges.eventCount + " Dateiereignisse, "
+                    + modelChangeEvent.getUpdatedScenarios().size() + " Szenarien neu geladen, " + modelChangeEvent.getRemovedScenarios().size()
+                    + " entfernt in " + (loadedMillis - startMillis) + " ms (übernommen in " + (System.currentTimeMillis() - loadedMillis) + " ms).");
+            publish(modelChangeEvent);
+        });
+    }
+
+    /**
+     * Kunden und Szenario-Namen des Modells; läuft im Modell-Executor.
+     */
+    private Map<TestSupportClientKonstanten.TEST_PHASE, Map<String, CustomerState>> readModelState() {
+        Map<TestSupportClientKonstanten.TEST_PHASE, Map<String, CustomerState>> modelState = new EnumMap<>(TestSupportClientKonstanten.TEST_PHASE.class);
+        synchronized (customerTestInfoMapMap) {
+            for (Map.Entry<TestSupportClientKonstanten.TEST_PHASE, Map<String, TestCustomer>> entry : customerTestInfoMapMap.entrySet()) {
+                Map<String, CustomerState> customerStates = new HashMap<>();
+                for (TestCustomer testCustomer : entry.getValue().values()) {
+                    customerStates.put(testCustomer.getCustomerKey(), new CustomerState(testCustomer));
+                }
+                modelState.put(entry.getKey(), customerStates);
+            }
+        }
+        return modelState;
+    }
+
+    /**
+     * Gleicht einen Kunden mit seinem Verzeichnis ab und lädt die neuen bzw. geänderten Szenarien, ohne das Modell zu ändern.
+     *
+     * @param changedScenarioNames die neu zu ladenden Szenarien, null für alle
+     */
+    private CustomerUpdate rescanCustomer(TestSupportClientKonstanten.TEST_PHASE testPhase, Map<String, CustomerState> customerStates, File customerDir,
+                                          Set<String> changedScenarioNames) {
+        String customerKey = customerDir.getName().toUpperCase(Locale.ROOT);
+        CustomerUpdate customerUpdate = new CustomerUpdate(testPhase, customerKey);
+        if (!customerDir.isDirectory()) {
+            customerUpdate.removed = true;
+            return customerUpdate;
+        }
+        CustomerState customerState = customerStates.get(customerKey);
+        TestCustomer testCustomer;
+        Set<String> knownScenarioNames;
+        if (customerState == null) {
+            testCustomer = loader.createCustomer(testPhase, customerDir);
+            customerUpdate.addedCustomer = testCustomer;
+            knownScenarioNames = Collections.emptySet();
+            changedScenarioNames = null;
+        } else {
+            testCustomer = customerState.testCustomer;
+            knownScenarioNames = customerState.scenarioNames;
+        }
+        File[] scenarioDirs = customerDir.listFiles(File::isDirectory);
+        if (scenarioDirs != null) {
+            for (File scenarioDir : scenarioDirs) {
+                customerUpdate.scenarioNames.add(scenarioDir.getName());
+            }
+        }
+        for (String scenarioName : customerUpdate.scenarioNames) {
+            if (changedScenarioNames == null || changedScenarioNames.contains(scenarioName) || !knownScenarioNames.contains(scenarioName)) {
+                File scenarioDir = new File(customerDir, scenarioName);
+                try {
+                    // das neue Szenario ist noch nicht im Kunden eingetragen
+                    customerUpdate.loadedScenarios.add(loader.loadScenario(testCustomer, scenarioDir));
+                } catch (RuntimeException ex) {
+                    customerUpdate.failedScenarios.put(scenarioName, testPhase.getDirName() + "/" + customerKey + "/" + scenarioName + ": " + ex.getMessage());
+                }
+            }
+        }
+        return customerUpdate;
+    }
+
+    private <T> T callOnModelExecutor(Callable<T> callable) throws InterruptedException {
+        FutureTask<T> futureTask = new FutureTask<>(callable);
+        modelExecutor.execute(futureTask);
+        try {
+            return futureTask.get();
+        } catch (ExecutionException ex) {
+            Throwable cause = ex.getCause();
+            throw cause instanceof RuntimeException runtimeException ? runtimeException : new IllegalStateException(cause);
+        }
+    }
+
+    private void runOnModelExecutor(Runnable runnable) throws InterruptedException {
+        callOnModelExecutor(Executors.callable(runnable));
+    }
+
+    private void publish(ModelChangeEvent modelChangeEvent) {
+        for (ModelChangeListener listener : listeners) {
+            try {
+                listener.onModelChanged(modelChangeEvent);
+            } catch (RuntimeException ex) {
+                TimelineLogger.error(this.getClass(), "ITSQModelWatcher#publish(): Fehler im Listener: " + ex.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Stand eines Kunden im Modell beim Abgleich.
+     */
+    private static final class CustomerState {
+        private final TestCustomer testCustomer;
+        private final String customerDirName;
+        private final Set<String> scenarioNames;
+
+        private CustomerState(TestCustomer testCustomer) {
+            this.testCustomer = testCustomer;
+            this.customerDirName = testCustomer.getItsqRefExportsDir().getName();
+            this.scenarioNames = new HashSet<>(testCustomer.getTestScenariosMap().keySet());
+        }
+    }
+
+    /**
+     * Die im Watcher-Thread vorbereiteten Änderungen eines Kunden, übernommen im Modell-Executor.
+     */
+    private static final class CustomerUpdate {
+        private final TestSupportClientKonstanten.TEST_PHASE testPhase;
+        private final String customerKey;
+        private boolean removed;
+        private TestCustomer addedCustomer;
+        // die Szenario-Verzeichnisse des Kunden
+        private final Set<String> scenarioNames = new TreeSet<>();
+        private final List<TestScenario> loadedScenarios = new ArrayList<>();
+        // Szenario -> Fehler
+        private final Map<String, String> failedScenarios = new TreeMap<>();
+
+        private CustomerUpdate(TestSupportClientKonstanten.TEST_PHASE testPhase, String customerKey) {
+            this.testPhase = testPhase;
+            this.customerKey = customerKey;
+        }
+
+        private void applyTo(Map<String, TestCustomer> customerTestInfoMap, ModelChangeEvent modelChangeEvent) {
+            if (customerTestInfoMap == null) {
+                return;
+            }
+            TestCustomer testCustomer = customerTestInfoMap.get(customerKey);
+            if (removed) {
+                if (testCustomer != null) {
+                    customerTestInfoMap.remove(customerKey);
+                    modelChangeEvent.removedCustomers.add(testCustomer);
+                }
+                return;
+            }
+            if (testCustomer == null) {
+                if (addedCustomer == null) {
+                    // der Kunde wurde inzwischen aus dem Modell entfernt
+                    return;
+                }
+                testCustomer = addedCustomer;
+                customerTestInfoMap.put(customerKey, testCustomer);
+                modelChangeEvent.addedCustomers.add(testCustomer);
+            }
+            Map<String, TestScenario> testScenariosMap = testCustomer.getTestScenariosMap();
+            for (String scenarioName : new ArrayList<>(testScenariosMap.keySet())) {
+                if (!scenarioNames.contains(scenarioName) || failedScenarios.containsKey(scenarioName)) {
+                    modelChangeEvent.removedScenarios.add(testScenariosMap.remove(scenarioName));
+                }
+            }
+            modelChangeEvent.errors.addAll(failedScenarios.values());
+            for (TestScenario newScenario : loadedScenarios) {
+                TestScenario oldScenario = testScenariosMap.get(newScenario.getScenarioName());
+                if (oldScenario != null) {
+                    // die im GUI gesetzten Aktiv-Flags bleiben erhalten (ein noch nicht geladenes Szenario hat keine geänderten)
+                    newScenario.setActivated(oldScenario.isActivated());
+                    if (oldScenario.isMaterialized()) {
+                        for (TestCrefo oldCrefo : oldScenario.getTestFallNameToTestCrefoMap().values()) {
+                            if (!oldCrefo.isActivated()) {
+                                TestCrefo newCrefo = newScenario.getTestFallNameToTestCrefoMap().get(oldCrefo.getTestFallName());
+                                if (newCrefo != null) {
+                                    newCrefo.setActivated(false);
+                                }
+                            }
+                        }
+                    }
+                }
+                testCustomer.addTestScenario(newScenario);
+                modelChangeEvent.updatedScenarios.add(newScenario);
+            }
+        }
+    }
+
+    /**
+     * Die seit dem letzten Übernehmen gesammelten Dateiereignisse, zusammengefasst pro Kunde und Szenario.
+     */
+    private class PendingChanges {
+        private int eventCount;
+        private boolean fullRescan;
+        private final Set<TestSupportClientKonstanten.TEST_PHASE> phaseRescans = EnumSet.noneOf(TestSupportClientKonstanten.TEST_PHASE.class);
+        // Phase -> Kunden-Verzeichnis -> geänderte Szenarien (leer: nur die Szenario-Liste des Kunden abgleichen)
+        private final Map<TestSupportClientKonstanten.TEST_PHASE, Map<String, Set<String>>> refExportChanges = new EnumMap<>(TestSupportClientKonstanten.TEST_PHASE.class);
+        private final Set<File> archivBestandFiles = new TreeSet<>();
+
+        private void add(Path path) {
+            Path absolutePath = path.toAbsolutePath().normalize();
+            if (absolutePath.equals(refExportsRoot)) {
+                fullRescan = true;
+            } else if (absolutePath.startsWith(refExportsRoot)) {
+                Path relativePath = refExportsRoot.relativize(absolutePath);
+                TestSupportClientKonstanten.TEST_PHASE testPhase = phaseOf(relativePath.getName(0).toString());
+                if (testPhase == null) {
+                    return;
+                }
+                if (relativePath.getNameCount() == 1) {
+                    phaseRescans.add(testPhase);
+                    return;
+                }
+                Set<String> scenarioNames = refExportChanges.computeIfAbsent(testPhase, phase -> new TreeMap<>())
+                        .computeIfAbsent(relativePath.getName(1).toString(), customer -> new TreeSet<>());
+                if (relativePath.getNameCount() > 2) {
+                    scenarioNames.add(relativePath.getName(2).toString());
+                }
+            } else if (absolutePath.startsWith(archivBestandRoot)) {
+                if (absolutePath.equals(archivBestandRoot)) {
+                    // neu angelegt: die Verzeichnisse darunter werden beim Registrieren übernommen
+                    return;
+                }
+                archivBestandFiles.add(absolutePath.toFile());
+            }
+        }
+
+        private boolean isEmpty() {
+            return !fullRescan && phaseRescans.isEmpty() && refExportChanges.isEmpty() && archivBestandFiles.isEmpty();
+        }
+    }
+
+    private static TestSupportClientKonstanten.TEST_PHASE phaseOf(String dirName) {
+        for (TestSupportClientKonstanten.TEST_PHASE testPhase : TestSupportClientKonstanten.TEST_PHASE.values()) {
+            if (testPhase.getDirName().equals(dirName)) {
+                return testPhase;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Eine zusammengefasste Änderung am Modell.
+     */
+    public static class ModelChangeEvent {
+        private final int fileEventCount;
+        private final List<File> archivBestandFiles;
+        private final List<TestScenario> updatedScenarios = new ArrayList<>();
+        private final List<TestScenario> removedScenarios = new ArrayList<>();
+        private final List<TestCustomer> addedCustomers = new ArrayList<>();
+        private final List<TestCustomer> removedCustomers = new ArrayList<>();
+        private final List<String> errors = new ArrayList<>();
+
+        ModelChangeEvent(int fileEventCount, Collection<File> archivBestandFiles) {
+            this.fileEventCount = fileEventCount;
+            this.archivBestandFiles = new ArrayList<>(archivBestandFiles);
+        }
+
+        /**
+         * Anzahl der Dateiereignisse, die in diesem Event zusammengefasst sind.
+         */
+        public int getFileEventCount() {
+            return fileEventCount;
+        }
+
+        /**
+         * Neu geladene Szenarien (neue oder geänderte), bereits im TestCustomer eingetragen.
+         */
+        public List<TestScenario> getUpdatedScenarios() {
+            return Collections.unmodifiableList(updatedScenarios);
+        }
+
+        /**
+         * Entfernte Szenarien: gelöscht oder nicht mehr ladbar (siehe {@link #getErrors()}).
+         */
+        public List<TestScenario> getRemovedScenarios() {
+            return Collections.unmodifiableList(removedScenarios);
+        }
+
+        public List<TestCustomer> getAddedCustomers() {
+            return Collections.unmodifiableList(addedCustomers);
+        }
+
+        public List<TestCustomer> getRemovedCustomers() {
+            return Collections.unmodifiableList(removedCustomers);
+        }
+
+        /**
+         * Geänderte, neue oder gelöschte Dateien und Verzeichnisse unter ARCHIV-BESTAND.
+         */
+        public List<File> getArchivBestandFiles() {
+            return Collections.unmodifiableList(archivBestandFiles);
+        }
+
+        public List<String> getErrors() {
+            return Collections.unmodifiableList(errors);
+        }
+
+        public boolean isModelChanged() {
+            return !updatedScenarios.isEmpty() || !removedScenarios.isEmpty() || !addedCustomers.isEmpty() || !removedCustomers.isEmpty();
+        }
+    }
+}
@@ -0,0 +1,235 @@
+package de.cavdar.itsq;
+
+import de.cavdar.gui.util.TimelineLogger;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.*;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.Consumer;
+
+/**
+ * Lädt das Kunden/Szenario/Crefo-Modell eines ITSQ-Testpakets für beide Phasen
+ * (wie ITSQTestFaelleUtil#getCustomerTestInfoMap, aber außerhalb der Tests nutzbar).
+ * <p>
+ * Die Szenarien einer Phase werden parallel geladen, das Zusammenführen in die TestCustomer erfolgt danach
+ * in der Reihenfolge der Verzeichnisse. Fehlerhafte Szenarien brechen das Laden nicht ab, sondern werden
+ * in {@link #getErrors()} gesammelt, ebenso die Probleme einzelner Zeilen der Properties-Dateien. Die Ladezeit pro Phase liefert {@link #getPhaseDurations()}.
+ * Mit {@link #setUseSnapshot(boolean)} wird das Modell nach dem Laden als {@link ITSQModelSnapshot} gespeichert und
+ * beim nächsten load() von dort gelesen, solange sich das Testpaket nicht geändert hat.
+ */
+public class ITSQTestSetLoader {
+    private final File testSetRootDir;
+    private int parallelism = Runtime.getRuntime().availableProcessors();
+    private final List<String> errors = Collections.synchronizedList(new ArrayList<>());
+    private final Map<TestSupportClientKonstanten.TEST_PHASE, Long> phaseDurations = new EnumMap<>(TestSupportClientKonstanten.TEST_PHASE.class);
+    private boolean useSnapshot;
+    private boolean loadedFromSnapshot;
+    private boolean lazyScenarios;
+    // Pfade des zuletzt geladenen Modells, jedes Laden beginnt eine neue Tabelle
+    private volatile ItsqPathTable pathTable;
+
+    /**
+     * @param testSetRootDir das ITSQ-Verzeichnis mit ARCHIV-BESTAND und REF-EXPORTS
+     */
+    public ITSQTestSetLoader(File testSetRootDir) {
+        this.testSetRootDir = testSetRootDir;
+        this.pathTable = new ItsqPathTable(testSetRootDir);
+    }
+
+    public int getParallelism() {
+        return parallelism;
+    }
+
+    /**
+     * Anzahl der Threads, mit denen die Szenarien einer Phase geladen werden (1 = sequentiell).
+     */
+    public void setParallelism(int parallelism) {
+        this.parallelism = Math.max(1, parallelism);
+    }
+
+    public boolean isUseSnapshot() {
+        return useSnapshot;
+    }
+
+    public void setUseSnapshot(boolean useSnapshot) {
+        this.useSnapshot = useSnapshot;
+    }
+
+    public boolean isLazyScenarios() {
+        return lazyScenarios;
+    }
+
+    /**
+     * Wenn gesetzt, werden die Szenarien mit {@link TestScenario#createLazy} angelegt: geprüft wird nur die
+     * Properties-Datei, die Test-Crefos werden erst beim ersten Zugriff geladen.
+     */
+    public void setLazyScenarios(boolean lazyScenarios) {
+        this.lazyScenarios = lazyScenarios;
+    }
+
+    /**
+     * Ob das letzte load() aus dem Schnappschuss gelesen wurde.
+     */
+    public boolean isLoadedFromSnapshot() {
+        return loadedFromSnapshot;
+    }
+
+    /**
+     * Die Pfad-Tabelle des zuletzt geladenen Modells; sie wird mit dem Modell freigegeben.
+     */
+    public ItsqPathTable getPathTable() {
+        return pathTable;
+    }
+
+    public File getSnapshotFile() {
+        return new File(testSetRootDir, ITSQModelSnapshot.SNAPSHOT_FILENAME);
+    }
+
+    /**
+     * Fehler des letzten Ladens, z.B. Szenarien ohne oder mit mehreren Properties-Dateien oder fehlerhafte Zeilen
+     * einer Properties-Datei. Bei Lazy-Szenarien kommen die Zeilen-Probleme erst beim ersten Zugriff hinzu.
+     */
+    public List<String> getErrors() {
+        synchronized (errors) {
+            return new ArrayList<>(errors);
+        }
+    }
+
+    /**
+     * Ladezeit in Millisekunden pro Phase des letzten Ladens.
+     */
+    public Map<TestSupportClientKonstanten.TEST_PHASE, Long> getPhaseDurations() {
+        synchronized (phaseDurations) {
+            return new EnumMap<>(phaseDurations);
+        }
+    }
+
+    public Map<TestSupportClientKonstanten.TEST_PHASE, Map<String, TestCustomer>> load() throws InterruptedException {
+        errors.clear();
+        synchronized (phaseDurations) {
+            phaseDurations.clear();
+        }
+        loadedFromSnapshot = false;
+        pathTable = new ItsqPathTable(testSetRootDir);
+        Map<TestSupportClientKonstanten.TEST_PHASE, Map<String, TestCustomer>> customerTestInfoMapMap;
+        // für ein eingehängtes ZIP gibt es keine Zeitstempel der Verzeichnisse und keinen Platz für den Schnappschuss
+        boolean snapshot = useSnapshot && !ItsqFiles.isZipEntry(testSetRootDir);
+        if (snapshot) {
+            long startMillis = System.currentTimeMillis();
+            customerTestInfoMapMap = ITSQModelSnapshot.read(getSnapshotFile(), testSetRootDir, pathTable, errors);
+            if (customerTestInfoMapMap != null) {
+                loadedFromSnapshot = true;
+                TimelineLogger.info(this.getClass(), "ITSQTestSetLoader#load(): Modell in " + (System.currentTimeMillis() - startMillis) + " ms aus dem Schnappschuss gelesen.");
+                return customerTestInfoMapMap;
+            }
+        }
+        // vor dem Laden: eine währenddessen geänderte Datei macht den neuen Schnappschuss veraltet
+        ITSQModelSnapshot.Stamps stamps = snapshot ? ITSQModelSnapshot.collectStamps(testSetRootDir) : null;
+        customerTestInfoMapMap = new EnumMap<>(TestSupportClientKonstanten.TEST_PHASE.class);
+        ExecutorService loadExecutor = Executors.newFixedThreadPool(parallelism);
+        try {
+            for (TestSupportClientKonstanten.TEST_PHASE testPhase : TestSupportClientKonstanten.TEST_PHASE.values()) {
+                customerTestInfoMapMap.put(testPhase, loadPhase(testPhase, loadExecutor));
+            }
+        } finally {
+            loadExecutor.shutdownNow();
+        }
+        if (snapshot) {
+            try {
+                ITSQModelSnapshot.write(getSnapshotFile(), testSetRootDir, stamps, customerTestInfoMapMap, getErrors());
+            } catch (IOException ex) {
+                TimelineLogger.warn(this.getClass(), "ITSQTestSetLoader#load(): Schnappschuss konnte nicht geschrieben werden: " + ex.getMessage());
+            }
+        }
+        return customerTestInfoMapMap;
+    }
+
+    public Map<String, TestCustomer> loadPhase(TestSupportClientKonstanten.TEST_PHASE testPhase) throws InterruptedException {
+        errors.clear();
+        pathTable = new ItsqPathTable(testSetRootDir);
+        ExecutorService loadExecutor = Executors.newFixedThreadPool(parallelism);
+        try {
+            return loadPhase(testPhase, loadExecutor);
+        } finally {
+            loadExecutor.shutdownNow();
+        }
+    }
+
+    private Map<String, TestCustomer> loadPhase(TestSupportClientKonstanten.TEST_PHASE testPhase, ExecutorService loadExecutor) throws InterruptedException {
+        long startMillis = System.currentTimeMillis();
+        Map<String, TestCustomer> customerTestInfoMap = new TreeMap<>();
+        File refExportsPhaseDir = new File(new File(testSetRootDir, TestSupportClientKonstanten.REF_EXPORTS_ROOT), testPhase.getDirName());
+        File[] customerDirs = ItsqFiles.listFiles(refExportsPhaseDir, ItsqFiles::isDirectory);
+        if (customerDirs == null) {
+            errors.add(testPhase.getDirName() + ": Verzeichnis '" + refExportsPhaseDir.getAbsolutePath() + "' existiert nicht!");
+            recordDuration(testPhase, startMillis);
+            return customerTestInfoMap;
+        }
+
+        List<TestCustomer> scenarioCustomers = new ArrayList<>();
+        List<File> scenarioDirsList = new ArrayList<>();
+        List<Callable<TestScenario>> scenarioTasks = new ArrayList<>();
+        for (File customerDir : customerDirs) {
+            TestCustomer testCustomer = createCustomer(testPhase, customerDir);
+            customerTestInfoMap.put(testCustomer.getCustomerKey(), testCustomer);
+            File[] scenarioDirs = ItsqFiles.listFiles(customerDir, ItsqFiles::isDirectory);
+            if (scenarioDirs == null) {
+                continue;
+            }
+            for (File scenarioDir : scenarioDirs) {
+                scenarioCustomers.add(testCustomer);
+                scenarioDirsList.add(scenarioDir);
+                scenarioTasks.add(() -> loadScenario(testCustomer, scenarioDir));
+            }
+        }
+
+        List<Future<TestScenario>> scenarioResults = loadExecutor.invokeAll(scenarioTasks);
+        for (int i = 0; i < scenarioResults.size(); i++) {
+            try {
+                scenarioCustomers.get(i).addTestScenario(scenarioResults.get(i).get());
+            } catch (ExecutionException ex) {
+                // die Fehler werden in der Reihenfolge der Verzeichnisse gesammelt, nicht in der der Threads
+                Throwable cause = ex.getCause() != null ? ex.getCause() : ex;
+                errors.add(testPhase.getDirName() + "/" + scenarioCustomers.get(i).getCustomerKey() + "/" + scenarioDirsList.get(i).getName() + ": " + cause.getMessage());
+            }
+        }
+        recordDuration(testPhase, startMillis);
+        TimelineLogger.info(this.getClass(), "ITSQTestSetLoader#loadPhase(" + testPhase.getDirName() + "): " + customerTestInfoMap.size() + " Kunden, "
+                + scenarioTasks.size() + " Szenarien in " + (System.currentTimeMillis() - startMillis) + " ms geladen.");
+        return customerTestInfoMap;
+    }
+
+    /**
+     * Legt den (noch leeren) TestCustomer für ein Kunden-Verzeichnis unter REF-EXPORTS/PHASE-x an.
+     */
+    TestCustomer createCustomer(TestSupportClientKonstanten.TEST_PHASE testPhase, File customerDir) {
+        String customerKey = customerDir.getName().toUpperCase(Locale.ROOT);
+        TestCustomer testCustomer = new TestCustomer(customerKey, customerKey, pathTable);
+        testCustomer.setTestPhase(testPhase);
+        testCustomer.setItsqAB30XmlsDir(new File(new File(testSetRootDir, TestSupportClientKonstanten.ARCHIV_BESTAND_ROOT), testPhase.getDirName()));
+        testCustomer.setItsqRefExportsDir(customerDir);
+        return testCustomer;
+    }
+
+    TestScenario loadScenario(TestCustomer testCustomer, File scenarioDir) {
+        File[] xmlFiles = ItsqFiles.listFiles(scenarioDir, file -> file.getName().endsWith(".xml"));
+        List<File> refExportXmlFileList = xmlFiles != null ? Arrays.asList(xmlFiles) : Collections.emptyList();
+        String errorPrefix = testCustomer.getTestPhase().getDirName() + "/" + testCustomer.getCustomerKey() + "/" + scenarioDir.getName() + ": ";
+        Consumer<String> errorSink = message -> errors.add(errorPrefix + message);
+        if (lazyScenarios) {
+            return TestScenario.createLazy(testCustomer, scenarioDir.getName(), refExportXmlFileList, errorSink);
+        }
+        return new TestScenario(testCustomer, scenarioDir.getName(), refExportXmlFileList, errorSink);
+    }
+
+    private void recordDuration(TestSupportClientKonstanten.TEST_PHASE testPhase, long startMillis) {
+        synchronized (phaseDurations) {
+            phaseDurations.put(testPhase, System.currentTimeMillis() - startMillis);
+        }
+    }
+}
@@ -0,0 +1,280 @@
+package de.cavdar.itsq;
+
+import de.cavdar.gui.util.TimelineLogger;
+
+import java.io.*;
+import java.util.*;
+
+/**
+ * Merkle-Manifest eines ITSQ-Verzeichnisses (erstellt mit {@link ItsqContentManifestBuilder}).
+ * <p>
+ * Jede Datei trägt Größe, Änderungszeit und SHA-256 ihres Inhalts, jedes Verzeichnis einen Hash über Namen und
+ * Hashes seiner Einträge. Damit hat jede Ebene - Testpaket, REF-EXPORTS/ARCHIV-BESTAND, Phase, Kunde, Szenario -
+ * einen eigenen Hash, und {@link #diff(ItsqContentManifest)} steigt nur in Verzeichnisse ab, deren Hash sich
+ * unterscheidet: der Aufwand richtet sich nach der Größe der Änderung, nicht nach der des Testpakets.
+ * <p>
+ * Das Manifest wird als {@link #MANIFEST_FILENAME} im Testpaket gespeichert; beim nächsten Erstellen werden nur
+ * Dateien mit geänderter Größe oder Änderungszeit neu gehasht.
+ */
+public class ItsqContentManifest {
+    public static final String MANIFEST_FILENAME = ".itsq-content.manifest";
+    private static final int MAGIC = 0x4954434D; // "ITCM"
+    private static final int FORMAT_VERSION = 1;
+    private static final int HASH_LENGTH = 32;
+
+    private final File rootDir;
+    private final Node root;
+
+    ItsqContentManifest(File rootDir, Node root) {
+        this.rootDir = rootDir;
+        this.root = root;
+    }
+
+    public File getRootDir() {
+        return rootDir;
+    }
+
+    public Node getRoot() {
+        return root;
+    }
+
+    /**
+     * Der Eintrag zum relativen Pfad (Trenner '/', "" für das Wurzelverzeichnis) oder null.
+     */
+    public Node getNode(String relativePath) {
+        Node node = root;
+        for (String name : relativePath.split("/")) {
+            if (name.isEmpty()) {
+                continue;
+            }
+            node = node.getChild(name);
+            if (node == null) {
+                return null;
+            }
+        }
+        return node;
+    }
+
+    /**
+     * Die geänderten Teilbäume von diesem (älteren) zum neueren Manifest: neue und gelöschte Einträge mit ihrem
+     * obersten Pfad, geänderte Dateien einzeln. Verzeichnisse mit gleichem Hash werden nicht betreten.
+     */
+    public List<Change> diff(ItsqContentManifest newer) {
+        List<Change> changes = new ArrayList<>();
+        diff(root, newer.root, "", changes);
+        return changes;
+    }
+
+    private static void diff(Node oldNode, Node newNode, String path, List<Change> changes) {
+        if (Arrays.equals(oldNode.hash, newNode.hash) && oldNode.directory == newNode.directory) {
+            return;
+        }
+        if (!oldNode.directory || !newNode.directory) {
+            changes.add(new Change(path, ChangeType.MODIFIED, newNode.directory));
+            return;
+        }
+        // beide Kinder-Listen sind nach Namen sortiert
+        Iterator<Node> oldChildren = oldNode.children.values().iterator();
+        Iterator<Node> newChildren = newNode.children.values().iterator();
+        Node oldChild = oldChildren.hasNext() ? oldChildren.next() : null;
+        Node newChild = newChildren.hasNext() ? newChildren.next() : null;
+        while (oldChild != null || newChild != null) {
+            int compare = oldChild == null ? 1 : newChild == null ? -1 : oldChild.name.compareTo(newChild.name);
+            if (compare < 0) {
+                changes.add(new Change(childPath(path, oldChild.name), ChangeType.REMOVED, oldChild.directory));
+                oldChild = oldChildren.hasNext() ? oldChildren.next() : null;
+            } else if (compare > 0) {
+                changes.add(new Change(childPath(path, newChild.name), ChangeType.ADDED, newChild.directory));
+                newChild = newChildren.hasNext() ? newChildren.next() : null;
+            } else {
+                diff(oldChild, newChild, childPath(path, newChild.name), changes);
+                oldChild = oldChildren.hasNext() ? oldChildren.next() : null;
+                newChild = newChildren.hasNext() ? newChildren.next() : null;
+            }
+        }
+    }
+
+    private static String childPath(String path, String name) {
+        return path.isEmpty() ? name : path + "/" + name;
+    }
+
+    public void write(File manifestFile) throws IOException {
+        File tmpFile = new File(manifestFile.getParentFile(), manifestFile.getName() + ".tmp");
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(tmpFile), 64 * 1024))) {
+            out.writeInt(MAGIC);
+            out.writeInt(FORMAT_VERSION);
+            out.writeUTF(rootDir.getAbsolutePath());
+            writeNode(out, root);
+        }
+        ItsqFiles.moveAtomically(tmpFile.toPath(), manifestFile.toPath());
+    }
+
+    private static void writeNode(DataOutputStream out, Node node) throws IOException {
+        out.writeUTF(node.name);
+        out.writeBoolean(node.directory);
+        out.write(node.hash);
+        if (node.directory) {
+            out.writeInt(node.children.size());
+            for (Node child : node.children.values()) {
+                writeNode(out, child);
+            }
+        } else {
+            out.writeLong(node.size);
+            out.writeLong(node.lastModified);
+        }
+    }
+
+    /**
+     * Liest ein gespeichertes Manifest des Verzeichnisses, null wenn es fehlt, zu einem anderen Verzeichnis gehört
+     * oder nicht lesbar ist.
+     */
+    public static ItsqContentManifest read(File manifestFile, File rootDir) {
+        if (!manifestFile.exists()) {
+            return null;
+        }
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(manifestFile), 64 * 1024))) {
+            if (in.readInt() != MAGIC || in.readInt() != FORMAT_VERSION || !in.readUTF().equals(rootDir.getAbsolutePath())) {
+                return null;
+            }
+            return new ItsqContentManifest(rootDir, readNode(in));
+        } catch (IOException | RuntimeException ex) {
+            TimelineLogger.warn(ItsqContentManifest.class, "Manifest '" + manifestFile.getAbsolutePath() + "' konnte nicht gelesen werden: " + ex.getMessage());
+            return null;
+        }
+    }
+
+    private static Node readNode(DataInputStream in) throws IOException {
+        String name = in.readUTF();
+        boolean directory = in.readBoolean();
+        byte[] hash = new byte[HASH_LENGTH];
+        in.readFully(hash);
+        if (directory) {
+            Node node = Node.directory(name);
+            int childrenCount = in.readInt();
+            for (int i = 0; i < childrenCount; i++) {
+                node.addChild(readNode(in));
+            }
+            node.hash = hash;
+            return node;
+        }
+        Node node = Node.file(name, in.readLong(), in.readLong());
+        node.hash = hash;
+        return node;
+    }
+
+    /**
+     * Ein Eintrag (Datei oder Verzeichnis) des Manifests.
+     */
+    public static final class Node {
+        private final String name;
+        private final boolean directory;
+        private final long size;
+        private final long lastModified;
+        private final TreeMap<String, Node> children;
+        byte[] hash;
+
+        private Node(String name, boolean directory, long size, long lastModified) {
+            this.name = name;
+            this.directory = directory;
+            this.size = size;
+            this.lastModified = lastModified;
+            this.children = directory ? new TreeMap<>() : null;
+        }
+
+        static Node directory(String name) {
+            return new Node(name, true, -1, 0);
+        }
+
+        static Node file(String name, long size, long lastModified) {
+            return new Node(name, false, size, lastModified);
+        }
+
+        void addChild(Node child) {
+            children.put(child.name, child);
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public boolean isDirectory() {
+            return directory;
+        }
+
+        /**
+         * Dateigröße, -1 für Verzeichnisse.
+         */
+        public long getSize() {
+            return size;
+        }
+
+        public long getLastModified() {
+            return lastModified;
+        }
+
+        public String getHashHex() {
+            return HexFormat.of().formatHex(hash);
+        }
+
+        public Node getChild(String childName) {
+            return directory ? children.get(childName) : null;
+        }
+
+        /**
+         * Die Einträge eines Verzeichnisses nach Namen sortiert (leer für Dateien).
+         */
+        public Collection<Node> getChildren() {
+            return directory ? Collections.unmodifiableCollection(children.values()) : Collections.emptyList();
+        }
+    }
+
+    public enum ChangeType {
+        ADDED,
+        REMOVED,
+        MODIFIED
+    }
+
+    /**
+     * Ein geänderter Teilbaum, der Pfad ist relativ zum Wurzelverzeichnis (Trenner '/').
+     */
+    public static final class Change {
+        private final String path;
+        private final ChangeType type;
+        private final boolean directory;
+
+        Change(String path, ChangeType type, boolean directory) {
+            this.path = path;
+            this.type = type;
+            this.directory = directory;
+        }
+
+        public String getPath() {
+            return path;
+        }
+
+        public ChangeType getType() {
+            return type;
+        }
+
+        public boolean isDirectory() {
+            return directory;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (!(o instanceof Change change)) return false;
+            return directory == change.directory && path.equals(change.path) && type == change.type;
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(path, type, directory);
+        }
+
+        @Override
+        public String toString() {
+            return type + " " + path + (directory ? "/" : "");
+        }
+    }
+}
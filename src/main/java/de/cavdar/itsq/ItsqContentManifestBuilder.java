@@ -0,0 +1,261 @@
+package de.cavdar.itsq;
+
+import de.cavdar.gui.util.TimelineLogger;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.*;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Erstellt das {@link ItsqContentManifest} eines ITSQ-Verzeichnisses.
+ * <p>
+ * Ein Durchlauf mit Files.walkFileTree liefert alle Dateien samt Größe und Änderungszeit. Dateien, die im vorigen
+ * Manifest mit gleicher Größe und Zeit stehen, übernehmen dessen Hash; nur die übrigen werden gelesen und parallel
+ * gehasht. Danach werden die Verzeichnis-Hashes von unten nach oben berechnet.
+ */
+public class ItsqContentManifestBuilder {
+    // halb geschriebene Dateien (Schreiben über eine temporäre Datei, Kopieren in der Migration)
+    private static final List<String> EXCLUDED_SUFFIXES = List.of(".tmp", ".part");
+    private static final int FILES_PER_TASK = 64;
+
+    private final File rootDir;
+    private int parallelism = Runtime.getRuntime().availableProcessors();
+    private boolean persist = true;
+    private int hashedFilesCount;
+    private int reusedFilesCount;
+
+    /**
+     * @param rootDir das ITSQ-Verzeichnis
+     */
+    public ItsqContentManifestBuilder(File rootDir) {
+        this.rootDir = rootDir;
+    }
+
+    public int getParallelism() {
+        return parallelism;
+    }
+
+    /**
+     * Anzahl der Threads zum Hashen (1 = sequentiell).
+     */
+    public void setParallelism(int parallelism) {
+        this.parallelism = Math.max(1, parallelism);
+    }
+
+    public boolean isPersist() {
+        return persist;
+    }
+
+    /**
+     * Ob das Manifest aus {@link #getManifestFile()} als Ausgangsstand gelesen und danach dorthin geschrieben wird
+     * (Voreinstellung).
+     */
+    public void setPersist(boolean persist) {
+        this.persist = persist;
+    }
+
+    public File getManifestFile() {
+        return new File(rootDir, ItsqContentManifest.MANIFEST_FILENAME);
+    }
+
+    /**
+     * Ob die Datei nicht zum Inhalt gehört: die abgeleiteten Dateien im Testpaket (Manifest, Schnappschuss, Parse-Cache,
+     * Graph-Index, Zustand der Erweiterung, Migrations-Journal samt Sperr- und temporären Dateien) beginnen alle mit
+     * einem Punkt, dazu kommen halb geschriebene Dateien.
+     */
+    static boolean isExcluded(String name) {
+        if (name.startsWith(".")) {
+            return true;
+        }
+        for (String suffix : EXCLUDED_SUFFIXES) {
+            if (name.endsWith(suffix)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Anzahl der beim letzten build() gelesenen und gehashten Dateien.
+     */
+    public int getHashedFilesCount() {
+        return hashedFilesCount;
+    }
+
+    /**
+     * Anzahl der beim letzten build() aus dem vorigen Manifest übernommenen Datei-Hashes.
+     */
+    public int getReusedFilesCount() {
+        return reusedFilesCount;
+    }
+
+    /**
+     * Erstellt das Manifest, ausgehend vom gespeicherten Manifest (wenn {@link #isPersist()}).
+     */
+    public ItsqContentManifest build() throws IOException, InterruptedException {
+        return build(persist ? ItsqContentManifest.read(getManifestFile(), rootDir) : null);
+    }
+
+    /**
+     * Erstellt das Manifest; Dateien, die in previous unverändert sind, werden nicht erneut gelesen.
+     */
+    public ItsqContentManifest build(ItsqContentManifest previous) throws IOException, InterruptedException {
+        long startMillis = System.currentTimeMillis();
+        List<ItsqContentManifest.Node> filesToHash = new ArrayList<>();
+        List<Path> pathsToHash = new ArrayList<>();
+        ItsqContentManifest.Node root = scan(previous != null ? previous.getRoot() : null, filesToHash, pathsToHash);
+        reusedFilesCount = countFiles(root) - filesToHash.size();
+        hashedFilesCount = filesToHash.size();
+        hashFiles(filesToHash, pathsToHash);
+        hashDirectory(root);
+
+        ItsqContentManifest manifest = new ItsqContentManifest(rootDir, root);
+        if (persist) {
+            manifest.write(getManifestFile());
+        }
+        TimelineLogger.info(this.getClass(), "ItsqContentManifestBuilder#build(): " + hashedFilesCount + " Dateien gehasht, " + reusedFilesCount
+                + " übernommen in " + (System.currentTimeMillis() - startMillis) + " ms.");
+        return manifest;
+    }
+
+    private ItsqContentManifest.Node scan(ItsqContentManifest.Node previousRoot, List<ItsqContentManifest.Node> filesToHash, List<Path> pathsToHash) throws IOException {
+        ItsqContentManifest.Node root = ItsqContentManifest.Node.directory("");
+        Path rootPath = rootDir.toPath();
+        if (!Files.isDirectory(rootPath)) {
+            return root;
+        }
+        // parallel zu den besuchten Verzeichnissen: der Knoten im neuen und (falls vorhanden) im vorigen Manifest
+        Deque<ItsqContentManifest.Node> nodes = new ArrayDeque<>();
+        Deque<Optional<ItsqContentManifest.Node>> previousNodes = new ArrayDeque<>();
+        Files.walkFileTree(rootPath, new SimpleFileVisitor<>() {
+            @Override
+            public FileVisitResult preVisitDirectory(Path dir, BasicFileAttributes attrs) {
+                if (nodes.isEmpty()) {
+                    nodes.push(root);
+                    previousNodes.push(Optional.ofNullable(previousRoot));
+                    return FileVisitResult.CONTINUE;
+                }
+                String name = dir.getFileName().toString();
+                ItsqContentManifest.Node node = ItsqContentManifest.Node.directory(name);
+                nodes.peek().addChild(node);
+                ItsqContentManifest.Node previousNode = previousNodes.peek().map(parent -> parent.getChild(name)).orElse(null);
+                nodes.push(node);
+                previousNodes.push(Optional.ofNullable(previousNode));
+                return FileVisitResult.CONTINUE;
+            }
+
+            @Override
+            public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) {
+                String name = file.getFileName().toString();
+                if (!attrs.isRegularFile() || isExcluded(name)) {
+                    return FileVisitResult.CONTINUE;
+                }
+                long lastModified = attrs.lastModifiedTime().toMillis();
+                ItsqContentManifest.Node node = ItsqContentManifest.Node.file(name, attrs.size(), lastModified);
+                nodes.peek().addChild(node);
+                ItsqContentManifest.Node previousNode = previousNodes.peek().map(parent -> parent.getChild(name)).orElse(null);
+                if (previousNode != null && !previousNode.isDirectory() && previousNode.getSize() == attrs.size() && previousNode.getLastModified() == lastModified) {
+                    node.hash = previousNode.hash;
+                } else {
+                    filesToHash.add(node);
+                    pathsToHash.add(file);
+                }
+                return FileVisitResult.CONTINUE;
+            }
+
+            @Override
+            public FileVisitResult postVisitDirectory(Path dir, IOException exc) throws IOException {
+                if (exc != null) {
+                    throw exc;
+                }
+                nodes.pop();
+                previousNodes.pop();
+                return FileVisitResult.CONTINUE;
+            }
+        });
+        return root;
+    }
+
+    private void hashFiles(List<ItsqContentManifest.Node> filesToHash, List<Path> pathsToHash) throws IOException, InterruptedException {
+        if (filesToHash.isEmpty()) {
+            return;
+        }
+        List<Callable<Void>> hashTasks = new ArrayList<>();
+        for (int from = 0; from < filesToHash.size(); from += FILES_PER_TASK) {
+            int to = Math.min(from + FILES_PER_TASK, filesToHash.size());
+            List<ItsqContentManifest.Node> nodes = filesToHash.subList(from, to);
+            List<Path> paths = pathsToHash.subList(from, to);
+            hashTasks.add(() -> {
+                MessageDigest digest = newDigest();
+                byte[] buffer = new byte[64 * 1024];
+                for (int i = 0; i < nodes.size(); i++) {
+                    try (InputStream in = Files.newInputStream(paths.get(i))) {
+                        int read;
+                        while ((read = in.read(buffer)) > 0) {
+                            digest.update(buffer, 0, read);
+                        }
+                    }
+                    nodes.get(i).hash = digest.digest();
+                }
+                return null;
+            });
+        }
+        ExecutorService hashExecutor = Executors.newFixedThreadPool(Math.min(parallelism, hashTasks.size()));
+        try {
+            for (Future<Void> hashResult : hashExecutor.invokeAll(hashTasks)) {
+                try {
+                    hashResult.get();
+                } catch (ExecutionException ex) {
+                    Throwable cause = ex.getCause() != null ? ex.getCause() : ex;
+                    if (cause instanceof IOException ioException) {
+                        throw ioException;
+                    }
+                    throw new IOException(cause.getMessage(), cause);
+                }
+            }
+        } finally {
+            hashExecutor.shutdownNow();
+        }
+    }
+
+    private static void hashDirectory(ItsqContentManifest.Node dir) {
+        MessageDigest digest = newDigest();
+        for (ItsqContentManifest.Node child : dir.getChildren()) {
+            if (child.isDirectory()) {
+                hashDirectory(child);
+            }
+            digest.update(child.getName().getBytes(StandardCharsets.UTF_8));
+            digest.update((byte) 0);
+            digest.update((byte) (child.isDirectory() ? 'd' : 'f'));
+            digest.update(child.hash);
+        }
+        dir.hash = digest.digest();
+    }
+
+    private static int countFiles(ItsqContentManifest.Node dir) {
+        int count = 0;
+        for (ItsqContentManifest.Node child : dir.getChildren()) {
+            count += child.isDirectory() ? countFiles(child) : 1;
+        }
+        return count;
+    }
+
+    private static MessageDigest newDigest() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException ex) {
+            throw new IllegalStateException(ex);
+        }
+    }
+}
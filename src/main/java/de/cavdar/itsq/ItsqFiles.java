@@ -0,0 +1,183 @@
+package de.cavdar.itsq;
+
+import org.apache.commons.io.FileUtils;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.Charset;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Predicate;
+
+/**
+ * Dateizugriffe für ITSQ-Testpakete, die sowohl im Dateisystem als auch in einem eingehängten
+ * {@link ItsqZipTestSet} liegen können. Für normale Dateien entsprechen die Methoden den File-Methoden.
+ */
+public final class ItsqFiles {
+
+    private ItsqFiles() {
+    }
+
+    /**
+     * Der Pfad zur Datei, für Einträge eines eingehängten ZIPs im zip-FileSystem.
+     */
+    public static Path toPath(File file) {
+        ItsqZipTestSet zipTestSet = ItsqZipTestSet.forFile(file);
+        return zipTestSet != null ? zipTestSet.toPath(file) : file.toPath();
+    }
+
+    /**
+     * Ob die Datei in einem eingehängten ZIP liegt (solche Dateien sind nur lesbar).
+     */
+    public static boolean isZipEntry(File file) {
+        return ItsqZipTestSet.forFile(file) != null;
+    }
+
+    public static boolean exists(File file) {
+        ItsqZipTestSet zipTestSet = ItsqZipTestSet.forFile(file);
+        return zipTestSet != null ? Files.exists(zipTestSet.toPath(file)) : file.exists();
+    }
+
+    public static boolean isDirectory(File file) {
+        ItsqZipTestSet zipTestSet = ItsqZipTestSet.forFile(file);
+        return zipTestSet != null ? Files.isDirectory(zipTestSet.toPath(file)) : file.isDirectory();
+    }
+
+    public static boolean isFile(File file) {
+        ItsqZipTestSet zipTestSet = ItsqZipTestSet.forFile(file);
+        return zipTestSet != null ? Files.isRegularFile(zipTestSet.toPath(file)) : file.isFile();
+    }
+
+    /**
+     * Wie {@link File#listFiles()}: null, wenn dir kein (lesbares) Verzeichnis ist.
+     */
+    public static File[] listFiles(File dir) {
+        return listFiles(dir, file -> true);
+    }
+
+    /**
+     * Wie {@link File#listFiles(java.io.FileFilter)}. Im Filter für Verzeichnisse {@link #isDirectory(File)} verwenden.
+     */
+    public static File[] listFiles(File dir, Predicate<File> filter) {
+        ItsqZipTestSet zipTestSet = ItsqZipTestSet.forFile(dir);
+        if (zipTestSet == null) {
+            return dir.listFiles(filter::test);
+        }
+        Path dirPath = zipTestSet.toPath(dir);
+        if (!Files.isDirectory(dirPath)) {
+            return null;
+        }
+        List<File> files = new ArrayList<>();
+        try (DirectoryStream<Path> children = Files.newDirectoryStream(dirPath)) {
+            for (Path child : children) {
+                File file = zipTestSet.toFile(child);
+                if (filter.test(file)) {
+                    files.add(file);
+                }
+            }
+        } catch (IOException ex) {
+            return null;
+        }
+        return files.toArray(new File[0]);
+    }
+
+    /**
+     * Alle Dateien unterhalb von dir (rekursiv), deren Name auf suffix endet.
+     */
+    public static List<File> listFilesRecursive(File dir, String suffix) {
+        List<File> result = new ArrayList<>();
+        File[] children = listFiles(dir);
+        if (children != null) {
+            for (File child : children) {
+                if (isDirectory(child)) {
+                    result.addAll(listFilesRecursive(child, suffix));
+                } else if (child.getName().endsWith(suffix)) {
+                    result.add(child);
+                }
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Der Inhalt der Datei; ZIP-Einträge kommen aus dem Cache des {@link ItsqZipTestSet}.
+     */
+    public static byte[] readAllBytes(File file) throws IOException {
+        ItsqZipTestSet zipTestSet = ItsqZipTestSet.forFile(file);
+        if (zipTestSet == null) {
+            return Files.readAllBytes(file.toPath());
+        }
+        return zipTestSet.readAllBytes(zipTestSet.toPath(file)).clone();
+    }
+
+    /**
+     * Die Zeilen der Datei (Zeilenenden wie bei FileUtils.readLines).
+     */
+    public static List<String> readLines(File file, Charset charset) throws IOException {
+        ItsqZipTestSet zipTestSet = ItsqZipTestSet.forFile(file);
+        if (zipTestSet == null) {
+            return FileUtils.readLines(file, charset);
+        }
+        byte[] content = zipTestSet.readAllBytes(zipTestSet.toPath(file));
+        List<String> lines = new ArrayList<>();
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(new ByteArrayInputStream(content), charset))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                lines.add(line);
+            }
+        }
+        return lines;
+    }
+
+    /**
+     * Schreibt content über eine temporäre Datei neben file, die danach an dessen Stelle verschoben wird.
+     * Anders als ein Überschreiben an Ort und Stelle erhält file dabei einen neuen Inhalt (inode): eine
+     * per Hardlink migrierte Datei wird so von ihrer Quelle gelöst, statt die Quelle mit zu ändern.
+     * Fehlende Eltern-Verzeichnisse werden wie bei FileUtils.writeLines angelegt.
+     */
+    public static void writeAtomically(File file, byte[] content) throws IOException {
+        Path targetPath = file.toPath();
+        Path tmpPath = targetPath.resolveSibling(file.getName() + ".tmp");
+        if (targetPath.getParent() != null) {
+            Files.createDirectories(targetPath.getParent());
+        }
+        try {
+            Files.write(tmpPath, content);
+            moveAtomically(tmpPath, targetPath);
+        } finally {
+            Files.deleteIfExists(tmpPath);
+        }
+    }
+
+    /**
+     * Wie {@link #writeAtomically(File, byte[])} für Zeilen, jede mit dem Zeilentrenner des Systems abgeschlossen
+     * (wie Files.write und FileUtils.writeLines).
+     */
+    public static void writeLinesAtomically(File file, Charset charset, List<String> lines) throws IOException {
+        StringBuilder content = new StringBuilder();
+        for (String line : lines) {
+            content.append(line).append(System.lineSeparator());
+        }
+        writeAtomically(file, content.toString().getBytes(charset));
+    }
+
+    /**
+     * Ersetzt target durch die fertig geschriebene Datei source. Wo das Dateisystem es unterstützt atomar,
+     * sonst (z.B. auf manchen Netzlaufwerken) per einfachem Verschieben.
+     */
+    public static void moveAtomically(Path source, Path target) throws IOException {
+        try {
+            Files.move(source, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (AtomicMoveNotSupportedException ex) {
+            Files.move(source, target, StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+}
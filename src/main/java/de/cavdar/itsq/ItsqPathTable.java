@@ -0,0 +1,194 @@
+package de.cavdar.itsq;
+
+import java.io.File;
+import java.nio.file.Path;
+import java.util.Arrays;
+
+/**
+ * Pfad-Tabelle (Flyweight) für die Modell-Klassen eines Testpakets.
+ * <p>
+ * Ein Pfad wird als int-Id gespeichert, die auf (Id des Eltern-Verzeichnisses, Name) verweist. Pfade unterhalb des
+ * Wurzelverzeichnisses werden relativ dazu abgelegt (Id {@link #ROOT_ID} ist die Wurzel selbst), alle Dateien eines
+ * Testpakets teilen sich so die Einträge bis zum Testpaket-Verzeichnis, pro XML bleibt nur der eigene Name
+ * (aus dem {@link ItsqStringPool} der Tabelle) und ein int. Pfade außerhalb der Wurzel werden vollständig abgelegt.
+ * Die File-Objekte werden erst bei Bedarf erzeugt; für Verzeichnisse werden sie gecacht, weil jede aufgelöste Datei
+ * sie als Eltern-File braucht.
+ * <p>
+ * Die Tabelle gehört zum geladenen Modell (siehe {@link ITSQTestSetLoader}, {@link ITSQModelSnapshot}) und wird mit
+ * ihm freigegeben: jedes Laden beginnt eine neue Tabelle, ein erneutes Laden oder Einhängen lässt die alte
+ * also nicht weiter wachsen. Dasselbe gilt für die Namen der Modell-Objekte, die über {@link #intern(String)} im
+ * Pool der Tabelle landen. Neue Einträge werden unter der Sperre der Tabelle angelegt, {@link #fileOf(int)} liest
+ * ohne Sperre aus den sicher veröffentlichten Arrays.
+ */
+public final class ItsqPathTable {
+    public static final int NO_PATH = -1;
+    public static final int ROOT_ID = 0;
+
+    private static final int INITIAL_CAPACITY = 16;
+
+    private final File rootDir;
+    private final Path rootPath;
+    private final ItsqStringPool stringPool = new ItsqStringPool();
+    // wird nur unter der Sperre ersetzt; Einträge < size sind unveränderlich
+    private volatile Entries entries = new Entries(INITIAL_CAPACITY);
+    private volatile int size;
+    // offene Adressierung über (Eltern-Id, Name), Werte sind Id + 1 (0 = frei); nur unter der Sperre benutzt
+    private int[] slots = new int[INITIAL_CAPACITY * 2];
+
+    /**
+     * @param rootDir das Wurzelverzeichnis des Testpakets; null für eine Tabelle ohne Wurzel (alle Pfade vollständig)
+     */
+    public ItsqPathTable(File rootDir) {
+        this.rootDir = rootDir;
+        this.rootPath = rootDir != null ? rootDir.toPath() : null;
+        if (rootDir != null) {
+            Entries theEntries = entries;
+            theEntries.parentIds[ROOT_ID] = NO_PATH;
+            theEntries.names[ROOT_ID] = rootDir.getPath();
+            theEntries.dirFiles[ROOT_ID] = rootDir;
+            size = 1;
+        }
+    }
+
+    public File getRootDir() {
+        return rootDir;
+    }
+
+    /**
+     * Id des Pfads ({@link #NO_PATH} für null). Gleiche Pfade liefern immer dieselbe Id.
+     */
+    public int idOf(File file) {
+        if (file == null) {
+            return NO_PATH;
+        }
+        Path path = file.toPath();
+        synchronized (this) {
+            int id = NO_PATH;
+            if (rootPath != null && path.startsWith(rootPath)) {
+                id = ROOT_ID;
+                path = rootPath.relativize(path);
+                if (path.toString().isEmpty()) {
+                    return id;
+                }
+            } else {
+                Path root = path.getRoot();
+                if (root != null) {
+                    id = childId(NO_PATH, root.toString());
+                }
+            }
+            for (Path segment : path) {
+                id = childId(id, segment.toString());
+            }
+            return id;
+        }
+    }
+
+    /**
+     * Der Pfad zur Id als File (null für {@link #NO_PATH}).
+     */
+    public File fileOf(int id) {
+        if (id == NO_PATH) {
+            return null;
+        }
+        // size vor entries lesen: die Arrays sind mindestens so neu wie der Eintrag
+        if (id >= size) {
+            synchronized (this) {
+                return fileOf(entries, id);
+            }
+        }
+        return fileOf(entries, id);
+    }
+
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Liefert die gemeinsame Instanz des Strings aus dem Pool dieser Tabelle (null bleibt null).
+     */
+    public String intern(String string) {
+        return stringPool.intern(string);
+    }
+
+    private static File fileOf(Entries theEntries, int id) {
+        int parentId = theEntries.parentIds[id];
+        if (parentId == NO_PATH) {
+            File dirFile = theEntries.dirFiles[id];
+            return dirFile != null ? dirFile : new File(theEntries.names[id]);
+        }
+        return new File(dirFileOf(theEntries, parentId), theEntries.names[id]);
+    }
+
+    private static File dirFileOf(Entries theEntries, int id) {
+        File dirFile = theEntries.dirFiles[id];
+        if (dirFile == null) {
+            // gleichzeitiges Eintragen liefert gleiche Files, File ist unveränderlich
+            dirFile = fileOf(theEntries, id);
+            theEntries.dirFiles[id] = dirFile;
+        }
+        return dirFile;
+    }
+
+    private int childId(int parentId, String name) {
+        Entries theEntries = entries;
+        int mask = slots.length - 1;
+        int slot = (31 * parentId + name.hashCode()) & mask;
+        for (int value = slots[slot]; value != 0; value = slots[slot]) {
+            int id = value - 1;
+            if (theEntries.parentIds[id] == parentId && theEntries.names[id].equals(name)) {
+                return id;
+            }
+            slot = (slot + 1) & mask;
+        }
+        int id = size;
+        if (id == theEntries.parentIds.length) {
+            theEntries = theEntries.grow();
+            entries = theEntries;
+        }
+        theEntries.parentIds[id] = parentId;
+        theEntries.names[id] = stringPool.intern(name);
+        slots[slot] = id + 1;
+        size = id + 1;
+        if (size * 2 > slots.length) {
+            rehash(theEntries);
+        }
+        return id;
+    }
+
+    private void rehash(Entries theEntries) {
+        int[] newSlots = new int[slots.length * 2];
+        int mask = newSlots.length - 1;
+        for (int value : slots) {
+            if (value != 0) {
+                int id = value - 1;
+                int slot = (31 * theEntries.parentIds[id] + theEntries.names[id].hashCode()) & mask;
+                while (newSlots[slot] != 0) {
+                    slot = (slot + 1) & mask;
+                }
+                newSlots[slot] = value;
+            }
+        }
+        slots = newSlots;
+    }
+
+    private static final class Entries {
+        private final int[] parentIds;
+        private final String[] names;
+        private final File[] dirFiles;
+
+        private Entries(int capacity) {
+            this(new int[capacity], new String[capacity], new File[capacity]);
+        }
+
+        private Entries(int[] parentIds, String[] names, File[] dirFiles) {
+            this.parentIds = parentIds;
+            this.names = names;
+            this.dirFiles = dirFiles;
+        }
+
+        private Entries grow() {
+            int capacity = parentIds.length * 2;
+            return new Entries(Arrays.copyOf(parentIds, capacity), Arrays.copyOf(names, capacity), Arrays.copyOf(dirFiles, capacity));
+        }
+    }
+}
@@ -0,0 +1,29 @@
+package de.cavdar.itsq;
+
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * String-Pool eines geladenen Modells (Kunden-Keys, Szenario-Namen, Testfall-Namen und -Infos, Pfad-Segmente).
+ * <p>
+ * Beide Phasen eines Testpakets enthalten dieselben Namen; über den Pool halten alle Modell-Objekte dieselbe
+ * String-Instanz. Der Pool gehört zur {@link ItsqPathTable} des Modells und wird mit ihr freigegeben, ein erneutes
+ * Laden beginnt also auch einen neuen Pool.
+ */
+public final class ItsqStringPool {
+    private final ConcurrentHashMap<String, String> pool = new ConcurrentHashMap<>();
+
+    /**
+     * Liefert die gemeinsame Instanz des Strings (null bleibt null).
+     */
+    public String intern(String string) {
+        if (string == null) {
+            return null;
+        }
+        String pooled = pool.putIfAbsent(string, string);
+        return pooled != null ? pooled : string;
+    }
+
+    public int size() {
+        return pool.size();
+    }
+}
@@ -0,0 +1,256 @@
+package de.cavdar.itsq;
+
+import de.cavdar.gui.util.TimelineLogger;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.FileSystem;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.regex.Pattern;
+
+/**
+ * Ein als zip-FileSystem eingehängtes Testfaelle-ZIP (siehe maven-dependency-plugin "download-testfaelle").
+ * <p>
+ * Nach {@link #mount(File)} gilt das ZIP als Verzeichnis: die Einträge werden über File-Objekte unterhalb des
+ * ZIP-Pfads angesprochen (z.B. {@code testfaelle-1.0.zip/REF-EXPORTS/PHASE-1/c01}), {@link ItsqFiles} leitet
+ * Listen und Lesen für diese Pfade in das zip-FileSystem um. So arbeiten Loader, Baum und Migrations-Analyse
+ * ohne Entpacken mit ihren File-basierten Modellen.
+ * <p>
+ * Gelesene Einträge werden entpackt in einem LRU-Cache gehalten (begrenzt über {@link #setMaxCacheBytes(long)}),
+ * damit wiederholt gelesene Properties-Dateien nicht jedes Mal neu dekomprimiert werden. Eingehängte ZIPs bleiben
+ * offen, bis {@link #close()} gerufen wird - ein Wechsel der Revision ({@link #mountRevision(File, String)}) auf ein
+ * bereits eingehängtes ZIP kostet daher nichts.
+ */
+public final class ItsqZipTestSet implements AutoCloseable {
+    public static final long DEFAULT_MAX_CACHE_BYTES = 64L * 1024 * 1024;
+    // größere Einträge (z.B. AB30-XMLs) werden nicht gecacht
+    public static final int MAX_CACHED_ENTRY_BYTES = 1024 * 1024;
+
+    private static final Map<String, ItsqZipTestSet> MOUNTS = new ConcurrentHashMap<>();
+
+    private final File zipFile;
+    private final String zipFilePath;
+    private final FileSystem fileSystem;
+    private final Path rootPath;
+    private final LinkedHashMap<Path, byte[]> entryCache = new LinkedHashMap<>(256, 0.75f, true);
+    private long maxCacheBytes = DEFAULT_MAX_CACHE_BYTES;
+    private long cachedBytes;
+    private long cacheHits;
+    private long cacheMisses;
+
+    private ItsqZipTestSet(File zipFile, FileSystem fileSystem) {
+        this.zipFile = zipFile;
+        this.zipFilePath = zipFile.getPath();
+        this.fileSystem = fileSystem;
+        this.rootPath = fileSystem.getPath("/");
+    }
+
+    /**
+     * Hängt das ZIP ein (ein bereits eingehängtes ZIP wird wiederverwendet).
+     */
+    public static ItsqZipTestSet mount(File zipFile) throws IOException {
+        File absoluteZipFile = zipFile.getAbsoluteFile();
+        synchronized (MOUNTS) {
+            ItsqZipTestSet zipTestSet = MOUNTS.get(absoluteZipFile.getPath());
+            if (zipTestSet != null && zipTestSet.fileSystem.isOpen()) {
+                return zipTestSet;
+            }
+            long startMillis = System.currentTimeMillis();
+            zipTestSet = new ItsqZipTestSet(absoluteZipFile, FileSystems.newFileSystem(absoluteZipFile.toPath(), (ClassLoader) null));
+            MOUNTS.put(absoluteZipFile.getPath(), zipTestSet);
+            TimelineLogger.info(ItsqZipTestSet.class, "ItsqZipTestSet#mount(): '" + absoluteZipFile.getPath() + "' in " + (System.currentTimeMillis() - startMillis) + " ms eingehängt.");
+            return zipTestSet;
+        }
+    }
+
+    /**
+     * Hängt das ZIP der Revision (Eintrag aus ITSQ_REVISIONS) aus dem Verzeichnis ein.
+     *
+     * @return null, wenn es dort kein ZIP zur Revision gibt
+     */
+    public static ItsqZipTestSet mountRevision(File zipDir, String revision) throws IOException {
+        File zipFile = findRevisionZip(zipDir, revision);
+        return zipFile != null ? mount(zipFile) : null;
+    }
+
+    /**
+     * Das ZIP zur Revision: {@code <revision>.zip} oder {@code *-<revision>.zip} (z.B. testfaelle-ZWEI_PHASEN.zip).
+     */
+    public static File findRevisionZip(File zipDir, String revision) {
+        if (zipDir == null || revision == null || revision.isEmpty()) {
+            return null;
+        }
+        File[] zipFiles = zipDir.listFiles((dir, name) -> name.toLowerCase(Locale.ROOT).endsWith(".zip"));
+        if (zipFiles == null) {
+            return null;
+        }
+        for (File zipFile : zipFiles) {
+            String baseName = zipFile.getName().substring(0, zipFile.getName().length() - 4);
+            if (baseName.equals(revision) || baseName.endsWith("-" + revision)) {
+                return zipFile;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Das eingehängte ZIP, in dem die Datei liegt (oder das die Datei selbst ist), sonst null.
+     */
+    public static ItsqZipTestSet forFile(File file) {
+        if (MOUNTS.isEmpty() || file == null) {
+            return null;
+        }
+        String path = file.getAbsolutePath();
+        for (ItsqZipTestSet zipTestSet : MOUNTS.values()) {
+            if (path.startsWith(zipTestSet.zipFilePath)
+                    && (path.length() == zipTestSet.zipFilePath.length() || path.charAt(zipTestSet.zipFilePath.length()) == File.separatorChar)) {
+                return zipTestSet;
+            }
+        }
+        return null;
+    }
+
+    public File getZipFile() {
+        return zipFile;
+    }
+
+    /**
+     * Das Wurzelverzeichnis des ZIPs als File (entspricht dem ZIP selbst).
+     */
+    public File getRootDir() {
+        return zipFile;
+    }
+
+    /**
+     * Das ITSQ-Verzeichnis im ZIP: die Wurzel oder das erste Unterverzeichnis, das REF-EXPORTS enthält.
+     */
+    public File findTestSetRootDir() throws IOException {
+        if (Files.isDirectory(rootPath.resolve(TestSupportClientKonstanten.REF_EXPORTS_ROOT))) {
+            return getRootDir();
+        }
+        try (DirectoryStream<Path> children = Files.newDirectoryStream(rootPath)) {
+            for (Path child : children) {
+                if (Files.isDirectory(child.resolve(TestSupportClientKonstanten.REF_EXPORTS_ROOT))) {
+                    return toFile(child);
+                }
+            }
+        }
+        return getRootDir();
+    }
+
+    /**
+     * Der Pfad im zip-FileSystem zu einer Datei unterhalb von {@link #getRootDir()}.
+     */
+    public Path toPath(File file) {
+        String relativePath = file.getAbsolutePath().substring(zipFilePath.length());
+        Path path = rootPath;
+        for (String segment : relativePath.split(Pattern.quote(File.separator))) {
+            if (!segment.isEmpty()) {
+                path = path.resolve(segment);
+            }
+        }
+        return path;
+    }
+
+    /**
+     * Die File-Sicht auf einen Pfad im zip-FileSystem.
+     */
+    public File toFile(Path path) {
+        File file = zipFile;
+        for (Path segment : rootPath.relativize(path)) {
+            String name = segment.toString();
+            if (!name.isEmpty()) {
+                file = new File(file, name);
+            }
+        }
+        return file;
+    }
+
+    /**
+     * Liest einen Eintrag, kleine Einträge kommen aus dem Cache.
+     */
+    public byte[] readAllBytes(Path path) throws IOException {
+        synchronized (entryCache) {
+            byte[] content = entryCache.get(path);
+            if (content != null) {
+                cacheHits++;
+                return content;
+            }
+            cacheMisses++;
+        }
+        byte[] content = Files.readAllBytes(path);
+        if (content.length <= MAX_CACHED_ENTRY_BYTES) {
+            synchronized (entryCache) {
+                byte[] previous = entryCache.put(path, content);
+                cachedBytes += content.length - (previous != null ? previous.length : 0);
+                evict();
+            }
+        }
+        return content;
+    }
+
+    private void evict() {
+        var iterator = entryCache.values().iterator();
+        while (cachedBytes > maxCacheBytes && iterator.hasNext()) {
+            cachedBytes -= iterator.next().length;
+            iterator.remove();
+        }
+    }
+
+    public long getMaxCacheBytes() {
+        synchronized (entryCache) {
+            return maxCacheBytes;
+        }
+    }
+
+    public void setMaxCacheBytes(long maxCacheBytes) {
+        synchronized (entryCache) {
+            this.maxCacheBytes = Math.max(0, maxCacheBytes);
+            evict();
+        }
+    }
+
+    public long getCachedBytes() {
+        synchronized (entryCache) {
+            return cachedBytes;
+        }
+    }
+
+    public long getCacheHits() {
+        synchronized (entryCache) {
+            return cacheHits;
+        }
+    }
+
+    public long getCacheMisses() {
+        synchronized (entryCache) {
+            return cacheMisses;
+        }
+    }
+
+    public boolean isOpen() {
+        return fileSystem.isOpen();
+    }
+
+    /**
+     * Hängt das ZIP aus; File-Objekte darunter verweisen danach wieder auf das (nicht lesbare) Dateisystem.
+     */
+    @Override
+    public void close() throws IOException {
+        synchronized (MOUNTS) {
+            MOUNTS.remove(zipFilePath, this);
+        }
+        synchronized (entryCache) {
+            entryCache.clear();
+            cachedBytes = 0;
+        }
+        fileSystem.close();
+    }
+}
@@ -0,0 +1,361 @@
+package de.cavdar.itsq;
+
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Arrays;
+import java.util.ConcurrentModificationException;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Objects;
+import java.util.Set;
+
+/**
+ * Hash-Map mit primitiven long-Schlüsseln (Crefonummern) und offener Adressierung (lineares Sondieren).
+ * <p>
+ * Schlüssel und Werte liegen in zwei Arrays, es gibt weder Long-Objekte noch Entry-Knoten pro Eintrag.
+ * Über die Map-Schnittstelle ist die Klasse gegen HashMap&lt;Long, V&gt; austauschbar; die Methoden mit
+ * long-Parametern vermeiden zusätzlich das Boxing beim Zugriff.
+ * Die Reihenfolge der Iteration ist undefiniert (sortiert: {@link #sortedKeys()}),
+ * Iterator#remove() wird nicht unterstützt.
+ */
+public class LongObjectHashMap<V> extends AbstractMap<Long, V> {
+    private static final long FREE_KEY = 0L;
+    private static final int DEFAULT_CAPACITY = 16;
+
+    private long[] keys;
+    private Object[] values;
+    // der Schlüssel 0 markiert freie Plätze und wird deshalb separat gehalten
+    private boolean hasFreeKey;
+    private V freeKeyValue;
+    private int size;
+    private int mask;
+    private int resizeThreshold;
+    private int modCount;
+    private Set<Entry<Long, V>> entrySet;
+
+    public LongObjectHashMap() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    public LongObjectHashMap(int expectedSize) {
+        allocate(tableSizeFor(expectedSize));
+    }
+
+    public LongObjectHashMap(Map<Long, ? extends V> map) {
+        this(map.size());
+        putAll(map);
+    }
+
+    private static int tableSizeFor(int expectedSize) {
+        int capacity = DEFAULT_CAPACITY;
+        // Füllgrad höchstens 3/4
+        while (capacity * 3L / 4 < expectedSize) {
+            capacity <<= 1;
+        }
+        return capacity;
+    }
+
+    private void allocate(int capacity) {
+        keys = new long[capacity];
+        values = new Object[capacity];
+        mask = capacity - 1;
+        resizeThreshold = capacity / 4 * 3;
+    }
+
+    private static int hash(long key) {
+        long h = key * 0x9E3779B97F4A7C15L;
+        return (int) (h ^ (h >>> 32));
+    }
+
+    private int indexOf(long key) {
+        int index = hash(key) & mask;
+        while (true) {
+            long slotKey = keys[index];
+            if (slotKey == key) {
+                return index;
+            }
+            if (slotKey == FREE_KEY) {
+                return -1;
+            }
+            index = (index + 1) & mask;
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    public V get(long key) {
+        if (key == FREE_KEY) {
+            return freeKeyValue;
+        }
+        int index = indexOf(key);
+        return index < 0 ? null : (V) values[index];
+    }
+
+    public boolean containsKey(long key) {
+        if (key == FREE_KEY) {
+            return hasFreeKey;
+        }
+        return indexOf(key) >= 0;
+    }
+
+    @SuppressWarnings("unchecked")
+    public V put(long key, V value) {
+        if (key == FREE_KEY) {
+            V oldValue = freeKeyValue;
+            if (!hasFreeKey) {
+                hasFreeKey = true;
+                size++;
+                modCount++;
+            }
+            freeKeyValue = value;
+            return oldValue;
+        }
+        int index = hash(key) & mask;
+        while (true) {
+            long slotKey = keys[index];
+            if (slotKey == key) {
+                V oldValue = (V) values[index];
+                values[index] = value;
+                return oldValue;
+            }
+            if (slotKey == FREE_KEY) {
+                keys[index] = key;
+                values[index] = value;
+                size++;
+                modCount++;
+                if (size > resizeThreshold) {
+                    rehash(keys.length << 1);
+                }
+                return null;
+            }
+            index = (index + 1) & mask;
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    public V remove(long key) {
+        if (key == FREE_KEY) {
+            V oldValue = freeKeyValue;
+            if (hasFreeKey) {
+                hasFreeKey = false;
+                freeKeyValue = null;
+                size--;
+                modCount++;
+            }
+            return oldValue;
+        }
+        int index = indexOf(key);
+        if (index < 0) {
+            return null;
+        }
+        V oldValue = (V) values[index];
+        shiftKeys(index);
+        size--;
+        modCount++;
+        return oldValue;
+    }
+
+    /**
+     * Entfernt den Eintrag am Platz und rückt die nachfolgenden Einträge der Sondierungskette nach
+     * (keine Grabsteine nötig).
+     */
+    private void shiftKeys(int index) {
+        int freeIndex = index;
+        int nextIndex = (index + 1) & mask;
+        while (true) {
+            long slotKey = keys[nextIndex];
+            if (slotKey == FREE_KEY) {
+                break;
+            }
+            int homeIndex = hash(slotKey) & mask;
+            // Eintrag darf nur nachrücken, wenn sein Ziel-Platz nicht zwischen freiem und aktuellem Platz liegt
+            boolean canMove = freeIndex <= nextIndex
+                    ? (homeIndex <= freeIndex || homeIndex > nextIndex)
+                    : (homeIndex <= freeIndex && homeIndex > nextIndex);
+            if (canMove) {
+                keys[freeIndex] = slotKey;
+                values[freeIndex] = values[nextIndex];
+                freeIndex = nextIndex;
+            }
+            nextIndex = (nextIndex + 1) & mask;
+        }
+        keys[freeIndex] = FREE_KEY;
+        values[freeIndex] = null;
+    }
+
+    private void rehash(int newCapacity) {
+        long[] oldKeys = keys;
+        Object[] oldValues = values;
+        allocate(newCapacity);
+        for (int i = 0; i < oldKeys.length; i++) {
+            long key = oldKeys[i];
+            if (key != FREE_KEY) {
+                int index = hash(key) & mask;
+                while (keys[index] != FREE_KEY) {
+                    index = (index + 1) & mask;
+                }
+                keys[index] = key;
+                values[index] = oldValues[i];
+            }
+        }
+    }
+
+    /**
+     * Alle Schlüssel in undefinierter Reihenfolge.
+     */
+    public long[] keys() {
+        long[] result = new long[size];
+        int k = 0;
+        if (hasFreeKey) {
+            result[k++] = FREE_KEY;
+        }
+        for (long key : keys) {
+            if (key != FREE_KEY) {
+                result[k++] = key;
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Alle Schlüssel aufsteigend sortiert (entspricht der Reihenfolge einer TreeMap).
+     */
+    public long[] sortedKeys() {
+        long[] result = keys();
+        Arrays.sort(result);
+        return result;
+    }
+
+    @Override
+    public V get(Object key) {
+        return key instanceof Long ? get(((Long) key).longValue()) : null;
+    }
+
+    @Override
+    public boolean containsKey(Object key) {
+        return key instanceof Long && containsKey(((Long) key).longValue());
+    }
+
+    @Override
+    public V put(Long key, V value) {
+        return put(key.longValue(), value);
+    }
+
+    @Override
+    public V remove(Object key) {
+        return key instanceof Long ? remove(((Long) key).longValue()) : null;
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public void clear() {
+        Arrays.fill(keys, FREE_KEY);
+        Arrays.fill(values, null);
+        hasFreeKey = false;
+        freeKeyValue = null;
+        size = 0;
+        modCount++;
+    }
+
+    @Override
+    public Set<Entry<Long, V>> entrySet() {
+        if (entrySet == null) {
+            entrySet = new AbstractSet<>() {
+                @Override
+                public Iterator<Entry<Long, V>> iterator() {
+                    return new EntryIterator();
+                }
+
+                @Override
+                public int size() {
+                    return size;
+                }
+            };
+        }
+        return entrySet;
+    }
+
+    private final class EntryIterator implements Iterator<Entry<Long, V>> {
+        private final int expectedModCount = modCount;
+        // -1 steht für den Eintrag mit dem Schlüssel 0
+        private int nextIndex = hasFreeKey ? -1 : findNext(0);
+
+        private int findNext(int from) {
+            int index = from;
+            while (index < keys.length && keys[index] == FREE_KEY) {
+                index++;
+            }
+            return index;
+        }
+
+        @Override
+        public boolean hasNext() {
+            return nextIndex < keys.length;
+        }
+
+        @Override
+        public Entry<Long, V> next() {
+            if (expectedModCount != modCount) {
+                throw new ConcurrentModificationException();
+            }
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            int index = nextIndex;
+            nextIndex = findNext(index + 1);
+            return new MapEntry(index);
+        }
+    }
+
+    private final class MapEntry implements Entry<Long, V> {
+        private final int index;
+
+        private MapEntry(int index) {
+            this.index = index;
+        }
+
+        @Override
+        public Long getKey() {
+            return index < 0 ? FREE_KEY : keys[index];
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public V getValue() {
+            return index < 0 ? freeKeyValue : (V) values[index];
+        }
+
+        @Override
+        public V setValue(V value) {
+            V oldValue = getValue();
+            if (index < 0) {
+                freeKeyValue = value;
+            } else {
+                values[index] = value;
+            }
+            return oldValue;
+        }
+
+        @Override
+        public boolean equals(Object object) {
+            if (!(object instanceof Entry<?, ?> entry)) {
+                return false;
+            }
+            return getKey().equals(entry.getKey()) && Objects.equals(getValue(), entry.getValue());
+        }
+
+        @Override
+        public int hashCode() {
+            return getKey().hashCode() ^ Objects.hashCode(getValue());
+        }
+
+        @Override
+        public String toString() {
+            return getKey() + "=" + getValue();
+        }
+    }
+}
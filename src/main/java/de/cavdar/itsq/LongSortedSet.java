@@ -0,0 +1,582 @@
+package de.cavdar.itsq;
+
+import java.util.AbstractSet;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.ConcurrentModificationException;
+import java.util.Iterator;
+import java.util.NavigableSet;
+import java.util.NoSuchElementException;
+import java.util.SortedSet;
+
+/**
+ * Sortierte Menge von long-Werten (z.B. Beteiligten-Crefos) in einem kompakten long-Array.
+ * <p>
+ * Ersetzt TreeSet&lt;Long&gt;: statt eines Baum-Knotens und eines Long-Objekts pro Element werden nur 8 Byte
+ * pro Element belegt. Suchen erfolgt binär, Einfügen verschiebt die größeren Elemente (die Listen sind klein
+ * und werden meist aufsteigend befüllt). Die Iteration erfolgt aufsteigend wie bei TreeSet.
+ * <p>
+ * Wie TreeSet ist die Menge ein {@link NavigableSet}; Teilmengen (subSet/headSet/tailSet/descendingSet)
+ * sind Sichten auf dasselbe Array, deren Grenzen bei jedem Zugriff per Binärsuche bestimmt werden.
+ */
+public class LongSortedSet extends AbstractSet<Long> implements NavigableSet<Long> {
+    private static final long[] EMPTY_VALUES = {};
+
+    private long[] values = EMPTY_VALUES;
+    private int size;
+    private int modCount;
+
+    public LongSortedSet() {
+    }
+
+    public LongSortedSet(Collection<? extends Long> collection) {
+        addAll(collection);
+    }
+
+    public boolean add(long value) {
+        int index = Arrays.binarySearch(values, 0, size, value);
+        if (index >= 0) {
+            return false;
+        }
+        int insertIndex = -(index + 1);
+        if (size == values.length) {
+            values = Arrays.copyOf(values, Math.max(4, size + (size >> 1)));
+        }
+        System.arraycopy(values, insertIndex, values, insertIndex + 1, size - insertIndex);
+        values[insertIndex] = value;
+        size++;
+        modCount++;
+        return true;
+    }
+
+    @Override
+    public boolean add(Long value) {
+        return add(value.longValue());
+    }
+
+    @Override
+    public boolean addAll(Collection<? extends Long> collection) {
+        if (collection instanceof LongSortedSet otherSet) {
+            return addAll(otherSet);
+        }
+        return super.addAll(collection);
+    }
+
+    private boolean addAll(LongSortedSet otherSet) {
+        if (otherSet.size == 0) {
+            return false;
+        }
+        // Merge zweier sortierter Arrays
+        long[] mergedValues = new long[size + otherSet.size];
+        int i = 0;
+        int j = 0;
+        int k = 0;
+        while (i < size && j < otherSet.size) {
+            long value = values[i];
+            long otherValue = otherSet.values[j];
+            if (value < otherValue) {
+                mergedValues[k++] = value;
+                i++;
+            } else if (value > otherValue) {
+                mergedValues[k++] = otherValue;
+                j++;
+            } else {
+                mergedValues[k++] = value;
+                i++;
+                j++;
+            }
+        }
+        while (i < size) {
+            mergedValues[k++] = values[i++];
+        }
+        while (j < otherSet.size) {
+            mergedValues[k++] = otherSet.values[j++];
+        }
+        boolean changed = k != size;
+        values = mergedValues;
+        size = k;
+        modCount++;
+        return changed;
+    }
+
+    public boolean contains(long value) {
+        return Arrays.binarySearch(values, 0, size, value) >= 0;
+    }
+
+    @Override
+    public boolean contains(Object object) {
+        return object instanceof Long && contains(((Long) object).longValue());
+    }
+
+    public boolean remove(long value) {
+        int index = Arrays.binarySearch(values, 0, size, value);
+        if (index < 0) {
+            return false;
+        }
+        removeAt(index);
+        return true;
+    }
+
+    @Override
+    public boolean remove(Object object) {
+        return object instanceof Long && remove(((Long) object).longValue());
+    }
+
+    private void removeAt(int index) {
+        removeRange(index, index + 1);
+    }
+
+    private void removeRange(int fromIndex, int toIndex) {
+        if (fromIndex >= toIndex) {
+            return;
+        }
+        System.arraycopy(values, toIndex, values, fromIndex, size - toIndex);
+        size -= toIndex - fromIndex;
+        modCount++;
+    }
+
+    @Override
+    public Comparator<? super Long> comparator() {
+        return null;
+    }
+
+    @Override
+    public Long first() {
+        if (size == 0) {
+            throw new NoSuchElementException();
+        }
+        return values[0];
+    }
+
+    @Override
+    public Long last() {
+        if (size == 0) {
+            throw new NoSuchElementException();
+        }
+        return values[size - 1];
+    }
+
+    @Override
+    public Long lower(Long value) {
+        return valueAt(ceilingIndex(value) - 1);
+    }
+
+    @Override
+    public Long floor(Long value) {
+        return valueAt(higherIndex(value) - 1);
+    }
+
+    @Override
+    public Long ceiling(Long value) {
+        return valueAt(ceilingIndex(value));
+    }
+
+    @Override
+    public Long higher(Long value) {
+        return valueAt(higherIndex(value));
+    }
+
+    @Override
+    public Long pollFirst() {
+        if (size == 0) {
+            return null;
+        }
+        long value = values[0];
+        removeAt(0);
+        return value;
+    }
+
+    @Override
+    public Long pollLast() {
+        if (size == 0) {
+            return null;
+        }
+        long value = values[size - 1];
+        removeAt(size - 1);
+        return value;
+    }
+
+    @Override
+    public NavigableSet<Long> descendingSet() {
+        return new RangeView(false, 0, false, false, 0, false, true);
+    }
+
+    @Override
+    public Iterator<Long> descendingIterator() {
+        return new IndexIterator(0, size, true);
+    }
+
+    @Override
+    public NavigableSet<Long> subSet(Long fromElement, boolean fromInclusive, Long toElement, boolean toInclusive) {
+        if (fromElement > toElement) {
+            throw new IllegalArgumentException("fromElement > toElement");
+        }
+        return new RangeView(true, fromElement, fromInclusive, true, toElement, toInclusive, false);
+    }
+
+    @Override
+    public NavigableSet<Long> headSet(Long toElement, boolean inclusive) {
+        return new RangeView(false, 0, false, true, toElement, inclusive, false);
+    }
+
+    @Override
+    public NavigableSet<Long> tailSet(Long fromElement, boolean inclusive) {
+        return new RangeView(true, fromElement, inclusive, false, 0, false, false);
+    }
+
+    @Override
+    public SortedSet<Long> subSet(Long fromElement, Long toElement) {
+        return subSet(fromElement, true, toElement, false);
+    }
+
+    @Override
+    public SortedSet<Long> headSet(Long toElement) {
+        return headSet(toElement, false);
+    }
+
+    @Override
+    public SortedSet<Long> tailSet(Long fromElement) {
+        return tailSet(fromElement, true);
+    }
+
+    /**
+     * Index des ersten Werts &gt;= value (size, wenn es keinen gibt).
+     */
+    private int ceilingIndex(long value) {
+        int index = Arrays.binarySearch(values, 0, size, value);
+        return index >= 0 ? index : -(index + 1);
+    }
+
+    /**
+     * Index des ersten Werts &gt; value (size, wenn es keinen gibt).
+     */
+    private int higherIndex(long value) {
+        int index = Arrays.binarySearch(values, 0, size, value);
+        return index >= 0 ? index + 1 : -(index + 1);
+    }
+
+    private Long valueAt(int index) {
+        return index >= 0 && index < size ? values[index] : null;
+    }
+
+    public long get(int index) {
+        if (index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException("Index " + index + ", Größe " + size);
+        }
+        return values[index];
+    }
+
+    public long[] toLongArray() {
+        return Arrays.copyOf(values, size);
+    }
+
+    /**
+     * Gibt den nicht benötigten Platz im Array frei.
+     */
+    public void trimToSize() {
+        if (values.length > size) {
+            values = size == 0 ? EMPTY_VALUES : Arrays.copyOf(values, size);
+        }
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public void clear() {
+        size = 0;
+        modCount++;
+    }
+
+    @Override
+    public Iterator<Long> iterator() {
+        return new IndexIterator(0, size, false);
+    }
+
+    /**
+     * Iteriert über die Indizes [fromIndex, toIndex), auf- oder absteigend.
+     */
+    private final class IndexIterator implements Iterator<Long> {
+        private final boolean descending;
+        private final int fromIndex;
+        private int toIndex;
+        private int nextIndex;
+        private int lastIndex = -1;
+        private int expectedModCount = modCount;
+
+        private IndexIterator(int fromIndex, int toIndex, boolean descending) {
+            this.descending = descending;
+            this.fromIndex = fromIndex;
+            this.toIndex = toIndex;
+            this.nextIndex = descending ? toIndex - 1 : fromIndex;
+        }
+
+        @Override
+        public boolean hasNext() {
+            return descending ? nextIndex >= fromIndex : nextIndex < toIndex;
+        }
+
+        @Override
+        public Long next() {
+            if (expectedModCount != modCount) {
+                throw new ConcurrentModificationException();
+            }
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            lastIndex = nextIndex;
+            nextIndex += descending ? -1 : 1;
+            return values[lastIndex];
+        }
+
+        @Override
+        public void remove() {
+            if (lastIndex < 0) {
+                throw new IllegalStateException();
+            }
+            if (expectedModCount != modCount) {
+                throw new ConcurrentModificationException();
+            }
+            removeAt(lastIndex);
+            if (!descending) {
+                nextIndex = lastIndex;
+            }
+            toIndex--;
+            lastIndex = -1;
+            expectedModCount = modCount;
+        }
+    }
+
+    /**
+     * Sicht auf die Werte zwischen den Grenzen low und high (jeweils optional), auf- oder absteigend.
+     * Die Grenzen werden bei jedem Zugriff in Indizes umgerechnet, Änderungen der Menge sind daher sofort sichtbar.
+     */
+    private final class RangeView extends AbstractSet<Long> implements NavigableSet<Long> {
+        private final boolean hasLow;
+        private final long low;
+        private final boolean lowInclusive;
+        private final boolean hasHigh;
+        private final long high;
+        private final boolean highInclusive;
+        private final boolean descending;
+
+        private RangeView(boolean hasLow, long low, boolean lowInclusive, boolean hasHigh, long high, boolean highInclusive, boolean descending) {
+            this.hasLow = hasLow;
+            this.low = low;
+            this.lowInclusive = lowInclusive;
+            this.hasHigh = hasHigh;
+            this.high = high;
+            this.highInclusive = highInclusive;
+            this.descending = descending;
+        }
+
+        private boolean inRange(long value) {
+            boolean tooLow = hasLow && (lowInclusive ? value < low : value <= low);
+            boolean tooHigh = hasHigh && (highInclusive ? value > high : value >= high);
+            return !tooLow && !tooHigh;
+        }
+
+        private void checkBound(long value, boolean inclusive) {
+            boolean tooLow = hasLow && (value < low || (value == low && inclusive && !lowInclusive));
+            boolean tooHigh = hasHigh && (value > high || (value == high && inclusive && !highInclusive));
+            if (tooLow || tooHigh) {
+                throw new IllegalArgumentException("Wert außerhalb des Bereichs: " + value);
+            }
+        }
+
+        private int fromIndex() {
+            if (!hasLow) {
+                return 0;
+            }
+            return lowInclusive ? ceilingIndex(low) : higherIndex(low);
+        }
+
+        private int toIndex() {
+            if (!hasHigh) {
+                return size;
+            }
+            return highInclusive ? higherIndex(high) : ceilingIndex(high);
+        }
+
+        // Navigation in aufsteigender Reihenfolge, die absteigende Sicht vertauscht die Richtung
+
+        private Long lowest() {
+            int index = fromIndex();
+            return index < toIndex() ? values[index] : null;
+        }
+
+        private Long highest() {
+            int index = toIndex() - 1;
+            return index >= fromIndex() ? values[index] : null;
+        }
+
+        private Long lowerAscending(long value, boolean inclusive) {
+            int index = Math.min(inclusive ? higherIndex(value) : ceilingIndex(value), toIndex()) - 1;
+            return index >= fromIndex() ? values[index] : null;
+        }
+
+        private Long higherAscending(long value, boolean inclusive) {
+            int index = Math.max(inclusive ? ceilingIndex(value) : higherIndex(value), fromIndex());
+            return index < toIndex() ? values[index] : null;
+        }
+
+        private NavigableSet<Long> rangeAscending(boolean hasFrom, long from, boolean fromInclusive, boolean hasTo, long to, boolean toInclusive) {
+            if (hasFrom) {
+                checkBound(from, fromInclusive);
+            }
+            if (hasTo) {
+                checkBound(to, toInclusive);
+            }
+            if (hasFrom && hasTo && from > to) {
+                throw new IllegalArgumentException("fromElement > toElement");
+            }
+            return new RangeView(hasFrom || hasLow, hasFrom ? from : low, hasFrom ? fromInclusive : lowInclusive,
+                    hasTo || hasHigh, hasTo ? to : high, hasTo ? toInclusive : highInclusive, descending);
+        }
+
+        @Override
+        public int size() {
+            return Math.max(0, toIndex() - fromIndex());
+        }
+
+        @Override
+        public boolean contains(Object object) {
+            return object instanceof Long value && inRange(value) && LongSortedSet.this.contains(value.longValue());
+        }
+
+        @Override
+        public boolean add(Long value) {
+            if (!inRange(value)) {
+                throw new IllegalArgumentException("Wert außerhalb des Bereichs: " + value);
+            }
+            return LongSortedSet.this.add(value.longValue());
+        }
+
+        @Override
+        public boolean remove(Object object) {
+            return object instanceof Long value && inRange(value) && LongSortedSet.this.remove(value.longValue());
+        }
+
+        @Override
+        public void clear() {
+            removeRange(fromIndex(), toIndex());
+        }
+
+        @Override
+        public Iterator<Long> iterator() {
+            return new IndexIterator(fromIndex(), Math.max(fromIndex(), toIndex()), descending);
+        }
+
+        @Override
+        public Iterator<Long> descendingIterator() {
+            return new IndexIterator(fromIndex(), Math.max(fromIndex(), toIndex()), !descending);
+        }
+
+        @Override
+        public Comparator<? super Long> comparator() {
+            return descending ? Comparator.reverseOrder() : null;
+        }
+
+        @Override
+        public Long first() {
+            Long value = descending ? highest() : lowest();
+            if (value == null) {
+                throw new NoSuchElementException();
+            }
+            return value;
+        }
+
+        @Override
+        public Long last() {
+            Long value = descending ? lowest() : highest();
+            if (value == null) {
+                throw new NoSuchElementException();
+            }
+            return value;
+        }
+
+        @Override
+        public Long lower(Long value) {
+            return descending ? higherAscending(value, false) : lowerAscending(value, false);
+        }
+
+        @Override
+        public Long floor(Long value) {
+            return descending ? higherAscending(value, true) : lowerAscending(value, true);
+        }
+
+        @Override
+        public Long ceiling(Long value) {
+            return descending ? lowerAscending(value, true) : higherAscending(value, true);
+        }
+
+        @Override
+        public Long higher(Long value) {
+            return descending ? lowerAscending(value, false) : higherAscending(value, false);
+        }
+
+        @Override
+        public Long pollFirst() {
+            Long value = descending ? highest() : lowest();
+            if (value != null) {
+                LongSortedSet.this.remove(value.longValue());
+            }
+            return value;
+        }
+
+        @Override
+        public Long pollLast() {
+            Long value = descending ? lowest() : highest();
+            if (value != null) {
+                LongSortedSet.this.remove(value.longValue());
+            }
+            return value;
+        }
+
+        @Override
+        public NavigableSet<Long> descendingSet() {
+            return new RangeView(hasLow, low, lowInclusive, hasHigh, high, highInclusive, !descending);
+        }
+
+        @Override
+        public NavigableSet<Long> subSet(Long fromElement, boolean fromInclusive, Long toElement, boolean toInclusive) {
+            if (descending) {
+                if (fromElement < toElement) {
+                    throw new IllegalArgumentException("fromElement < toElement");
+                }
+                return rangeAscending(true, toElement, toInclusive, true, fromElement, fromInclusive);
+            }
+            return rangeAscending(true, fromElement, fromInclusive, true, toElement, toInclusive);
+        }
+
+        @Override
+        public NavigableSet<Long> headSet(Long toElement, boolean inclusive) {
+            return descending ? rangeAscending(true, toElement, inclusive, false, 0, false)
+                    : rangeAscending(false, 0, false, true, toElement, inclusive);
+        }
+
+        @Override
+        public NavigableSet<Long> tailSet(Long fromElement, boolean inclusive) {
+            return descending ? rangeAscending(false, 0, false, true, fromElement, inclusive)
+                    : rangeAscending(true, fromElement, inclusive, false, 0, false);
+        }
+
+        @Override
+        public SortedSet<Long> subSet(Long fromElement, Long toElement) {
+            return subSet(fromElement, true, toElement, false);
+        }
+
+        @Override
+        public SortedSet<Long> headSet(Long toElement) {
+            return headSet(toElement, false);
+        }
+
+        @Override
+        public SortedSet<Long> tailSet(Long fromElement) {
+            return tailSet(fromElement, true);
+        }
+    }
+}
@@ -0,0 +1,122 @@
+package de.cavdar.itsq;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Index der REF-EXPORT-XMLs eines Szenarios, aufgebaut aus einem einzigen Verzeichnis-Listing.
+ * <p>
+ * Jede XML wird unter allen Ziffernfolgen ihres Dateinamens eingetragen (z.B. "p01_stammsatz_1234567894.xml"
+ * unter 1 und 1234567894). Die Suche nach (Testfall-Name, Crefo) filtert nur noch die wenigen XMLs mit dieser
+ * Crefo, statt alle XMLs pro Properties-Zeile zu durchsuchen. Pro Crefo bleibt die Reihenfolge des Listings
+ * erhalten, es wird wie bisher die erste passende Datei geliefert.
+ * Im Unterschied zum früheren String#contains muss die Crefo eine vollständige Ziffernfolge im Dateinamen sein.
+ */
+public class RefExportXmlIndex {
+    // Ziffernfolgen mit mehr Stellen passen nicht in einen long und sind keine Crefonummern
+    private static final int MAX_DIGITS = 18;
+
+    private final LongObjectHashMap<List<File>> xmlFilesByCrefo = new LongObjectHashMap<>();
+    private final int xmlFilesCount;
+
+    public RefExportXmlIndex(Collection<File> xmlFiles) {
+        for (File xmlFile : xmlFiles) {
+            addFile(xmlFile);
+        }
+        xmlFilesCount = xmlFiles.size();
+    }
+
+    /**
+     * Index aller XMLs im Szenario-Verzeichnis (bei recursive auch in den Unterverzeichnissen).
+     * Für ein nicht existierendes Verzeichnis ist der Index leer.
+     */
+    public static RefExportXmlIndex forDirectory(File scenarioDir, boolean recursive) {
+        if (scenarioDir == null || !ItsqFiles.isDirectory(scenarioDir)) {
+            return new RefExportXmlIndex(Collections.emptyList());
+        }
+        if (recursive) {
+            return new RefExportXmlIndex(ItsqFiles.listFilesRecursive(scenarioDir, ".xml"));
+        }
+        File[] xmlFiles = ItsqFiles.listFiles(scenarioDir, file -> file.getName().endsWith(".xml"));
+        return new RefExportXmlIndex(xmlFiles == null ? Collections.emptyList() : List.of(xmlFiles));
+    }
+
+    private void addFile(File xmlFile) {
+        String fileName = xmlFile.getName();
+        int length = fileName.length();
+        int i = 0;
+        while (i < length) {
+            if (!Character.isDigit(fileName.charAt(i))) {
+                i++;
+                continue;
+            }
+            int start = i;
+            while (i < length && Character.isDigit(fileName.charAt(i))) {
+                i++;
+            }
+            if (i - start <= MAX_DIGITS) {
+                long crefoNr = Long.parseLong(fileName, start, i, 10);
+                List<File> crefoXmlFiles = xmlFilesByCrefo.get(crefoNr);
+                if (crefoXmlFiles == null) {
+                    crefoXmlFiles = new ArrayList<>(1);
+                    xmlFilesByCrefo.put(crefoNr, crefoXmlFiles);
+                }
+                // dieselbe Crefo kann mehrfach im Namen vorkommen
+                if (crefoXmlFiles.isEmpty() || crefoXmlFiles.get(crefoXmlFiles.size() - 1) != xmlFile) {
+                    crefoXmlFiles.add(xmlFile);
+                }
+            }
+        }
+    }
+
+    private List<File> getXmlFiles(long crefoNr) {
+        List<File> crefoXmlFiles = xmlFilesByCrefo.get(crefoNr);
+        return crefoXmlFiles == null ? Collections.emptyList() : crefoXmlFiles;
+    }
+
+    /**
+     * Erste XML, deren Name die Crefo enthält, oder null.
+     */
+    public File findXmlFileForCrefo(long crefoNr) {
+        List<File> crefoXmlFiles = getXmlFiles(crefoNr);
+        return crefoXmlFiles.isEmpty() ? null : crefoXmlFiles.get(0);
+    }
+
+    /**
+     * Erste XML, deren Name den Testfall-Namen und die Crefo enthält, oder null.
+     */
+    public File findXmlFileForTestfallAndCrefo(String testFallName, long crefoNr) {
+        for (File xmlFile : getXmlFiles(crefoNr)) {
+            if (xmlFile.getName().contains(testFallName)) {
+                return xmlFile;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Erste XML nach der Namens-Konvention "{testFallName}_*_{crefoNr}.xml", oder null.
+     */
+    public File findXmlFileByNamePattern(String testFallName, long crefoNr) {
+        String prefix = testFallName + "_";
+        String suffix = "_" + crefoNr + ".xml";
+        for (File xmlFile : getXmlFiles(crefoNr)) {
+            String fileName = xmlFile.getName();
+            if (fileName.startsWith(prefix) && fileName.endsWith(suffix)) {
+                return xmlFile;
+            }
+        }
+        return null;
+    }
+
+    public boolean hasMatchingXml(String testFallName, long crefoNr) {
+        return findXmlFileForTestfallAndCrefo(testFallName, crefoNr) != null;
+    }
+
+    public int getXmlFilesCount() {
+        return xmlFilesCount;
+    }
+}
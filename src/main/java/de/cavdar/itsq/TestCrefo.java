@@ -6,24 +6,51 @@ public class TestCrefo {
     private String testFallName;
     private String testFallInfo;
     private Long itsqTestCrefoNr;
-    private File itsqRexExportXmlFile;
+    // Pfad-Tabelle des Szenarios bzw. eigene, solange die Crefo keinem Szenario zugeordnet ist
+    private ItsqPathTable pathTable;
+    // Id in der pathTable, das File wird erst beim Zugriff erzeugt
+    private int itsqRexExportXmlFileId = ItsqPathTable.NO_PATH;
     private boolean shouldBeExported;
     private boolean activated = true;
     private boolean exported = false;
+    // das Szenario, in dessen Map die Crefo zuletzt eingetragen wurde
+    private TestScenario testScenario;
 
+    /**
+     * Einzelne Test-Crefo mit eigener Pfad-Tabelle. Beim Anlegen vieler Test-Crefos (z.B. aus einer
+     * Properties-Datei) den Konstruktor mit gemeinsamer Tabelle verwenden.
+     */
     public TestCrefo(String testFallName, Long itsqTestCrefoNr, String testFallInfo, boolean shouldBeExported, File itsqRexExportXmlFile) {
-        this.testFallName = testFallName;
+        this(testFallName, itsqTestCrefoNr, testFallInfo, shouldBeExported, new ItsqPathTable(null), itsqRexExportXmlFile);
+    }
+
+    /**
+     * Test-Crefo, deren XML und Namen in der gemeinsamen Pfad-Tabelle (z.B. der des Szenarios) abgelegt werden.
+     */
+    public TestCrefo(String testFallName, Long itsqTestCrefoNr, String testFallInfo, boolean shouldBeExported, ItsqPathTable pathTable, File itsqRexExportXmlFile) {
+        this.pathTable = pathTable;
+        this.testFallName = pathTable.intern(testFallName);
         this.itsqTestCrefoNr = itsqTestCrefoNr;
-        this.testFallInfo = testFallInfo;
+        this.testFallInfo = pathTable.intern(testFallInfo);
         this.shouldBeExported = shouldBeExported;
-        this.itsqRexExportXmlFile = itsqRexExportXmlFile;
+        this.itsqRexExportXmlFileId = pathTable.idOf(itsqRexExportXmlFile);
+    }
+
+    /**
+     * Test-Crefo mit allen Flags, ohne Benachrichtigung von Szenario und Kunde (siehe ITSQModelSnapshot).
+     */
+    TestCrefo(String testFallName, Long itsqTestCrefoNr, String testFallInfo, boolean shouldBeExported, boolean activated, boolean exported, ItsqPathTable pathTable, File itsqRexExportXmlFile) {
+        this(testFallName, itsqTestCrefoNr, testFallInfo, shouldBeExported, pathTable, itsqRexExportXmlFile);
+        this.activated = activated;
+        this.exported = exported;
     }
 
     public TestCrefo(TestCrefo theClone) {
         setTestFallName(theClone.getTestFallName());
         setItsqTestCrefoNr(theClone.getItsqTestCrefoNr());
         setTestFallInfo(theClone.getTestFallInfo());
-        setItsqRexExportXmlFile(theClone.getItsqRexExportXmlFile());
+        this.pathTable = theClone.pathTable;
+        this.itsqRexExportXmlFileId = theClone.itsqRexExportXmlFileId;
         setActivated(theClone.isActivated());
         setExported(theClone.isExported());
         setShouldBeExported(theClone.isShouldBeExported());
@@ -43,6 +70,7 @@ public class TestCrefo {
 
     public void setActivated(boolean activated) {
         this.activated = activated;
+        flagsChanged();
     }
 
     public boolean isShouldBeExported() {
@@ -51,6 +79,26 @@ public class TestCrefo {
 
     public void setShouldBeExported(boolean shouldBeExported) {
         this.shouldBeExported = shouldBeExported;
+        flagsChanged();
+    }
+
+    private void flagsChanged() {
+        TestScenario theTestScenario = testScenario;
+        if (theTestScenario != null) {
+            theTestScenario.testCrefosChanged();
+        }
+    }
+
+    void setTestScenario(TestScenario testScenario) {
+        this.testScenario = testScenario;
+        if (testScenario.getPathTable() != pathTable) {
+            // die Id gilt nur in der Tabelle, in der sie angelegt wurde; die Namen kommen in den Pool der neuen Tabelle
+            File itsqRexExportXmlFile = getItsqRexExportXmlFile();
+            pathTable = testScenario.getPathTable();
+            testFallName = pathTable.intern(testFallName);
+            testFallInfo = pathTable.intern(testFallInfo);
+            setItsqRexExportXmlFile(itsqRexExportXmlFile);
+        }
     }
 
     public boolean isExported() {
@@ -66,7 +114,7 @@ public class TestCrefo {
     }
 
     public void setTestFallInfo(String testFallInfo) {
-        this.testFallInfo = testFallInfo;
+        this.testFallInfo = pathTable.intern(testFallInfo);
     }
 
     public String getTestFallName() {
@@ -74,15 +122,15 @@ public class TestCrefo {
     }
 
     public void setTestFallName(String testFallName) {
-        this.testFallName = testFallName;
+        this.testFallName = pathTable.intern(testFallName);
     }
 
     public File getItsqRexExportXmlFile() {
-        return itsqRexExportXmlFile;
+        return pathTable.fileOf(itsqRexExportXmlFileId);
     }
 
     public void setItsqRexExportXmlFile(File itsqRexExportXmlFile) {
-        this.itsqRexExportXmlFile = itsqRexExportXmlFile;
+        this.itsqRexExportXmlFileId = pathTable.idOf(itsqRexExportXmlFile);
     }
 
     @Override
@@ -94,6 +142,7 @@ public class TestCrefo {
         StringBuilder stringBuilder = new StringBuilder();
         stringBuilder.append(prefix + testFallName + "\t" + itsqTestCrefoNr);
         stringBuilder.append("\t");
+        File itsqRexExportXmlFile = getItsqRexExportXmlFile();
         if (itsqRexExportXmlFile != null) {
             stringBuilder.append(itsqRexExportXmlFile.getName());
         }
@@ -1,29 +1,47 @@
 package de.cavdar.itsq;
 
 import java.io.File;
+import java.util.AbstractList;
 import java.util.ArrayList;
+import java.util.BitSet;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
 
 public class TestCustomer {
     private String customerName;
     private String customerKey;
     private TestSupportClientKonstanten.TEST_PHASE testPhase;
-    private File itsqRefExportsDir;
-    private File itsqAB30XmlsDir;
-    private Map<String, TestScenario> testScenariosMap = new HashMap<>();
+    // Pfade des Testpakets, geteilt mit den Szenarien und Test-Crefos dieses Kunden
+    private final ItsqPathTable pathTable;
+    // Ids in der pathTable
+    private int itsqRefExportsDirId = ItsqPathTable.NO_PATH;
+    private int itsqAB30XmlsDirId = ItsqPathTable.NO_PATH;
+    private Map<String, TestScenario> testScenariosMap = new ChangeNotifyingMap<>(new HashMap<>(), null, this::invalidateTestCrefosCache);
+    // wird bei jeder Änderung der Szenarien, ihrer Test-Crefos oder der Aktiv- und Positiv-Flags dieses Kunden hochgezählt
+    private final AtomicLong testCrefosVersion = new AtomicLong();
+    private volatile TestCrefosSnapshot testCrefosSnapshot;
 
     public TestCustomer(String customerKey, File itsqAB30XmlsDir, File itsqRefExportsDir) {
-        this.customerKey = customerKey;
-        this.itsqAB30XmlsDir = itsqAB30XmlsDir;
-        this.itsqRefExportsDir = itsqRefExportsDir;
+        this.pathTable = new ItsqPathTable(null);
+        this.customerKey = pathTable.intern(customerKey);
+        setItsqAB30XmlsDir(itsqAB30XmlsDir);
+        setItsqRefExportsDir(itsqRefExportsDir);
         this.testPhase = TestSupportClientKonstanten.TEST_PHASE.PHASE_1;
     }
 
     public TestCustomer(String customerKey, String customerName) {
-        this.customerKey = customerKey;
-        this.customerName = customerName;
+        this(customerKey, customerName, new ItsqPathTable(null));
+    }
+
+    /**
+     * Kunde eines geladenen Testpakets, dessen Pfade in der Tabelle des Testpakets abgelegt werden.
+     */
+    TestCustomer(String customerKey, String customerName, ItsqPathTable pathTable) {
+        this.pathTable = pathTable;
+        this.customerKey = pathTable.intern(customerKey);
+        this.customerName = pathTable.intern(customerName);
         this.testPhase = TestSupportClientKonstanten.TEST_PHASE.PHASE_1;
     }
 
@@ -32,7 +50,7 @@ public class TestCustomer {
     }
 
     public void setCustomerKey(String customerKey) {
-        this.customerKey = customerKey;
+        this.customerKey = pathTable.intern(customerKey);
     }
 
     public String getCustomerName() {
@@ -48,16 +66,24 @@ public class TestCustomer {
     }
 
 
+    public File getItsqAB30XmlsDir() {
+        return pathTable.fileOf(itsqAB30XmlsDirId);
+    }
+
     public void setItsqAB30XmlsDir(File itsqAB30XmlsDir) {
-        this.itsqAB30XmlsDir = itsqAB30XmlsDir;
+        this.itsqAB30XmlsDirId = pathTable.idOf(itsqAB30XmlsDir);
+    }
+
+    ItsqPathTable getPathTable() {
+        return pathTable;
     }
 
     public File getItsqRefExportsDir() {
-        return itsqRefExportsDir;
+        return pathTable.fileOf(itsqRefExportsDirId);
     }
 
     public void setItsqRefExportsDir(File itsqRefExportsDir) {
-        this.itsqRefExportsDir = itsqRefExportsDir;
+        this.itsqRefExportsDirId = pathTable.idOf(itsqRefExportsDir);
     }
 
     public void addTestScenario(TestScenario testScenario) {
@@ -69,7 +95,8 @@ public class TestCustomer {
     }
 
     public void setTestScenariosMap(Map<String, TestScenario> testScenariosMap) {
-        this.testScenariosMap = testScenariosMap;
+        this.testScenariosMap = new ChangeNotifyingMap<>(testScenariosMap, null, this::invalidateTestCrefosCache);
+        invalidateTestCrefosCache();
     }
 
     public List<TestScenario> getTestScenariosList() {
@@ -82,23 +109,89 @@ public class TestCustomer {
         return String.format("%s:%s", customerKey, customerName);
     }
 
+    /**
+     * Die Test-Crefos aller Szenarien in der bisherigen Reihenfolge (Szenarien wie getTestScenariosList(), darin nach Testfall-Name).
+     * <p>
+     * Geliefert wird eine unveränderliche Sicht auf einen gecachten Stand: die Crefos liegen einmal flach in einem Array,
+     * die Filter "aktiv" (Szenario und Crefo aktiv) und "positiv" als BitSets. Der Stand wird neu aufgebaut, wenn sich ein
+     * Aktiv- oder Positiv-Flag eines Szenarios oder einer Test-Crefo dieses Kunden ändert oder die Szenario- bzw.
+     * Crefo-Maps geändert werden; Szenarien und Test-Crefos melden das über ihre Rückreferenz auf den Besitzer.
+     */
     public List<TestCrefo> getAllTestCrefos(boolean activeOnly, boolean positiveOnly) {
-        List<TestCrefo> testCrefosList = new ArrayList<>();
-        final List<TestScenario> testScenariosList = getTestScenariosList();
-        for (TestScenario testScenario : testScenariosList) {
-            if (!activeOnly || testScenario.isActivated()) {
-                Map<String, TestCrefo> testFallNameToTestCrefoMap = testScenario.getTestFallNameToTestCrefoMap();
-                testFallNameToTestCrefoMap.entrySet().forEach(testCrefoEntry -> {
-                    TestCrefo testCrefo = testCrefoEntry.getValue();
-                    if (!activeOnly || testCrefo.isActivated()) {
-                        if (!positiveOnly || testCrefo.isShouldBeExported()) {
-                            testCrefosList.add(testCrefo);
-                        }
-                    }
-                });
+        return getTestCrefosSnapshot().views[(activeOnly ? 2 : 0) + (positiveOnly ? 1 : 0)];
+    }
+
+    /**
+     * Verwirft den gecachten Stand von {@link #getAllTestCrefos(boolean, boolean)}; wird von den Szenarien und
+     * Test-Crefos dieses Kunden bei jeder Änderung aufgerufen.
+     */
+    public void invalidateTestCrefosCache() {
+        testCrefosVersion.incrementAndGet();
+        testCrefosSnapshot = null;
+    }
+
+    private TestCrefosSnapshot getTestCrefosSnapshot() {
+        TestCrefosSnapshot snapshot = testCrefosSnapshot;
+        long version = testCrefosVersion.get();
+        if (snapshot == null || snapshot.version != version) {
+            // eine Änderung während des Aufbaus (z.B. Laden eines Lazy-Szenarios) erhöht die Version, der Stand wird dann beim nächsten Aufruf erneuert
+            snapshot = new TestCrefosSnapshot(version, getTestScenariosList());
+            testCrefosSnapshot = snapshot;
+        }
+        return snapshot;
+    }
+
+    private static final class TestCrefosSnapshot {
+        private final long version;
+        private final TestCrefo[] testCrefos;
+        // Index: (activeOnly ? 2 : 0) + (positiveOnly ? 1 : 0)
+        private final List<TestCrefo>[] views;
+
+        @SuppressWarnings("unchecked")
+        private TestCrefosSnapshot(long version, List<TestScenario> testScenariosList) {
+            this.version = version;
+            List<TestCrefo> testCrefosList = new ArrayList<>();
+            BitSet activeBits = new BitSet();
+            BitSet positiveBits = new BitSet();
+            for (TestScenario testScenario : testScenariosList) {
+                for (TestCrefo testCrefo : testScenario.getTestFallNameToTestCrefoMap().values()) {
+                    int index = testCrefosList.size();
+                    testCrefosList.add(testCrefo);
+                    activeBits.set(index, testScenario.isActivated() && testCrefo.isActivated());
+                    positiveBits.set(index, testCrefo.isShouldBeExported());
+                }
             }
+            testCrefos = testCrefosList.toArray(new TestCrefo[0]);
+            BitSet allBits = new BitSet();
+            allBits.set(0, testCrefos.length);
+            BitSet activePositiveBits = (BitSet) activeBits.clone();
+            activePositiveBits.and(positiveBits);
+            views = new List[]{
+                    new TestCrefosView(testCrefos, allBits),
+                    new TestCrefosView(testCrefos, positiveBits),
+                    new TestCrefosView(testCrefos, activeBits),
+                    new TestCrefosView(testCrefos, activePositiveBits)};
+        }
+    }
+
+    private static final class TestCrefosView extends AbstractList<TestCrefo> {
+        private final TestCrefo[] testCrefos;
+        private final int[] indices;
+
+        private TestCrefosView(TestCrefo[] testCrefos, BitSet filterBits) {
+            this.testCrefos = testCrefos;
+            this.indices = filterBits.stream().toArray();
+        }
+
+        @Override
+        public TestCrefo get(int index) {
+            return testCrefos[indices[index]];
+        }
+
+        @Override
+        public int size() {
+            return indices.length;
         }
-        return testCrefosList;
     }
 
 }
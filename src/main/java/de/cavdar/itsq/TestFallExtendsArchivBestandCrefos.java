@@ -4,8 +4,15 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.io.File;
+import java.util.ArrayList;
 import java.util.Iterator;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 public class TestFallExtendsArchivBestandCrefos {
 
@@ -14,29 +21,138 @@ public class TestFallExtendsArchivBestandCrefos {
     private final Map<TestSupportClientKonstanten.TEST_PHASE, Map<String, TestCustomer>> activeCustomersMapMap;
     File testSetRootDir = new File(String.valueOf(TestSupportClientKonstanten.TEST_SET_DIR));
     File ab30RootDir = new File(testSetRootDir, TestSupportClientKonstanten.ARCHIV_BESTAND_ROOT);
+    private boolean useParseCache;
+    private boolean concurrentPhases;
+    private boolean incremental;
+    private final List<PhaseReport> phaseReports = new ArrayList<>();
 
     public TestFallExtendsArchivBestandCrefos(Map<TestSupportClientKonstanten.TEST_PHASE, Map<String, TestCustomer>> activeCustomersMapMap) {
         this.activeCustomersMapMap = activeCustomersMapMap;
         ab30MapperUtil = new AB30MapperUtil();
     }
 
+    /**
+     * Anzahl der Threads, mit denen die Crefo-XMLs beim Erweitern um die Beteiligten geparst werden (1 = sequentiell).
+     */
+    public void setParallelism(int parallelism) {
+        ab30MapperUtil.setBtlgParallelism(parallelism);
+    }
+
+    /**
+     * Wenn gesetzt, werden die aus den Crefo-XMLs ermittelten Beteiligten pro Phase in einem Cache
+     * ({@link AB30CrefoParseCache}) gespeichert, unveränderte XMLs werden beim nächsten Lauf nicht mehr geparst.
+     */
+    public void setUseParseCache(boolean useParseCache) {
+        this.useParseCache = useParseCache;
+    }
+
+    /**
+     * Wenn gesetzt, werden die Phasen in extendTestCrefos() parallel bearbeitet. Die Phasen lesen und schreiben
+     * getrennte Verzeichnisse; jede Phase bekommt einen eigenen AB30MapperUtil, damit kein Zustand geteilt wird.
+     */
+    public void setConcurrentPhases(boolean concurrentPhases) {
+        this.concurrentPhases = concurrentPhases;
+    }
+
+    /**
+     * Wenn gesetzt, werden ExtendedTestCrefos.properties und CrefosToCustomersMap.txt inkrementell erzeugt
+     * ({@link AB30IncrementalExtender}): nur geänderte XMLs werden geparst und nur die betroffenen Zeilen neu berechnet.
+     */
+    public void setIncremental(boolean incremental) {
+        this.incremental = incremental;
+    }
+
+    /**
+     * Zeit und Durchsatz der bearbeiteten Phasen des letzten Aufrufs von extendTestCrefos() bzw. doForPhase().
+     */
+    public List<PhaseReport> getPhaseReports() {
+        synchronized (phaseReports) {
+            return new ArrayList<>(phaseReports);
+        }
+    }
+
     public void extendTestCrefos() throws Exception {
-        Iterator<TestSupportClientKonstanten.TEST_PHASE> phaseIterator = activeCustomersMapMap.keySet().iterator();
-        while (phaseIterator.hasNext()) {
-            TestSupportClientKonstanten.TEST_PHASE testPhase = phaseIterator.next();
-            doForPhase(testPhase);
+        synchronized (phaseReports) {
+            phaseReports.clear();
+        }
+        if (concurrentPhases && activeCustomersMapMap.size() > 1) {
+            extendTestCrefosConcurrently();
+        } else {
+            Iterator<TestSupportClientKonstanten.TEST_PHASE> phaseIterator = activeCustomersMapMap.keySet().iterator();
+            while (phaseIterator.hasNext()) {
+                TestSupportClientKonstanten.TEST_PHASE testPhase = phaseIterator.next();
+                doForPhase(testPhase);
+            }
+        }
+        for (PhaseReport phaseReport : getPhaseReports()) {
+            LOGGER.info("TestFallExtendsArchivBestandCrefos#extendTestCrefos() :: " + phaseReport);
+        }
+    }
+
+    private void extendTestCrefosConcurrently() throws Exception {
+        List<TestSupportClientKonstanten.TEST_PHASE> testPhases = new ArrayList<>(activeCustomersMapMap.keySet());
+        List<Callable<PhaseReport>> phaseTasks = new ArrayList<>();
+        for (TestSupportClientKonstanten.TEST_PHASE testPhase : testPhases) {
+            AB30MapperUtil phaseMapperUtil = new AB30MapperUtil();
+            phaseMapperUtil.setXmlParseMode(ab30MapperUtil.getXmlParseMode());
+            phaseMapperUtil.setBtlgParallelism(ab30MapperUtil.getBtlgParallelism());
+            phaseTasks.add(() -> doForPhase(testPhase, phaseMapperUtil));
+        }
+        ExecutorService phaseExecutor = Executors.newFixedThreadPool(testPhases.size());
+        try {
+            List<Future<PhaseReport>> phaseResults = phaseExecutor.invokeAll(phaseTasks);
+            Exception firstException = null;
+            for (int i = 0; i < phaseResults.size(); i++) {
+                try {
+                    phaseResults.get(i).get();
+                } catch (ExecutionException ex) {
+                    Exception cause = ex.getCause() instanceof Exception ? (Exception) ex.getCause() : ex;
+                    LOGGER.error("TestFallExtendsArchivBestandCrefos#extendTestCrefos() :: Fehler in " + testPhases.get(i).getDirName() + ": " + cause.getMessage(), cause);
+                    if (firstException == null) {
+                        firstException = cause;
+                    } else {
+                        firstException.addSuppressed(cause);
+                    }
+                }
+            }
+            if (firstException != null) {
+                throw firstException;
+            }
+        } finally {
+            phaseExecutor.shutdownNow();
         }
     }
 
     public void doForPhase(TestSupportClientKonstanten.TEST_PHASE testPhase) throws Exception {
+        doForPhase(testPhase, ab30MapperUtil);
+    }
+
+    private PhaseReport doForPhase(TestSupportClientKonstanten.TEST_PHASE testPhase, AB30MapperUtil ab30MapperUtil) throws Exception {
+        long startMillis = System.currentTimeMillis();
+        long parsedXmlFilesBefore = ab30MapperUtil.getParsedXmlFiles();
+        long parsedXmlBytesBefore = ab30MapperUtil.getParsedXmlBytes();
         File ab30PhaseXmlsDir = new File(ab30RootDir, testPhase.getDirName());
         Map<String, TestCustomer> customerTestInfoMap = activeCustomersMapMap.get(testPhase);
+        if (incremental) {
+            return doForPhaseIncremental(testPhase, ab30MapperUtil, ab30PhaseXmlsDir, customerTestInfoMap, startMillis);
+        }
 
         LOGGER.info("TestFallExtendsArchivBestandCrefos#doForPhase(" + testPhase.getDirName() + ") :: Initialisiere eine neue AB30XMLProperties-Map aus den Testfällen für in customerTestInfoMap befindlichen Testfällen...");
         Map<Long, AB30XMLProperties> ab30CrefoToPropertiesMap = ab30MapperUtil.initAb30CrefoPropertiesMapFromRefExports("", ab30PhaseXmlsDir, customerTestInfoMap);
+        int testCrefosCount = ab30CrefoToPropertiesMap.size();
 
         LOGGER.info("TestFallExtendsArchivBestandCrefos#doForPhase(" + testPhase.getDirName() + ") :: erweitere die Map um AB30XMLProperties-Einträge für Beteiligten bzw. Entschedidungsträger der TestCrefo, falls nicht vorhanden...");
-        ab30CrefoToPropertiesMap = ab30MapperUtil.extendAb30CrefoPropertiesMapWithBtlgs("", ab30PhaseXmlsDir, ab30CrefoToPropertiesMap);
+        AB30CrefoParseCache parseCache = useParseCache ? AB30CrefoParseCache.forDirectory(ab30PhaseXmlsDir) : null;
+        ab30MapperUtil.setParseCache(parseCache);
+        try {
+            ab30CrefoToPropertiesMap = ab30MapperUtil.extendAb30CrefoPropertiesMapWithBtlgs("", ab30PhaseXmlsDir, ab30CrefoToPropertiesMap);
+        } finally {
+            ab30MapperUtil.setParseCache(null);
+            if (parseCache != null) {
+                parseCache.save();
+                LOGGER.info("TestFallExtendsArchivBestandCrefos#doForPhase(" + testPhase.getDirName() + ") :: Parse-Cache: " + parseCache.getHits() + " Treffer, " + parseCache.getMisses() + " XMLs geparst");
+            }
+        }
 
         File testCrefosFile = new File(ab30PhaseXmlsDir, TestSupportClientKonstanten.TEST_CREFOS_PROPS_FILENAME);
         LOGGER.info("TestFallExtendsArchivBestandCrefos#doForPhase(" + testPhase.getDirName() + ") :: Ergänze Attributes von AB30XMLProperties-Map  aus altem 'TestCrefos.properties' - Datei...");
@@ -47,6 +163,84 @@ public class TestFallExtendsArchivBestandCrefos {
 
         LOGGER.info("TestFallExtendsArchivBestandCrefos#doForPhase(" + testPhase.getDirName() + ") :: Erzeuge eine Datei \"CrefosToCustomersMap.txt\", in der die Crefos gruppiert nach Kunde aufgelistet werden");
         ab30MapperUtil.writeCrefoToCustomerMappingFile(new File(ab30PhaseXmlsDir, TestSupportClientKonstanten.CREFOS_TO_CUSTOMERS_MAP_FILENAME), ab30CrefoToPropertiesMap);
+
+        PhaseReport phaseReport = new PhaseReport(testPhase, System.currentTimeMillis() - startMillis,
+                ab30MapperUtil.getParsedXmlFiles() - parsedXmlFilesBefore, ab30MapperUtil.getParsedXmlBytes() - parsedXmlBytesBefore,
+                testCrefosCount, ab30CrefoToPropertiesMap.size() - testCrefosCount);
+        synchronized (phaseReports) {
+            phaseReports.add(phaseReport);
+        }
+        return phaseReport;
+    }
+
+    private PhaseReport doForPhaseIncremental(TestSupportClientKonstanten.TEST_PHASE testPhase, AB30MapperUtil ab30MapperUtil, File ab30PhaseXmlsDir,
+                                              Map<String, TestCustomer> customerTestInfoMap, long startMillis) throws Exception {
+        long parsedXmlBytesBefore = ab30MapperUtil.getParsedXmlBytes();
+        LOGGER.info("TestFallExtendsArchivBestandCrefos#doForPhase(" + testPhase.getDirName() + ") :: Aktualisiere 'ExtendedTestCrefos.properties' und 'CrefosToCustomersMap.txt' inkrementell...");
+        AB30IncrementalExtender.Result result = new AB30IncrementalExtender(ab30MapperUtil, ab30PhaseXmlsDir).extend("", customerTestInfoMap);
+        LOGGER.info("TestFallExtendsArchivBestandCrefos#doForPhase(" + testPhase.getDirName() + ") :: " + result);
+
+        PhaseReport phaseReport = new PhaseReport(testPhase, System.currentTimeMillis() - startMillis,
+                result.getParsedXmlFiles(), ab30MapperUtil.getParsedXmlBytes() - parsedXmlBytesBefore,
+                result.getTestCrefos(), result.getLines() - result.getTestCrefos());
+        synchronized (phaseReports) {
+            phaseReports.add(phaseReport);
+        }
+        return phaseReport;
+    }
+
+    /**
+     * Zeit und Durchsatz einer Phase: geparste XMLs (ohne Cache-Treffer), gelesene Bytes, Test-Crefos und
+     * die als Mapping-Zeile hinzugekommenen Beteiligten.
+     */
+    public static class PhaseReport {
+        private final TestSupportClientKonstanten.TEST_PHASE testPhase;
+        private final long durationMillis;
+        private final long parsedXmlFiles;
+        private final long parsedXmlBytes;
+        private final int testCrefos;
+        private final int participantsAdded;
+
+        public PhaseReport(TestSupportClientKonstanten.TEST_PHASE testPhase, long durationMillis, long parsedXmlFiles, long parsedXmlBytes, int testCrefos, int participantsAdded) {
+            this.testPhase = testPhase;
+            this.durationMillis = durationMillis;
+            this.parsedXmlFiles = parsedXmlFiles;
+            this.parsedXmlBytes = parsedXmlBytes;
+            this.testCrefos = testCrefos;
+            this.participantsAdded = participantsAdded;
+        }
+
+        public TestSupportClientKonstanten.TEST_PHASE getTestPhase() {
+            return testPhase;
+        }
+
+        public long getDurationMillis() {
+            return durationMillis;
+        }
+
+        public long getParsedXmlFiles() {
+            return parsedXmlFiles;
+        }
+
+        public long getParsedXmlBytes() {
+            return parsedXmlBytes;
+        }
+
+        public int getTestCrefos() {
+            return testCrefos;
+        }
+
+        public int getParticipantsAdded() {
+            return participantsAdded;
+        }
+
+        @Override
+        public String toString() {
+            double seconds = Math.max(durationMillis, 1) / 1000.0;
+            return String.format("%s: %d ms, %d XMLs geparst (%.1f/s), %.2f MB (%.2f MB/s), %d Test-Crefos, %d Beteiligte hinzugefügt",
+                    testPhase.getDirName(), durationMillis, parsedXmlFiles, parsedXmlFiles / seconds,
+                    parsedXmlBytes / (1024.0 * 1024.0), parsedXmlBytes / (1024.0 * 1024.0) / seconds, testCrefos, participantsAdded);
+        }
     }
 
 }
\ No newline at end of file
@@ -1,51 +1,161 @@
 package de.cavdar.itsq;
 
 import de.cavdar.gui.util.TimelineLogger;
-import org.apache.commons.io.FileUtils;
 
 import java.io.File;
 import java.io.IOException;
+import java.nio.charset.Charset;
 import java.util.*;
-import java.util.stream.Collectors;
+import java.util.function.Consumer;
 
 public class TestScenario {
 
     private boolean activated = true;
     private TestCustomer testCustomer;
     private String scenarioName;
-    private File itsqRefExportsFile;
-    private File itsqRefExportsPropsFile;
-
-    private final Map<String, TestCrefo> testFallNameToTestCrefoMap = new TreeMap<>();
+    // die Pfad-Tabelle des Kunden
+    private ItsqPathTable pathTable;
+    // Ids in der pathTable
+    private int itsqRefExportsFileId = ItsqPathTable.NO_PATH;
+    private int itsqRefExportsPropsFileId = ItsqPathTable.NO_PATH;
+
+    // meldet jede Änderung dem Kunden und setzt die Rückreferenz der eingetragenen Test-Crefos
+    private final Map<String, TestCrefo> testFallNameToTestCrefoMap = new ChangeNotifyingMap<>(new TreeMap<>(),
+            testCrefo -> testCrefo.setTestScenario(this), this::testCrefosChanged);
+    // im Lazy-Modus false, bis die Test-Crefos beim ersten Zugriff geladen wurden
+    private volatile boolean materialized = true;
+    private List<File> pendingRefExportXmlsList;
+    // erhält die Probleme einzelner Zeilen der Properties-Datei; null = nur ins Log
+    private Consumer<String> errorSink;
 
     public TestScenario(TestCustomer testCustomer, String scenarioName) {
         this(testCustomer, scenarioName, new ArrayList<>());
     }
 
     public TestScenario(TestCustomer testCustomer, String scenarioName, List<File> refExportXmlsList) {
+        this(testCustomer, scenarioName, refExportXmlsList, null);
+    }
+
+    /**
+     * Wie {@link #TestScenario(TestCustomer, String, List)}, die Probleme einzelner Zeilen der Properties-Datei
+     * (fehlerhafte Zeilen, fehlende oder unerwartete REF-EXPORT-XMLs) gehen an errorSink statt ins Log.
+     */
+    public TestScenario(TestCustomer testCustomer, String scenarioName, List<File> refExportXmlsList, Consumer<String> errorSink) {
+        this(testCustomer, scenarioName, refExportXmlsList, false, errorSink);
+    }
+
+    /**
+     * Legt das Szenario im Lazy-Modus an: Name und Properties-Datei stehen sofort fest (und werden wie sonst geprüft),
+     * die Test-Crefos und ihre REF-EXPORT-XMLs werden erst beim ersten Zugriff auf {@link #getTestFallNameToTestCrefoMap()}
+     * geladen - genau einmal, auch bei gleichzeitigen Zugriffen aus mehreren Threads.
+     */
+    public static TestScenario createLazy(TestCustomer testCustomer, String scenarioName, List<File> refExportXmlsList) {
+        return createLazy(testCustomer, scenarioName, refExportXmlsList, null);
+    }
+
+    /**
+     * Wie {@link #createLazy(TestCustomer, String, List)} mit errorSink für die Zeilen-Probleme, die hier erst
+     * beim ersten Zugriff auf die Test-Crefos gemeldet werden.
+     */
+    public static TestScenario createLazy(TestCustomer testCustomer, String scenarioName, List<File> refExportXmlsList, Consumer<String> errorSink) {
+        return new TestScenario(testCustomer, scenarioName, refExportXmlsList, true, errorSink);
+    }
+
+    private TestScenario(TestCustomer testCustomer, String scenarioName, List<File> refExportXmlsList, boolean lazy, Consumer<String> errorSink) {
         this.testCustomer = testCustomer;
-        this.scenarioName = scenarioName;
+        this.pathTable = testCustomer.getPathTable();
+        this.scenarioName = pathTable.intern(scenarioName);
+        this.errorSink = errorSink;
         File srcFile = new File(testCustomer.getItsqRefExportsDir(), scenarioName);
-        File[] files = srcFile.listFiles(pathname -> pathname.getName().endsWith(".properties"));
-        if (files == null) {
+        // ein Durchlauf durch das Szenario-Verzeichnis liefert die Properties-Datei und alle (auch verschachtelten) XMLs,
+        // im Lazy-Modus wird hier nur die oberste Ebene gelistet
+        List<File> propsFiles = new ArrayList<>(1);
+        List<File> allXmlFiles = lazy ? null : new ArrayList<>();
+        if (!listScenarioDir(srcFile, propsFiles, allXmlFiles, true)) {
             throw new RuntimeException(String.format("Das Test-Scenario '%s' für den Kunden '%s' enthält keine Properties-Dateien!\nDer Pfad ist '%s'!", scenarioName, testCustomer.getCustomerName(), srcFile.getAbsolutePath()));
         }
-        if (files.length != 1) {
-            throw new RuntimeException(String.format("Das Test-Scenario '%s' für den Kunden '%s' enthält %d Properties-Dateien\nErlaubt ist genau eine Properties-Datei!", scenarioName, testCustomer.getCustomerName(), files.length));
+        if (propsFiles.size() != 1) {
+            throw new RuntimeException(String.format("Das Test-Scenario '%s' für den Kunden '%s' enthält %d Properties-Dateien\nErlaubt ist genau eine Properties-Datei!", scenarioName, testCustomer.getCustomerName(), propsFiles.size()));
         }
 
-        itsqRefExportsFile = new File(testCustomer.getItsqRefExportsDir(), scenarioName);
-        itsqRefExportsPropsFile = new File(itsqRefExportsFile, files[0].getName());
-        initItsqRefExportsData(refExportXmlsList);
-        extendTestCrefos(itsqRefExportsFile, itsqRefExportsPropsFile, new TestCrefoExtender() {
+        setItsqRefExportsFile(srcFile);
+        setItsqRefExportsPropsFile(new File(srcFile, propsFiles.get(0).getName()));
+        if (lazy) {
+            pendingRefExportXmlsList = refExportXmlsList;
+            materialized = false;
+        } else {
+            initItsqRefExportsData(refExportXmlsList, allXmlFiles, createRefExportXmlExtender());
+            this.errorSink = null;
+        }
+    }
+
+    private TestCrefoExtender createRefExportXmlExtender() {
+        return new TestCrefoExtender() {
             @Override
             void fillExtraData(TestCrefo testCrefo, Long itsqCrefoNr, File xmlFile) {
                 testCrefo.setItsqRexExportXmlFile(xmlFile);
             }
-        });
+        };
+    }
+
+    /**
+     * Ob die Test-Crefos geladen sind (immer, außer bei {@link #createLazy} vor dem ersten Zugriff).
+     */
+    public boolean isMaterialized() {
+        return materialized;
+    }
+
+    private void materialize() {
+        synchronized (testFallNameToTestCrefoMap) {
+            if (materialized) {
+                return;
+            }
+            List<File> allXmlFiles = new ArrayList<>();
+            listScenarioDir(getItsqRefExportsFile(), new ArrayList<>(1), allXmlFiles, true);
+            initItsqRefExportsData(pendingRefExportXmlsList, allXmlFiles, createRefExportXmlExtender());
+            pendingRefExportXmlsList = null;
+            errorSink = null;
+            materialized = true;
+        }
+    }
+
+    /**
+     * Szenario ohne Laden der Properties-Datei, die Test-Crefos werden vom Aufrufer eingetragen (siehe ITSQModelSnapshot).
+     * Das Aktiv-Flag wird direkt gesetzt, ohne den Kunden zu benachrichtigen.
+     */
+    TestScenario(TestCustomer testCustomer, String scenarioName, File itsqRefExportsFile, File itsqRefExportsPropsFile, boolean activated) {
+        this.testCustomer = testCustomer;
+        this.pathTable = testCustomer.getPathTable();
+        this.scenarioName = pathTable.intern(scenarioName);
+        this.activated = activated;
+        setItsqRefExportsFile(itsqRefExportsFile);
+        setItsqRefExportsPropsFile(itsqRefExportsPropsFile);
+    }
+
+    /**
+     * Wie {@link #TestScenario(TestCustomer, String, File, File, boolean)}, aber ungeladen wie bei {@link #createLazy}:
+     * die Test-Crefos werden beim ersten Zugriff aus pendingRefExportXmlsList geladen (siehe ITSQModelSnapshot).
+     */
+    TestScenario(TestCustomer testCustomer, String scenarioName, File itsqRefExportsFile, File itsqRefExportsPropsFile, boolean activated,
+                 List<File> pendingRefExportXmlsList, Consumer<String> errorSink) {
+        this(testCustomer, scenarioName, itsqRefExportsFile, itsqRefExportsPropsFile, activated);
+        this.pendingRefExportXmlsList = pendingRefExportXmlsList;
+        this.errorSink = errorSink;
+        this.materialized = false;
+    }
+
+    /**
+     * Die REF-EXPORT-XMLs, mit denen ein noch nicht geladenes Szenario beim ersten Zugriff geladen wird,
+     * null wenn die Test-Crefos bereits geladen sind. Lädt das Szenario nicht.
+     */
+    List<File> getPendingRefExportXmlsList() {
+        synchronized (testFallNameToTestCrefoMap) {
+            return materialized ? null : new ArrayList<>(pendingRefExportXmlsList);
+        }
     }
 
     public TestScenario(TestScenario toBeCloned) {
+        this.pathTable = toBeCloned.pathTable;
         setActivated(toBeCloned.isActivated());
         setScenarioName(toBeCloned.getScenarioName());
         setTestCustomer(toBeCloned.getTestCustomer());
@@ -58,7 +168,8 @@ public class TestScenario {
 
     @Override
     public String toString() {
-        return scenarioName + " #" + testFallNameToTestCrefoMap.size();
+        // Ein Lazy-Szenario wird hier nicht geladen (toString wird z.B. beim Rendern des Baums aufgerufen)
+        return materialized ? scenarioName + " #" + testFallNameToTestCrefoMap.size() : scenarioName;
     }
 
     public TestCustomer getTestCustomer() {
@@ -66,7 +177,21 @@ public class TestScenario {
     }
 
     public void setTestCustomer(TestCustomer testCustomer) {
+        TestCustomer oldTestCustomer = this.testCustomer;
         this.testCustomer = testCustomer;
+        if (testCustomer != null && testCustomer.getPathTable() != pathTable) {
+            // die Ids gelten nur in der Tabelle, in der sie angelegt wurden; der Name kommt in den Pool der neuen Tabelle
+            File itsqRefExportsFile = getItsqRefExportsFile();
+            File itsqRefExportsPropsFile = getItsqRefExportsPropsFile();
+            pathTable = testCustomer.getPathTable();
+            scenarioName = pathTable.intern(scenarioName);
+            setItsqRefExportsFile(itsqRefExportsFile);
+            setItsqRefExportsPropsFile(itsqRefExportsPropsFile);
+        }
+        if (oldTestCustomer != null && oldTestCustomer != testCustomer) {
+            oldTestCustomer.invalidateTestCrefosCache();
+        }
+        testCrefosChanged();
     }
 
     public boolean isActivated() {
@@ -75,6 +200,21 @@ public class TestScenario {
 
     public void setActivated(boolean activated) {
         this.activated = activated;
+        testCrefosChanged();
+    }
+
+    ItsqPathTable getPathTable() {
+        return pathTable;
+    }
+
+    /**
+     * Von den eigenen Test-Crefos bei Änderung ihrer Aktiv- und Positiv-Flags aufgerufen.
+     */
+    void testCrefosChanged() {
+        TestCustomer theTestCustomer = testCustomer;
+        if (theTestCustomer != null) {
+            theTestCustomer.invalidateTestCrefosCache();
+        }
     }
 
     public String getCusomerKey() {
@@ -86,7 +226,7 @@ public class TestScenario {
     }
 
     public void setScenarioName(String scenarioName) {
-        this.scenarioName = scenarioName;
+        this.scenarioName = pathTable.intern(scenarioName);
     }
 
     public List<TestCrefo> getTestCrefosAsList() {
@@ -94,108 +234,147 @@ public class TestScenario {
     }
 
     public Map<String, TestCrefo> getTestFallNameToTestCrefoMap() {
+        if (!materialized) {
+            materialize();
+        }
         return testFallNameToTestCrefoMap;
     }
 
     /*******************     ItsqRefExports  *************************/
     public File getItsqRefExportsFile() {
-        return itsqRefExportsFile;
+        return pathTable.fileOf(itsqRefExportsFileId);
     }
 
     public void setItsqRefExportsFile(File itsqRefExportsFile) {
-        this.itsqRefExportsFile = itsqRefExportsFile;
+        this.itsqRefExportsFileId = pathTable.idOf(itsqRefExportsFile);
     }
 
     public File getItsqRefExportsPropsFile() {
-        return itsqRefExportsPropsFile;
+        return pathTable.fileOf(itsqRefExportsPropsFileId);
     }
 
     public void setItsqRefExportsPropsFile(File itsqRefExportsPropsFile) {
-        this.itsqRefExportsPropsFile = itsqRefExportsPropsFile;
+        this.itsqRefExportsPropsFileId = pathTable.idOf(itsqRefExportsPropsFile);
     }
 
     /*------------------     ItsqRefExports  ------------------------*/
 
-    private void extendTestCrefos(final File theFile, final File thePropsFile, TestCrefoExtender testCrefoExtender) {
-        if (!theFile.exists()) {
-            return;
+    /**
+     * Sammelt die Properties-Dateien direkt im Verzeichnis und rekursiv alle XMLs (ohne xmlFiles nur die Properties-Dateien),
+     * wobei jedes Verzeichnis nur einmal gelistet wird.
+     * Die Reihenfolge entspricht FileUtils.listFiles(dir, {"xml"}, true).
+     *
+     * @return false, wenn das Verzeichnis nicht gelistet werden kann
+     */
+    private static boolean listScenarioDir(File dir, List<File> propsFiles, List<File> xmlFiles, boolean topLevel) {
+        File[] files = ItsqFiles.listFiles(dir);
+        if (files == null) {
+            return false;
         }
-        try {
-            final Collection<File> allXmlFiles = FileUtils.listFiles(theFile, new String[]{"xml"}, true);
-            final List<String> propsFileContent = FileUtils.readLines(thePropsFile);
-            propsFileContent.forEach(line -> {
-                if (!line.isBlank() && !line.startsWith("#")) {
-                    String[] splitEqual = line.split("=");
-                    try {
-                        String testFallName = splitEqual[0];
-                        final String[] splitHash = splitEqual[1].trim().split("#");
-                        long crefoNr = Long.parseLong(splitHash[0].trim());
-                        TestCrefo testCrefo = testFallNameToTestCrefoMap.get(testFallName);
-                        if (testCrefo == null) {
-                            String errorStr = "TestCrefo mit dem Namen: " + testFallName + " konnte nicht in der Map gefunden werden!\n\t" + line;
-                            TimelineLogger.info(this.getClass(), errorStr);
-                        }
-                        if (testCrefo != null) {
-                            File xmlFile = findXmlFileForTestfallAndCrefo(allXmlFiles, testFallName, crefoNr);
-                            testCrefoExtender.fillExtraData(testCrefo, crefoNr, xmlFile);
-                        }
-                    } catch (Exception ex) {
-                        String errorStr = "Exception in der Zeile '" + line + "' der Datei '" + thePropsFile.getName() + "':\n" + ex.getMessage();
-                        TimelineLogger.info(this.getClass(), errorStr, ex);
-                    }
-                }
-            });
-        } catch (IOException ex) {
-            String errorStr = "Exception beim Lesen der Properties-Datei '" + thePropsFile.getAbsolutePath() + "'!\n" + ex.getMessage();
-            TimelineLogger.info(this.getClass(), errorStr, ex);
+        for (File file : files) {
+            String fileName = file.getName();
+            if (topLevel && fileName.endsWith(".properties")) {
+                propsFiles.add(file);
+            }
+            if (xmlFiles == null) {
+                continue;
+            }
+            if (ItsqFiles.isDirectory(file)) {
+                listScenarioDir(file, propsFiles, xmlFiles, false);
+            } else if (fileName.endsWith(".xml")) {
+                xmlFiles.add(file);
+            }
         }
+        return true;
     }
 
-    protected void initItsqRefExportsData(Collection<File> archivBestandXmlFilesList) {
+    /**
+     * Liest die Properties-Datei in einem Durchlauf: jede Zeile legt die TestCrefo an (REF-EXPORT-XML aus
+     * archivBestandXmlFilesList) und ergänzt sie danach um die REF-EXPORT-XML aus allXmlFiles.
+     */
+    private void initItsqRefExportsData(Collection<File> archivBestandXmlFilesList, Collection<File> allXmlFiles, TestCrefoExtender testCrefoExtender) {
+        final RefExportXmlIndex archivBestandXmlIndex = new RefExportXmlIndex(archivBestandXmlFilesList);
+        final RefExportXmlIndex allXmlIndex = new RefExportXmlIndex(allXmlFiles);
+        final File itsqRefExportsPropsFile = getItsqRefExportsPropsFile();
         try {
-            List<String> propsFileContent = FileUtils.readLines(itsqRefExportsPropsFile);
+            List<String> propsFileContent = ItsqFiles.readLines(itsqRefExportsPropsFile, Charset.defaultCharset());
             propsFileContent.forEach(line -> {
-                if (!line.isBlank() && !line.startsWith("#")) {
-                    String[] splitEqual = line.split("=");
-                    try {
-                        String testFallName = splitEqual[0].trim();
-                        boolean shouldBeExported = !testFallName.startsWith("n");
-                        final String[] splitHash = splitEqual[1].trim().split("#");
-                        long crefoNr = Long.parseLong(splitHash[0].trim());
-                        String testFallInfo = (splitHash.length > 1) ? splitHash[1] : "Norbert's faulheit!";
-                        File refExportFile = findXmlFileForCrefo(archivBestandXmlFilesList, crefoNr);
-                        if (!shouldBeExported && (refExportFile != null && refExportFile.exists())) {
-                            String errorStr = "Für die Test-Crefo '" + testFallName + "':" + crefoNr + " dürfte es KEINE RefExport-XML existieren!";
-                            TimelineLogger.info(this.getClass(), errorStr);
-                        } else if (shouldBeExported && (refExportFile == null || !refExportFile.exists())) {
-                            String errorStr = "Für die Test-Crefo '" + testFallName + "':" + crefoNr + " müsste es EINE RefExport-XML existieren!";
-                            TimelineLogger.info(this.getClass(), errorStr);
-                        }
-                        TestCrefo testCrefo = testFallNameToTestCrefoMap.get(testFallName);
-                        if (testCrefo == null) {
-                            testCrefo = new TestCrefo(testFallName, crefoNr, testFallInfo, shouldBeExported, refExportFile);
-                            testFallNameToTestCrefoMap.put(testFallName, testCrefo);
-                        }
-                    } catch (Exception ex) {
-                        String errorStr = "\n!!! Exception in der Zeile '" + line + "' der Datei '" + itsqRefExportsPropsFile.getName() + "':\n" + ex.getMessage();
-                        TimelineLogger.info(this.getClass(), errorStr);
-                    }
+                // eine fehlerhafte Zeile wird nur einmal gemeldet
+                if (!line.isBlank() && !line.startsWith("#") && initTestCrefo(line, archivBestandXmlIndex)) {
+                    extendTestCrefo(line, allXmlIndex, testCrefoExtender);
                 }
             });
         } catch (IOException ex) {
+            if (errorSink != null) {
+                errorSink.accept("Exception beim Lesen der Properties-Datei '" + itsqRefExportsPropsFile.getAbsolutePath() + "': " + ex.getMessage());
+                return;
+            }
             String errorStr = "\n!!! Exception beim Lesen der Properties-Datei '" + itsqRefExportsPropsFile.getAbsolutePath() + "'!\n" + ex.getMessage();
             TimelineLogger.error(this.getClass(), errorStr);
         }
     }
 
-    private File findXmlFileForCrefo(Collection<File> allXmlFiles, long crefoNr) {
-        List<File> collect = allXmlFiles.stream().filter(theFile -> theFile.getName().contains(crefoNr + "")).collect(Collectors.toList());
-        return collect.isEmpty() ? null : collect.get(0);
+    /**
+     * Meldet das Problem einer Zeile der Properties-Datei an den errorSink oder, ohne errorSink, ins Log.
+     */
+    private void reportLineProblem(String message, Exception ex) {
+        if (errorSink != null) {
+            errorSink.accept(message);
+        } else if (ex != null) {
+            TimelineLogger.info(this.getClass(), message, ex);
+        } else {
+            TimelineLogger.info(this.getClass(), message);
+        }
+    }
+
+    private boolean initTestCrefo(String line, RefExportXmlIndex refExportXmlIndex) {
+        String[] splitEqual = line.split("=");
+        try {
+            String testFallName = splitEqual[0].trim();
+            boolean shouldBeExported = !testFallName.startsWith("n");
+            final String[] splitHash = splitEqual[1].trim().split("#");
+            long crefoNr = Long.parseLong(splitHash[0].trim());
+            String testFallInfo = (splitHash.length > 1) ? splitHash[1] : "Norbert's faulheit!";
+            File refExportFile = refExportXmlIndex.findXmlFileForCrefo(crefoNr);
+            if (!shouldBeExported && (refExportFile != null && ItsqFiles.exists(refExportFile))) {
+                String errorStr = "Für die Test-Crefo '" + testFallName + "':" + crefoNr + " dürfte es KEINE RefExport-XML existieren!";
+                reportLineProblem(errorStr, null);
+            } else if (shouldBeExported && (refExportFile == null || !ItsqFiles.exists(refExportFile))) {
+                String errorStr = "Für die Test-Crefo '" + testFallName + "':" + crefoNr + " müsste es EINE RefExport-XML existieren!";
+                reportLineProblem(errorStr, null);
+            }
+            TestCrefo testCrefo = testFallNameToTestCrefoMap.get(testFallName);
+            if (testCrefo == null) {
+                testCrefo = new TestCrefo(testFallName, crefoNr, testFallInfo, shouldBeExported, pathTable, refExportFile);
+                testFallNameToTestCrefoMap.put(testFallName, testCrefo);
+            }
+            return true;
+        } catch (Exception ex) {
+            String errorStr = "Exception in der Zeile '" + line + "' der Datei '" + getItsqRefExportsPropsFile().getName() + "': " + ex.getMessage();
+            reportLineProblem(errorStr, null);
+            return false;
+        }
     }
 
-    private File findXmlFileForTestfallAndCrefo(Collection<File> allXmlFiles, String testFallName, long crefoNr) {
-        List<File> collect = allXmlFiles.stream().filter(theFile -> theFile.getName().contains(testFallName) && theFile.getName().contains(crefoNr + "")).collect(Collectors.toList());
-        return collect.isEmpty() ? null : collect.get(0);
+    private void extendTestCrefo(String line, RefExportXmlIndex refExportXmlIndex, TestCrefoExtender testCrefoExtender) {
+        String[] splitEqual = line.split("=");
+        try {
+            String testFallName = splitEqual[0];
+            final String[] splitHash = splitEqual[1].trim().split("#");
+            long crefoNr = Long.parseLong(splitHash[0].trim());
+            TestCrefo testCrefo = testFallNameToTestCrefoMap.get(testFallName);
+            if (testCrefo == null) {
+                String errorStr = "TestCrefo mit dem Namen: " + testFallName + " konnte nicht in der Map gefunden werden: " + line;
+                reportLineProblem(errorStr, null);
+            }
+            if (testCrefo != null) {
+                File xmlFile = refExportXmlIndex.findXmlFileForTestfallAndCrefo(testFallName, crefoNr);
+                testCrefoExtender.fillExtraData(testCrefo, crefoNr, xmlFile);
+            }
+        } catch (Exception ex) {
+            String errorStr = "Exception in der Zeile '" + line + "' der Datei '" + getItsqRefExportsPropsFile().getName() + "': " + ex.getMessage();
+            reportLineProblem(errorStr, ex);
+        }
     }
 
     public StringBuilder dump(String prefix) {
@@ -203,7 +382,7 @@ public class TestScenario {
         stringBuilder.append(prefix + "\tScenario: " + scenarioName);
         stringBuilder.append(prefix + "\t\tTest-Crefos");
         stringBuilder.append(prefix + "\t\t\ttestFallName\titsqTestCrefoNr\tpseudoCrefoNr\titsqPhase2XmlFile\titsqRexExportXmlFile\tpseudoRefExportXmlFile\tcollectedXmlFile\trestoredXmlFile");
-        testFallNameToTestCrefoMap.entrySet().forEach(testCrefoEntry -> {
+        getTestFallNameToTestCrefoMap().entrySet().forEach(testCrefoEntry -> {
             TestCrefo testCrefo = testCrefoEntry.getValue();
             stringBuilder.append(testCrefo.dump(prefix + "\t\t\t"));
         });
@@ -1,21 +1,49 @@
 package de.cavdar.itsq.migration.model;
 
+import de.cavdar.itsq.ItsqFiles;
+
 import java.io.File;
 
 /**
  * Konfiguration fuer die ITSQ-Migration von OLD nach NEW Struktur.
  */
 public class MigrationConfig {
+    public static final int DEFAULT_COPY_THREADS = 4;
+
+    /**
+     * Wie unveraenderte Quelldateien ins Ziel gelangen.
+     */
+    public enum TransferMode {
+        /** Bytekopie */
+        COPY,
+        /**
+         * Hardlink, wenn das nicht geht Symlink; liegt die Quelle auf einem anderen Dateisystem (oder in einem ZIP),
+         * wird die Datei kopiert. Achtung: ein Hardlink teilt den Inhalt (inode) mit der Quelle, wer eine Zieldatei
+         * an Ort und Stelle beschreibt, aendert also auch die OLD-Struktur. Die Werkzeuge dieser Anwendung ersetzen
+         * Dateien beim Speichern (ItsqFiles#writeAtomically) und loesen so den Link; externe Editoren tun das
+         * nicht unbedingt.
+         */
+        LINK
+    }
+
     private File sourceOldPath;
     private File targetNewPath;
     private boolean createBackup;
     private boolean overwriteExisting;
     private boolean dryRun;
+    private int copyThreads;
+    private TransferMode transferMode;
+    private boolean journalEnabled;
+    private boolean singleWalkAnalysis;
 
     public MigrationConfig() {
         this.createBackup = true;
         this.overwriteExisting = false;
         this.dryRun = false;
+        this.copyThreads = DEFAULT_COPY_THREADS;
+        this.transferMode = TransferMode.COPY;
+        this.journalEnabled = true;
+        this.singleWalkAnalysis = true;
     }
 
     public MigrationConfig(File sourceOldPath, File targetNewPath) {
@@ -64,6 +92,49 @@ public class MigrationConfig {
         this.dryRun = dryRun;
     }
 
+    public int getCopyThreads() {
+        return copyThreads;
+    }
+
+    /**
+     * Anzahl paralleler Kopier-Threads bei der Migration (1 = sequentiell).
+     */
+    public void setCopyThreads(int copyThreads) {
+        this.copyThreads = Math.max(1, copyThreads);
+    }
+
+    public TransferMode getTransferMode() {
+        return transferMode;
+    }
+
+    public void setTransferMode(TransferMode transferMode) {
+        this.transferMode = transferMode != null ? transferMode : TransferMode.COPY;
+    }
+
+    public boolean isJournalEnabled() {
+        return journalEnabled;
+    }
+
+    /**
+     * Ob kopierte Dateien im Migrations-Journal des Zielverzeichnisses vermerkt werden; eine erneute Migration
+     * uebertraegt dann nur neue und geaenderte Quellen (Voreinstellung).
+     */
+    public void setJournalEnabled(boolean journalEnabled) {
+        this.journalEnabled = journalEnabled;
+    }
+
+    public boolean isSingleWalkAnalysis() {
+        return singleWalkAnalysis;
+    }
+
+    /**
+     * Ob die OLD-Struktur in einem Durchlauf erfasst und die Kunden parallel gelesen werden (Voreinstellung);
+     * false liest Verzeichnis fuer Verzeichnis wie bisher.
+     */
+    public void setSingleWalkAnalysis(boolean singleWalkAnalysis) {
+        this.singleWalkAnalysis = singleWalkAnalysis;
+    }
+
     // OLD-Struktur Pfade
     public File getArchivBestandPh1Dir() {
         return new File(sourceOldPath, "ARCHIV-BESTAND-PH1");
@@ -103,7 +174,7 @@ public class MigrationConfig {
     }
 
     public boolean isValid() {
-        return sourceOldPath != null && sourceOldPath.exists() && sourceOldPath.isDirectory()
+        return sourceOldPath != null && ItsqFiles.isDirectory(sourceOldPath)
                 && targetNewPath != null;
     }
 
@@ -115,6 +186,10 @@ public class MigrationConfig {
                 ", createBackup=" + createBackup +
                 ", overwriteExisting=" + overwriteExisting +
                 ", dryRun=" + dryRun +
+                ", copyThreads=" + copyThreads +
+                ", transferMode=" + transferMode +
+                ", journalEnabled=" + journalEnabled +
+                ", singleWalkAnalysis=" + singleWalkAnalysis +
                 '}';
     }
 }
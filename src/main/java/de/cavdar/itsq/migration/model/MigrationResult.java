@@ -42,6 +42,7 @@ public class MigrationResult {
     private int filesCreated;
     private int filesCopied;
     private int filesSkipped;
+    private int filesLinked;
 
     // Verfolgung
     private final List<MigrationProblem> problems;
@@ -174,6 +175,18 @@ public class MigrationResult {
         this.filesSkipped++;
     }
 
+    public void addFilesCopied(int count) {
+        this.filesCopied += count;
+    }
+
+    public void addFilesSkipped(int count) {
+        this.filesSkipped += count;
+    }
+
+    public void addFilesLinked(int count) {
+        this.filesLinked += count;
+    }
+
     // Statistik-Getter
     public int getTotalCustomers() {
         return totalCustomers;
@@ -223,6 +236,13 @@ public class MigrationResult {
         return filesSkipped;
     }
 
+    /**
+     * Anzahl der als Hard- oder Symlink angelegten Dateien (in {@link #getFilesCopied()} enthalten).
+     */
+    public int getFilesLinked() {
+        return filesLinked;
+    }
+
     // Probleme und Warnungen
     public void addProblem(MigrationProblem problem) {
         this.problems.add(problem);
@@ -303,6 +323,9 @@ public class MigrationResult {
                 totalTestCases, testCasesPhase1, testCasesPhase2));
         sb.append(String.format("\nDateien: %d erstellt, %d kopiert, %d uebersprungen\n",
                 filesCreated, filesCopied, filesSkipped));
+        if (filesLinked > 0) {
+            sb.append(String.format("         davon %d verlinkt\n", filesLinked));
+        }
         if (!problems.isEmpty()) {
             sb.append(String.format("\nProbleme: %d\n", problems.size()));
         }
@@ -1,5 +1,6 @@
 package de.cavdar.itsq.migration.model;
 
+import de.cavdar.itsq.ItsqPathTable;
 import de.cavdar.itsq.TestSupportClientKonstanten.TEST_PHASE;
 
 import java.io.File;
@@ -51,28 +52,44 @@ public class TestCasePhaseAssignment {
     private final String testFallInfo;
     private final TestCaseType testCaseType;
 
-    // Phase 1 Zuordnung
+    // Pfade der OLD-Struktur, geteilt mit den übrigen Zuordnungen der Analyse
+    private final ItsqPathTable pathTable;
+
+    // Phase 1 Zuordnung (Dateien als Ids in der pathTable)
     private AssignmentStatus phase1Status;
     private String phase1StatusReason;
-    private File phase1ArchivXml;
-    private File phase1RefExportXml;
+    private int phase1ArchivXmlId = ItsqPathTable.NO_PATH;
+    private int phase1RefExportXmlId = ItsqPathTable.NO_PATH;
 
     // Phase 2 Zuordnung
     private AssignmentStatus phase2Status;
     private String phase2StatusReason;
-    private File phase2ArchivXml;
-    private File phase2RefExportXml;
+    private int phase2ArchivXmlId = ItsqPathTable.NO_PATH;
+    private int phase2RefExportXmlId = ItsqPathTable.NO_PATH;
 
     // Quelldateien aus OLD-Struktur
-    private File sourceRefExportXml;
+    private int sourceRefExportXmlId = ItsqPathTable.NO_PATH;
 
+    /**
+     * Einzelne Zuordnung mit eigener Pfad-Tabelle; für die Zuordnungen einer Analyse den Konstruktor mit der
+     * gemeinsamen Tabelle verwenden.
+     */
     public TestCasePhaseAssignment(String customerKey, String scenarioName, String testFallName,
                                    Long crefoNr, String testFallInfo) {
-        this.customerKey = customerKey;
-        this.scenarioName = scenarioName;
-        this.testFallName = testFallName;
+        this(customerKey, scenarioName, testFallName, crefoNr, testFallInfo, new ItsqPathTable(null));
+    }
+
+    /**
+     * Zuordnung, deren Dateien und Namen in der Pfad-Tabelle der Analyse abgelegt werden.
+     */
+    public TestCasePhaseAssignment(String customerKey, String scenarioName, String testFallName,
+                                   Long crefoNr, String testFallInfo, ItsqPathTable pathTable) {
+        this.pathTable = pathTable;
+        this.customerKey = pathTable.intern(customerKey);
+        this.scenarioName = pathTable.intern(scenarioName);
+        this.testFallName = pathTable.intern(testFallName);
         this.crefoNr = crefoNr;
-        this.testFallInfo = testFallInfo;
+        this.testFallInfo = pathTable.intern(testFallInfo);
         this.testCaseType = TestCaseType.fromTestFallName(testFallName);
         this.phase1Status = AssignmentStatus.INVALID;
         this.phase2Status = AssignmentStatus.INVALID;
@@ -124,19 +141,19 @@ public class TestCasePhaseAssignment {
     }
 
     public File getPhase1ArchivXml() {
-        return phase1ArchivXml;
+        return pathTable.fileOf(phase1ArchivXmlId);
     }
 
     public void setPhase1ArchivXml(File file) {
-        this.phase1ArchivXml = file;
+        this.phase1ArchivXmlId = pathTable.idOf(file);
     }
 
     public File getPhase1RefExportXml() {
-        return phase1RefExportXml;
+        return pathTable.fileOf(phase1RefExportXmlId);
     }
 
     public void setPhase1RefExportXml(File file) {
-        this.phase1RefExportXml = file;
+        this.phase1RefExportXmlId = pathTable.idOf(file);
     }
 
     public boolean isValidForPhase1() {
@@ -161,19 +178,19 @@ public class TestCasePhaseAssignment {
     }
 
     public File getPhase2ArchivXml() {
-        return phase2ArchivXml;
+        return pathTable.fileOf(phase2ArchivXmlId);
     }
 
     public void setPhase2ArchivXml(File file) {
-        this.phase2ArchivXml = file;
+        this.phase2ArchivXmlId = pathTable.idOf(file);
     }
 
     public File getPhase2RefExportXml() {
-        return phase2RefExportXml;
+        return pathTable.fileOf(phase2RefExportXmlId);
     }
 
     public void setPhase2RefExportXml(File file) {
-        this.phase2RefExportXml = file;
+        this.phase2RefExportXmlId = pathTable.idOf(file);
     }
 
     public boolean isValidForPhase2() {
@@ -182,11 +199,11 @@ public class TestCasePhaseAssignment {
 
     // Quelldateien
     public File getSourceRefExportXml() {
-        return sourceRefExportXml;
+        return pathTable.fileOf(sourceRefExportXmlId);
     }
 
     public void setSourceRefExportXml(File file) {
-        this.sourceRefExportXml = file;
+        this.sourceRefExportXmlId = pathTable.idOf(file);
     }
 
     // Hilfsmethoden
@@ -0,0 +1,488 @@
+package de.cavdar.itsq.migration.service;
+
+import de.cavdar.gui.util.TimelineLogger;
+import de.cavdar.itsq.ItsqFiles;
+import de.cavdar.itsq.migration.model.MigrationConfig;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.nio.file.FileStore;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.*;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Consumer;
+
+/**
+ * Kopiert die waehrend der Migration gesammelten Dateien.
+ * <p>
+ * Die Auftraege werden nach Zielverzeichnis gebuendelt (hoechstens {@link #FILES_PER_BATCH} je Buendel) und in
+ * einem Pool mit {@link MigrationConfig#getCopyThreads()} Threads kopiert, bei einem Thread der Reihe nach im
+ * aufrufenden Thread. Jede Zieldatei liegt in genau einem Buendel, mehrfach eingereihte Ziele werden dort wie
+ * beim sequentiellen Kopieren gezaehlt. Zaehler, Journal und Fortschritt werden nur im aufrufenden Thread
+ * fortgeschrieben, und zwar nach jedem fertigen Buendel in der Reihenfolge, in der die Buendel fertig werden.
+ * <p>
+ * Im Modus {@link MigrationConfig.TransferMode#LINK} wird statt einer Kopie ein Hardlink angelegt, ersatzweise ein
+ * Symlink. Liegt die Quelle auf einem anderen Dateisystem als das Zielverzeichnis (oder in einem ZIP), wird diese
+ * eine Datei kopiert. Ziel und Quelle teilen sich dann denselben Inhalt: wer eine Datei im Ziel an Ort und Stelle
+ * beschreibt, aendert auch die OLD-Struktur. Die Editoren und der {@link FileMigrator} ersetzen Dateien deshalb
+ * ueber {@link ItsqFiles#writeAtomically(File, byte[])}, was den Link loest.
+ * <p>
+ * Mit einem {@link MigrationJournal} werden Zieldateien, deren Quelle sich seit der letzten Uebertragung nicht
+ * geaendert hat, uebersprungen (auch wenn {@link MigrationConfig#isOverwriteExisting()} gesetzt ist), und
+ * Zieldateien aus dem Journal, deren Quelle sich geaendert hat, neu uebertragen. Eine Quelle mit neuer
+ * Aenderungszeit, aber gleichem SHA-256 gilt als unveraendert. Kopien werden ueber eine ".part"-Datei angelegt,
+ * eine vorhandene Zieldatei ist also immer vollstaendig.
+ */
+public class FileCopyPipeline {
+    static final int FILES_PER_BATCH = 64;
+
+    private final MigrationConfig config;
+    // Zielverzeichnis -> Zieldateiname -> Auftrag, jeweils in Reihenfolge des Einreihens
+    private final Map<File, Map<String, CopyJob>> jobsByTargetDir = new LinkedHashMap<>();
+    private int pendingCount;
+    private int copiedCount;
+    private int skippedCount;
+    private int linkedCount;
+    private int unchangedCount;
+    private MigrationJournal journal;
+
+    public FileCopyPipeline(MigrationConfig config) {
+        this.config = config;
+    }
+
+    /**
+     * Setzt das Journal des Zielverzeichnisses, null fuer Uebertragen ohne Journal.
+     */
+    public void setJournal(MigrationJournal journal) {
+        this.journal = journal;
+    }
+
+    /**
+     * Reiht das Kopieren von source nach target ein; source darf in einem eingehaengten ZIP liegen.
+     */
+    public void add(File source, File target) {
+        File targetDir = target.getAbsoluteFile().getParentFile();
+        Map<String, CopyJob> jobs = jobsByTargetDir.computeIfAbsent(targetDir, dir -> new LinkedHashMap<>());
+        CopyJob job = jobs.get(target.getName());
+        if (job != null) {
+            job.requests++;
+        } else {
+            jobs.put(target.getName(), new CopyJob(source, new File(targetDir, target.getName())));
+        }
+        pendingCount++;
+    }
+
+    /**
+     * Anzahl der eingereihten, noch nicht kopierten Auftraege.
+     */
+    public int getPendingCount() {
+        return pendingCount;
+    }
+
+    /**
+     * Anzahl der beim letzten {@link #run(Consumer)} kopierten Dateien.
+     */
+    public int getCopiedCount() {
+        return copiedCount;
+    }
+
+    /**
+     * Anzahl der beim letzten {@link #run(Consumer)} uebersprungenen, bereits vorhandenen Dateien.
+     */
+    public int getSkippedCount() {
+        return skippedCount;
+    }
+
+    /**
+     * Anzahl der beim letzten {@link #run(Consumer)} verlinkten statt kopierten Dateien (in
+     * {@link #getCopiedCount()} enthalten).
+     */
+    public int getLinkedCount() {
+        return linkedCount;
+    }
+
+    /**
+     * Anzahl der beim letzten {@link #run(Consumer)} laut Journal unveraenderten Dateien (in
+     * {@link #getSkippedCount()} enthalten).
+     */
+    public int getUnchangedCount() {
+        return unchangedCount;
+    }
+
+    /**
+     * Fuehrt alle eingereihten Auftraege aus und meldet nach jedem fertigen Buendel den Fortschritt. Bei Fehlern
+     * werden die uebrigen Buendel noch fertig kopiert und gezaehlt, danach wird der erste Fehler (in
+     * Buendel-Reihenfolge) geworfen.
+     *
+     * @param progressCallback erhaelt Fortschrittsmeldungen, darf null sein
+     */
+    public void run(Consumer<String> progressCallback) throws IOException {
+        long startMillis = System.currentTimeMillis();
+        List<List<CopyJob>> batches = createBatches();
+        int totalCount = pendingCount;
+        jobsByTargetDir.clear();
+        pendingCount = 0;
+        copiedCount = 0;
+        skippedCount = 0;
+        linkedCount = 0;
+        unchangedCount = 0;
+        if (batches.isEmpty()) {
+            return;
+        }
+        boolean journaled = journal != null;
+        if (journaled) {
+            for (List<CopyJob> batch : batches) {
+                for (CopyJob job : batch) {
+                    job.journalEntry = journal.get(job.target);
+                }
+            }
+        }
+
+        int threads = Math.min(config.getCopyThreads(), batches.size());
+        report(progressCallback, "Kopiere " + totalCount + " Dateien (" + threads + " Threads)...");
+        boolean overwrite = config.isOverwriteExisting();
+        boolean link = config.getTransferMode() == MigrationConfig.TransferMode.LINK;
+        Progress progress = new Progress(progressCallback, totalCount);
+        IOException firstFailure = null;
+        if (threads <= 1) {
+            for (List<CopyJob> batch : batches) {
+                BatchResult batchResult = copyBatch(batch, overwrite, link, journaled);
+                apply(batch, batchResult, progress);
+                if (firstFailure == null) {
+                    firstFailure = batchResult.failure;
+                }
+            }
+        } else {
+            ExecutorService copyExecutor = Executors.newFixedThreadPool(threads);
+            try {
+                CompletionService<BatchResult> completionService = new ExecutorCompletionService<>(copyExecutor);
+                for (int i = 0; i < batches.size(); i++) {
+                    List<CopyJob> batch = batches.get(i);
+                    int batchIndex = i;
+                    completionService.submit(() -> copyBatchCatching(batch, batchIndex, overwrite, link, journaled));
+                }
+                // Fehler je Buendel, damit der erste in Buendel-Reihenfolge geworfen wird
+                IOException[] failures = new IOException[batches.size()];
+                for (int i = 0; i < batches.size(); i++) {
+                    BatchResult batchResult;
+                    try {
+                        batchResult = completionService.take().get();
+                    } catch (ExecutionException ex) {
+                        // nur Errors kommen hier an, die uebrigen Buendel werden trotzdem fertig kopiert
+                        Throwable cause = ex.getCause() != null ? ex.getCause() : ex;
+                        if (firstFailure == null) {
+                            firstFailure = new IOException(cause.getMessage(), cause);
+                        }
+                        continue;
+                    }
+                    apply(batches.get(batchResult.batchIndex), batchResult, progress);
+                    failures[batchResult.batchIndex] = batchResult.failure;
+                }
+                for (IOException failure : failures) {
+                    if (failure != null) {
+                        firstFailure = failure;
+                        break;
+                    }
+                }
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException("Kopieren abgebrochen");
+            } finally {
+                copyExecutor.shutdownNow();
+            }
+        }
+        TimelineLogger.info(this.getClass(), "FileCopyPipeline#run(): " + copiedCount + " Dateien kopiert (" + linkedCount
+                + " verlinkt), " + skippedCount + " uebersprungen (" + unchangedCount + " unveraendert) mit " + threads + " Threads in " + (System.currentTimeMillis() - startMillis) + " ms.");
+        if (firstFailure != null) {
+            throw firstFailure;
+        }
+    }
+
+    private List<List<CopyJob>> createBatches() {
+        List<List<CopyJob>> batches = new ArrayList<>();
+        for (Map<String, CopyJob> jobs : jobsByTargetDir.values()) {
+            List<CopyJob> dirJobs = new ArrayList<>(jobs.values());
+            for (int from = 0; from < dirJobs.size(); from += FILES_PER_BATCH) {
+                batches.add(dirJobs.subList(from, Math.min(from + FILES_PER_BATCH, dirJobs.size())));
+            }
+        }
+        return batches;
+    }
+
+    private void apply(List<CopyJob> batch, BatchResult batchResult, Progress progress) throws IOException {
+        copiedCount += batchResult.copied;
+        skippedCount += batchResult.skipped;
+        linkedCount += batchResult.linked;
+        unchangedCount += batchResult.unchanged;
+        if (journal != null) {
+            for (CopyJob job : batch) {
+                if (job.newJournalEntry != null) {
+                    journal.record(job.target, job.newJournalEntry);
+                }
+            }
+            journal.flush();
+        }
+        progress.advance(batchResult.copied + batchResult.skipped);
+    }
+
+    /**
+     * Wie {@link #copyBatch}, auch ein unerwarteter Fehler landet im Ergebnis des Buendels.
+     */
+    private static BatchResult copyBatchCatching(List<CopyJob> batch, int batchIndex, boolean overwrite, boolean link, boolean journaled) {
+        BatchResult batchResult;
+        try {
+            batchResult = copyBatch(batch, overwrite, link, journaled);
+        } catch (RuntimeException ex) {
+            batchResult = new BatchResult();
+            batchResult.failure = new IOException(ex.getMessage(), ex);
+        }
+        batchResult.batchIndex = batchIndex;
+        return batchResult;
+    }
+
+    private static BatchResult copyBatch(List<CopyJob> batch, boolean overwrite, boolean link, boolean journaled) {
+        BatchResult batchResult = new BatchResult();
+        try {
+            Path targetDir = Files.createDirectories(batch.get(0).target.getParentFile().toPath());
+            // Quellverzeichnis -> ob es auf dem Dateisystem des Zielverzeichnisses liegt
+            Map<Path, Boolean> linkableSourceDirs = new HashMap<>();
+            FileStore targetStore = link ? Files.getFileStore(targetDir) : null;
+            for (CopyJob job : batch) {
+                Path targetPath = job.target.toPath();
+                Path sourcePath = ItsqFiles.toPath(job.source);
+                BasicFileAttributes targetAttrs = readAttributes(targetPath);
+                BasicFileAttributes sourceAttrs = journaled ? Files.readAttributes(sourcePath, BasicFileAttributes.class) : null;
+                if (targetAttrs != null && journaled && isUnchanged(job, sourcePath, sourceAttrs, targetPath, targetAttrs)) {
+                    batchResult.unchanged++;
+                    batchResult.skipped++;
+                } else if (targetAttrs != null && !overwrite && !(journaled && job.journalEntry != null && matches(job.journalEntry, targetAttrs))) {
+                    // vorhanden und nicht (unveraendert) aus dem Journal
+                    batchResult.skipped++;
+                } else {
+                    boolean linked = link && isLinkable(sourcePath, targetStore, linkableSourceDirs) && link(sourcePath, targetPath);
+                    byte[] hash = null;
+                    if (linked) {
+                        batchResult.linked++;
+                    } else if (journaled) {
+                        hash = copyAndHash(sourcePath, sourceAttrs, targetPath);
+                    } else {
+                        copy(sourcePath, targetPath);
+                    }
+                    batchResult.copied++;
+                    if (journaled) {
+                        job.newJournalEntry = new MigrationJournal.Entry(sourceAttrs.size(), sourceAttrs.lastModifiedTime().toMillis(), hash);
+                    }
+                }
+                // weitere Auftraege fuer dieses Ziel finden die Datei bereits vor
+                if (overwrite) {
+                    batchResult.copied += job.requests - 1;
+                } else {
+                    batchResult.skipped += job.requests - 1;
+                }
+            }
+        } catch (IOException ex) {
+            batchResult.failure = ex;
+        }
+        return batchResult;
+    }
+
+    /**
+     * Ob die vorhandene Zieldatei dem aktuellen Stand der Quelle entspricht; setzt bei Bedarf den neuen
+     * Journal-Eintrag.
+     */
+    private static boolean isUnchanged(CopyJob job, Path sourcePath, BasicFileAttributes sourceAttrs,
+                                       Path targetPath, BasicFileAttributes targetAttrs) throws IOException {
+        MigrationJournal.Entry entry = job.journalEntry;
+        Object sourceKey = sourceAttrs.fileKey();
+        if (sourceKey != null && sourceKey.equals(targetAttrs.fileKey())) {
+            // Hard- oder Symlink auf die Quelle
+            if (entry == null || !matches(entry, sourceAttrs)) {
+                job.newJournalEntry = new MigrationJournal.Entry(sourceAttrs.size(), sourceAttrs.lastModifiedTime().toMillis(), null);
+            }
+            return true;
+        }
+        if (entry == null) {
+            // ohne Eintrag (z.B. vor einem Abbruch kopiert, aber nicht mehr vermerkt) zaehlen Groesse und Zeit
+            if (sourceAttrs.size() == targetAttrs.size()
+                    && sourceAttrs.lastModifiedTime().toMillis() == targetAttrs.lastModifiedTime().toMillis()) {
+                job.newJournalEntry = new MigrationJournal.Entry(sourceAttrs.size(), sourceAttrs.lastModifiedTime().toMillis(), null);
+                return true;
+            }
+            return false;
+        }
+        if (!matches(entry, targetAttrs)) {
+            // Zieldatei wurde nach der Uebertragung geaendert
+            return false;
+        }
+        if (matches(entry, sourceAttrs)) {
+            return true;
+        }
+        if (entry.hash() != null && entry.size() == sourceAttrs.size() && Arrays.equals(entry.hash(), hash(sourcePath))) {
+            // nur die Aenderungszeit der Quelle ist neu
+            Files.setLastModifiedTime(targetPath, sourceAttrs.lastModifiedTime());
+            job.newJournalEntry = new MigrationJournal.Entry(sourceAttrs.size(), sourceAttrs.lastModifiedTime().toMillis(), entry.hash());
+            return true;
+        }
+        return false;
+    }
+
+    private static boolean matches(MigrationJournal.Entry entry, BasicFileAttributes attrs) {
+        return entry.size() == attrs.size() && entry.lastModified() == attrs.lastModifiedTime().toMillis();
+    }
+
+    private static BasicFileAttributes readAttributes(Path path) throws IOException {
+        try {
+            return Files.readAttributes(path, BasicFileAttributes.class);
+        } catch (NoSuchFileException ex) {
+            return null;
+        }
+    }
+
+    /**
+     * Kopiert ueber eine ".part"-Datei im Zielverzeichnis, die danach atomar umbenannt wird.
+     */
+    private static void copy(Path sourcePath, Path targetPath) throws IOException {
+        Path partPath = targetPath.resolveSibling(targetPath.getFileName() + ".part");
+        Files.copy(sourcePath, partPath, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.COPY_ATTRIBUTES);
+        ItsqFiles.moveAtomically(partPath, targetPath);
+    }
+
+    /**
+     * Wie {@link #copy(Path, Path)}, berechnet dabei den SHA-256 der kopierten Bytes, ohne die Quelle ein zweites Mal
+     * zu lesen. Die Aenderungszeit der Quelle wird uebernommen.
+     */
+    private static byte[] copyAndHash(Path sourcePath, BasicFileAttributes sourceAttrs, Path targetPath) throws IOException {
+        Path partPath = targetPath.resolveSibling(targetPath.getFileName() + ".part");
+        MessageDigest digest = newDigest();
+        try (InputStream in = new DigestInputStream(Files.newInputStream(sourcePath), digest)) {
+            Files.copy(in, partPath, StandardCopyOption.REPLACE_EXISTING);
+        }
+        Files.setLastModifiedTime(partPath, sourceAttrs.lastModifiedTime());
+        ItsqFiles.moveAtomically(partPath, targetPath);
+        return digest.digest();
+    }
+
+    private static byte[] hash(Path path) throws IOException {
+        MessageDigest digest = newDigest();
+        byte[] buffer = new byte[64 * 1024];
+        try (InputStream in = Files.newInputStream(path)) {
+            int read;
+            while ((read = in.read(buffer)) > 0) {
+                digest.update(buffer, 0, read);
+            }
+        }
+        return digest.digest();
+    }
+
+    private static MessageDigest newDigest() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException ex) {
+            throw new IllegalStateException(ex);
+        }
+    }
+
+    private static boolean isLinkable(Path sourcePath, FileStore targetStore, Map<Path, Boolean> linkableSourceDirs) throws IOException {
+        if (sourcePath.getFileSystem() != FileSystems.getDefault()) {
+            return false;
+        }
+        Path sourceDir = sourcePath.toAbsolutePath().getParent();
+        Boolean linkable = linkableSourceDirs.get(sourceDir);
+        if (linkable == null) {
+            linkable = Files.getFileStore(sourceDir).equals(targetStore);
+            linkableSourceDirs.put(sourceDir, linkable);
+        }
+        return linkable;
+    }
+
+    /**
+     * Legt target als Hardlink auf source an, ersatzweise als Symlink; false, wenn beides nicht moeglich ist.
+     * Der Link entsteht wie eine Kopie unter dem ".part"-Namen und ersetzt target erst danach, eine vorhandene
+     * Zieldatei bleibt also erhalten, wenn das Verlinken scheitert.
+     */
+    private static boolean link(Path sourcePath, Path targetPath) throws IOException {
+        Path partPath = targetPath.resolveSibling(targetPath.getFileName() + ".part");
+        Files.deleteIfExists(partPath);
+        boolean linked = false;
+        try {
+            Files.createLink(partPath, sourcePath);
+            linked = true;
+        } catch (IOException | UnsupportedOperationException ex) {
+            TimelineLogger.debug(FileCopyPipeline.class, "Hardlink '" + targetPath + "' nicht moeglich: " + ex.getMessage());
+        }
+        if (!linked) {
+            try {
+                Files.createSymbolicLink(partPath, sourcePath.toAbsolutePath());
+                linked = true;
+            } catch (IOException | UnsupportedOperationException ex) {
+                TimelineLogger.debug(FileCopyPipeline.class, "Symlink '" + targetPath + "' nicht moeglich: " + ex.getMessage());
+            }
+        }
+        if (linked) {
+            ItsqFiles.moveAtomically(partPath, targetPath);
+        }
+        return linked;
+    }
+
+    private static void report(Consumer<String> progressCallback, String message) {
+        if (progressCallback != null) {
+            progressCallback.accept(message);
+        }
+    }
+
+    private static final class CopyJob {
+        private final File source;
+        private final File target;
+        private int requests = 1;
+        // Journal-Eintrag vor und nach dem Lauf (letzterer nur, wenn er sich aendert)
+        private MigrationJournal.Entry journalEntry;
+        private MigrationJournal.Entry newJournalEntry;
+
+        private CopyJob(File source, File target) {
+            this.source = source;
+            this.target = target;
+        }
+    }
+
+    private static final class BatchResult {
+        private int batchIndex;
+        private int copied;
+        private int skipped;
+        private int linked;
+        private int unchanged;
+        private IOException failure;
+    }
+
+    /**
+     * Meldet den Fortschritt nach jedem fertigen Buendel.
+     */
+    private static final class Progress {
+        private final Consumer<String> progressCallback;
+        private final int totalCount;
+        private int doneCount;
+
+        private Progress(Consumer<String> progressCallback, int totalCount) {
+            this.progressCallback = progressCallback;
+            this.totalCount = totalCount;
+        }
+
+        private void advance(int count) {
+            doneCount += count;
+            report(progressCallback, doneCount + " von " + totalCount + " Dateien kopiert");
+        }
+    }
+}
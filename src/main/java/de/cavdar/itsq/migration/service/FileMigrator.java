@@ -1,5 +1,6 @@
 package de.cavdar.itsq.migration.service;
 
+import de.cavdar.itsq.ItsqFiles;
 import de.cavdar.itsq.TestSupportClientKonstanten.TEST_PHASE;
 import de.cavdar.itsq.migration.model.MigrationConfig;
 import de.cavdar.itsq.migration.model.MigrationProblem;
@@ -14,6 +15,11 @@ import java.util.function.Consumer;
 
 /**
  * Handhabt Dateikopierung und -generierung waehrend der Migration.
+ * <p>
+ * Generierte Dateien werden sofort geschrieben, zu kopierende Dateien in einer {@link FileCopyPipeline}
+ * gesammelt und am Ende von {@link #migrateFiles(Map)} gemeinsam kopiert. Mit
+ * {@link MigrationConfig#isJournalEnabled()} setzt eine erneute Migration mit Hilfe des {@link MigrationJournal}
+ * dort fort, wo die vorige aufgehoert hat, und uebertraegt nur neue und geaenderte Quellen.
  */
 public class FileMigrator {
 
@@ -22,6 +28,7 @@ public class FileMigrator {
     private final OldStructureAnalyzer analyzer;
     private final PhaseAssignmentCalculator calculator;
     private final NewStructureBuilder structureBuilder;
+    private final FileCopyPipeline copyPipeline;
     private Consumer<String> progressCallback;
 
     public FileMigrator(MigrationConfig config, MigrationResult result,
@@ -32,6 +39,7 @@ public class FileMigrator {
         this.analyzer = analyzer;
         this.calculator = calculator;
         this.structureBuilder = structureBuilder;
+        this.copyPipeline = new FileCopyPipeline(config);
     }
 
     public void setProgressCallback(Consumer<String> callback) {
@@ -65,6 +73,21 @@ public class FileMigrator {
                 migrateCustomerFiles(customerKey, phase);
             }
         }
+
+        // 4. Kopiere die gesammelten Dateien
+        MigrationJournal journal = config.isJournalEnabled() ? MigrationJournal.open(config.getTargetNewPath()) : null;
+        copyPipeline.setJournal(journal);
+        try {
+            copyPipeline.run(this::reportProgress);
+        } finally {
+            result.addFilesCopied(copyPipeline.getCopiedCount());
+            result.addFilesSkipped(copyPipeline.getSkippedCount());
+            result.addFilesLinked(copyPipeline.getLinkedCount());
+            if (journal != null) {
+                journal.close();
+                result.addInfo(copyPipeline.getUnchangedCount() + " Dateien laut Migrations-Journal unveraendert");
+            }
+        }
     }
 
     /**
@@ -82,7 +105,7 @@ public class FileMigrator {
                     ? analyzer.getArchivBestandXmlPhase1(crefo)
                     : analyzer.getArchivBestandXmlPhase2(crefo);
 
-            if (sourceXml != null && sourceXml.exists()) {
+            if (sourceXml != null && ItsqFiles.exists(sourceXml)) {
                 File targetXml = new File(targetDir, crefo + ".xml");
                 copyFile(sourceXml, targetXml);
             }
@@ -113,7 +136,7 @@ public class FileMigrator {
                 ? analyzer.getTestCrefosPropsPhase1()
                 : analyzer.getTestCrefosPropsPhase2();
 
-        if (sourceProps == null || !sourceProps.exists()) {
+        if (sourceProps == null || !ItsqFiles.exists(sourceProps)) {
             result.addWarning("TestCrefos.properties nicht gefunden fuer " + phase.getDirName());
             return;
         }
@@ -123,7 +146,7 @@ public class FileMigrator {
         File targetProps = new File(targetDir, "TestCrefos.properties");
 
         // Filtere und schreibe Properties
-        List<String> sourceLines = FileUtils.readLines(sourceProps, StandardCharsets.UTF_8);
+        List<String> sourceLines = ItsqFiles.readLines(sourceProps, StandardCharsets.UTF_8);
         List<String> targetLines = new ArrayList<>();
 
         for (String line : sourceLines) {
@@ -139,7 +162,7 @@ public class FileMigrator {
             }
         }
 
-        FileUtils.writeLines(targetProps, StandardCharsets.UTF_8.name(), targetLines);
+        ItsqFiles.writeLinesAtomically(targetProps, StandardCharsets.UTF_8, targetLines);
         result.incrementFilesCreated();
     }
 
@@ -180,7 +203,7 @@ public class FileMigrator {
      */
     private void copyOptionsCfg(String customerKey, TEST_PHASE phase) throws IOException {
         File sourceOptions = analyzer.getOptionsCfgFile(customerKey);
-        if (sourceOptions != null && sourceOptions.exists()) {
+        if (sourceOptions != null && ItsqFiles.exists(sourceOptions)) {
             File targetDir = structureBuilder.getCustomerTargetDir(customerKey, phase);
             File targetOptions = new File(targetDir, "Options.cfg");
             copyFile(sourceOptions, targetOptions);
@@ -228,7 +251,7 @@ public class FileMigrator {
             lines.add(line);
         }
 
-        FileUtils.writeLines(targetProps, StandardCharsets.UTF_8.name(), lines);
+        ItsqFiles.writeLinesAtomically(targetProps, StandardCharsets.UTF_8, lines);
         result.incrementFilesCreated();
     }
 
@@ -237,7 +260,7 @@ public class FileMigrator {
      */
     private void copyRefExportXml(TestCasePhaseAssignment assignment, File targetDir) throws IOException {
         File sourceXml = assignment.getSourceRefExportXml();
-        if (sourceXml != null && sourceXml.exists()) {
+        if (sourceXml != null && ItsqFiles.exists(sourceXml)) {
             File targetXml = new File(targetDir, sourceXml.getName());
             copyFile(sourceXml, targetXml);
         } else {
@@ -256,20 +279,10 @@ public class FileMigrator {
     }
 
     /**
-     * Kopiert eine Datei an den Zielort.
+     * Reiht das Kopieren einer Datei an den Zielort ein.
      */
-    private void copyFile(File source, File target) throws IOException {
-        if (target.exists()) {
-            if (config.isOverwriteExisting()) {
-                FileUtils.copyFile(source, target);
-                result.incrementFilesCopied();
-            } else {
-                result.incrementFilesSkipped();
-            }
-        } else {
-            FileUtils.copyFile(source, target);
-            result.incrementFilesCopied();
-        }
+    private void copyFile(File source, File target) {
+        copyPipeline.add(source, target);
     }
 
     /**
@@ -0,0 +1,150 @@
+package de.cavdar.itsq.migration.service;
+
+import de.cavdar.gui.util.TimelineLogger;
+import de.cavdar.itsq.ItsqFiles;
+
+import java.io.*;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Journal der in ein Zielverzeichnis uebertragenen Dateien (siehe {@link FileCopyPipeline}).
+ * <p>
+ * Zu jeder Zieldatei steht Groesse, Aenderungszeit und (bei Kopien) SHA-256 der Quelle, aus der sie zuletzt
+ * uebertragen wurde. Neue Eintraege werden nach jedem Buendel an {@link #JOURNAL_FILENAME} im Zielverzeichnis
+ * angehaengt; nach einem Abbruch sind damit alle bis dahin fertigen Dateien bekannt. Ein unvollstaendig
+ * geschriebener letzter Eintrag wird beim Oeffnen verworfen, {@link #close()} schreibt das Journal kompakt neu.
+ */
+public class MigrationJournal implements Closeable {
+    public static final String JOURNAL_FILENAME = ".itsq-migration.journal";
+    private static final int MAGIC = 0x49544D4A; // "ITMJ"
+    private static final int FORMAT_VERSION = 1;
+
+    private final File targetRoot;
+    private final File journalFile;
+    private final String rootPrefix;
+    // relativer Zielpfad -> Eintrag
+    private final Map<String, Entry> entries;
+    private DataOutputStream out;
+
+    private MigrationJournal(File targetRoot, Map<String, Entry> entries) {
+        this.targetRoot = targetRoot.getAbsoluteFile();
+        this.journalFile = new File(this.targetRoot, JOURNAL_FILENAME);
+        this.rootPrefix = this.targetRoot.getPath() + File.separator;
+        this.entries = entries;
+    }
+
+    /**
+     * Oeffnet das Journal des Zielverzeichnisses; fehlt es oder ist es nicht lesbar, beginnt ein leeres Journal.
+     */
+    public static MigrationJournal open(File targetRoot) throws IOException {
+        MigrationJournal journal = new MigrationJournal(targetRoot, new HashMap<>());
+        journal.readEntries();
+        // neu schreiben, damit ein abgeschnittener letzter Eintrag nicht vor den neuen steht
+        journal.compact();
+        journal.out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(journal.journalFile, true), 64 * 1024));
+        return journal;
+    }
+
+    public File getJournalFile() {
+        return journalFile;
+    }
+
+    public int size() {
+        return entries.size();
+    }
+
+    /**
+     * Der Eintrag zur Zieldatei oder null.
+     */
+    public Entry get(File target) {
+        return entries.get(relativePath(target));
+    }
+
+    /**
+     * Vermerkt eine fertig uebertragene Zieldatei; sichtbar fuer einen Neustart erst nach {@link #flush()}.
+     */
+    public void record(File target, Entry entry) throws IOException {
+        String relativePath = relativePath(target);
+        entries.put(relativePath, entry);
+        writeEntry(out, relativePath, entry);
+    }
+
+    public void flush() throws IOException {
+        out.flush();
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (out == null) {
+            return;
+        }
+        out.close();
+        out = null;
+        compact();
+    }
+
+    private String relativePath(File target) {
+        String path = target.getAbsolutePath();
+        if (!path.startsWith(rootPrefix)) {
+            throw new IllegalArgumentException("Datei liegt nicht unter " + targetRoot + ": " + path);
+        }
+        return path.substring(rootPrefix.length()).replace(File.separatorChar, '/');
+    }
+
+    private void readEntries() {
+        if (!journalFile.exists()) {
+            return;
+        }
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(journalFile), 64 * 1024))) {
+            if (in.readInt() != MAGIC || in.readInt() != FORMAT_VERSION || !in.readUTF().equals(targetRoot.getPath())) {
+                TimelineLogger.warn(this.getClass(), "Journal '" + journalFile.getAbsolutePath() + "' gehoert nicht zu diesem Verzeichnis und wird ersetzt.");
+                return;
+            }
+            while (true) {
+                String relativePath;
+                try {
+                    relativePath = in.readUTF();
+                } catch (EOFException ex) {
+                    return;
+                }
+                long size = in.readLong();
+                long lastModified = in.readLong();
+                byte[] hash = new byte[in.readUnsignedByte()];
+                in.readFully(hash);
+                entries.put(relativePath, new Entry(size, lastModified, hash.length > 0 ? hash : null));
+            }
+        } catch (IOException | RuntimeException ex) {
+            TimelineLogger.warn(this.getClass(), "Journal '" + journalFile.getAbsolutePath() + "' ab " + entries.size()
+                    + " Eintraegen nicht lesbar: " + ex.getMessage());
+        }
+    }
+
+    private void compact() throws IOException {
+        File tmpFile = new File(targetRoot, JOURNAL_FILENAME + ".tmp");
+        try (DataOutputStream tmpOut = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(tmpFile), 64 * 1024))) {
+            tmpOut.writeInt(MAGIC);
+            tmpOut.writeInt(FORMAT_VERSION);
+            tmpOut.writeUTF(targetRoot.getPath());
+            for (Map.Entry<String, Entry> entry : entries.entrySet()) {
+                writeEntry(tmpOut, entry.getKey(), entry.getValue());
+            }
+        }
+        ItsqFiles.moveAtomically(tmpFile.toPath(), journalFile.toPath());
+    }
+
+    private static void writeEntry(DataOutputStream out, String relativePath, Entry entry) throws IOException {
+        out.writeUTF(relativePath);
+        out.writeLong(entry.size());
+        out.writeLong(entry.lastModified());
+        byte[] hash = entry.hash() != null ? entry.hash() : new byte[0];
+        out.writeByte(hash.length);
+        out.write(hash);
+    }
+
+    /**
+     * Groesse und Aenderungszeit (ms) der Quelle bei der Uebertragung, hash ist null bei Links.
+     */
+    public record Entry(long size, long lastModified, byte[] hash) {
+    }
+}
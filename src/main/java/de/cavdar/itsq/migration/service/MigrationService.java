@@ -154,7 +154,8 @@ public class MigrationService {
                 }
             }
 
-            // Erstelle Backup falls angefordert
+            // Erstelle Backup falls angefordert, auch bei einer Wiederholung mit Journal: sie ueberschreibt
+            // im Ziel geaenderte Dateien und schreibt die Properties neu
             if (config.isCreateBackup() && config.getTargetNewPath().exists()) {
                 reportProgress("Erstelle Backup...");
                 structureBuilder = new NewStructureBuilder(config, result, calculator);
@@ -1,5 +1,6 @@
 package de.cavdar.itsq.migration.service;
 
+import de.cavdar.itsq.RefExportXmlIndex;
 import de.cavdar.itsq.TestSupportClientKonstanten.TEST_PHASE;
 import de.cavdar.itsq.migration.model.MigrationConfig;
 import de.cavdar.itsq.migration.model.MigrationResult;
@@ -223,10 +224,11 @@ public class MigrationValidator {
             }
 
             // Pruefe XML-Dateien fuer positive Testfaelle
+            RefExportXmlIndex refExportXmlIndex = RefExportXmlIndex.forDirectory(scenarioDir, false);
             for (TestCasePhaseAssignment assignment : assignments) {
                 if (assignment.shouldBeExported()) {
                     // Pruefe ob mindestens eine XML mit dem Testfall-Namen und Crefo existiert
-                    boolean found = hasMatchingXml(scenarioDir, assignment.getTestFallName(), assignment.getCrefoNr());
+                    boolean found = refExportXmlIndex.hasMatchingXml(assignment.getTestFallName(), assignment.getCrefoNr());
                     if (!found) {
                         errors.add("REF-EXPORT XML fehlt: " + assignment.getTestFallName() +
                                 " (Crefo: " + assignment.getCrefoNr() + ") in " +
@@ -276,15 +278,6 @@ public class MigrationValidator {
         return errors;
     }
 
-    /**
-     * Prueft ob eine passende XML-Datei fuer einen Testfall existiert.
-     */
-    private boolean hasMatchingXml(File scenarioDir, String testFallName, Long crefoNr) {
-        File[] xmlFiles = scenarioDir.listFiles((dir, name) ->
-                name.endsWith(".xml") && name.contains(testFallName) && name.contains(crefoNr.toString()));
-        return xmlFiles != null && xmlFiles.length > 0;
-    }
-
     /**
      * Generiert einen Validierungsbericht.
      */
@@ -1,17 +1,34 @@
 package de.cavdar.itsq.migration.service;
 
+import de.cavdar.gui.util.TimelineLogger;
+import de.cavdar.itsq.ItsqFiles;
+import de.cavdar.itsq.ItsqPathTable;
+import de.cavdar.itsq.ItsqZipTestSet;
 import de.cavdar.itsq.migration.model.MigrationConfig;
 import de.cavdar.itsq.migration.model.TestCasePhaseAssignment;
-import org.apache.commons.io.FileUtils;
-
 import java.io.File;
 import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.nio.file.attribute.BasicFileAttributes;
 import java.util.*;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.Function;
 import java.util.regex.Pattern;
 
 /**
  * Analysiert die OLD ITSQ-Struktur und extrahiert alle relevanten Informationen
  * fuer die Migration zur NEW-Struktur.
+ * <p>
+ * Mit {@link MigrationConfig#isSingleWalkAnalysis()} wird die OLD-Struktur in einem Durchlauf mit
+ * Files.walkFileTree erfasst (Dateinamen und -typen kommen aus dem Durchlauf, ohne weitere exists()- oder
+ * listFiles()-Aufrufe), danach werden die Relevanz.properties der Kunden parallel gelesen und in
+ * Kunden-Reihenfolge zusammengefuehrt.
  */
 public class OldStructureAnalyzer {
 
@@ -26,6 +43,13 @@ public class OldStructureAnalyzer {
     private Map<String, Map<String, List<TestCasePhaseAssignment>>> customerScenarioAssignments;
     private List<String> customerKeys;
     private Map<String, File> optionsCfgFiles;
+    private int parallelism = Runtime.getRuntime().availableProcessors();
+    // nur nach einem Durchlauf mit walkFileTree gesetzt
+    private boolean walked;
+    private File testCrefosPropsPhase1;
+    private File testCrefosPropsPhase2;
+    // Pfade der Zuordnungen, relativ zur OLD-Struktur; jede Analyse beginnt eine neue Tabelle
+    private volatile ItsqPathTable pathTable;
 
     public OldStructureAnalyzer(MigrationConfig config) {
         this.config = config;
@@ -36,10 +60,27 @@ public class OldStructureAnalyzer {
         this.optionsCfgFiles = new TreeMap<>();
     }
 
+    public int getParallelism() {
+        return parallelism;
+    }
+
+    /**
+     * Anzahl der Threads zum Lesen der Kunden im Single-Walk-Modus (1 = sequentiell).
+     */
+    public void setParallelism(int parallelism) {
+        this.parallelism = Math.max(1, parallelism);
+    }
+
     /**
      * Analysiert die OLD-Struktur und befuellt alle Sammlungen.
      */
     public void analyze() throws IOException {
+        pathTable = new ItsqPathTable(config.getSourceOldPath());
+        if (config.isSingleWalkAnalysis()) {
+            analyzeSingleWalk();
+            return;
+        }
+
         // Schritt 1: Sammle alle Crefos aus ARCHIV-BESTAND Verzeichnissen
         phase1Crefos = scanArchivBestandCrefos(config.getArchivBestandPh1Dir());
         phase2Crefos = scanArchivBestandCrefos(config.getArchivBestandPh2Dir());
@@ -53,11 +94,11 @@ public class OldStructureAnalyzer {
      */
     private Set<Long> scanArchivBestandCrefos(File archivDir) {
         Set<Long> crefos = new TreeSet<>();
-        if (archivDir == null || !archivDir.exists() || !archivDir.isDirectory()) {
+        if (archivDir == null || !ItsqFiles.isDirectory(archivDir)) {
             return crefos;
         }
 
-        File[] xmlFiles = archivDir.listFiles((dir, name) -> CRF_XML_PATTERN.matcher(name).matches());
+        File[] xmlFiles = ItsqFiles.listFiles(archivDir, file -> CRF_XML_PATTERN.matcher(file.getName()).matches());
         if (xmlFiles != null) {
             for (File xmlFile : xmlFiles) {
                 String name = xmlFile.getName();
@@ -77,12 +118,12 @@ public class OldStructureAnalyzer {
      */
     private void scanRefExports() throws IOException {
         File refExportsDir = config.getRefExportsDir();
-        if (refExportsDir == null || !refExportsDir.exists() || !refExportsDir.isDirectory()) {
+        if (refExportsDir == null || !ItsqFiles.isDirectory(refExportsDir)) {
             return;
         }
 
-        File[] customerDirs = refExportsDir.listFiles(file ->
-                file.isDirectory() && CUSTOMER_PATTERN.matcher(file.getName()).matches());
+        File[] customerDirs = ItsqFiles.listFiles(refExportsDir, file ->
+                ItsqFiles.isDirectory(file) && CUSTOMER_PATTERN.matcher(file.getName()).matches());
 
         if (customerDirs != null) {
             Arrays.sort(customerDirs, Comparator.comparing(File::getName));
@@ -100,13 +141,13 @@ public class OldStructureAnalyzer {
     private void scanCustomerDir(File customerDir, String customerKey) throws IOException {
         // Pruefe auf Options.cfg
         File optionsCfg = new File(customerDir, "Options.cfg");
-        if (optionsCfg.exists()) {
+        if (ItsqFiles.exists(optionsCfg)) {
             optionsCfgFiles.put(customerKey, optionsCfg);
         }
 
         // Scanne Szenarien (Relevanz_* Verzeichnisse)
-        File[] scenarioDirs = customerDir.listFiles(file ->
-                file.isDirectory() && file.getName().startsWith("Relevanz_"));
+        File[] scenarioDirs = ItsqFiles.listFiles(customerDir, file ->
+                ItsqFiles.isDirectory(file) && file.getName().startsWith("Relevanz_"));
 
         if (scenarioDirs != null) {
             Map<String, List<TestCasePhaseAssignment>> scenarioAssignments = new TreeMap<>();
@@ -123,33 +164,198 @@ public class OldStructureAnalyzer {
         }
     }
 
+    /**
+     * Erfasst die OLD-Struktur in einem Durchlauf und liest die Kunden parallel.
+     */
+    private void analyzeSingleWalk() throws IOException {
+        long startMillis = System.currentTimeMillis();
+        File sourceRoot = config.getSourceOldPath();
+        walked = true;
+        if (sourceRoot == null || !ItsqFiles.isDirectory(sourceRoot)) {
+            return;
+        }
+        List<ScannedCustomer> customers = walkSourceTree(sourceRoot);
+        customers.sort(Comparator.comparing(customer -> customer.customerKey));
+
+        List<Callable<Map<String, List<TestCasePhaseAssignment>>>> parseTasks = new ArrayList<>();
+        for (ScannedCustomer customer : customers) {
+            parseTasks.add(() -> parseCustomer(customer));
+        }
+        List<Map<String, List<TestCasePhaseAssignment>>> parsedCustomers = new ArrayList<>();
+        int threads = Math.min(parallelism, parseTasks.size());
+        if (threads <= 1) {
+            for (ScannedCustomer customer : customers) {
+                parsedCustomers.add(parseCustomer(customer));
+            }
+        } else {
+            ExecutorService parseExecutor = Executors.newFixedThreadPool(threads);
+            try {
+                for (Future<Map<String, List<TestCasePhaseAssignment>>> parseResult : parseExecutor.invokeAll(parseTasks)) {
+                    try {
+                        parsedCustomers.add(parseResult.get());
+                    } catch (ExecutionException ex) {
+                        Throwable cause = ex.getCause() != null ? ex.getCause() : ex;
+                        if (cause instanceof IOException ioException) {
+                            throw ioException;
+                        }
+                        throw new IOException(cause.getMessage(), cause);
+                    }
+                }
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException("Analyse abgebrochen");
+            } finally {
+                parseExecutor.shutdownNow();
+            }
+        }
+
+        // in Kunden-Reihenfolge zusammenfuehren
+        for (int i = 0; i < customers.size(); i++) {
+            ScannedCustomer customer = customers.get(i);
+            customerKeys.add(customer.customerKey);
+            if (customer.optionsCfg != null) {
+                optionsCfgFiles.put(customer.customerKey, customer.optionsCfg);
+            }
+            if (!parsedCustomers.get(i).isEmpty()) {
+                customerScenarioAssignments.put(customer.customerKey, parsedCustomers.get(i));
+            }
+        }
+        TimelineLogger.info(this.getClass(), "OldStructureAnalyzer#analyzeSingleWalk(): " + customers.size() + " Kunden mit "
+                + threads + " Threads in " + (System.currentTimeMillis() - startMillis) + " ms.");
+    }
+
+    /**
+     * Durchlaeuft ARCHIV-BESTAND-PH1/-PH2 und REF-EXPORTS/{kunde}/Relevanz_* und sammelt Crefos, Options.cfg,
+     * Relevanz.properties und XML-Dateien; andere Verzeichnisse werden nicht betreten.
+     */
+    private List<ScannedCustomer> walkSourceTree(File sourceRoot) throws IOException {
+        ItsqZipTestSet zipTestSet = ItsqZipTestSet.forFile(sourceRoot);
+        Function<Path, File> toFile = zipTestSet != null ? zipTestSet::toFile : Path::toFile;
+        String archivPh1Name = config.getArchivBestandPh1Dir().getName();
+        String archivPh2Name = config.getArchivBestandPh2Dir().getName();
+        String refExportsName = config.getRefExportsDir().getName();
+        List<ScannedCustomer> customers = new ArrayList<>();
+
+        Files.walkFileTree(ItsqFiles.toPath(sourceRoot), EnumSet.of(FileVisitOption.FOLLOW_LINKS), Integer.MAX_VALUE,
+                new SimpleFileVisitor<>() {
+                    // Tiefe des aktuellen Verzeichnisses (0 = OLD-Wurzel) und der Bereich darin
+                    private int depth = -1;
+                    private String area;
+                    private ScannedCustomer customer;
+                    private ScannedScenario scenario;
+
+                    @Override
+                    public FileVisitResult preVisitDirectory(Path dir, BasicFileAttributes attrs) {
+                        int level = depth + 1;
+                        String name = level == 0 ? "" : fileName(dir);
+                        if (level == 1 && (name.equals(archivPh1Name) || name.equals(archivPh2Name) || name.equals(refExportsName))) {
+                            area = name;
+                        } else if (level == 2 && area.equals(refExportsName) && CUSTOMER_PATTERN.matcher(name).matches()) {
+                            customer = new ScannedCustomer(name);
+                            customers.add(customer);
+                        } else if (level == 3 && name.startsWith("Relevanz_")) {
+                            scenario = new ScannedScenario(name);
+                            customer.scenarios.put(name, scenario);
+                        } else if (level != 0) {
+                            return FileVisitResult.SKIP_SUBTREE;
+                        }
+                        depth = level;
+                        return FileVisitResult.CONTINUE;
+                    }
+
+                    @Override
+                    public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) {
+                        String name = fileName(file);
+                        if (depth == 1 && !area.equals(refExportsName) && CRF_XML_PATTERN.matcher(name).matches()) {
+                            Set<Long> crefos = area.equals(archivPh1Name) ? phase1Crefos : phase2Crefos;
+                            crefos.add(Long.parseLong(name.substring(0, name.length() - 4)));
+                        } else if (depth == 1 && !area.equals(refExportsName) && name.equals("TestCrefos.properties")) {
+                            if (area.equals(archivPh1Name)) {
+                                testCrefosPropsPhase1 = toFile.apply(file);
+                            } else {
+                                testCrefosPropsPhase2 = toFile.apply(file);
+                            }
+                        } else if (depth == 2 && customer != null && name.equals("Options.cfg")) {
+                            customer.optionsCfg = toFile.apply(file);
+                        } else if (depth == 3 && name.equals("Relevanz.properties")) {
+                            scenario.relevanzProps = toFile.apply(file);
+                        } else if (depth == 3 && name.endsWith(".xml")) {
+                            scenario.xmlFiles.add(toFile.apply(file));
+                        }
+                        return FileVisitResult.CONTINUE;
+                    }
+
+                    @Override
+                    public FileVisitResult visitFileFailed(Path file, IOException exc) {
+                        // wie listFiles(): nicht lesbare Eintraege werden uebergangen
+                        TimelineLogger.warn(OldStructureAnalyzer.class, "'" + file + "' nicht lesbar: " + exc.getMessage());
+                        return FileVisitResult.CONTINUE;
+                    }
+
+                    @Override
+                    public FileVisitResult postVisitDirectory(Path dir, IOException exc) {
+                        depth--;
+                        return FileVisitResult.CONTINUE;
+                    }
+                });
+        return customers;
+    }
+
+    private static String fileName(Path path) {
+        // Verzeichnisnamen im zip-FileSystem koennen mit '/' enden
+        String name = path.getFileName().toString();
+        return name.endsWith("/") ? name.substring(0, name.length() - 1) : name;
+    }
+
+    private Map<String, List<TestCasePhaseAssignment>> parseCustomer(ScannedCustomer customer) throws IOException {
+        Map<String, List<TestCasePhaseAssignment>> scenarioAssignments = new TreeMap<>();
+        for (ScannedScenario scenario : customer.scenarios.values()) {
+            if (scenario.relevanzProps == null) {
+                continue;
+            }
+            List<TestCasePhaseAssignment> assignments = parseRelevanzProperties(customer.customerKey, scenario.scenarioName,
+                    scenario.relevanzProps, scenario.xmlFiles);
+            if (!assignments.isEmpty()) {
+                scenarioAssignments.put(scenario.scenarioName, assignments);
+            }
+        }
+        return scenarioAssignments;
+    }
+
     /**
      * Parst ein Szenario-Verzeichnis und erstellt TestCasePhaseAssignment Objekte.
      */
     private List<TestCasePhaseAssignment> parseScenario(String customerKey, File scenarioDir,
                                                          String scenarioName) throws IOException {
-        List<TestCasePhaseAssignment> assignments = new ArrayList<>();
-
         // Finde Relevanz.properties Datei
         File relevanzProps = new File(scenarioDir, "Relevanz.properties");
-        if (!relevanzProps.exists()) {
-            return assignments;
+        if (!ItsqFiles.exists(relevanzProps)) {
+            return new ArrayList<>();
         }
 
         // Sammle alle XML-Dateien im Szenario-Verzeichnis
+        File[] xmlFiles = ItsqFiles.listFiles(scenarioDir, file -> file.getName().endsWith(".xml"));
+        return parseRelevanzProperties(customerKey, scenarioName, relevanzProps,
+                xmlFiles != null ? Arrays.asList(xmlFiles) : Collections.emptyList());
+    }
+
+    /**
+     * Erstellt die TestCasePhaseAssignment Objekte eines Szenarios aus seiner Relevanz.properties und den
+     * XML-Dateien des Szenario-Verzeichnisses.
+     */
+    private List<TestCasePhaseAssignment> parseRelevanzProperties(String customerKey, String scenarioName,
+                                                                  File relevanzProps, List<File> xmlFiles) throws IOException {
+        List<TestCasePhaseAssignment> assignments = new ArrayList<>();
         Map<Long, File> xmlFilesByCrefo = new HashMap<>();
-        File[] xmlFiles = scenarioDir.listFiles((dir, name) -> name.endsWith(".xml"));
-        if (xmlFiles != null) {
-            for (File xmlFile : xmlFiles) {
-                Long crefo = extractCrefoFromXmlName(xmlFile.getName());
-                if (crefo != null) {
-                    xmlFilesByCrefo.put(crefo, xmlFile);
-                }
+        for (File xmlFile : xmlFiles) {
+            Long crefo = extractCrefoFromXmlName(xmlFile.getName());
+            if (crefo != null) {
+                xmlFilesByCrefo.put(crefo, xmlFile);
             }
         }
 
         // Parse Relevanz.properties
-        List<String> lines = FileUtils.readLines(relevanzProps, "UTF-8");
+        List<String> lines = ItsqFiles.readLines(relevanzProps, StandardCharsets.UTF_8);
         for (String line : lines) {
             if (line.isBlank() || line.trim().startsWith("#")) {
                 continue;
@@ -183,7 +389,7 @@ public class OldStructureAnalyzer {
         try {
             Long crefoNr = Long.parseLong(crefoStr);
             TestCasePhaseAssignment assignment = new TestCasePhaseAssignment(
-                    customerKey, scenarioName, testFallName, crefoNr, testFallInfo);
+                    customerKey, scenarioName, testFallName, crefoNr, testFallInfo, pathTable);
 
             // Setze Quell-REF-EXPORT XML falls vorhanden
             File sourceXml = xmlFilesByCrefo.get(crefoNr);
@@ -254,12 +460,18 @@ public class OldStructureAnalyzer {
 
     public File getArchivBestandXmlPhase1(Long crefo) {
         File xmlFile = new File(config.getArchivBestandPh1Dir(), crefo + ".xml");
-        return xmlFile.exists() ? xmlFile : null;
+        if (walked) {
+            return phase1Crefos.contains(crefo) ? xmlFile : null;
+        }
+        return ItsqFiles.exists(xmlFile) ? xmlFile : null;
     }
 
     public File getArchivBestandXmlPhase2(Long crefo) {
         File xmlFile = new File(config.getArchivBestandPh2Dir(), crefo + ".xml");
-        return xmlFile.exists() ? xmlFile : null;
+        if (walked) {
+            return phase2Crefos.contains(crefo) ? xmlFile : null;
+        }
+        return ItsqFiles.exists(xmlFile) ? xmlFile : null;
     }
 
     public List<String> getCustomerKeys() {
@@ -291,13 +503,19 @@ public class OldStructureAnalyzer {
     }
 
     public File getTestCrefosPropsPhase1() {
+        if (walked) {
+            return testCrefosPropsPhase1;
+        }
         File propsFile = new File(config.getArchivBestandPh1Dir(), "TestCrefos.properties");
-        return propsFile.exists() ? propsFile : null;
+        return ItsqFiles.exists(propsFile) ? propsFile : null;
     }
 
     public File getTestCrefosPropsPhase2() {
+        if (walked) {
+            return testCrefosPropsPhase2;
+        }
         File propsFile = new File(config.getArchivBestandPh2Dir(), "TestCrefos.properties");
-        return propsFile.exists() ? propsFile : null;
+        return ItsqFiles.exists(propsFile) ? propsFile : null;
     }
 
     public int getTotalCustomers() {
@@ -315,4 +533,30 @@ public class OldStructureAnalyzer {
     public int getTotalTestCases() {
         return getAllAssignments().size();
     }
+
+    /**
+     * Ein beim Durchlauf gefundenes Kundenverzeichnis.
+     */
+    private static final class ScannedCustomer {
+        private final String customerKey;
+        private final Map<String, ScannedScenario> scenarios = new TreeMap<>();
+        private File optionsCfg;
+
+        private ScannedCustomer(String customerKey) {
+            this.customerKey = customerKey;
+        }
+    }
+
+    /**
+     * Ein beim Durchlauf gefundenes Szenario-Verzeichnis.
+     */
+    private static final class ScannedScenario {
+        private final String scenarioName;
+        private final List<File> xmlFiles = new ArrayList<>();
+        private File relevanzProps;
+
+        private ScannedScenario(String scenarioName) {
+            this.scenarioName = scenarioName;
+        }
+    }
 }
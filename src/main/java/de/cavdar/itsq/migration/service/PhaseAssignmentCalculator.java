@@ -17,17 +17,25 @@ import java.util.*;
  * - p0x (positiv): ARCHIV-BESTAND/{crefo}.xml MUSS existieren
  * - x0x (loeschsatz): ARCHIV-BESTAND/{crefo}.xml MUSS existieren
  * - n0x (negativ): ARCHIV-BESTAND/{crefo}.xml DARF NICHT existieren
+ *
+ * Am Ende von {@link #calculateAssignments()} werden die gueltigen Zuordnungen nach Kunde, Phase und Szenario
+ * indiziert; die Abfragen fuer Struktur und Dateikopie lesen nur noch diesen Index.
  */
 public class PhaseAssignmentCalculator {
 
     private final OldStructureAnalyzer analyzer;
     private final MigrationResult result;
     private final Map<MigrationProblem.ProblemType, MigrationProblem.Resolution> rememberedDecisions;
+    // Kunde -> Phase -> Szenario (sortiert) -> gueltige Zuordnungen, in Reihenfolge des Analyzers
+    private final Map<String, Map<TEST_PHASE, NavigableMap<String, List<TestCasePhaseAssignment>>>> validAssignmentIndex;
+    private final Map<TEST_PHASE, NavigableSet<String>> customersByPhase;
 
     public PhaseAssignmentCalculator(OldStructureAnalyzer analyzer, MigrationResult result) {
         this.analyzer = analyzer;
         this.result = result;
         this.rememberedDecisions = new EnumMap<>(MigrationProblem.ProblemType.class);
+        this.validAssignmentIndex = new HashMap<>();
+        this.customersByPhase = new EnumMap<>(TEST_PHASE.class);
     }
 
     /**
@@ -42,8 +50,9 @@ public class PhaseAssignmentCalculator {
         int phase2TestCases = 0;
         Set<String> phase1Scenarios = new HashSet<>();
         Set<String> phase2Scenarios = new HashSet<>();
+        List<TestCasePhaseAssignment> allAssignments = analyzer.getAllAssignments();
 
-        for (TestCasePhaseAssignment assignment : analyzer.getAllAssignments()) {
+        for (TestCasePhaseAssignment assignment : allAssignments) {
             calculateAssignmentForTestCase(assignment);
             result.addAssignment(assignment);
 
@@ -80,9 +89,39 @@ public class PhaseAssignmentCalculator {
         result.setTestCasesPhase1(phase1TestCases);
         result.setTestCasesPhase2(phase2TestCases);
 
+        buildIndex(allAssignments);
         return customerPhases;
     }
 
+    /**
+     * Indiziert die gueltigen Zuordnungen nach Kunde, Phase und Szenario.
+     */
+    private void buildIndex(List<TestCasePhaseAssignment> allAssignments) {
+        validAssignmentIndex.clear();
+        customersByPhase.clear();
+        for (TEST_PHASE phase : TEST_PHASE.values()) {
+            customersByPhase.put(phase, new TreeSet<>());
+        }
+        for (TestCasePhaseAssignment assignment : allAssignments) {
+            for (TEST_PHASE phase : TEST_PHASE.values()) {
+                if (assignment.isValidForPhase(phase)) {
+                    validAssignmentIndex
+                            .computeIfAbsent(assignment.getCustomerKey(), k -> new EnumMap<>(TEST_PHASE.class))
+                            .computeIfAbsent(phase, k -> new TreeMap<>())
+                            .computeIfAbsent(assignment.getScenarioName(), k -> new ArrayList<>())
+                            .add(assignment);
+                    customersByPhase.get(phase).add(assignment.getCustomerKey());
+                }
+            }
+        }
+    }
+
+    private NavigableMap<String, List<TestCasePhaseAssignment>> getIndexedScenarios(String customerKey, TEST_PHASE phase) {
+        Map<TEST_PHASE, NavigableMap<String, List<TestCasePhaseAssignment>>> phases = validAssignmentIndex.get(customerKey);
+        NavigableMap<String, List<TestCasePhaseAssignment>> scenarios = phases != null ? phases.get(phase) : null;
+        return scenarios != null ? scenarios : Collections.emptyNavigableMap();
+    }
+
     /**
      * Berechnet Phasenzuordnung fuer einen einzelnen Testfall.
      */
@@ -198,51 +237,36 @@ public class PhaseAssignmentCalculator {
     }
 
     /**
-     * Gibt Kunden zurueck, die mindestens einen gueltigen Testfall fuer die gegebene Phase haben.
+     * Gibt Kunden zurueck, die mindestens einen gueltigen Testfall fuer die gegebene Phase haben (sortiert, nicht
+     * aenderbar).
      */
     public Set<String> getCustomersForPhase(TEST_PHASE phase) {
-        Set<String> customers = new TreeSet<>();
-        for (TestCasePhaseAssignment assignment : analyzer.getAllAssignments()) {
-            if (assignment.isValidForPhase(phase)) {
-                customers.add(assignment.getCustomerKey());
-            }
-        }
-        return customers;
+        NavigableSet<String> customers = customersByPhase.get(phase);
+        return customers != null ? Collections.unmodifiableNavigableSet(customers) : Collections.emptyNavigableSet();
     }
 
     /**
-     * Gibt Szenarien fuer einen Kunden zurueck, die mindestens einen gueltigen Testfall fuer die gegebene Phase haben.
+     * Gibt Szenarien fuer einen Kunden zurueck, die mindestens einen gueltigen Testfall fuer die gegebene Phase haben
+     * (sortiert, nicht aenderbar).
      */
     public Set<String> getScenariosForCustomerAndPhase(String customerKey, TEST_PHASE phase) {
-        Set<String> scenarios = new TreeSet<>();
-        for (TestCasePhaseAssignment assignment : analyzer.getAssignmentsForCustomer(customerKey)) {
-            if (assignment.isValidForPhase(phase)) {
-                scenarios.add(assignment.getScenarioName());
-            }
-        }
-        return scenarios;
+        return Collections.unmodifiableNavigableSet(getIndexedScenarios(customerKey, phase).navigableKeySet());
     }
 
     /**
-     * Gibt gueltige Testfaelle fuer eine Kunde/Szenario/Phase-Kombination zurueck.
+     * Gibt gueltige Testfaelle fuer eine Kunde/Szenario/Phase-Kombination zurueck (nicht aenderbar).
      */
     public List<TestCasePhaseAssignment> getValidTestCases(String customerKey, String scenarioName,
                                                            TEST_PHASE phase) {
-        List<TestCasePhaseAssignment> validCases = new ArrayList<>();
-        for (TestCasePhaseAssignment assignment : analyzer.getAssignmentsForCustomer(customerKey)) {
-            if (assignment.getScenarioName().equals(scenarioName) && assignment.isValidForPhase(phase)) {
-                validCases.add(assignment);
-            }
-        }
-        return validCases;
+        List<TestCasePhaseAssignment> validCases = getIndexedScenarios(customerKey, phase).get(scenarioName);
+        return validCases != null ? Collections.unmodifiableList(validCases) : Collections.emptyList();
     }
 
     /**
      * Prueft, ob ein Kunde gueltige Testfaelle fuer die gegebene Phase hat.
      */
     public boolean hasValidTestCasesForPhase(String customerKey, TEST_PHASE phase) {
-        return analyzer.getAssignmentsForCustomer(customerKey).stream()
-                .anyMatch(a -> a.isValidForPhase(phase));
+        return !getIndexedScenarios(customerKey, phase).isEmpty();
     }
 
     /**
@@ -0,0 +1,66 @@
+package de.cavdar.gui.itsq.tree;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for the partial refresh of ItsqTreeModel.
+ */
+@DisplayName("ItsqTreeModel Tests")
+class ItsqTreeModelTest {
+
+    @TempDir
+    Path tempDir;
+
+    private Path customerDir;
+    private ItsqTreeModel treeModel;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        customerDir = Files.createDirectories(tempDir.resolve("REF-EXPORTS/PHASE-1/c01"));
+        Path scenarioDir = Files.createDirectories(customerDir.resolve("Relevanz_1"));
+        Files.writeString(scenarioDir.resolve("Relevanz.properties"), "p01=1234567894\n");
+        Files.createDirectories(tempDir.resolve("ARCHIV-BESTAND/PHASE-1"));
+        treeModel = new ItsqTreeModel(tempDir.toFile());
+    }
+
+    @Test
+    @DisplayName("should rescan only the changed directory and keep the statistics")
+    void shouldRefreshChangedDirectory() throws Exception {
+        Path scenarioDir = customerDir.resolve("Relevanz_1");
+        ItsqTreeNode untouched = treeModel.findNearestNode(tempDir.resolve("ARCHIV-BESTAND/PHASE-1").toFile());
+        Files.writeString(scenarioDir.resolve("p01_stammsatz_1234567894.xml"), "<xml/>");
+
+        ItsqTreeNode scenarioNode = treeModel.findNearestNode(scenarioDir.toFile());
+        assertInstanceOf(ItsqScenarioTreeNode.class, scenarioNode);
+        treeModel.refresh(scenarioNode);
+
+        assertEquals(2, scenarioNode.getChildCount());
+        assertEquals(2, treeModel.getTotalFiles());
+        assertSame(untouched, treeModel.findNearestNode(tempDir.resolve("ARCHIV-BESTAND/PHASE-1").toFile()));
+    }
+
+    @Test
+    @DisplayName("should refresh a new scenario through its customer")
+    void shouldRefreshNewDirectoryThroughAncestor() throws Exception {
+        Path newScenarioDir = Files.createDirectories(customerDir.resolve("Relevanz_2"));
+        Files.writeString(newScenarioDir.resolve("Relevanz.properties"), "p01=1234567895\n");
+        int totalDirs = treeModel.getTotalDirs();
+
+        ItsqTreeNode customerNode = treeModel.findNearestNode(newScenarioDir.toFile());
+        assertInstanceOf(ItsqCustomerTreeNode.class, customerNode);
+        treeModel.refresh(customerNode);
+
+        assertInstanceOf(ItsqScenarioTreeNode.class, treeModel.findNearestNode(newScenarioDir.toFile()));
+        assertEquals(totalDirs + 1, treeModel.getTotalDirs());
+        assertEquals(2, treeModel.getTotalFiles());
+        assertNull(treeModel.findNearestNode(tempDir.getParent().toFile()));
+    }
+}
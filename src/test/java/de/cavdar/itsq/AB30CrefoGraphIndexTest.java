@@ -0,0 +1,123 @@
+package de.cavdar.itsq;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+
+import static de.cavdar.itsq.ItsqTestFixtures.writeCrefoXml;
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for AB30CrefoGraphIndex.
+ */
+@DisplayName("AB30CrefoGraphIndex Tests")
+class AB30CrefoGraphIndexTest {
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    @DisplayName("should answer forward, reverse and transitive queries")
+    void shouldAnswerQueries() throws Exception {
+        writeCrefoXml(tempDir, 1000000001L, 1000000002L, 1000000003L, 1000000001L);
+        writeCrefoXml(tempDir, 1000000002L, 1000000004L);
+        writeCrefoXml(tempDir, 1000000004L, 1000000001L);
+        writeCrefoXml(tempDir, 1000000005L, 1000000003L);
+
+        AB30CrefoGraphIndex graphIndex = AB30CrefoGraphIndex.forDirectory(tempDir.toFile(), new AB30MapperUtil());
+
+        assertArrayEquals(new long[]{1000000002L, 1000000003L}, graphIndex.getParticipants(1000000001L));
+        assertArrayEquals(new long[]{1000000001L, 1000000005L}, graphIndex.getReferencingCrefos(1000000003L));
+        assertArrayEquals(new long[]{1000000002L, 1000000003L, 1000000004L}, graphIndex.getTransitiveParticipants(1000000001L));
+        assertArrayEquals(new long[0], graphIndex.getReferencingCrefos(1000000005L));
+        assertEquals(5, graphIndex.getCrefoCount());
+    }
+
+    @Test
+    @DisplayName("should pick up changed and deleted XMLs incrementally")
+    void shouldUpdateIncrementally() throws Exception {
+        writeCrefoXml(tempDir, 1000000001L, 1000000002L);
+        File xmlFile = writeCrefoXml(tempDir, 1000000002L, 1000000003L);
+        AB30CrefoGraphIndex graphIndex = AB30CrefoGraphIndex.forDirectory(tempDir.toFile(), new AB30MapperUtil());
+        assertArrayEquals(new long[]{1000000002L, 1000000003L}, graphIndex.getTransitiveParticipants(1000000001L));
+
+        writeCrefoXml(tempDir, 1000000002L, 1000000009L);
+        Files.setLastModifiedTime(xmlFile.toPath(), FileTime.fromMillis(xmlFile.lastModified() + 60_000));
+        graphIndex.update(xmlFile);
+        assertArrayEquals(new long[]{1000000002L, 1000000009L}, graphIndex.getTransitiveParticipants(1000000001L));
+
+        Files.delete(tempDir.resolve("1000000001.xml"));
+        assertEquals(1, graphIndex.refresh());
+        assertArrayEquals(new long[0], graphIndex.getReferencingCrefos(1000000002L));
+    }
+
+    @Test
+    @DisplayName("should reload the saved index without parsing unchanged XMLs")
+    void shouldReloadSavedIndex() throws Exception {
+        writeCrefoXml(tempDir, 1000000001L, 1000000002L);
+        AB30CrefoGraphIndex graphIndex = AB30CrefoGraphIndex.forDirectory(tempDir.toFile(), new AB30MapperUtil());
+        graphIndex.save();
+
+        AB30CrefoGraphIndex reloadedIndex = new AB30CrefoGraphIndex(tempDir.toFile(), file -> fail("XML should not be parsed again"));
+        reloadedIndex.load();
+
+        assertEquals(0, reloadedIndex.refresh());
+        assertArrayEquals(new long[]{1000000001L}, reloadedIndex.getReferencingCrefos(1000000002L));
+    }
+
+    @Test
+    @DisplayName("should rebuild an index with counts that do not fit the file")
+    void shouldRebuildCorruptIndex() throws Exception {
+        writeCrefoXml(tempDir, 1000000001L, 1000000002L);
+        AB30CrefoGraphIndex.forDirectory(tempDir.toFile(), new AB30MapperUtil()).save();
+        Path indexPath = tempDir.resolve(AB30CrefoGraphIndex.INDEX_FILENAME);
+        byte[] indexBytes = Files.readAllBytes(indexPath);
+
+        // Anzahl der Einträge, danach Anzahl der Beteiligten des ersten Eintrags
+        for (int countOffset : new int[]{8, 12 + 24}) {
+            byte[] corruptBytes = indexBytes.clone();
+            ByteBuffer.wrap(corruptBytes).putInt(countOffset, Integer.MAX_VALUE);
+            Files.write(indexPath, corruptBytes);
+
+            AB30CrefoGraphIndex reloadedIndex = new AB30CrefoGraphIndex(tempDir.toFile(), new AB30MapperUtil()::parseCrefosFromXmlContent);
+            reloadedIndex.load();
+
+            assertEquals(1, reloadedIndex.refresh());
+            assertArrayEquals(new long[]{1000000001L}, reloadedIndex.getReferencingCrefos(1000000002L));
+        }
+    }
+
+    @Test
+    @DisplayName("should answer queries after updates without rebuilding the arrays")
+    void shouldQueryChangesWithoutRebuild() throws Exception {
+        for (long crefoNr = 1000000001L; crefoNr <= 1000000020L; crefoNr++) {
+            writeCrefoXml(tempDir, crefoNr, crefoNr + 1, crefoNr + 2);
+        }
+        AB30CrefoGraphIndex graphIndex = AB30CrefoGraphIndex.forDirectory(tempDir.toFile(), new AB30MapperUtil());
+        assertArrayEquals(new long[]{1000000009L, 1000000010L}, graphIndex.getReferencingCrefos(1000000011L));
+
+        graphIndex.update(writeCrefoXml(tempDir, 1000000010L, 1000000030L));
+        graphIndex.update(writeCrefoXml(tempDir, 1000000031L, 1000000011L, 1000000032L));
+        graphIndex.update(writeCrefoXml(tempDir, 1000000030L, 1000000031L));
+        Files.delete(tempDir.resolve("1000000009.xml"));
+        graphIndex.update(tempDir.resolve("1000000009.xml").toFile());
+
+        long[] referencing = graphIndex.getReferencingCrefos(1000000011L);
+        long[] transitive = graphIndex.getTransitiveParticipants(1000000008L);
+        assertEquals(4, graphIndex.getPendingChangeCount());
+
+        AB30CrefoGraphIndex rebuiltIndex = AB30CrefoGraphIndex.forDirectory(tempDir.toFile(), new AB30MapperUtil());
+        assertArrayEquals(new long[]{1000000031L}, referencing);
+        assertArrayEquals(rebuiltIndex.getReferencingCrefos(1000000011L), referencing);
+        assertArrayEquals(rebuiltIndex.getTransitiveParticipants(1000000008L), transitive);
+        assertArrayEquals(rebuiltIndex.getReferencingCrefos(1000000030L), graphIndex.getReferencingCrefos(1000000030L));
+        assertEquals(rebuiltIndex.getEdgeCount(), graphIndex.getEdgeCount());
+        assertEquals(0, graphIndex.getPendingChangeCount());
+    }
+}
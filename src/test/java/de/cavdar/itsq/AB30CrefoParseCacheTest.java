@@ -0,0 +1,155 @@
+package de.cavdar.itsq;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Stream;
+
+import static de.cavdar.itsq.ItsqTestFixtures.writeCrefoXml;
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for AB30CrefoParseCache.
+ */
+@DisplayName("AB30CrefoParseCache Tests")
+class AB30CrefoParseCacheTest {
+
+    @TempDir
+    Path tempDir;
+
+    private final AB30CrefoStaxExtractor extractor = new AB30CrefoStaxExtractor();
+
+    @Test
+    @DisplayName("should serve unchanged files from the saved cache without parsing")
+    void shouldServeUnchangedFilesFromCache() throws Exception {
+        File xmlFile = writeCrefoXml(tempDir, 1234567890L, 1234567891L);
+        AB30CrefoParseCache parseCache = AB30CrefoParseCache.forDirectory(tempDir.toFile());
+        Map<String, List<Long>> parsed = parseCache.get(xmlFile, extractor::extract);
+        parseCache.save();
+
+        AB30CrefoParseCache reloadedCache = AB30CrefoParseCache.forDirectory(tempDir.toFile());
+        Map<String, List<Long>> cached = reloadedCache.get(xmlFile, file -> fail("XML should not be parsed again"));
+
+        assertEquals(parsed, cached);
+        assertEquals(1, reloadedCache.getHits());
+        assertEquals(0, reloadedCache.getMisses());
+    }
+
+    @Test
+    @DisplayName("should re-parse files whose content changed")
+    void shouldReparseChangedFiles() throws Exception {
+        File xmlFile = writeCrefoXml(tempDir, 1234567890L, 1234567891L);
+        AB30CrefoParseCache parseCache = AB30CrefoParseCache.forDirectory(tempDir.toFile());
+        parseCache.get(xmlFile, extractor::extract);
+        parseCache.save();
+
+        writeCrefoXml(tempDir, 1234567890L, 1234567899L);
+        AB30CrefoParseCache reloadedCache = AB30CrefoParseCache.forDirectory(tempDir.toFile());
+        Map<String, List<Long>> result = reloadedCache.get(xmlFile, extractor::extract);
+
+        assertEquals(List.of(1234567899L), result.get(AB30MapperUtil.TAG_FIRMENBETEILIGTER));
+        assertEquals(1, reloadedCache.getMisses());
+    }
+
+    @Test
+    @DisplayName("should detect touched but unchanged files by content hash")
+    void shouldDetectTouchedFilesByHash() throws Exception {
+        File xmlFile = writeCrefoXml(tempDir, 1234567890L, 1234567891L);
+        AB30CrefoParseCache parseCache = AB30CrefoParseCache.forDirectory(tempDir.toFile());
+        parseCache.get(xmlFile, extractor::extract);
+
+        Files.setLastModifiedTime(xmlFile.toPath(), FileTime.fromMillis(xmlFile.lastModified() + 60_000));
+        parseCache.get(xmlFile, file -> fail("XML should not be parsed again"));
+
+        assertEquals(1, parseCache.getHits());
+    }
+
+    @Test
+    @DisplayName("should drop entries of deleted files when saving")
+    void shouldCompactDeletedFiles() throws Exception {
+        File xmlFile1 = writeCrefoXml(tempDir, 1234567890L, 1234567891L);
+        File xmlFile2 = writeCrefoXml(tempDir, 1234567892L, 1234567893L);
+        AB30CrefoParseCache parseCache = AB30CrefoParseCache.forDirectory(tempDir.toFile());
+        parseCache.get(xmlFile1, extractor::extract);
+        parseCache.get(xmlFile2, extractor::extract);
+        Files.delete(xmlFile2.toPath());
+        parseCache.save();
+
+        assertEquals(1, AB30CrefoParseCache.forDirectory(tempDir.toFile()).size());
+    }
+
+    @Test
+    @DisplayName("should parse the content read for the hash instead of reading the file again")
+    void shouldParseContentReadForHash() throws Exception {
+        File xmlFile = writeCrefoXml(tempDir, 1234567890L, 1234567891L);
+        AB30CrefoParseCache parseCache = AB30CrefoParseCache.forDirectory(tempDir.toFile());
+        Map<String, List<Long>> result = parseCache.get(xmlFile, new AB30CrefoParseCache.CrefoXmlParser() {
+            @Override
+            public Map<String, List<Long>> parse(File ab30CrefoXmlFile) {
+                return fail("XML should not be read again");
+            }
+
+            @Override
+            public Map<String, List<Long>> parse(File ab30CrefoXmlFile, byte[] content) throws Exception {
+                return extractor.extract(new ByteArrayInputStream(content), ab30CrefoXmlFile.getPath());
+            }
+        });
+
+        assertEquals(List.of(1234567891L), result.get(AB30MapperUtil.TAG_FIRMENBETEILIGTER));
+    }
+
+    @Test
+    @DisplayName("should not restore invalidated entries from disk and leave no lock file")
+    void shouldNotRestoreInvalidatedEntries() throws Exception {
+        File xmlFile1 = writeCrefoXml(tempDir, 1234567890L, 1234567891L);
+        File xmlFile2 = writeCrefoXml(tempDir, 1234567892L, 1234567893L);
+        AB30CrefoParseCache parseCache = AB30CrefoParseCache.forDirectory(tempDir.toFile());
+        parseCache.get(xmlFile1, extractor::extract);
+        parseCache.get(xmlFile2, extractor::extract);
+        parseCache.save();
+
+        parseCache.invalidate(xmlFile2);
+        parseCache.save();
+
+        assertEquals(1, parseCache.size());
+        assertEquals(1, AB30CrefoParseCache.forDirectory(tempDir.toFile()).size());
+        assertFalse(Files.exists(tempDir.resolve(AB30CrefoParseCache.CACHE_FILENAME + ".lock")));
+        try (Stream<Path> files = Files.list(tempDir)) {
+            assertTrue(files.noneMatch(file -> file.getFileName().toString().endsWith(".tmp")));
+        }
+    }
+
+    @Test
+    @DisplayName("should check for deleted files only in directories read since the last save")
+    void shouldCompactOnlyScannedDirectories() throws Exception {
+        Path otherDir = Files.createDirectory(tempDir.resolve("other"));
+        File xmlFile = writeCrefoXml(tempDir, 1234567890L, 1234567891L);
+        File otherXmlFile = Files.move(writeCrefoXml(tempDir, 1234567892L, 1234567893L).toPath(), otherDir.resolve("1234567892.xml")).toFile();
+        AB30CrefoParseCache parseCache = AB30CrefoParseCache.forDirectory(tempDir.toFile());
+        parseCache.get(xmlFile, extractor::extract);
+        parseCache.get(otherXmlFile, extractor::extract);
+        parseCache.save();
+
+        Files.delete(otherXmlFile.toPath());
+        AB30CrefoParseCache reloadedCache = AB30CrefoParseCache.forDirectory(tempDir.toFile());
+        reloadedCache.get(writeCrefoXml(tempDir, 1234567894L, 1234567895L), extractor::extract);
+        reloadedCache.save();
+        assertEquals(3, AB30CrefoParseCache.forDirectory(tempDir.toFile()).size());
+
+        AB30CrefoParseCache compactedCache = AB30CrefoParseCache.forDirectory(tempDir.toFile());
+        File newOtherXmlFile = Files.move(writeCrefoXml(tempDir, 1234567896L, 1234567897L).toPath(), otherDir.resolve("1234567896.xml")).toFile();
+        compactedCache.get(newOtherXmlFile, extractor::extract);
+        compactedCache.save();
+        AB30CrefoParseCache reloadedCompactedCache = AB30CrefoParseCache.forDirectory(tempDir.toFile());
+        assertEquals(3, reloadedCompactedCache.size());
+        reloadedCompactedCache.get(newOtherXmlFile, file -> fail("XML should not be parsed again"));
+    }
+}
@@ -0,0 +1,192 @@
+package de.cavdar.itsq;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.Map;
+
+import static de.cavdar.itsq.ItsqTestFixtures.writeCrefoXml;
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for AB30IncrementalExtender.
+ */
+@DisplayName("AB30IncrementalExtender Tests")
+class AB30IncrementalExtenderTest {
+
+    private static final long BASE_CREFO = 1234567000L;
+
+    @TempDir
+    Path tempDir;
+
+    private void writeRelevanzProps(Path phaseDir, String customerKey, int fromIndex, int toIndex) throws Exception {
+        Path scenarioDir = Files.createDirectories(phaseDir.resolve(customerKey).resolve("Relevanz_Positiv"));
+        StringBuilder props = new StringBuilder();
+        for (int i = fromIndex; i < toIndex; i++) {
+            props.append("p").append(i).append("=").append(BASE_CREFO + i).append(" # Testfall ").append(i).append('\n');
+        }
+        Files.writeString(scenarioDir.resolve("Relevanz.properties"), props, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Legt ARCHIV-BESTAND/PHASE-1 mit 20 Test-Crefos (je ein Beteiligter) und einer alten TestCrefos.properties an,
+     * dazu zwei Kunden in REF-EXPORTS/PHASE-1 mit überlappenden Testfällen.
+     */
+    private void createTestSet(Path testSetDir) throws Exception {
+        Path ab30PhaseDir = Files.createDirectories(testSetDir.resolve(TestSupportClientKonstanten.ARCHIV_BESTAND_ROOT).resolve(TestSupportClientKonstanten.PHASE_1));
+        Path refExportsPhaseDir = testSetDir.resolve(TestSupportClientKonstanten.REF_EXPORTS_ROOT).resolve(TestSupportClientKonstanten.PHASE_1);
+        for (int i = 0; i < 20; i++) {
+            writeCrefoXml(ab30PhaseDir, BASE_CREFO + i, BASE_CREFO + 50 + i);
+        }
+        writeCrefoXml(ab30PhaseDir, BASE_CREFO + 99);
+        writeRelevanzProps(refExportsPhaseDir, "c01", 0, 12);
+        writeRelevanzProps(refExportsPhaseDir, "c02", 8, 20);
+
+        StringBuilder oldProps = new StringBuilder(AB30XMLProperties.VERSION_STR).append(AB30XMLProperties.VERSION).append('\n');
+        AB30XMLProperties withClz = new AB30XMLProperties(BASE_CREFO + 3);
+        withClz.setAuftragClz(4711L);
+        withClz.setMitCtaStatistik(true);
+        oldProps.append(withClz).append('\n');
+        oldProps.append(new AB30XMLProperties(BASE_CREFO + 99)).append('\n');
+        Files.writeString(ab30PhaseDir.resolve(TestSupportClientKonstanten.TEST_CREFOS_PROPS_FILENAME), oldProps, StandardCharsets.UTF_8);
+    }
+
+    private Map<String, TestCustomer> loadCustomers(Path testSetDir) throws Exception {
+        File ab30PhaseDir = testSetDir.resolve(TestSupportClientKonstanten.ARCHIV_BESTAND_ROOT).resolve(TestSupportClientKonstanten.PHASE_1).toFile();
+        Path refExportsPhaseDir = testSetDir.resolve(TestSupportClientKonstanten.REF_EXPORTS_ROOT).resolve(TestSupportClientKonstanten.PHASE_1);
+        Map<String, TestCustomer> customerTestInfoMap = new HashMap<>();
+        for (String customerKey : new String[]{"c01", "c02"}) {
+            TestCustomer testCustomer = new TestCustomer(customerKey, ab30PhaseDir, refExportsPhaseDir.resolve(customerKey).toFile());
+            testCustomer.setTestPhase(TestSupportClientKonstanten.TEST_PHASE.PHASE_1);
+            testCustomer.addTestScenario(new TestScenario(testCustomer, "Relevanz_Positiv"));
+            customerTestInfoMap.put(customerKey, testCustomer);
+        }
+        return customerTestInfoMap;
+    }
+
+    private AB30IncrementalExtender.Result runIncremental(Path testSetDir) throws Exception {
+        File ab30PhaseDir = testSetDir.resolve(TestSupportClientKonstanten.ARCHIV_BESTAND_ROOT).resolve(TestSupportClientKonstanten.PHASE_1).toFile();
+        return new AB30IncrementalExtender(new AB30MapperUtil(), ab30PhaseDir).extend("", loadCustomers(testSetDir));
+    }
+
+    private void runFull(Path testSetDir) throws Exception {
+        Map<TestSupportClientKonstanten.TEST_PHASE, Map<String, TestCustomer>> activeCustomersMapMap = new HashMap<>();
+        activeCustomersMapMap.put(TestSupportClientKonstanten.TEST_PHASE.PHASE_1, loadCustomers(testSetDir));
+        TestFallExtendsArchivBestandCrefos cut = new TestFallExtendsArchivBestandCrefos(activeCustomersMapMap);
+        cut.testSetRootDir = testSetDir.toFile();
+        cut.ab30RootDir = testSetDir.resolve(TestSupportClientKonstanten.ARCHIV_BESTAND_ROOT).toFile();
+        cut.extendTestCrefos();
+    }
+
+    private void assertSameOutput(Path expectedTestSetDir, Path actualTestSetDir) throws Exception {
+        for (String fileName : new String[]{TestSupportClientKonstanten.EXTENDED_CREFOS_PROPS_FILENAME, TestSupportClientKonstanten.CREFOS_TO_CUSTOMERS_MAP_FILENAME}) {
+            Path relativePath = Path.of(TestSupportClientKonstanten.ARCHIV_BESTAND_ROOT, TestSupportClientKonstanten.PHASE_1, fileName);
+            assertEquals(Files.readString(expectedTestSetDir.resolve(relativePath)), Files.readString(actualTestSetDir.resolve(relativePath)), fileName);
+        }
+    }
+
+    @Test
+    @DisplayName("first run should write the same files as the full pipeline")
+    void firstRunShouldMatchFullPipeline() throws Exception {
+        Path fullDir = tempDir.resolve("full");
+        Path incrementalDir = tempDir.resolve("incremental");
+        createTestSet(fullDir);
+        createTestSet(incrementalDir);
+
+        runFull(fullDir);
+        AB30IncrementalExtender.Result result = runIncremental(incrementalDir);
+
+        assertTrue(result.isFullRun());
+        assertEquals(20, result.getTestCrefos());
+        assertEquals(40, result.getLines());
+        assertSameOutput(fullDir, incrementalDir);
+        assertTrue(Files.exists(incrementalDir.resolve(TestSupportClientKonstanten.ARCHIV_BESTAND_ROOT).resolve(TestSupportClientKonstanten.PHASE_1).resolve("1234567099.xml.deleted")));
+    }
+
+    @Test
+    @DisplayName("unchanged inputs should neither parse XMLs nor rewrite the files")
+    void unchangedInputsShouldBeNoOp() throws Exception {
+        createTestSet(tempDir);
+        runIncremental(tempDir);
+
+        AB30IncrementalExtender.Result result = runIncremental(tempDir);
+
+        assertFalse(result.isFullRun());
+        assertEquals(0, result.getParsedXmlFiles());
+        assertEquals(0, result.getRecomputedCrefos());
+        assertFalse(result.isFilesWritten());
+        assertEquals(40, result.getLines());
+    }
+
+    @Test
+    @DisplayName("changed XMLs and REF-EXPORTS should only recompute affected lines and match a full run")
+    void changesShouldMatchFullRun() throws Exception {
+        Path fullDir = tempDir.resolve("full");
+        Path incrementalDir = tempDir.resolve("incremental");
+        createTestSet(fullDir);
+        createTestSet(incrementalDir);
+        runIncremental(incrementalDir);
+
+        for (Path testSetDir : new Path[]{fullDir, incrementalDir}) {
+            Path ab30PhaseDir = testSetDir.resolve(TestSupportClientKonstanten.ARCHIV_BESTAND_ROOT).resolve(TestSupportClientKonstanten.PHASE_1);
+            Path refExportsPhaseDir = testSetDir.resolve(TestSupportClientKonstanten.REF_EXPORTS_ROOT).resolve(TestSupportClientKonstanten.PHASE_1);
+            // anderer Beteiligter, zusätzlicher Beteiligter der schon Test-Crefo ist
+            writeCrefoXml(ab30PhaseDir, BASE_CREFO + 5, BASE_CREFO + 77, BASE_CREFO + 6);
+            // c01 verliert die Testfälle 0..1, c02 die Testfälle 18..19
+            writeRelevanzProps(refExportsPhaseDir, "c01", 2, 12);
+            writeRelevanzProps(refExportsPhaseDir, "c02", 8, 18);
+        }
+        runFull(fullDir);
+        AB30IncrementalExtender.Result result = runIncremental(incrementalDir);
+
+        assertFalse(result.isFullRun());
+        assertEquals(1, result.getParsedXmlFiles());
+        assertTrue(result.getRecomputedCrefos() < result.getLines());
+        assertTrue(result.isFilesWritten());
+        assertSameOutput(fullDir, incrementalDir);
+    }
+
+    @Test
+    @DisplayName("changed old TestCrefos.properties should update the attributes")
+    void changedOldPropsShouldUpdateAttributes() throws Exception {
+        Path fullDir = tempDir.resolve("full");
+        Path incrementalDir = tempDir.resolve("incremental");
+        createTestSet(fullDir);
+        createTestSet(incrementalDir);
+        runIncremental(incrementalDir);
+
+        for (Path testSetDir : new Path[]{fullDir, incrementalDir}) {
+            AB30XMLProperties withClz = new AB30XMLProperties(BASE_CREFO + 55);
+            withClz.setAuftragClz(815L);
+            Files.writeString(testSetDir.resolve(TestSupportClientKonstanten.ARCHIV_BESTAND_ROOT).resolve(TestSupportClientKonstanten.PHASE_1)
+                            .resolve(TestSupportClientKonstanten.TEST_CREFOS_PROPS_FILENAME),
+                    AB30XMLProperties.VERSION_STR + AB30XMLProperties.VERSION + "\n" + withClz + "\n", StandardCharsets.UTF_8);
+        }
+        runFull(fullDir);
+        AB30IncrementalExtender.Result result = runIncremental(incrementalDir);
+
+        assertEquals(0, result.getParsedXmlFiles());
+        assertTrue(result.isFilesWritten());
+        assertSameOutput(fullDir, incrementalDir);
+    }
+
+    @Test
+    @DisplayName("unreadable state should fall back to a full run")
+    void corruptStateShouldFallBackToFullRun() throws Exception {
+        createTestSet(tempDir);
+        runIncremental(tempDir);
+        Files.writeString(tempDir.resolve(TestSupportClientKonstanten.ARCHIV_BESTAND_ROOT).resolve(TestSupportClientKonstanten.PHASE_1)
+                .resolve(AB30IncrementalExtender.STATE_FILENAME), "kaputt");
+
+        AB30IncrementalExtender.Result result = runIncremental(tempDir);
+
+        assertTrue(result.isFullRun());
+        assertEquals(40, result.getLines());
+    }
+}
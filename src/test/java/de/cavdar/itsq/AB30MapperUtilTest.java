@@ -0,0 +1,265 @@
+package de.cavdar.itsq;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for AB30MapperUtil.
+ */
+@DisplayName("AB30MapperUtil Tests")
+class AB30MapperUtilTest {
+
+    private static final String NAMESPACED_AB30_XML = """
+            <?xml version="1.0" encoding="UTF-8"?>
+            <arc:archiv-bestand xmlns:arc="http://www.example.org/arc">
+            \t<arc:steuerungsdaten>
+            \t\t<arc:crefonummer>1234567895</arc:crefonummer>
+            \t</arc:steuerungsdaten>
+            \t<!-- <arc:crefonummer-beteiligter>9999999999</arc:crefonummer-beteiligter> -->
+            \t<arc:firmenbeteiligte>
+            \t\t<arc:firmenbeteiligter>
+            \t\t\t<arc:crefonummer-beteiligter>1234567891</arc:crefonummer-beteiligter>
+            \t\t</arc:firmenbeteiligter>
+            \t\t<arc:firmenbeteiligter>
+            \t\t\t<arc:crefonummer-beteiligter><![CDATA[1234567892]]></arc:crefonummer-beteiligter>
+            \t\t</arc:firmenbeteiligter>
+            \t</arc:firmenbeteiligte>
+            \t<arc:verfahrensbeteiligter>
+            \t\t<arc:crefonummer-beteiligter>1234567893</arc:crefonummer-beteiligter>
+            \t</arc:verfahrensbeteiligter>
+            \t<arc:sonstige>
+            \t\t<arc:crefonummer>1234567894</arc:crefonummer>
+            \t</arc:sonstige>
+            </arc:archiv-bestand>
+            """;
+
+    private static File writeXml(Path dir, String fileName, String content) throws Exception {
+        Path xmlPath = dir.resolve(fileName);
+        Files.writeString(xmlPath, content, StandardCharsets.UTF_8);
+        return xmlPath.toFile();
+    }
+
+    @Nested
+    @DisplayName("parseCrefosFromXmlContent()")
+    class ParseCrefosFromXmlContentTests {
+
+        @TempDir
+        Path tempDir;
+
+        @Test
+        @DisplayName("STAX should produce the same map as XPATH")
+        void staxShouldMatchXPath() throws Exception {
+            File xmlFile = writeXml(tempDir, "1234567895.xml", NAMESPACED_AB30_XML);
+            AB30MapperUtil mapperUtil = new AB30MapperUtil();
+
+            mapperUtil.setXmlParseMode(AB30MapperUtil.XML_PARSE_MODE.XPATH);
+            Map<String, List<Long>> xpathResult = mapperUtil.parseCrefosFromXmlContent(xmlFile);
+            mapperUtil.setXmlParseMode(AB30MapperUtil.XML_PARSE_MODE.STAX);
+            Map<String, List<Long>> staxResult = mapperUtil.parseCrefosFromXmlContent(xmlFile);
+
+            assertEquals(xpathResult, staxResult);
+        }
+
+        @Test
+        @DisplayName("MMAP should produce the same map as STAX")
+        void mmapShouldMatchStax() throws Exception {
+            String xml = NAMESPACED_AB30_XML.replaceAll("(?s)<!--.*?-->", "").replace("<![CDATA[1234567892]]>", "1234567892");
+            File xmlFile = writeXml(tempDir, "1234567895.xml", xml);
+            AB30MapperUtil mapperUtil = new AB30MapperUtil();
+
+            Map<String, List<Long>> staxResult = mapperUtil.parseCrefosFromXmlContent(xmlFile);
+            Map<String, List<Long>> scanResult = new AB30CrefoByteScanner().scan(xmlFile);
+
+            assertNotNull(scanResult);
+            assertEquals(staxResult, scanResult);
+        }
+
+        @Test
+        @DisplayName("MMAP should fall back to STAX for comments and CDATA")
+        void mmapShouldFallBackForUnusualContent() throws Exception {
+            File xmlFile = writeXml(tempDir, "1234567895.xml", NAMESPACED_AB30_XML);
+            AB30MapperUtil mapperUtil = new AB30MapperUtil();
+            Map<String, List<Long>> staxResult = mapperUtil.parseCrefosFromXmlContent(xmlFile);
+
+            mapperUtil.setXmlParseMode(AB30MapperUtil.XML_PARSE_MODE.MMAP);
+
+            assertNull(new AB30CrefoByteScanner().scan(xmlFile));
+            assertEquals(staxResult, mapperUtil.parseCrefosFromXmlContent(xmlFile));
+        }
+
+        @Test
+        @DisplayName("MMAP should match STAX for the test resource XMLs")
+        void mmapShouldMatchStaxForTestResources() throws Exception {
+            File[] xmlFiles = new File("src/test/resources/ITSQ/NEW/ARCHIV-BESTAND/PHASE-1").listFiles((dir, name) -> name.endsWith(".xml"));
+            assertNotNull(xmlFiles);
+            AB30MapperUtil mapperUtil = new AB30MapperUtil();
+            AB30MapperUtil mmapMapperUtil = new AB30MapperUtil();
+            mmapMapperUtil.setXmlParseMode(AB30MapperUtil.XML_PARSE_MODE.MMAP);
+            for (File xmlFile : xmlFiles) {
+                assertEquals(mapperUtil.parseCrefosFromXmlContent(xmlFile), mmapMapperUtil.parseCrefosFromXmlContent(xmlFile), xmlFile.getName());
+            }
+        }
+
+        @Test
+        @DisplayName("STAX should group crefos by parent element")
+        void staxShouldGroupByParentElement() throws Exception {
+            File xmlFile = writeXml(tempDir, "1234567895.xml", NAMESPACED_AB30_XML);
+            AB30MapperUtil mapperUtil = new AB30MapperUtil();
+
+            Map<String, List<Long>> result = mapperUtil.parseCrefosFromXmlContent(xmlFile);
+
+            assertEquals(List.of(1234567895L), result.get(AB30MapperUtil.TAG_STEUERUNGSDATEN));
+            assertEquals(List.of(1234567891L, 1234567892L), result.get(AB30MapperUtil.TAG_FIRMENBETEILIGTER));
+            assertEquals(List.of(1234567893L), result.get(AB30MapperUtil.TAG_VERFAHRENSBETEILIGTER));
+            assertEquals(List.of(1234567894L), result.get("SONSTIGE"));
+        }
+
+        @Test
+        @DisplayName("STAX should accept unbound 'arc:' prefixes")
+        void staxShouldAcceptUnboundPrefix() throws Exception {
+            String xml = NAMESPACED_AB30_XML.replace(" xmlns:arc=\"http://www.example.org/arc\"", "");
+            File xmlFile = writeXml(tempDir, "1234567895.xml", xml);
+            AB30MapperUtil mapperUtil = new AB30MapperUtil();
+
+            Map<String, List<Long>> result = mapperUtil.parseCrefosFromXmlContent(xmlFile);
+
+            assertEquals(List.of(1234567891L, 1234567892L), result.get(AB30MapperUtil.TAG_FIRMENBETEILIGTER));
+        }
+
+        @Test
+        @DisplayName("STAX should return empty lists for a file without participants")
+        void staxShouldReturnEmptyLists() throws Exception {
+            File xmlFile = writeXml(tempDir, "1234567890.xml",
+                    "<?xml version=\"1.0\"?><arc:archiv-bestand><arc:steuerungsdaten><arc:crefonummer>1234567890</arc:crefonummer></arc:steuerungsdaten></arc:archiv-bestand>");
+            AB30MapperUtil mapperUtil = new AB30MapperUtil();
+
+            Map<String, List<Long>> result = mapperUtil.parseCrefosFromXmlContent(xmlFile);
+
+            assertEquals(List.of(1234567890L), result.get(AB30MapperUtil.TAG_STEUERUNGSDATEN));
+            assertTrue(result.get(AB30MapperUtil.TAG_FIRMENBETEILIGTER).isEmpty());
+            assertTrue(result.get(AB30MapperUtil.TAG_VERFAHRENSBETEILIGTER).isEmpty());
+        }
+    }
+
+    @Nested
+    @DisplayName("extendAb30CrefoPropertiesMapWithBtlgs()")
+    class ExtendAb30CrefoPropertiesMapWithBtlgsTests {
+
+        @TempDir
+        Path tempDir;
+
+        private Map<Long, AB30XMLProperties> createTestCrefosMap() throws Exception {
+            Map<Long, AB30XMLProperties> ab30CrefoToPropertiesMap = new TreeMap<>();
+            for (long crefoNr = 1234567800L; crefoNr < 1234567850L; crefoNr++) {
+                StringBuilder xml = new StringBuilder("<?xml version=\"1.0\"?><arc:archiv-bestand><arc:steuerungsdaten><arc:crefonummer>")
+                        .append(crefoNr).append("</arc:crefonummer></arc:steuerungsdaten><arc:firmenbeteiligte>");
+                for (long btlgCrefoNr = crefoNr + 7; btlgCrefoNr > crefoNr; btlgCrefoNr -= 3) {
+                    xml.append("<arc:firmenbeteiligter><arc:crefonummer-beteiligter>").append(btlgCrefoNr)
+                            .append("</arc:crefonummer-beteiligter></arc:firmenbeteiligter>");
+                }
+                xml.append("</arc:firmenbeteiligte><arc:verfahrensbeteiligter><arc:crefonummer-beteiligter>")
+                        .append(crefoNr + 100).append("</arc:crefonummer-beteiligter></arc:verfahrensbeteiligter></arc:archiv-bestand>");
+                writeXml(tempDir, crefoNr + ".xml", xml.toString());
+                AB30XMLProperties ab30XMLProperties = new AB30XMLProperties(crefoNr);
+                ab30XMLProperties.getUsedByCustomersList().add("C0" + (crefoNr % 7));
+                ab30CrefoToPropertiesMap.put(crefoNr, ab30XMLProperties);
+            }
+            return ab30CrefoToPropertiesMap;
+        }
+
+        private List<String> toLines(Map<Long, AB30XMLProperties> ab30CrefoToPropertiesMap) {
+            List<String> lines = new ArrayList<>();
+            ab30CrefoToPropertiesMap.values().forEach(ab30XMLProperties -> lines.add(ab30XMLProperties.toString()));
+            return lines;
+        }
+
+        @Test
+        @DisplayName("parallel mode should produce the same entries as the sequential mode")
+        void parallelShouldMatchSequential() throws Exception {
+            AB30MapperUtil mapperUtil = new AB30MapperUtil();
+            Map<Long, AB30XMLProperties> sequentialMap = mapperUtil.extendAb30CrefoPropertiesMapWithBtlgs("", tempDir.toFile(), createTestCrefosMap());
+            List<String> sequentialLines = toLines(sequentialMap);
+            // wie früher mit der TreeMap nach Crefonummer sortiert
+            List<Long> crefoNrs = new ArrayList<>(sequentialMap.keySet());
+            assertEquals(crefoNrs.stream().sorted().toList(), crefoNrs);
+
+            mapperUtil.setBtlgParallelism(4);
+            List<String> parallelLines = toLines(mapperUtil.extendAb30CrefoPropertiesMapWithBtlgs("", tempDir.toFile(), createTestCrefosMap()));
+
+            assertEquals(sequentialLines, parallelLines);
+        }
+
+        @Test
+        @DisplayName("parallel mode should propagate errors of missing XML files")
+        void parallelShouldPropagateErrors() throws Exception {
+            Map<Long, AB30XMLProperties> ab30CrefoToPropertiesMap = createTestCrefosMap();
+            ab30CrefoToPropertiesMap.put(1234567999L, new AB30XMLProperties(1234567999L));
+            AB30MapperUtil mapperUtil = new AB30MapperUtil();
+            mapperUtil.setBtlgParallelism(4);
+
+            assertThrows(IOException.class, () -> mapperUtil.extendAb30CrefoPropertiesMapWithBtlgs("", tempDir.toFile(), ab30CrefoToPropertiesMap));
+        }
+    }
+
+    @Nested
+    @DisplayName("writeAb30CrefoToPropertiesMapToFile()")
+    class WriteAb30CrefoToPropertiesMapToFileTests {
+
+        @TempDir
+        Path tempDir;
+
+        @Test
+        @DisplayName("should write the same lines as sorting all lines as strings")
+        void shouldKeepStringLineOrder() throws Exception {
+            Map<Long, AB30XMLProperties> ab30CrefoToPropertiesMap = new HashMap<>();
+            for (long crefoNr : new long[]{1234567891L, 123L, 1234L, 99L, 4110106343L, 1234567890L}) {
+                AB30XMLProperties ab30XMLProperties = new AB30XMLProperties(crefoNr);
+                ab30XMLProperties.getUsedByCustomersList().add("c0" + (crefoNr % 5));
+                ab30XMLProperties.getBtlgCrefosList().add(crefoNr + 1);
+                ab30CrefoToPropertiesMap.put(crefoNr, ab30XMLProperties);
+            }
+            List<String> expectedLines = new ArrayList<>();
+            expectedLines.add(AB30XMLProperties.HEADER);
+            expectedLines.add(AB30XMLProperties.VERSION_STR + " " + AB30XMLProperties.VERSION);
+            ab30CrefoToPropertiesMap.values().forEach(ab30XMLProperties -> expectedLines.add(ab30XMLProperties.toString()));
+            expectedLines.sort(Comparator.naturalOrder());
+
+            File propsFile = tempDir.resolve(TestSupportClientKonstanten.EXTENDED_CREFOS_PROPS_FILENAME).toFile();
+            new AB30MapperUtil().writeAb30CrefoToPropertiesMapToFile(propsFile, ab30CrefoToPropertiesMap);
+
+            assertEquals(expectedLines, Files.readAllLines(propsFile.toPath(), Charset.defaultCharset()));
+        }
+
+        @Test
+        @DisplayName("should replace an existing file and keep the previous one as .old")
+        void shouldReplaceExistingFile() throws Exception {
+            File propsFile = tempDir.resolve(TestSupportClientKonstanten.EXTENDED_CREFOS_PROPS_FILENAME).toFile();
+            Files.writeString(propsFile.toPath(), "alt");
+            Map<Long, AB30XMLProperties> ab30CrefoToPropertiesMap = new HashMap<>();
+            ab30CrefoToPropertiesMap.put(1234567891L, new AB30XMLProperties(1234567891L));
+
+            new AB30MapperUtil().writeAb30CrefoToPropertiesMapToFile(propsFile, ab30CrefoToPropertiesMap);
+
+            assertEquals("alt", Files.readString(tempDir.resolve(TestSupportClientKonstanten.EXTENDED_CREFOS_PROPS_FILENAME + ".old")));
+            assertEquals(3, Files.readAllLines(propsFile.toPath()).size());
+            assertFalse(Files.exists(tempDir.resolve(TestSupportClientKonstanten.EXTENDED_CREFOS_PROPS_FILENAME + ".tmp")));
+        }
+    }
+}
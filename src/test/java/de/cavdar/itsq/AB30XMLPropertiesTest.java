@@ -0,0 +1,138 @@
+package de.cavdar.itsq;
+
+import org.apache.commons.io.FileUtils;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for AB30XMLProperties and AB30XMLPropertiesLineParser.
+ */
+@DisplayName("AB30XMLProperties Tests")
+class AB30XMLPropertiesTest {
+
+    private static final String V2_LINE = "1234567891::[c02;c03;c05],[379],[1234567895;1234567896],[BILANZ],[ERLEDIGUNG_FIRMA_FIRMA],[CTA_STATISTIK],[DSGVO_SPERRE]";
+
+    @Nested
+    @DisplayName("Line parsing")
+    class LineParsingTests {
+
+        @Test
+        @DisplayName("should parse all fields of a version 2 line")
+        void shouldParseVersion2Line() {
+            AB30XMLProperties ab30XMLProperties = new AB30XMLProperties(V2_LINE, 2);
+
+            assertEquals(1234567891L, ab30XMLProperties.getCrefoNr());
+            assertEquals(List.of("c02", "c03", "c05"), ab30XMLProperties.getUsedByCustomersList());
+            assertEquals(379L, ab30XMLProperties.getAuftragClz());
+            assertEquals(List.of(1234567895L, 1234567896L), new ArrayList<>(ab30XMLProperties.getBtlgCrefosList()));
+            assertEquals(AB30XMLProperties.BILANZEN_TYPE.BILANZ, ab30XMLProperties.getBilanzType());
+            assertEquals(AB30XMLProperties.EH_PROD_AUFTR_TYPE.ERLEDIGUNG_FIRMA_FIRMA, ab30XMLProperties.getEhProduktAuftragType());
+            assertTrue(ab30XMLProperties.isMitCtaStatistik());
+            assertTrue(ab30XMLProperties.isMitDsgVoSperre());
+        }
+
+        @Test
+        @DisplayName("should parse a version 1 line with customers at the end")
+        void shouldParseVersion1Line() {
+            AB30XMLProperties ab30XMLProperties = new AB30XMLProperties(" 1234567891 :: [] , [1234567895] ,[BEFR],,[], [c01;c01; c02]", 1);
+
+            assertNull(ab30XMLProperties.getAuftragClz());
+            assertEquals(List.of(1234567895L), new ArrayList<>(ab30XMLProperties.getBtlgCrefosList()));
+            assertEquals(AB30XMLProperties.BILANZEN_TYPE.BEFR, ab30XMLProperties.getBilanzType());
+            assertEquals(AB30XMLProperties.EH_PROD_AUFTR_TYPE.KEINE, ab30XMLProperties.getEhProduktAuftragType());
+            assertFalse(ab30XMLProperties.isMitCtaStatistik());
+            assertEquals(List.of("c01", "c02"), ab30XMLProperties.getUsedByCustomersList());
+        }
+
+        @Test
+        @DisplayName("should use defaults for a line without attributes")
+        void shouldUseDefaultsForCrefoOnly() {
+            AB30XMLProperties ab30XMLProperties = new AB30XMLProperties("1234567891", 2);
+
+            assertEquals("1234567891::[],[],[],[KEINE],[KEINE],[],[]", ab30XMLProperties.toString());
+        }
+
+        @Test
+        @DisplayName("toString() should round-trip through the parser")
+        void toStringShouldRoundTrip() {
+            AB30XMLProperties original = new AB30XMLProperties(V2_LINE, 2);
+            String strLine = original.toString();
+
+            assertEquals(V2_LINE, strLine);
+            assertEquals(strLine, new AB30XMLProperties(strLine, 2).toString());
+            assertEquals(strLine, AB30XMLPropertiesLineParser.parse(new StringBuilder(strLine), 2).toString());
+        }
+
+        @Test
+        @DisplayName("should reject invalid lines like before")
+        void shouldRejectInvalidLines() {
+            assertThrows(IllegalArgumentException.class, () -> new AB30XMLProperties("", 2));
+            assertThrows(IllegalArgumentException.class, () -> new AB30XMLProperties("::", 2));
+            assertThrows(NumberFormatException.class, () -> new AB30XMLProperties("12345x::[c01]", 2));
+            assertThrows(IllegalArgumentException.class, () -> new AB30XMLProperties("1234567891::[c01],[],[12345]", 2));
+            assertThrows(IllegalArgumentException.class, () -> new AB30XMLProperties("1234567891::[c01],[],[],[UNBEKANNT]", 2));
+            RuntimeException ex = assertThrows(RuntimeException.class, () -> new AB30XMLProperties("1234567891::[c01],[3x9]", 2));
+            assertEquals("CLZ '3x9' konnte nicht konvertiert werden! Crefo 1234567891", ex.getMessage());
+        }
+    }
+
+    @Nested
+    @DisplayName("readInto()")
+    class ReadIntoTests {
+
+        @TempDir
+        Path tempDir;
+
+        @Test
+        @DisplayName("should read the test resource like the line constructor")
+        void shouldReadTestResource() throws Exception {
+            File propsFile = new File("src/test/resources/ITSQ/OLD/ARCHIV-BESTAND-PH1/TestCrefos.properties");
+            Map<Long, AB30XMLProperties> expectedMap = new TreeMap<>();
+            for (String strLine : FileUtils.readLines(propsFile, Charset.defaultCharset())) {
+                if (!strLine.isBlank() && !strLine.startsWith("#")) {
+                    AB30XMLProperties ab30XMLProperties = new AB30XMLProperties(strLine, 2);
+                    expectedMap.put(ab30XMLProperties.getCrefoNr(), ab30XMLProperties);
+                }
+            }
+
+            Map<Long, AB30XMLProperties> ab30CrefoToPropertiesMap = AB30XMLPropertiesLineParser.readInto(propsFile, Charset.defaultCharset(), new TreeMap<>());
+
+            assertFalse(ab30CrefoToPropertiesMap.isEmpty());
+            assertEquals(expectedMap.toString(), ab30CrefoToPropertiesMap.toString());
+        }
+
+        @Test
+        @DisplayName("should handle CRLF, version lines and lines longer than the buffer")
+        void shouldHandleLineEndingsAndLongLines() throws Exception {
+            StringBuilder customers = new StringBuilder();
+            for (int i = 0; i < 5000; i++) {
+                customers.append(i > 0 ? ";" : "").append("c").append(i);
+            }
+            String longLine = "1234567893::[" + customers + "],[],[],[],[],[],[]";
+            Path propsPath = tempDir.resolve("TestCrefos.properties");
+            Files.writeString(propsPath, "# Kommentar\r\n1234567891::[],[],[],[],[],[c01]\r\n\r\n   \n"
+                    + AB30XMLProperties.VERSION_STR + " 2\r" + "1234567892::[c02],[7]\n" + longLine);
+
+            Map<Long, AB30XMLProperties> ab30CrefoToPropertiesMap = AB30XMLPropertiesLineParser.readInto(propsPath.toFile(), Charset.defaultCharset(), new TreeMap<>());
+
+            assertEquals(3, ab30CrefoToPropertiesMap.size());
+            assertEquals(List.of("c01"), ab30CrefoToPropertiesMap.get(1234567891L).getUsedByCustomersList());
+            assertEquals(List.of("c02"), ab30CrefoToPropertiesMap.get(1234567892L).getUsedByCustomersList());
+            assertEquals(7L, ab30CrefoToPropertiesMap.get(1234567892L).getAuftragClz());
+            assertEquals(5000, ab30CrefoToPropertiesMap.get(1234567893L).getUsedByCustomersList().size());
+        }
+    }
+}
@@ -0,0 +1,177 @@
+package de.cavdar.itsq;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static de.cavdar.itsq.ItsqTestFixtures.createScenario;
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for ITSQModelSnapshot.
+ */
+@DisplayName("ITSQModelSnapshot Tests")
+class ITSQModelSnapshotTest {
+
+    @TempDir
+    Path tempDir;
+
+    private File snapshotFile;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        for (TestSupportClientKonstanten.TEST_PHASE testPhase : TestSupportClientKonstanten.TEST_PHASE.values()) {
+            for (int c = 1; c <= 2; c++) {
+                for (int s = 1; s <= 3; s++) {
+                    createScenario(tempDir, testPhase, "c0" + c, "Relevanz_" + s, s * 4, true);
+                }
+            }
+        }
+        snapshotFile = tempDir.resolve(ITSQModelSnapshot.SNAPSHOT_FILENAME).toFile();
+    }
+
+    private Map<TestSupportClientKonstanten.TEST_PHASE, Map<String, TestCustomer>> loadAndWrite() throws Exception {
+        ITSQModelSnapshot.Stamps stamps = ITSQModelSnapshot.collectStamps(tempDir.toFile());
+        ITSQTestSetLoader loader = new ITSQTestSetLoader(tempDir.toFile());
+        Map<TestSupportClientKonstanten.TEST_PHASE, Map<String, TestCustomer>> model = loader.load();
+        ITSQModelSnapshot.write(snapshotFile, tempDir.toFile(), stamps, model, List.of("Fehler 1"));
+        return model;
+    }
+
+    @Test
+    @DisplayName("should read back the same model")
+    void shouldRoundTripModel() throws Exception {
+        Map<TestSupportClientKonstanten.TEST_PHASE, Map<String, TestCustomer>> model = loadAndWrite();
+        TestCrefo deactivated = model.get(TestSupportClientKonstanten.TEST_PHASE.PHASE_2).get("C02").getTestScenariosMap().get("Relevanz_3").getTestFallNameToTestCrefoMap().get("p1");
+        deactivated.setActivated(false);
+        ITSQModelSnapshot.write(snapshotFile, tempDir.toFile(), ITSQModelSnapshot.collectStamps(tempDir.toFile()), model, List.of("Fehler 1"));
+
+        List<String> errors = new ArrayList<>();
+        Map<TestSupportClientKonstanten.TEST_PHASE, Map<String, TestCustomer>> readModel = ITSQModelSnapshot.read(snapshotFile, tempDir.toFile(), errors);
+
+        assertNotNull(readModel);
+        assertEquals(List.of("Fehler 1"), errors);
+        for (TestSupportClientKonstanten.TEST_PHASE testPhase : TestSupportClientKonstanten.TEST_PHASE.values()) {
+            assertEquals(model.get(testPhase).keySet(), readModel.get(testPhase).keySet());
+            for (TestCustomer testCustomer : model.get(testPhase).values()) {
+                TestCustomer readCustomer = readModel.get(testPhase).get(testCustomer.getCustomerKey());
+                assertEquals(testCustomer.getCustomerName(), readCustomer.getCustomerName());
+                assertEquals(testCustomer.getTestPhase(), readCustomer.getTestPhase());
+                assertEquals(testCustomer.getItsqRefExportsDir(), readCustomer.getItsqRefExportsDir());
+                assertEquals(testCustomer.getItsqAB30XmlsDir(), readCustomer.getItsqAB30XmlsDir());
+                assertEquals(testCustomer.getTestScenariosMap().keySet(), readCustomer.getTestScenariosMap().keySet());
+                for (TestScenario testScenario : testCustomer.getTestScenariosList()) {
+                    TestScenario readScenario = readCustomer.getTestScenariosMap().get(testScenario.getScenarioName());
+                    assertEquals(testScenario.getItsqRefExportsPropsFile(), readScenario.getItsqRefExportsPropsFile());
+                    for (TestCrefo testCrefo : testScenario.getTestFallNameToTestCrefoMap().values()) {
+                        TestCrefo readCrefo = readScenario.getTestFallNameToTestCrefoMap().get(testCrefo.getTestFallName());
+                        assertEquals(testCrefo.getItsqTestCrefoNr(), readCrefo.getItsqTestCrefoNr());
+                        assertEquals(testCrefo.getTestFallInfo(), readCrefo.getTestFallInfo());
+                        assertEquals(testCrefo.isShouldBeExported(), readCrefo.isShouldBeExported());
+                        assertEquals(testCrefo.isActivated(), readCrefo.isActivated());
+                        assertEquals(testCrefo.getItsqRexExportXmlFile(), readCrefo.getItsqRexExportXmlFile());
+                    }
+                }
+                assertEquals(testCustomer.getAllTestCrefos(true, true).size(), readCustomer.getAllTestCrefos(true, true).size());
+            }
+        }
+    }
+
+    @Test
+    @DisplayName("should detect a changed properties file")
+    void shouldDetectChangedPropertiesFile() throws Exception {
+        loadAndWrite();
+        Path propsFile = tempDir.resolve(TestSupportClientKonstanten.REF_EXPORTS_ROOT).resolve(TestSupportClientKonstanten.PHASE_1)
+                .resolve("c01").resolve("Relevanz_2").resolve("Relevanz.properties");
+        Files.writeString(propsFile, "p1=1234567001\n", StandardCharsets.UTF_8);
+
+        assertNull(ITSQModelSnapshot.read(snapshotFile, tempDir.toFile(), new ArrayList<>()));
+    }
+
+    @Test
+    @DisplayName("should detect a new scenario directory")
+    void shouldDetectNewScenario() throws Exception {
+        loadAndWrite();
+        Path scenarioDir = createScenario(tempDir, TestSupportClientKonstanten.TEST_PHASE.PHASE_2, "c02", "Relevanz_Neu", 2, true);
+        File customerDir = scenarioDir.getParent().toFile();
+        customerDir.setLastModified(customerDir.lastModified() + 2000);
+
+        assertNull(ITSQModelSnapshot.read(snapshotFile, tempDir.toFile(), new ArrayList<>()));
+    }
+
+    @Test
+    @DisplayName("should detect a properties file changed while loading")
+    void shouldDetectChangeDuringLoad() throws Exception {
+        ITSQModelSnapshot.Stamps stamps = ITSQModelSnapshot.collectStamps(tempDir.toFile());
+        File propsFile = tempDir.resolve(TestSupportClientKonstanten.REF_EXPORTS_ROOT).resolve(TestSupportClientKonstanten.PHASE_1)
+                .resolve("c01").resolve("Relevanz_1").resolve("Relevanz.properties").toFile();
+        Files.writeString(propsFile.toPath(), "p1=1234567001\n", StandardCharsets.UTF_8);
+        propsFile.setLastModified(propsFile.lastModified() + 2000);
+        Map<TestSupportClientKonstanten.TEST_PHASE, Map<String, TestCustomer>> model = new ITSQTestSetLoader(tempDir.toFile()).load();
+        ITSQModelSnapshot.write(snapshotFile, tempDir.toFile(), stamps, model, List.of());
+
+        assertNull(ITSQModelSnapshot.read(snapshotFile, tempDir.toFile(), new ArrayList<>()));
+    }
+
+    @Test
+    @DisplayName("should keep lazy scenarios unloaded when writing and after reading")
+    void shouldKeepLazyScenariosUnloaded() throws Exception {
+        ITSQTestSetLoader loader = new ITSQTestSetLoader(tempDir.toFile());
+        loader.setUseSnapshot(true);
+        loader.setLazyScenarios(true);
+
+        Map<TestSupportClientKonstanten.TEST_PHASE, Map<String, TestCustomer>> firstModel = loader.load();
+        TestScenario loadedScenario = firstModel.get(TestSupportClientKonstanten.TEST_PHASE.PHASE_1).get("C01").getTestScenariosMap().get("Relevanz_1");
+        assertFalse(loadedScenario.isMaterialized());
+
+        Map<TestSupportClientKonstanten.TEST_PHASE, Map<String, TestCustomer>> secondModel = loader.load();
+        assertTrue(loader.isLoadedFromSnapshot());
+        TestScenario readScenario = secondModel.get(TestSupportClientKonstanten.TEST_PHASE.PHASE_1).get("C01").getTestScenariosMap().get("Relevanz_1");
+        assertFalse(readScenario.isMaterialized());
+        assertEquals(loadedScenario.getTestFallNameToTestCrefoMap().keySet(), readScenario.getTestFallNameToTestCrefoMap().keySet());
+        assertTrue(readScenario.isMaterialized());
+        assertEquals(loadedScenario.getTestFallNameToTestCrefoMap().get("p1").getItsqRexExportXmlFile(),
+                readScenario.getTestFallNameToTestCrefoMap().get("p1").getItsqRexExportXmlFile());
+    }
+
+    @Test
+    @DisplayName("should reject a snapshot of another test set or with corrupt content")
+    void shouldRejectForeignOrCorruptSnapshot() throws Exception {
+        loadAndWrite();
+
+        assertNull(ITSQModelSnapshot.read(snapshotFile, tempDir.resolve("anderes").toFile(), new ArrayList<>()));
+        Files.writeString(snapshotFile.toPath(), "kaputt");
+        assertNull(ITSQModelSnapshot.read(snapshotFile, tempDir.toFile(), new ArrayList<>()));
+    }
+
+    @Test
+    @DisplayName("loader should use the snapshot while the test set is unchanged")
+    void loaderShouldUseSnapshot() throws Exception {
+        ITSQTestSetLoader loader = new ITSQTestSetLoader(tempDir.toFile());
+        loader.setUseSnapshot(true);
+
+        Map<TestSupportClientKonstanten.TEST_PHASE, Map<String, TestCustomer>> firstModel = loader.load();
+        assertFalse(loader.isLoadedFromSnapshot());
+        assertTrue(loader.getSnapshotFile().exists());
+
+        Map<TestSupportClientKonstanten.TEST_PHASE, Map<String, TestCustomer>> secondModel = loader.load();
+        assertTrue(loader.isLoadedFromSnapshot());
+        assertEquals(firstModel.get(TestSupportClientKonstanten.TEST_PHASE.PHASE_1).keySet(), secondModel.get(TestSupportClientKonstanten.TEST_PHASE.PHASE_1).keySet());
+
+        Path propsFile = tempDir.resolve(TestSupportClientKonstanten.REF_EXPORTS_ROOT).resolve(TestSupportClientKonstanten.PHASE_1)
+                .resolve("c02").resolve("Relevanz_1").resolve("Relevanz.properties");
+        Files.writeString(propsFile, "p1=1234567001\np2=1234567002\n", StandardCharsets.UTF_8);
+        Map<TestSupportClientKonstanten.TEST_PHASE, Map<String, TestCustomer>> thirdModel = loader.load();
+        assertFalse(loader.isLoadedFromSnapshot());
+        assertEquals(2, thirdModel.get(TestSupportClientKonstanten.TEST_PHASE.PHASE_1).get("C02").getTestScenariosMap().get("Relevanz_1").getTestFallNameToTestCrefoMap().size());
+    }
+}
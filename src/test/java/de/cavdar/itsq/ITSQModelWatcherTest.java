@@ -0,0 +1,190 @@
+package de.cavdar.itsq;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for ITSQModelWatcher.
+ */
+@DisplayName("ITSQModelWatcher Tests")
+class ITSQModelWatcherTest {
+
+    @TempDir
+    Path tempDir;
+
+    private Map<TestSupportClientKonstanten.TEST_PHASE, Map<String, TestCustomer>> model;
+    private ITSQModelWatcher watcher;
+    private final BlockingQueue<ITSQModelWatcher.ModelChangeEvent> events = new LinkedBlockingQueue<>();
+
+    private Path scenarioDir(String customerDir, String scenarioName) {
+        return ItsqTestFixtures.scenarioDir(tempDir, TestSupportClientKonstanten.TEST_PHASE.PHASE_1, customerDir, scenarioName);
+    }
+
+    private Path createScenario(String customerDir, String scenarioName, String props) throws Exception {
+        return ItsqTestFixtures.createScenario(tempDir, TestSupportClientKonstanten.TEST_PHASE.PHASE_1, customerDir, scenarioName, props);
+    }
+
+    @BeforeEach
+    void setUp() throws Exception {
+        createScenario("c01", "Relevanz_1", "p01=1234567894\np02=1234567895\n");
+        createScenario("c01", "Relevanz_2", "p01=1234567896\n");
+        Files.createDirectories(tempDir.resolve(TestSupportClientKonstanten.ARCHIV_BESTAND_ROOT).resolve(TestSupportClientKonstanten.PHASE_1));
+        ITSQTestSetLoader loader = new ITSQTestSetLoader(tempDir.toFile());
+        model = loader.load();
+        watcher = new ITSQModelWatcher(tempDir.toFile(), model, loader);
+        watcher.setQuietMillis(300);
+        watcher.addListener(events::add);
+        watcher.start();
+    }
+
+    @AfterEach
+    void tearDown() {
+        watcher.close();
+    }
+
+    private ITSQModelWatcher.ModelChangeEvent nextEvent() throws InterruptedException {
+        ITSQModelWatcher.ModelChangeEvent event = events.poll(15, TimeUnit.SECONDS);
+        assertNotNull(event, "kein ModelChangeEvent");
+        return event;
+    }
+
+    private TestCustomer customer() {
+        return model.get(TestSupportClientKonstanten.TEST_PHASE.PHASE_1).get("C01");
+    }
+
+    @Test
+    @DisplayName("should rebind only the scenario whose properties changed and keep deactivated test crefos")
+    void shouldRebindChangedScenario() throws Exception {
+        TestScenario unchanged = customer().getTestScenariosMap().get("Relevanz_2");
+        customer().getTestScenariosMap().get("Relevanz_1").getTestFallNameToTestCrefoMap().get("p02").setActivated(false);
+
+        Files.writeString(scenarioDir("c01", "Relevanz_1").resolve("Relevanz.properties"), "p01=1234567894\np02=1234567895\np03=1234567897\n", StandardCharsets.UTF_8);
+
+        ITSQModelWatcher.ModelChangeEvent event = nextEvent();
+        assertEquals(1, event.getUpdatedScenarios().size());
+        TestScenario rebound = customer().getTestScenariosMap().get("Relevanz_1");
+        assertSame(rebound, event.getUpdatedScenarios().get(0));
+        assertEquals(3, rebound.getTestFallNameToTestCrefoMap().size());
+        assertFalse(rebound.getTestFallNameToTestCrefoMap().get("p02").isActivated());
+        assertSame(unchanged, customer().getTestScenariosMap().get("Relevanz_2"));
+        assertEquals(4, customer().getAllTestCrefos(false, false).size());
+    }
+
+    @Test
+    @DisplayName("should coalesce a bulk copy into a single event")
+    void shouldCoalesceBulkCopy() throws Exception {
+        Path scenarioDir = scenarioDir("c01", "Relevanz_2");
+        for (int i = 0; i < 500; i++) {
+            Files.createFile(scenarioDir.resolve("p01_stammsatz_" + (1234560000L + i) + ".xml"));
+        }
+        Files.createFile(scenarioDir.resolve("p01_stammsatz_1234567896.xml"));
+
+        ITSQModelWatcher.ModelChangeEvent event = nextEvent();
+        assertTrue(event.getFileEventCount() > 1);
+        assertEquals(1, event.getUpdatedScenarios().size());
+        assertNotNull(customer().getTestScenariosMap().get("Relevanz_2").getTestFallNameToTestCrefoMap().get("p01").getItsqRexExportXmlFile());
+        assertNull(events.poll(1, TimeUnit.SECONDS));
+    }
+
+    @Test
+    @DisplayName("should add new and remove deleted scenarios and customers")
+    void shouldAddAndRemoveScenarios() throws Exception {
+        createScenario("c02", "Relevanz_Neu", "p01=1234567898\n");
+        ITSQModelWatcher.ModelChangeEvent event = nextEvent();
+        while (model.get(TestSupportClientKonstanten.TEST_PHASE.PHASE_1).get("C02") == null
+                || model.get(TestSupportClientKonstanten.TEST_PHASE.PHASE_1).get("C02").getTestScenariosMap().isEmpty()) {
+            event = nextEvent();
+        }
+        assertEquals("Relevanz_Neu", event.getUpdatedScenarios().get(0).getScenarioName());
+
+        Path scenarioDir = scenarioDir("c01", "Relevanz_2");
+        Files.delete(scenarioDir.resolve("Relevanz.properties"));
+        Files.delete(scenarioDir);
+        event = nextEvent();
+        assertEquals(1, event.getRemovedScenarios().size());
+        assertFalse(customer().getTestScenariosMap().containsKey("Relevanz_2"));
+    }
+
+    @Test
+    @DisplayName("should report ARCHIV-BESTAND changes without touching the model")
+    void shouldReportArchivBestandChanges() throws Exception {
+        Path xmlFile = tempDir.resolve(TestSupportClientKonstanten.ARCHIV_BESTAND_ROOT).resolve(TestSupportClientKonstanten.PHASE_1).resolve("1234567894.xml");
+        Files.writeString(xmlFile, "<xml/>");
+
+        ITSQModelWatcher.ModelChangeEvent event = nextEvent();
+        assertFalse(event.isModelChanged());
+        assertTrue(event.getArchivBestandFiles().contains(xmlFile.toFile()));
+    }
+
+    @Test
+    @DisplayName("should ignore the helper files written by the application")
+    void shouldIgnoreHelperFiles() throws Exception {
+        Path phaseDir = tempDir.resolve(TestSupportClientKonstanten.ARCHIV_BESTAND_ROOT).resolve(TestSupportClientKonstanten.PHASE_1);
+        Files.writeString(phaseDir.resolve(AB30CrefoParseCache.CACHE_FILENAME), "cache");
+        Files.writeString(phaseDir.resolve(TestSupportClientKonstanten.EXTENDED_CREFOS_PROPS_FILENAME + ".old"), "alt");
+        Files.writeString(phaseDir.resolve("1234567894.xml.tmp"), "<xml/>");
+        assertNull(events.poll(1, TimeUnit.SECONDS));
+
+        Path xmlFile = phaseDir.resolve("1234567894.xml");
+        Files.writeString(xmlFile, "<xml/>");
+        ITSQModelWatcher.ModelChangeEvent event = nextEvent();
+        assertEquals(List.of(xmlFile.toFile()), event.getArchivBestandFiles());
+    }
+
+    @Test
+    @DisplayName("should change the model and notify the listeners only in the model executor")
+    void shouldApplyChangesInModelExecutor() throws Exception {
+        watcher.close();
+        ExecutorService modelExecutor = Executors.newSingleThreadExecutor(runnable -> new Thread(runnable, "itsq-model"));
+        List<String> mutatingThreads = new CopyOnWriteArrayList<>();
+        try {
+            // jede Änderung des Kunden (auch das Eintragen des neuen Szenarios) läuft über seine Szenario-Map
+            Map<String, TestScenario> testScenariosMap = new HashMap<>(customer().getTestScenariosMap()) {
+                @Override
+                public TestScenario put(String key, TestScenario value) {
+                    mutatingThreads.add(Thread.currentThread().getName());
+                    return super.put(key, value);
+                }
+            };
+            customer().setTestScenariosMap(testScenariosMap);
+            watcher = new ITSQModelWatcher(tempDir.toFile(), model, new ITSQTestSetLoader(tempDir.toFile()));
+            watcher.setQuietMillis(300);
+            watcher.setModelExecutor(modelExecutor);
+            List<String> listenerThreads = new CopyOnWriteArrayList<>();
+            watcher.addListener(event -> listenerThreads.add(Thread.currentThread().getName()));
+            watcher.addListener(events::add);
+            watcher.start();
+
+            createScenario("c01", "Relevanz_3", "p01=1234567899\n");
+
+            ITSQModelWatcher.ModelChangeEvent event = nextEvent();
+            while (!customer().getTestScenariosMap().containsKey("Relevanz_3")) {
+                event = nextEvent();
+            }
+            assertTrue(event.isModelChanged());
+            assertEquals(List.of("itsq-model"), mutatingThreads.stream().distinct().toList());
+            assertEquals("itsq-model", listenerThreads.get(0));
+        } finally {
+            watcher.close();
+            modelExecutor.shutdownNow();
+        }
+    }
+}
@@ -0,0 +1,128 @@
+package de.cavdar.itsq;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+
+import static de.cavdar.itsq.ItsqTestFixtures.createScenario;
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for ITSQTestSetLoader.
+ */
+@DisplayName("ITSQTestSetLoader Tests")
+class ITSQTestSetLoaderTest {
+
+    @TempDir
+    Path tempDir;
+
+    private void createTestSet() throws Exception {
+        for (TestSupportClientKonstanten.TEST_PHASE testPhase : TestSupportClientKonstanten.TEST_PHASE.values()) {
+            Files.createDirectories(tempDir.resolve(TestSupportClientKonstanten.ARCHIV_BESTAND_ROOT).resolve(testPhase.getDirName()));
+            for (int c = 1; c <= 3; c++) {
+                for (int s = 1; s <= 4; s++) {
+                    createScenario(tempDir, testPhase, "c0" + c, "Relevanz_" + s, s * 3, false);
+                }
+            }
+        }
+        // Szenario ohne Properties-Datei
+        Files.createDirectories(tempDir.resolve(TestSupportClientKonstanten.REF_EXPORTS_ROOT)
+                .resolve(TestSupportClientKonstanten.PHASE_2).resolve("c01").resolve("Relevanz_Leer"));
+    }
+
+    @Test
+    @DisplayName("should load both phases with customers, scenarios and test crefos")
+    void shouldLoadBothPhases() throws Exception {
+        createTestSet();
+        ITSQTestSetLoader loader = new ITSQTestSetLoader(tempDir.toFile());
+        loader.setParallelism(4);
+
+        Map<TestSupportClientKonstanten.TEST_PHASE, Map<String, TestCustomer>> customerTestInfoMapMap = loader.load();
+
+        assertEquals(2, customerTestInfoMapMap.size());
+        for (TestSupportClientKonstanten.TEST_PHASE testPhase : TestSupportClientKonstanten.TEST_PHASE.values()) {
+            Map<String, TestCustomer> customerTestInfoMap = customerTestInfoMapMap.get(testPhase);
+            assertEquals(List.of("C01", "C02", "C03"), List.copyOf(customerTestInfoMap.keySet()));
+            TestCustomer testCustomer = customerTestInfoMap.get("C02");
+            assertEquals(testPhase, testCustomer.getTestPhase());
+            assertEquals(4, testCustomer.getTestScenariosMap().size());
+            TestScenario testScenario = testCustomer.getTestScenariosMap().get("Relevanz_3");
+            assertEquals(9, testScenario.getTestFallNameToTestCrefoMap().size());
+            assertNotNull(testScenario.getTestFallNameToTestCrefoMap().get("p8").getItsqRexExportXmlFile());
+            assertTrue(loader.getPhaseDurations().containsKey(testPhase));
+        }
+    }
+
+    @Test
+    @DisplayName("should collect errors of invalid scenarios and keep loading")
+    void shouldCollectErrors() throws Exception {
+        createTestSet();
+        ITSQTestSetLoader loader = new ITSQTestSetLoader(tempDir.toFile());
+
+        Map<TestSupportClientKonstanten.TEST_PHASE, Map<String, TestCustomer>> customerTestInfoMapMap = loader.load();
+
+        List<String> errors = loader.getErrors();
+        assertEquals(1, errors.size());
+        assertTrue(errors.get(0).contains("Relevanz_Leer"));
+        assertEquals(4, customerTestInfoMapMap.get(TestSupportClientKonstanten.TEST_PHASE.PHASE_2).get("C01").getTestScenariosMap().size());
+    }
+
+    @Test
+    @DisplayName("should collect problems of single property lines as errors")
+    void shouldCollectLineErrors() throws Exception {
+        createScenario(tempDir, TestSupportClientKonstanten.TEST_PHASE.PHASE_1, "c01", "Relevanz_1", 2, false);
+        Path propsFile = tempDir.resolve(TestSupportClientKonstanten.REF_EXPORTS_ROOT).resolve(TestSupportClientKonstanten.PHASE_1)
+                .resolve("c01").resolve("Relevanz_1").resolve("Relevanz.properties");
+        Files.writeString(propsFile, Files.readString(propsFile) + "p7=keine-crefo\np8=1234569999 # ohne XML\n", StandardCharsets.UTF_8);
+        ITSQTestSetLoader loader = new ITSQTestSetLoader(tempDir.toFile());
+
+        Map<String, TestCustomer> customerTestInfoMap = loader.loadPhase(TestSupportClientKonstanten.TEST_PHASE.PHASE_1);
+
+        assertEquals(3, customerTestInfoMap.get("C01").getTestScenariosMap().get("Relevanz_1").getTestFallNameToTestCrefoMap().size());
+        List<String> errors = loader.getErrors();
+        assertEquals(2, errors.stream().filter(error -> error.startsWith(TestSupportClientKonstanten.PHASE_1 + "/C01/Relevanz_1: ")).count(), errors.toString());
+        assertTrue(errors.stream().anyMatch(error -> error.contains("p7=keine-crefo")), errors.toString());
+        assertTrue(errors.stream().anyMatch(error -> error.contains("1234569999")), errors.toString());
+    }
+
+    @Test
+    @DisplayName("parallel loading should produce the same model as sequential loading")
+    void parallelShouldMatchSequential() throws Exception {
+        createTestSet();
+        ITSQTestSetLoader sequentialLoader = new ITSQTestSetLoader(tempDir.toFile());
+        sequentialLoader.setParallelism(1);
+        ITSQTestSetLoader parallelLoader = new ITSQTestSetLoader(tempDir.toFile());
+        parallelLoader.setParallelism(8);
+
+        Map<String, TestCustomer> sequentialMap = sequentialLoader.loadPhase(TestSupportClientKonstanten.TEST_PHASE.PHASE_1);
+        Map<String, TestCustomer> parallelMap = parallelLoader.loadPhase(TestSupportClientKonstanten.TEST_PHASE.PHASE_1);
+
+        assertEquals(sequentialMap.keySet(), parallelMap.keySet());
+        for (String customerKey : sequentialMap.keySet()) {
+            Map<String, TestScenario> sequentialScenarios = sequentialMap.get(customerKey).getTestScenariosMap();
+            Map<String, TestScenario> parallelScenarios = parallelMap.get(customerKey).getTestScenariosMap();
+            assertEquals(sequentialScenarios.keySet(), parallelScenarios.keySet());
+            for (String scenarioName : sequentialScenarios.keySet()) {
+                assertEquals(sequentialScenarios.get(scenarioName).getTestFallNameToTestCrefoMap().keySet(),
+                        parallelScenarios.get(scenarioName).getTestFallNameToTestCrefoMap().keySet());
+            }
+        }
+    }
+
+    @Test
+    @DisplayName("should report a missing phase directory as error")
+    void shouldReportMissingPhaseDir() throws Exception {
+        ITSQTestSetLoader loader = new ITSQTestSetLoader(tempDir.toFile());
+
+        Map<String, TestCustomer> customerTestInfoMap = loader.loadPhase(TestSupportClientKonstanten.TEST_PHASE.PHASE_1);
+
+        assertTrue(customerTestInfoMap.isEmpty());
+        assertEquals(1, loader.getErrors().size());
+    }
+}
@@ -0,0 +1,136 @@
+package de.cavdar.itsq;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for ItsqContentManifest and ItsqContentManifestBuilder.
+ */
+@DisplayName("ItsqContentManifest Tests")
+class ItsqContentManifestTest {
+
+    @TempDir
+    Path tempDir;
+
+    private Path scenarioDir(String phase, String customerDir, String scenarioName) {
+        return tempDir.resolve(TestSupportClientKonstanten.REF_EXPORTS_ROOT).resolve(phase).resolve(customerDir).resolve(scenarioName);
+    }
+
+    @BeforeEach
+    void setUp() throws Exception {
+        for (String phase : List.of(TestSupportClientKonstanten.PHASE_1, TestSupportClientKonstanten.PHASE_2)) {
+            for (int c = 1; c <= 2; c++) {
+                for (int s = 1; s <= 2; s++) {
+                    Path scenarioDir = Files.createDirectories(scenarioDir(phase, "c0" + c, "Relevanz_" + s));
+                    Files.writeString(scenarioDir.resolve("Relevanz.properties"), "p01=123456789" + s + "\n", StandardCharsets.UTF_8);
+                    Files.writeString(scenarioDir.resolve("p01_stammsatz_123456789" + s + ".xml"), "<xml c='" + c + "'/>", StandardCharsets.UTF_8);
+                }
+            }
+            Path archivDir = Files.createDirectories(tempDir.resolve(TestSupportClientKonstanten.ARCHIV_BESTAND_ROOT).resolve(phase));
+            Files.writeString(archivDir.resolve("1234567891.xml"), "<xml/>", StandardCharsets.UTF_8);
+        }
+    }
+
+    private ItsqContentManifestBuilder builder() {
+        ItsqContentManifestBuilder builder = new ItsqContentManifestBuilder(tempDir.toFile());
+        builder.setParallelism(4);
+        return builder;
+    }
+
+    @Test
+    @DisplayName("should roll up equal hashes for equal content and report no changes")
+    void shouldBuildMerkleHashes() throws Exception {
+        ItsqContentManifest manifest = builder().build();
+
+        // gleicher Inhalt in beiden Phasen ergibt denselben Hash pro Phase
+        assertEquals(manifest.getNode("REF-EXPORTS/PHASE-1").getHashHex(), manifest.getNode("REF-EXPORTS/PHASE-2").getHashHex());
+        assertNotEquals(manifest.getNode("REF-EXPORTS/PHASE-1/c01").getHashHex(), manifest.getNode("REF-EXPORTS/PHASE-1/c02").getHashHex());
+        assertEquals(-1, manifest.getNode("REF-EXPORTS/PHASE-1/c01/Relevanz_1").getSize());
+        assertNull(manifest.getNode("REF-EXPORTS/PHASE-3"));
+        assertTrue(manifest.diff(builder().build()).isEmpty());
+    }
+
+    @Test
+    @DisplayName("should ignore derived and half-written files")
+    void shouldIgnoreDerivedFiles() throws Exception {
+        ItsqContentManifest before = builder().build();
+
+        // gecachter Parse-Lauf im ARCHIV-BESTAND, Reste eines Graph-Index, einer Migration und einer abgebrochenen Kopie
+        Path archivDir = tempDir.resolve(TestSupportClientKonstanten.ARCHIV_BESTAND_ROOT).resolve(TestSupportClientKonstanten.PHASE_1);
+        AB30CrefoParseCache parseCache = AB30CrefoParseCache.forDirectory(archivDir.toFile());
+        parseCache.get(archivDir.resolve("1234567891.xml").toFile(), file -> Map.of());
+        parseCache.save();
+        Files.writeString(archivDir.resolve(AB30CrefoGraphIndex.INDEX_FILENAME + ".tmp"), "index", StandardCharsets.UTF_8);
+        Files.writeString(tempDir.resolve(".itsq-migration.journal"), "journal", StandardCharsets.UTF_8);
+        Files.writeString(scenarioDir(TestSupportClientKonstanten.PHASE_1, "c01", "Relevanz_1").resolve("p02_stammsatz_1234567899.xml.part"), "<xm", StandardCharsets.UTF_8);
+
+        assertTrue(Files.exists(archivDir.resolve(AB30CrefoParseCache.CACHE_FILENAME)));
+        assertTrue(before.diff(builder().build()).isEmpty());
+    }
+
+    @Test
+    @DisplayName("should report only the changed subtrees")
+    void shouldDiffChangedSubtrees() throws Exception {
+        ItsqContentManifest before = builder().build();
+
+        Path changedScenario = scenarioDir(TestSupportClientKonstanten.PHASE_2, "c01", "Relevanz_2");
+        Files.writeString(changedScenario.resolve("Relevanz.properties"), "p01=1234567899\n", StandardCharsets.UTF_8);
+        Files.setLastModifiedTime(changedScenario.resolve("Relevanz.properties"), FileTime.fromMillis(System.currentTimeMillis() + 5000));
+        Path newScenario = Files.createDirectories(scenarioDir(TestSupportClientKonstanten.PHASE_1, "c02", "Relevanz_3"));
+        Files.writeString(newScenario.resolve("Relevanz.properties"), "p01=1234567893\n", StandardCharsets.UTF_8);
+        Path removedScenario = scenarioDir(TestSupportClientKonstanten.PHASE_1, "c01", "Relevanz_1");
+        try (var files = Files.list(removedScenario)) {
+            for (Path file : files.toList()) {
+                Files.delete(file);
+            }
+        }
+        Files.delete(removedScenario);
+
+        ItsqContentManifest after = builder().build();
+
+        assertEquals(List.of(
+                new ItsqContentManifest.Change("REF-EXPORTS/PHASE-1/c01/Relevanz_1", ItsqContentManifest.ChangeType.REMOVED, true),
+                new ItsqContentManifest.Change("REF-EXPORTS/PHASE-1/c02/Relevanz_3", ItsqContentManifest.ChangeType.ADDED, true),
+                new ItsqContentManifest.Change("REF-EXPORTS/PHASE-2/c01/Relevanz_2/Relevanz.properties", ItsqContentManifest.ChangeType.MODIFIED, false)
+        ), before.diff(after));
+        assertEquals(before.getNode("ARCHIV-BESTAND").getHashHex(), after.getNode("ARCHIV-BESTAND").getHashHex());
+        assertNotEquals(before.getRoot().getHashHex(), after.getRoot().getHashHex());
+    }
+
+    @Test
+    @DisplayName("should rehash only files changed since the persisted manifest")
+    void shouldReusePersistedHashes() throws Exception {
+        ItsqContentManifestBuilder firstBuilder = builder();
+        ItsqContentManifest first = firstBuilder.build();
+        assertEquals(18, firstBuilder.getHashedFilesCount());
+        assertTrue(firstBuilder.getManifestFile().exists());
+
+        Path xmlFile = scenarioDir(TestSupportClientKonstanten.PHASE_1, "c02", "Relevanz_2").resolve("p01_stammsatz_1234567892.xml");
+        Files.writeString(xmlFile, "<xml c='geaendert'/>", StandardCharsets.UTF_8);
+        Files.setLastModifiedTime(xmlFile, FileTime.fromMillis(System.currentTimeMillis() + 5000));
+
+        ItsqContentManifestBuilder secondBuilder = builder();
+        ItsqContentManifest second = secondBuilder.build();
+        assertEquals(1, secondBuilder.getHashedFilesCount());
+        assertEquals(17, secondBuilder.getReusedFilesCount());
+        assertEquals(1, first.diff(second).size());
+
+        // das gelesene Manifest entspricht dem geschriebenen
+        ItsqContentManifest read = ItsqContentManifest.read(secondBuilder.getManifestFile(), tempDir.toFile());
+        assertNotNull(read);
+        assertEquals(second.getRoot().getHashHex(), read.getRoot().getHashHex());
+        assertTrue(second.diff(read).isEmpty());
+        assertNull(ItsqContentManifest.read(secondBuilder.getManifestFile(), tempDir.resolve("anderes").toFile()));
+    }
+}
@@ -0,0 +1,161 @@
+package de.cavdar.itsq;
+
+import de.cavdar.itsq.migration.model.TestCasePhaseAssignment;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for ItsqPathTable and ItsqStringPool.
+ */
+@DisplayName("ItsqPathTable Tests")
+class ItsqPathTableTest {
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    @DisplayName("should resolve absolute and relative paths to equal files")
+    void shouldRoundTripPaths() {
+        ItsqPathTable pathTable = new ItsqPathTable(tempDir.toFile());
+        File absolute = tempDir.resolve("REF-EXPORTS").resolve("PHASE-1").resolve("c01").resolve("p01_1234567894.xml").toFile();
+        File relative = new File("REF-EXPORTS" + File.separator + "c01" + File.separator + "Relevanz.properties");
+        File outside = tempDir.getParent().resolve("ANDERES").resolve("p01.xml").toFile();
+
+        assertEquals(absolute, pathTable.fileOf(pathTable.idOf(absolute)));
+        assertEquals(relative, pathTable.fileOf(pathTable.idOf(relative)));
+        assertEquals(outside, pathTable.fileOf(pathTable.idOf(outside)));
+        assertEquals(ItsqPathTable.ROOT_ID, pathTable.idOf(tempDir.toFile()));
+        assertEquals(tempDir.toFile(), pathTable.fileOf(ItsqPathTable.ROOT_ID));
+        assertEquals(ItsqPathTable.NO_PATH, pathTable.idOf(null));
+        assertNull(pathTable.fileOf(ItsqPathTable.NO_PATH));
+    }
+
+    @Test
+    @DisplayName("should share ids for equal paths and store them relative to the root")
+    void shouldShareIds() {
+        ItsqPathTable pathTable = new ItsqPathTable(tempDir.toFile());
+        File dir = tempDir.resolve("c01").resolve("Relevanz_Positiv").toFile();
+        int firstId = pathTable.idOf(new File(dir, "p01.xml"));
+        // Wurzel, c01, Relevanz_Positiv, p01.xml
+        assertEquals(4, pathTable.size());
+
+        assertEquals(firstId, pathTable.idOf(new File(dir, "p01.xml")));
+        assertEquals(4, pathTable.size());
+        // ein weiterer Name im selben Verzeichnis belegt genau einen neuen Eintrag
+        int secondId = pathTable.idOf(new File(dir, "p02.xml"));
+        assertNotEquals(firstId, secondId);
+        assertEquals(5, pathTable.size());
+        assertEquals(dir, pathTable.fileOf(secondId).getParentFile());
+    }
+
+    @Test
+    @DisplayName("tables of different test sets should be independent")
+    void shouldScopeTablesToTestSets() {
+        ItsqPathTable first = new ItsqPathTable(tempDir.resolve("ALT").toFile());
+        ItsqPathTable second = new ItsqPathTable(tempDir.resolve("NEU").toFile());
+        File firstFile = tempDir.resolve("ALT").resolve("c01").resolve("p01.xml").toFile();
+        File secondFile = tempDir.resolve("NEU").resolve("c01").resolve("p01.xml").toFile();
+
+        int firstId = first.idOf(firstFile);
+        int secondId = second.idOf(secondFile);
+
+        assertEquals(firstId, secondId);
+        assertEquals(firstFile, first.fileOf(firstId));
+        assertEquals(secondFile, second.fileOf(secondId));
+        assertEquals(3, second.size());
+    }
+
+    @Test
+    @DisplayName("should resolve ids while other threads add paths")
+    void shouldResolveConcurrently() throws Exception {
+        ItsqPathTable pathTable = new ItsqPathTable(tempDir.toFile());
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            List<Future<Boolean>> results = new ArrayList<>();
+            for (int t = 0; t < 4; t++) {
+                int thread = t;
+                results.add(executor.submit(() -> {
+                    for (int i = 0; i < 2000; i++) {
+                        File file = tempDir.resolve("c" + (i % 16)).resolve("t" + thread + "_" + i + ".xml").toFile();
+                        if (!file.equals(pathTable.fileOf(pathTable.idOf(file)))) {
+                            return false;
+                        }
+                    }
+                    return true;
+                }));
+            }
+            for (Future<Boolean> result : results) {
+                assertTrue(result.get());
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+        assertEquals(1 + 16 + 4 * 2000, pathTable.size());
+    }
+
+    @Test
+    @DisplayName("model objects of a loaded test set should share the table of the loader")
+    void shouldUseTableOfLoader() throws Exception {
+        Path scenarioDir = Files.createDirectories(tempDir.resolve("REF-EXPORTS").resolve("PHASE-1").resolve("c01").resolve("Relevanz_Positiv"));
+        Files.writeString(scenarioDir.resolve("Relevanz.properties"), "n01=1234567891\n");
+        ITSQTestSetLoader loader = new ITSQTestSetLoader(tempDir.toFile());
+        ItsqPathTable firstTable = loader.getPathTable();
+
+        TestCustomer testCustomer = loader.loadPhase(TestSupportClientKonstanten.TEST_PHASE.PHASE_1).get("C01");
+        TestCrefo testCrefo = testCustomer.getTestScenariosMap().get("Relevanz_Positiv").getTestFallNameToTestCrefoMap().get("n01");
+
+        assertNotSame(firstTable, loader.getPathTable());
+        assertSame(loader.getPathTable(), testCustomer.getPathTable());
+        assertEquals(scenarioDir.toFile(), testCustomer.getTestScenariosMap().get("Relevanz_Positiv").getItsqRefExportsPropsFile().getParentFile());
+        assertNull(testCrefo.getItsqRexExportXmlFile());
+    }
+
+    @Test
+    @DisplayName("model objects of one table should share pooled string instances")
+    void shouldShareStrings() {
+        String infoA = new String(" Stammsatz");
+        String infoB = new String(" Stammsatz");
+        File xmlFile = tempDir.resolve("p01_stammsatz_1234567894.xml").toFile();
+        ItsqPathTable pathTable = new ItsqPathTable(tempDir.toFile());
+
+        TestCrefo testCrefoA = new TestCrefo(new String("p01"), 1234567894L, infoA, true, pathTable, xmlFile);
+        TestCrefo testCrefoB = new TestCrefo(new String("p01"), 1234567894L, infoB, true, pathTable, xmlFile);
+        TestCasePhaseAssignment assignment = new TestCasePhaseAssignment("c01", "Relevanz_Positiv", new String("p01"), 1234567894L, infoA, pathTable);
+        assignment.setPhase1RefExportXml(xmlFile);
+
+        assertSame(testCrefoA.getTestFallName(), testCrefoB.getTestFallName());
+        assertSame(testCrefoA.getTestFallInfo(), testCrefoB.getTestFallInfo());
+        assertSame(testCrefoA.getTestFallName(), assignment.getTestFallName());
+        assertEquals(xmlFile, testCrefoA.getItsqRexExportXmlFile());
+        assertEquals(xmlFile, assignment.getPhase1RefExportXml());
+        assertNull(assignment.getPhase2RefExportXml());
+    }
+
+    @Test
+    @DisplayName("the string pool should belong to its table")
+    void shouldScopeStringPoolToTable() {
+        ItsqPathTable first = new ItsqPathTable(null);
+        ItsqPathTable second = new ItsqPathTable(null);
+        String name = first.intern(new String("Relevanz_Positiv"));
+
+        assertSame(name, first.intern(new String("Relevanz_Positiv")));
+        assertNotSame(name, second.intern(new String("Relevanz_Positiv")));
+
+        TestScenario testScenario = new TestScenario(new TestCustomer("c01", "c01"), new String("Relevanz_Positiv"), null, null, true);
+        TestCrefo testCrefo = new TestCrefo(new String("p01"), 1234567894L, "info", true, null);
+        testScenario.getTestFallNameToTestCrefoMap().put("p01", testCrefo);
+        assertSame(testScenario.getPathTable().intern(new String("p01")), testCrefo.getTestFallName());
+    }
+}
@@ -0,0 +1,69 @@
+package de.cavdar.itsq;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * Shared fixtures for the tests: crefo XMLs of an ARCHIV-BESTAND directory and scenarios of a test set.
+ */
+final class ItsqTestFixtures {
+
+    private ItsqTestFixtures() {
+    }
+
+    /**
+     * Writes dir/&lt;crefoNr&gt;.xml with the given participants as firmenbeteiligte.
+     */
+    static File writeCrefoXml(Path dir, long crefoNr, long... btlgCrefoNrs) throws Exception {
+        StringBuilder xml = new StringBuilder("<?xml version=\"1.0\"?><arc:archiv-bestand><arc:steuerungsdaten><arc:crefonummer>")
+                .append(crefoNr).append("</arc:crefonummer></arc:steuerungsdaten><arc:firmenbeteiligte>");
+        for (long btlgCrefoNr : btlgCrefoNrs) {
+            xml.append("<arc:firmenbeteiligter><arc:crefonummer-beteiligter>").append(btlgCrefoNr)
+                    .append("</arc:crefonummer-beteiligter></arc:firmenbeteiligter>");
+        }
+        xml.append("</arc:firmenbeteiligte></arc:archiv-bestand>");
+        Path xmlPath = dir.resolve(crefoNr + ".xml");
+        Files.writeString(xmlPath, xml, StandardCharsets.UTF_8);
+        return xmlPath.toFile();
+    }
+
+    /**
+     * REF-EXPORTS/&lt;phase&gt;/customerDir/scenarioName below testSetRootDir.
+     */
+    static Path scenarioDir(Path testSetRootDir, TestSupportClientKonstanten.TEST_PHASE testPhase, String customerDir, String scenarioName) {
+        return testSetRootDir.resolve(TestSupportClientKonstanten.REF_EXPORTS_ROOT).resolve(testPhase.getDirName())
+                .resolve(customerDir).resolve(scenarioName);
+    }
+
+    /**
+     * Creates the scenario directory with a Relevanz.properties of the given content.
+     */
+    static Path createScenario(Path testSetRootDir, TestSupportClientKonstanten.TEST_PHASE testPhase, String customerDir, String scenarioName,
+                               String props) throws Exception {
+        Path scenarioDir = Files.createDirectories(scenarioDir(testSetRootDir, testPhase, customerDir, scenarioName));
+        Files.writeString(scenarioDir.resolve("Relevanz.properties"), props, StandardCharsets.UTF_8);
+        return scenarioDir;
+    }
+
+    /**
+     * Creates the scenario directory with testCrefos test cases p&lt;i&gt;=1234567000+i and an empty REF-EXPORT XML for
+     * each of them. With withNegatives every third test case is a negative one (n&lt;i&gt;) without XML.
+     */
+    static Path createScenario(Path testSetRootDir, TestSupportClientKonstanten.TEST_PHASE testPhase, String customerDir, String scenarioName,
+                               int testCrefos, boolean withNegatives) throws Exception {
+        Path scenarioDir = Files.createDirectories(scenarioDir(testSetRootDir, testPhase, customerDir, scenarioName));
+        StringBuilder props = new StringBuilder();
+        for (int i = 0; i < testCrefos; i++) {
+            long crefoNr = 1234567000L + i;
+            boolean negative = withNegatives && i % 3 == 0;
+            props.append(negative ? "n" : "p").append(i).append("=").append(crefoNr).append(" # Testfall ").append(i).append('\n');
+            if (!negative) {
+                Files.createFile(scenarioDir.resolve("p" + i + "_stammsatz_" + crefoNr + ".xml"));
+            }
+        }
+        Files.writeString(scenarioDir.resolve("Relevanz.properties"), props, StandardCharsets.UTF_8);
+        return scenarioDir;
+    }
+}
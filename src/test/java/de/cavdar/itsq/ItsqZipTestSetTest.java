@@ -0,0 +1,155 @@
+package de.cavdar.itsq;
+
+import de.cavdar.gui.itsq.tree.ItsqTreeModel;
+import de.cavdar.itsq.migration.model.MigrationConfig;
+import de.cavdar.itsq.migration.service.OldStructureAnalyzer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for ItsqZipTestSet and ItsqFiles.
+ */
+@DisplayName("ItsqZipTestSet Tests")
+class ItsqZipTestSetTest {
+
+    @TempDir
+    Path tempDir;
+
+    private final List<ItsqZipTestSet> mounted = new ArrayList<>();
+
+    @AfterEach
+    void tearDown() throws Exception {
+        for (ItsqZipTestSet zipTestSet : mounted) {
+            zipTestSet.close();
+        }
+    }
+
+    private File createZip(String fileName, String... namesAndContents) throws Exception {
+        File zipFile = tempDir.resolve(fileName).toFile();
+        try (ZipOutputStream zipOut = new ZipOutputStream(Files.newOutputStream(zipFile.toPath()))) {
+            for (int i = 0; i < namesAndContents.length; i += 2) {
+                zipOut.putNextEntry(new ZipEntry(namesAndContents[i]));
+                zipOut.write(namesAndContents[i + 1].getBytes(StandardCharsets.UTF_8));
+                zipOut.closeEntry();
+            }
+        }
+        return zipFile;
+    }
+
+    private ItsqZipTestSet mount(File zipFile) throws Exception {
+        ItsqZipTestSet zipTestSet = ItsqZipTestSet.mount(zipFile);
+        mounted.add(zipTestSet);
+        return zipTestSet;
+    }
+
+    private File createNewStructureZip() throws Exception {
+        return createZip("testfaelle-ZWEI_PHASEN.zip",
+                "REF-EXPORTS/PHASE-1/c01/Relevanz_1/Relevanz.properties", "p01=1234567894 # Stammsatz\nn02=1234567895\n",
+                "REF-EXPORTS/PHASE-1/c01/Relevanz_1/p01_stammsatz_1234567894.xml", "<xml/>",
+                "REF-EXPORTS/PHASE-2/c01/Relevanz_1/Relevanz.properties", "p01=1234567894\n",
+                "ARCHIV-BESTAND/PHASE-1/1234567894.xml", "<xml/>");
+    }
+
+    @Test
+    @DisplayName("loader should read the model directly from the ZIP")
+    void loaderShouldReadFromZip() throws Exception {
+        ItsqZipTestSet zipTestSet = mount(createNewStructureZip());
+        File rootDir = zipTestSet.findTestSetRootDir();
+        assertEquals(zipTestSet.getRootDir(), rootDir);
+
+        ITSQTestSetLoader loader = new ITSQTestSetLoader(rootDir);
+        loader.setUseSnapshot(true);
+        Map<TestSupportClientKonstanten.TEST_PHASE, Map<String, TestCustomer>> model = loader.load();
+
+        // nur der Hinweis auf die in PHASE-2 fehlende REF-EXPORT-XML, kein fehlerhaftes Szenario
+        assertEquals(List.of("PHASE-2/C01/Relevanz_1: Für die Test-Crefo 'p01':1234567894 müsste es EINE RefExport-XML existieren!"), loader.getErrors());
+        TestScenario testScenario = model.get(TestSupportClientKonstanten.TEST_PHASE.PHASE_1).get("C01").getTestScenariosMap().get("Relevanz_1");
+        assertEquals(2, testScenario.getTestFallNameToTestCrefoMap().size());
+        File xmlFile = testScenario.getTestFallNameToTestCrefoMap().get("p01").getItsqRexExportXmlFile();
+        assertEquals(new File(rootDir, "REF-EXPORTS/PHASE-1/c01/Relevanz_1/p01_stammsatz_1234567894.xml".replace('/', File.separatorChar)), xmlFile);
+        assertTrue(ItsqFiles.isFile(xmlFile));
+        assertEquals("<xml/>", new String(ItsqFiles.readAllBytes(xmlFile), StandardCharsets.UTF_8));
+        assertEquals(1, model.get(TestSupportClientKonstanten.TEST_PHASE.PHASE_2).get("C01").getAllTestCrefos(false, false).size());
+        // in das ZIP wird kein Schnappschuss geschrieben
+        assertFalse(ItsqFiles.exists(loader.getSnapshotFile()));
+    }
+
+    @Test
+    @DisplayName("tree model should show the ZIP content")
+    void treeModelShouldScanZip() throws Exception {
+        ItsqZipTestSet zipTestSet = mount(createNewStructureZip());
+
+        ItsqTreeModel treeModel = new ItsqTreeModel(zipTestSet.getRootDir());
+
+        assertEquals(4, treeModel.getTotalFiles());
+        assertNotNull(treeModel.getRoot());
+    }
+
+    @Test
+    @DisplayName("migration analyzer should read an OLD structure below a ZIP subdirectory")
+    void analyzerShouldReadFromZip() throws Exception {
+        File zipFile = createZip("testfaelle-EINE_PHASEN.zip",
+                "ITSQ/REF-EXPORTS/c01/Relevanz_1/Relevanz.properties", "p01=1234567894 # Stammsatz\n",
+                "ITSQ/REF-EXPORTS/c01/Relevanz_1/p01_stammsatz_1234567894.xml", "<xml/>",
+                "ITSQ/ARCHIV-BESTAND-PH1/1234567894.xml", "<xml/>");
+        ItsqZipTestSet zipTestSet = mount(zipFile);
+        File rootDir = zipTestSet.findTestSetRootDir();
+        assertEquals(new File(zipTestSet.getRootDir(), "ITSQ"), rootDir);
+
+        OldStructureAnalyzer analyzer = new OldStructureAnalyzer(new MigrationConfig(rootDir, tempDir.resolve("NEW").toFile()));
+        analyzer.analyze();
+
+        assertEquals(List.of("c01"), analyzer.getCustomerKeys());
+        assertTrue(analyzer.hasCrefoInPhase1(1234567894L));
+        assertNotNull(analyzer.getArchivBestandXmlPhase1(1234567894L));
+        assertNotNull(analyzer.getAllAssignments().get(0).getSourceRefExportXml());
+    }
+
+    @Test
+    @DisplayName("should serve repeated reads from the decompression cache")
+    void shouldCacheEntries() throws Exception {
+        ItsqZipTestSet zipTestSet = mount(createNewStructureZip());
+        File propsFile = new File(zipTestSet.getRootDir(), "REF-EXPORTS/PHASE-2/c01/Relevanz_1/Relevanz.properties".replace('/', File.separatorChar));
+
+        assertEquals(List.of("p01=1234567894"), ItsqFiles.readLines(propsFile, StandardCharsets.UTF_8));
+        assertEquals(List.of("p01=1234567894"), ItsqFiles.readLines(propsFile, StandardCharsets.UTF_8));
+        assertEquals(1, zipTestSet.getCacheMisses());
+        assertEquals(1, zipTestSet.getCacheHits());
+        assertTrue(zipTestSet.getCachedBytes() > 0);
+
+        zipTestSet.setMaxCacheBytes(0);
+        assertEquals(0, zipTestSet.getCachedBytes());
+    }
+
+    @Test
+    @DisplayName("should find and reuse the ZIP of a revision and unmount on close")
+    void shouldMountRevision() throws Exception {
+        File zipFile = createNewStructureZip();
+
+        ItsqZipTestSet zipTestSet = ItsqZipTestSet.mountRevision(tempDir.toFile(), "ZWEI_PHASEN");
+        mounted.add(zipTestSet);
+        assertNotNull(zipTestSet);
+        assertEquals(zipFile.getAbsoluteFile(), zipTestSet.getZipFile());
+        assertSame(zipTestSet, ItsqZipTestSet.mount(zipFile));
+        assertNull(ItsqZipTestSet.mountRevision(tempDir.toFile(), "DREI_PHASEN"));
+        assertTrue(ItsqFiles.isDirectory(zipFile));
+
+        zipTestSet.close();
+        assertFalse(ItsqFiles.isDirectory(zipFile));
+        assertFalse(ItsqFiles.isZipEntry(new File(zipFile, "REF-EXPORTS")));
+    }
+}
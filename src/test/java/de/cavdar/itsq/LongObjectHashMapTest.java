@@ -0,0 +1,72 @@
+package de.cavdar.itsq;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for LongObjectHashMap.
+ */
+@DisplayName("LongObjectHashMap Tests")
+class LongObjectHashMapTest {
+
+    @Test
+    @DisplayName("should behave like HashMap for random put/remove sequences")
+    void shouldBehaveLikeHashMap() {
+        Random random = new Random(4711);
+        Map<Long, String> expectedMap = new HashMap<>();
+        LongObjectHashMap<String> longObjectHashMap = new LongObjectHashMap<>();
+        for (int i = 0; i < 50_000; i++) {
+            // kleiner Wertebereich erzwingt Kollisionen und Entfernen innerhalb von Sondierungsketten
+            long key = random.nextInt(2_000) - 10;
+            if (random.nextInt(3) == 0) {
+                assertEquals(expectedMap.remove(key), longObjectHashMap.remove(key));
+            } else {
+                assertEquals(expectedMap.put(key, "v" + i), longObjectHashMap.put(key, "v" + i));
+            }
+        }
+        assertEquals(expectedMap.size(), longObjectHashMap.size());
+        assertEquals(expectedMap, longObjectHashMap);
+        assertEquals(longObjectHashMap, expectedMap);
+        for (long key = -10; key < 1_990; key++) {
+            assertEquals(expectedMap.get(key), longObjectHashMap.get(key));
+            assertEquals(expectedMap.containsKey(key), longObjectHashMap.containsKey(key));
+        }
+    }
+
+    @Test
+    @DisplayName("should support the zero key and null values")
+    void shouldSupportZeroKeyAndNullValues() {
+        LongObjectHashMap<String> longObjectHashMap = new LongObjectHashMap<>();
+        longObjectHashMap.put(0L, "null");
+        longObjectHashMap.put(1234567890L, null);
+
+        assertEquals(2, longObjectHashMap.size());
+        assertEquals("null", longObjectHashMap.get(0L));
+        assertTrue(longObjectHashMap.containsKey(1234567890L));
+        assertNull(longObjectHashMap.get(1234567890L));
+        assertArrayEquals(new long[]{0L, 1234567890L}, longObjectHashMap.sortedKeys());
+        assertEquals("null", longObjectHashMap.remove(0L));
+        assertFalse(longObjectHashMap.containsKey(0L));
+    }
+
+    @Test
+    @DisplayName("sortedKeys() should return all keys in ascending order")
+    void sortedKeysShouldBeAscending() {
+        LongObjectHashMap<String> longObjectHashMap = new LongObjectHashMap<>();
+        long[] keys = {4110106343L, 1234567891L, 9999999999L, 1000000000L};
+        for (int i = 0; i < keys.length; i++) {
+            longObjectHashMap.put(keys[i], "v" + i);
+        }
+        long[] expectedKeys = keys.clone();
+        Arrays.sort(expectedKeys);
+
+        assertArrayEquals(expectedKeys, longObjectHashMap.sortedKeys());
+    }
+}
@@ -0,0 +1,103 @@
+package de.cavdar.itsq;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NavigableSet;
+import java.util.Random;
+import java.util.TreeSet;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for LongSortedSet.
+ */
+@DisplayName("LongSortedSet Tests")
+class LongSortedSetTest {
+
+    @Test
+    @DisplayName("should iterate in the same order as TreeSet")
+    void shouldBehaveLikeTreeSet() {
+        Random random = new Random(815);
+        TreeSet<Long> expectedSet = new TreeSet<>();
+        LongSortedSet longSortedSet = new LongSortedSet();
+        for (int i = 0; i < 5_000; i++) {
+            long value = 1234567000L + random.nextInt(500);
+            if (random.nextInt(4) == 0) {
+                assertEquals(expectedSet.remove(value), longSortedSet.remove(value));
+            } else {
+                assertEquals(expectedSet.add(value), longSortedSet.add(value));
+            }
+        }
+        assertEquals(new ArrayList<>(expectedSet), new ArrayList<>(longSortedSet));
+        assertEquals(expectedSet, longSortedSet);
+        assertEquals(expectedSet.first(), longSortedSet.first());
+        assertEquals(expectedSet.last(), longSortedSet.last());
+        assertEquals(expectedSet.toString(), longSortedSet.toString());
+    }
+
+    @Test
+    @DisplayName("addAll() should merge another LongSortedSet")
+    void addAllShouldMerge() {
+        LongSortedSet longSortedSet = new LongSortedSet(List.of(5L, 1L, 9L));
+        LongSortedSet otherSet = new LongSortedSet(List.of(9L, 2L, 7L));
+
+        assertTrue(longSortedSet.addAll(otherSet));
+        assertFalse(longSortedSet.addAll(otherSet));
+        assertArrayEquals(new long[]{1L, 2L, 5L, 7L, 9L}, longSortedSet.toLongArray());
+    }
+
+    @Test
+    @DisplayName("iterator remove() should remove the current element")
+    void iteratorShouldRemove() {
+        LongSortedSet longSortedSet = new LongSortedSet(List.of(1L, 2L, 3L, 4L));
+        Iterator<Long> iterator = longSortedSet.iterator();
+        while (iterator.hasNext()) {
+            if (iterator.next() % 2 == 0) {
+                iterator.remove();
+            }
+        }
+
+        assertArrayEquals(new long[]{1L, 3L}, longSortedSet.toLongArray());
+    }
+
+    @Test
+    @DisplayName("navigation and views should behave like TreeSet")
+    void navigationShouldBehaveLikeTreeSet() {
+        TreeSet<Long> expectedSet = new TreeSet<>(List.of(10L, 20L, 30L, 40L, 50L));
+        LongSortedSet longSortedSet = new LongSortedSet(expectedSet);
+        for (long value = 5; value <= 55; value += 5) {
+            assertEquals(expectedSet.lower(value), longSortedSet.lower(value), "lower " + value);
+            assertEquals(expectedSet.floor(value), longSortedSet.floor(value), "floor " + value);
+            assertEquals(expectedSet.ceiling(value), longSortedSet.ceiling(value), "ceiling " + value);
+            assertEquals(expectedSet.higher(value), longSortedSet.higher(value), "higher " + value);
+        }
+        assertEquals(List.copyOf(expectedSet.descendingSet()), List.copyOf(longSortedSet.descendingSet()));
+        assertEquals(List.copyOf(expectedSet.subSet(20L, true, 40L, false)), List.copyOf(longSortedSet.subSet(20L, true, 40L, false)));
+        assertEquals(List.copyOf(expectedSet.headSet(30L)), List.copyOf(longSortedSet.headSet(30L)));
+        assertEquals(List.copyOf(expectedSet.tailSet(30L, false)), List.copyOf(longSortedSet.tailSet(30L, false)));
+
+        NavigableSet<Long> expectedView = expectedSet.descendingSet().subSet(45L, true, 15L, true);
+        NavigableSet<Long> view = longSortedSet.descendingSet().subSet(45L, true, 15L, true);
+        assertEquals(List.copyOf(expectedView), List.copyOf(view));
+        assertEquals(expectedView.first(), view.first());
+        assertEquals(expectedView.higher(30L), view.higher(30L));
+        assertEquals(List.copyOf(expectedView.headSet(30L)), List.copyOf(view.headSet(30L)));
+        assertThrows(IllegalArgumentException.class, () -> view.add(60L));
+
+        // Sichten sind live
+        view.add(35L);
+        expectedView.add(35L);
+        assertEquals(expectedSet.pollFirst(), longSortedSet.pollFirst());
+        assertEquals(expectedView.pollFirst(), view.pollFirst());
+        assertEquals(expectedSet, longSortedSet);
+        assertEquals(List.copyOf(expectedView), List.copyOf(view));
+        longSortedSet.headSet(30L, true).clear();
+        expectedSet.headSet(30L, true).clear();
+        assertEquals(expectedSet, longSortedSet);
+        assertEquals(expectedSet.size(), longSortedSet.size());
+    }
+}
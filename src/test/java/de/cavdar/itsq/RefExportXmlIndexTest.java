@@ -0,0 +1,98 @@
+package de.cavdar.itsq;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for RefExportXmlIndex.
+ */
+@DisplayName("RefExportXmlIndex Tests")
+class RefExportXmlIndexTest {
+
+    @TempDir
+    Path tempDir;
+
+    @Nested
+    @DisplayName("Lookup Tests")
+    class LookupTests {
+
+        private final File stammsatz = new File("p01_stammsatz_1234567894.xml");
+        private final File bilanz = new File("p01_bilanz_1234567894.xml");
+        private final File other = new File("p02_stammsatz_1234567895.xml");
+        private final RefExportXmlIndex index = new RefExportXmlIndex(List.of(stammsatz, bilanz, other));
+
+        @Test
+        @DisplayName("should find the first file for a crefo in listing order")
+        void shouldFindFirstFileForCrefo() {
+            assertSame(stammsatz, index.findXmlFileForCrefo(1234567894L));
+            assertSame(other, index.findXmlFileForCrefo(1234567895L));
+            assertNull(index.findXmlFileForCrefo(1234567899L));
+        }
+
+        @Test
+        @DisplayName("should find a file by test case name and crefo")
+        void shouldFindByTestFallAndCrefo() {
+            assertSame(stammsatz, index.findXmlFileForTestfallAndCrefo("p01", 1234567894L));
+            assertSame(bilanz, index.findXmlFileForTestfallAndCrefo("bilanz", 1234567894L));
+            assertNull(index.findXmlFileForTestfallAndCrefo("p02", 1234567894L));
+            assertTrue(index.hasMatchingXml("p02", 1234567895L));
+            assertFalse(index.hasMatchingXml("n01", 1234567895L));
+        }
+
+        @Test
+        @DisplayName("should apply the name pattern {testFallName}_*_{crefoNr}.xml")
+        void shouldApplyNamePattern() {
+            assertSame(stammsatz, index.findXmlFileByNamePattern("p01", 1234567894L));
+            assertNull(index.findXmlFileByNamePattern("p0", 1234567894L));
+            assertNull(index.findXmlFileByNamePattern("stammsatz", 1234567894L));
+        }
+
+        @Test
+        @DisplayName("should only match complete digit runs")
+        void shouldMatchCompleteDigitRuns() {
+            assertNull(index.findXmlFileForCrefo(123456789L));
+            assertSame(stammsatz, index.findXmlFileForCrefo(1L));
+        }
+    }
+
+    @Nested
+    @DisplayName("Directory Tests")
+    class DirectoryTests {
+
+        @Test
+        @DisplayName("should list the scenario directory flat or recursive")
+        void shouldListDirectory() throws Exception {
+            Files.createFile(tempDir.resolve("p01_stammsatz_1234567894.xml"));
+            Files.createFile(tempDir.resolve("Relevanz.properties"));
+            Path subDir = Files.createDirectories(tempDir.resolve("sub"));
+            Files.createFile(subDir.resolve("p02_stammsatz_1234567895.xml"));
+
+            RefExportXmlIndex flatIndex = RefExportXmlIndex.forDirectory(tempDir.toFile(), false);
+            RefExportXmlIndex recursiveIndex = RefExportXmlIndex.forDirectory(tempDir.toFile(), true);
+
+            assertEquals(1, flatIndex.getXmlFilesCount());
+            assertNull(flatIndex.findXmlFileForCrefo(1234567895L));
+            assertEquals(2, recursiveIndex.getXmlFilesCount());
+            assertNotNull(recursiveIndex.findXmlFileForCrefo(1234567895L));
+        }
+
+        @Test
+        @DisplayName("should be empty for a missing directory")
+        void shouldBeEmptyForMissingDirectory() {
+            RefExportXmlIndex index = RefExportXmlIndex.forDirectory(tempDir.resolve("missing").toFile(), true);
+
+            assertEquals(0, index.getXmlFilesCount());
+            assertNull(index.findXmlFileForCrefo(1234567894L));
+            assertEquals(0, RefExportXmlIndex.forDirectory(null, false).getXmlFilesCount());
+        }
+    }
+}
@@ -0,0 +1,127 @@
+package de.cavdar.itsq;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for the cached crefo views of TestCustomer.
+ */
+@DisplayName("TestCustomer Tests")
+class TestCustomerTest {
+
+    @TempDir
+    Path tempDir;
+
+    private TestCustomer testCustomer;
+    private TestScenario positivScenario;
+    private TestScenario negativScenario;
+
+    private TestScenario createScenario(String scenarioName, String props) throws Exception {
+        Path scenarioDir = Files.createDirectories(tempDir.resolve("c01").resolve(scenarioName));
+        Files.writeString(scenarioDir.resolve("Relevanz.properties"), props, StandardCharsets.UTF_8);
+        return new TestScenario(testCustomer, scenarioName);
+    }
+
+    @BeforeEach
+    void setUp() throws Exception {
+        testCustomer = new TestCustomer("c01", tempDir.resolve("ab30").toFile(), tempDir.resolve("c01").toFile());
+        positivScenario = createScenario("Relevanz_Positiv", "p01=1234567801\np02=1234567802\nn03=1234567803\n");
+        negativScenario = createScenario("Relevanz_Negativ", "n01=1234567811\np02=1234567812\n");
+        testCustomer.addTestScenario(positivScenario);
+        testCustomer.addTestScenario(negativScenario);
+    }
+
+    @Test
+    @DisplayName("should filter by active and positive flags")
+    void shouldFilterByFlags() {
+        positivScenario.getTestFallNameToTestCrefoMap().get("p02").setActivated(false);
+
+        assertEquals(5, testCustomer.getAllTestCrefos(false, false).size());
+        assertEquals(3, testCustomer.getAllTestCrefos(false, true).size());
+        assertEquals(4, testCustomer.getAllTestCrefos(true, false).size());
+        assertEquals(2, testCustomer.getAllTestCrefos(true, true).size());
+    }
+
+    @Test
+    @DisplayName("should keep the order of scenarios and test case names")
+    void shouldKeepOrder() {
+        List<TestCrefo> allTestCrefos = testCustomer.getAllTestCrefos(false, false);
+        int index = 0;
+        for (TestScenario testScenario : testCustomer.getTestScenariosList()) {
+            for (TestCrefo testCrefo : testScenario.getTestFallNameToTestCrefoMap().values()) {
+                assertSame(testCrefo, allTestCrefos.get(index++));
+            }
+        }
+    }
+
+    @Test
+    @DisplayName("should return the cached view while nothing changes")
+    void shouldReturnCachedView() {
+        List<TestCrefo> firstCall = testCustomer.getAllTestCrefos(true, true);
+
+        assertSame(firstCall, testCustomer.getAllTestCrefos(true, true));
+        assertThrows(UnsupportedOperationException.class, () -> firstCall.add(firstCall.get(0)));
+    }
+
+    @Test
+    @DisplayName("should invalidate on deactivated scenarios and changed flags")
+    void shouldInvalidateOnFlagChanges() {
+        assertEquals(5, testCustomer.getAllTestCrefos(true, false).size());
+
+        negativScenario.setActivated(false);
+        assertEquals(3, testCustomer.getAllTestCrefos(true, false).size());
+
+        positivScenario.getTestFallNameToTestCrefoMap().get("n03").setShouldBeExported(true);
+        assertEquals(3, testCustomer.getAllTestCrefos(true, true).size());
+    }
+
+    @Test
+    @DisplayName("should invalidate on added scenarios and crefos")
+    void shouldInvalidateOnStructureChanges() throws Exception {
+        assertEquals(5, testCustomer.getAllTestCrefos(false, false).size());
+
+        positivScenario.getTestFallNameToTestCrefoMap().put("p04", new TestCrefo("p04", 1234567804L, "", true, null));
+        assertEquals(6, testCustomer.getAllTestCrefos(false, false).size());
+
+        testCustomer.addTestScenario(createScenario("Relevanz_Neu", "p01=1234567821\n"));
+        assertEquals(7, testCustomer.getAllTestCrefos(false, false).size());
+
+        positivScenario.getTestFallNameToTestCrefoMap().remove("p04");
+        assertEquals(6, testCustomer.getAllTestCrefos(false, false).size());
+    }
+
+    @Test
+    @DisplayName("should invalidate only the owning customer, also for changes through map views")
+    void shouldInvalidatePerCustomer() throws Exception {
+        TestCustomer otherCustomer = new TestCustomer("c02", tempDir.resolve("ab30").toFile(), tempDir.resolve("c01").toFile());
+        otherCustomer.addTestScenario(new TestScenario(otherCustomer, "Relevanz_Positiv"));
+        List<TestCrefo> otherView = otherCustomer.getAllTestCrefos(true, false);
+
+        positivScenario.getTestFallNameToTestCrefoMap().get("p01").setActivated(false);
+        assertEquals(4, testCustomer.getAllTestCrefos(true, false).size());
+        assertSame(otherView, otherCustomer.getAllTestCrefos(true, false));
+
+        // gleiche Anzahl, anderer Inhalt
+        TestCrefo replacement = new TestCrefo("p02", 1234567899L, "", true, null);
+        positivScenario.getTestFallNameToTestCrefoMap().entrySet().iterator().next().setValue(replacement);
+        assertSame(replacement, testCustomer.getAllTestCrefos(false, false).get(0));
+        assertEquals(4, testCustomer.getAllTestCrefos(false, true).size());
+        replacement.setShouldBeExported(false);
+        assertEquals(3, testCustomer.getAllTestCrefos(false, true).size());
+
+        negativScenario.getTestFallNameToTestCrefoMap().values().removeIf(testCrefo -> testCrefo.getTestFallName().startsWith("n"));
+        assertEquals(4, testCustomer.getAllTestCrefos(false, false).size());
+        testCustomer.getTestScenariosMap().keySet().remove("Relevanz_Negativ");
+        assertEquals(3, testCustomer.getAllTestCrefos(false, false).size());
+        assertSame(otherView, otherCustomer.getAllTestCrefos(true, false));
+    }
+}
@@ -0,0 +1,98 @@
+package de.cavdar.itsq;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for the concurrent phase mode of TestFallExtendsArchivBestandCrefos.
+ */
+@DisplayName("TestFallExtendsArchivBestandCrefos concurrent phases")
+class TestFallExtendsArchivBestandCrefosConcurrencyTest {
+
+    @TempDir
+    Path tempDir;
+
+    private Map<TestSupportClientKonstanten.TEST_PHASE, Map<String, TestCustomer>> createTestSet(Path testSetDir) throws Exception {
+        Map<TestSupportClientKonstanten.TEST_PHASE, Map<String, TestCustomer>> activeCustomersMapMap = new EnumMap<>(TestSupportClientKonstanten.TEST_PHASE.class);
+        for (TestSupportClientKonstanten.TEST_PHASE testPhase : TestSupportClientKonstanten.TEST_PHASE.values()) {
+            Path ab30PhaseDir = Files.createDirectories(testSetDir.resolve(TestSupportClientKonstanten.ARCHIV_BESTAND_ROOT).resolve(testPhase.getDirName()));
+            Path refExportsPhaseDir = testSetDir.resolve(TestSupportClientKonstanten.REF_EXPORTS_ROOT).resolve(testPhase.getDirName());
+            Path scenarioDir = Files.createDirectories(refExportsPhaseDir.resolve("c01").resolve("Relevanz_Positiv"));
+            StringBuilder props = new StringBuilder();
+            long phaseOffset = testPhase.ordinal() * 100L;
+            for (int i = 0; i < 20; i++) {
+                long crefoNr = 1234567000L + phaseOffset + i;
+                props.append("p").append(i).append("=").append(crefoNr).append(" # Testfall ").append(i).append('\n');
+                Files.writeString(ab30PhaseDir.resolve(crefoNr + ".xml"), "<?xml version=\"1.0\"?><arc:archiv-bestand><arc:steuerungsdaten><arc:crefonummer>"
+                        + crefoNr + "</arc:crefonummer></arc:steuerungsdaten><arc:firmenbeteiligter><arc:crefonummer-beteiligter>"
+                        + (crefoNr + 50) + "</arc:crefonummer-beteiligter></arc:firmenbeteiligter></arc:archiv-bestand>", StandardCharsets.UTF_8);
+            }
+            Files.writeString(scenarioDir.resolve("Relevanz.properties"), props, StandardCharsets.UTF_8);
+
+            TestCustomer testCustomer = new TestCustomer("c01", ab30PhaseDir.toFile(), refExportsPhaseDir.resolve("c01").toFile());
+            testCustomer.setTestPhase(testPhase);
+            testCustomer.addTestScenario(new TestScenario(testCustomer, "Relevanz_Positiv"));
+            Map<String, TestCustomer> customerTestInfoMap = new HashMap<>();
+            customerTestInfoMap.put("c01", testCustomer);
+            activeCustomersMapMap.put(testPhase, customerTestInfoMap);
+        }
+        return activeCustomersMapMap;
+    }
+
+    private TestFallExtendsArchivBestandCrefos createCut(Path testSetDir, boolean concurrentPhases) throws Exception {
+        TestFallExtendsArchivBestandCrefos cut = new TestFallExtendsArchivBestandCrefos(createTestSet(testSetDir));
+        cut.testSetRootDir = testSetDir.toFile();
+        cut.ab30RootDir = testSetDir.resolve(TestSupportClientKonstanten.ARCHIV_BESTAND_ROOT).toFile();
+        cut.setConcurrentPhases(concurrentPhases);
+        return cut;
+    }
+
+    private String readExtendedProps(Path testSetDir, TestSupportClientKonstanten.TEST_PHASE testPhase) throws Exception {
+        File propsFile = testSetDir.resolve(TestSupportClientKonstanten.ARCHIV_BESTAND_ROOT).resolve(testPhase.getDirName())
+                .resolve(TestSupportClientKonstanten.EXTENDED_CREFOS_PROPS_FILENAME).toFile();
+        return Files.readString(propsFile.toPath());
+    }
+
+    @Test
+    @DisplayName("concurrent mode should write the same files as the sequential mode")
+    void concurrentShouldMatchSequential() throws Exception {
+        Path sequentialDir = tempDir.resolve("sequential");
+        Path concurrentDir = tempDir.resolve("concurrent");
+        createCut(sequentialDir, false).extendTestCrefos();
+        TestFallExtendsArchivBestandCrefos concurrentCut = createCut(concurrentDir, true);
+        concurrentCut.extendTestCrefos();
+
+        for (TestSupportClientKonstanten.TEST_PHASE testPhase : TestSupportClientKonstanten.TEST_PHASE.values()) {
+            assertEquals(readExtendedProps(sequentialDir, testPhase), readExtendedProps(concurrentDir, testPhase));
+        }
+        List<TestFallExtendsArchivBestandCrefos.PhaseReport> phaseReports = concurrentCut.getPhaseReports();
+        assertEquals(2, phaseReports.size());
+        for (TestFallExtendsArchivBestandCrefos.PhaseReport phaseReport : phaseReports) {
+            assertEquals(20, phaseReport.getParsedXmlFiles());
+            assertTrue(phaseReport.getParsedXmlBytes() > 0);
+            assertEquals(20, phaseReport.getTestCrefos());
+            assertEquals(20, phaseReport.getParticipantsAdded());
+        }
+    }
+
+    @Test
+    @DisplayName("concurrent mode should report errors of a failing phase")
+    void concurrentShouldPropagateErrors() throws Exception {
+        TestFallExtendsArchivBestandCrefos cut = createCut(tempDir, true);
+        Files.delete(tempDir.resolve(TestSupportClientKonstanten.ARCHIV_BESTAND_ROOT).resolve(TestSupportClientKonstanten.PHASE_2).resolve("1234567105.xml"));
+
+        assertThrows(RuntimeException.class, cut::extendTestCrefos);
+    }
+}
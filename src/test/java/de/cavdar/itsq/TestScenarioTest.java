@@ -0,0 +1,136 @@
+package de.cavdar.itsq;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for loading a TestScenario.
+ */
+@DisplayName("TestScenario Tests")
+class TestScenarioTest {
+
+    @TempDir
+    Path tempDir;
+
+    private TestCustomer createCustomer() {
+        return new TestCustomer("c01", tempDir.resolve("ab30").toFile(), tempDir.resolve("c01").toFile());
+    }
+
+    private Path createScenarioDir(String scenarioName, String props) throws Exception {
+        Path scenarioDir = Files.createDirectories(tempDir.resolve("c01").resolve(scenarioName));
+        Files.writeString(scenarioDir.resolve("Relevanz.properties"), props, StandardCharsets.UTF_8);
+        return scenarioDir;
+    }
+
+    @Test
+    @DisplayName("should create test crefos and resolve their REF-EXPORT XMLs")
+    void shouldLoadTestCrefos() throws Exception {
+        Path scenarioDir = createScenarioDir("Relevanz_Positiv", "# Kommentar\np01=1234567894 # Stammsatz\nn02=1234567895\np03=1234567896\n");
+        File p01Xml = Files.createFile(scenarioDir.resolve("p01_stammsatz_1234567894.xml")).toFile();
+        Path subDir = Files.createDirectories(scenarioDir.resolve("sub"));
+        File p03Xml = Files.createFile(subDir.resolve("p03_stammsatz_1234567896.xml")).toFile();
+
+        TestScenario testScenario = new TestScenario(createCustomer(), "Relevanz_Positiv", List.of(p01Xml));
+
+        Map<String, TestCrefo> testCrefoMap = testScenario.getTestFallNameToTestCrefoMap();
+        assertEquals(3, testCrefoMap.size());
+        assertEquals(1234567894L, testCrefoMap.get("p01").getItsqTestCrefoNr());
+        assertEquals(" Stammsatz", testCrefoMap.get("p01").getTestFallInfo());
+        assertTrue(testCrefoMap.get("p01").isShouldBeExported());
+        assertEquals(p01Xml, testCrefoMap.get("p01").getItsqRexExportXmlFile());
+        assertFalse(testCrefoMap.get("n02").isShouldBeExported());
+        assertNull(testCrefoMap.get("n02").getItsqRexExportXmlFile());
+        // verschachtelte XMLs werden beim Ergänzen gefunden
+        assertEquals(p03Xml, testCrefoMap.get("p03").getItsqRexExportXmlFile());
+        assertEquals(scenarioDir.resolve("Relevanz.properties").toFile(), testScenario.getItsqRefExportsPropsFile());
+    }
+
+    @Test
+    @DisplayName("should skip invalid lines")
+    void shouldSkipInvalidLines() throws Exception {
+        createScenarioDir("Relevanz_Positiv", "p01=keine-crefo\nohne-gleichheitszeichen\np02=1234567895\n");
+
+        TestScenario testScenario = new TestScenario(createCustomer(), "Relevanz_Positiv");
+
+        assertEquals(1, testScenario.getTestFallNameToTestCrefoMap().size());
+        assertNotNull(testScenario.getTestFallNameToTestCrefoMap().get("p02"));
+    }
+
+    @Test
+    @DisplayName("should reject a scenario without exactly one properties file")
+    void shouldRejectInvalidScenarioDir() throws Exception {
+        Path scenarioDir = createScenarioDir("Relevanz_Doppelt", "p01=1234567894\n");
+        Files.writeString(scenarioDir.resolve("Zweite.properties"), "p02=1234567895\n");
+
+        assertThrows(RuntimeException.class, () -> new TestScenario(createCustomer(), "Relevanz_Doppelt"));
+        assertThrows(RuntimeException.class, () -> new TestScenario(createCustomer(), "Relevanz_Fehlt"));
+    }
+
+    @Test
+    @DisplayName("lazy scenario should load its test crefos on first access")
+    void lazyScenarioShouldLoadOnFirstAccess() throws Exception {
+        Path scenarioDir = createScenarioDir("Relevanz_Positiv", "p01=1234567894\np02=1234567895\n");
+        File p01Xml = Files.createFile(scenarioDir.resolve("p01_stammsatz_1234567894.xml")).toFile();
+
+        TestScenario testScenario = TestScenario.createLazy(createCustomer(), "Relevanz_Positiv", List.of(p01Xml));
+
+        assertFalse(testScenario.isMaterialized());
+        assertEquals("Relevanz_Positiv", testScenario.toString());
+        assertFalse(testScenario.isMaterialized());
+        assertEquals(scenarioDir.resolve("Relevanz.properties").toFile(), testScenario.getItsqRefExportsPropsFile());
+        assertEquals(2, testScenario.getTestFallNameToTestCrefoMap().size());
+        assertTrue(testScenario.isMaterialized());
+        assertEquals("Relevanz_Positiv #2", testScenario.toString());
+        assertEquals(p01Xml, testScenario.getTestFallNameToTestCrefoMap().get("p01").getItsqRexExportXmlFile());
+    }
+
+    @Test
+    @DisplayName("lazy scenario should be loaded once under concurrent access")
+    void lazyScenarioShouldLoadOnce() throws Exception {
+        StringBuilder props = new StringBuilder();
+        for (int i = 0; i < 500; i++) {
+            props.append("p").append(i).append("=").append(1234567000L + i).append('\n');
+        }
+        createScenarioDir("Relevanz_Gross", props.toString());
+        TestScenario testScenario = TestScenario.createLazy(createCustomer(), "Relevanz_Gross", List.of());
+
+        List<Callable<Map<String, TestCrefo>>> tasks = new ArrayList<>();
+        for (int i = 0; i < 16; i++) {
+            tasks.add(testScenario::getTestFallNameToTestCrefoMap);
+        }
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            for (Future<Map<String, TestCrefo>> future : executor.invokeAll(tasks)) {
+                assertEquals(500, future.get().size());
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+        TestCrefo p1 = testScenario.getTestFallNameToTestCrefoMap().get("p1");
+        // ein späteres Ändern der Datei lädt nicht erneut
+        createScenarioDir("Relevanz_Gross", "p1=1234567999\n");
+        assertSame(p1, testScenario.getTestFallNameToTestCrefoMap().get("p1"));
+        assertEquals(500, testScenario.getTestFallNameToTestCrefoMap().size());
+    }
+
+    @Test
+    @DisplayName("lazy scenario should still reject an invalid scenario directory immediately")
+    void lazyScenarioShouldRejectInvalidScenarioDir() {
+        assertThrows(RuntimeException.class, () -> TestScenario.createLazy(createCustomer(), "Relevanz_Fehlt", List.of()));
+    }
+}
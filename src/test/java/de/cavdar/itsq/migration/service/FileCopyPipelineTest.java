@@ -0,0 +1,163 @@
+package de.cavdar.itsq.migration.service;
+
+import de.cavdar.itsq.ItsqFiles;
+import de.cavdar.itsq.ItsqZipTestSet;
+import de.cavdar.itsq.migration.model.MigrationConfig;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for FileCopyPipeline.
+ */
+@DisplayName("FileCopyPipeline Tests")
+class FileCopyPipelineTest {
+
+    @TempDir
+    Path tempDir;
+
+    private FileCopyPipeline pipeline(int copyThreads, boolean overwriteExisting) {
+        MigrationConfig config = new MigrationConfig(tempDir.resolve("OLD").toFile(), tempDir.resolve("NEW").toFile());
+        config.setCopyThreads(copyThreads);
+        config.setOverwriteExisting(overwriteExisting);
+        return new FileCopyPipeline(config);
+    }
+
+    /**
+     * Legt 3 Verzeichnisse mit je 100 Quelldateien an und reiht sie ein; in c00 existieren die ersten 10 Ziele
+     * bereits, die ersten 5 Quellen von c01 werden doppelt eingereiht.
+     */
+    private void addJobs(FileCopyPipeline pipeline) throws IOException {
+        for (int c = 0; c < 3; c++) {
+            Path sourceDir = Files.createDirectories(tempDir.resolve("OLD").resolve("c0" + c));
+            Path targetDir = tempDir.resolve("NEW").resolve("c0" + c);
+            for (int i = 0; i < 100; i++) {
+                Path source = Files.writeString(sourceDir.resolve(i + ".xml"), "<xml c='" + c + "' i='" + i + "'/>", StandardCharsets.UTF_8);
+                if (c == 0 && i < 10) {
+                    Files.createDirectories(targetDir);
+                    Files.writeString(targetDir.resolve(i + ".xml"), "alt", StandardCharsets.UTF_8);
+                }
+                pipeline.add(source.toFile(), targetDir.resolve(i + ".xml").toFile());
+                if (c == 1 && i < 5) {
+                    pipeline.add(source.toFile(), targetDir.resolve(i + ".xml").toFile());
+                }
+            }
+        }
+    }
+
+    @Test
+    @DisplayName("parallel copy should count like the sequential copy")
+    void parallelShouldMatchSequential() throws Exception {
+        for (int copyThreads : new int[]{1, 4}) {
+            FileCopyPipeline pipeline = pipeline(copyThreads, false);
+            addJobs(pipeline);
+            assertEquals(305, pipeline.getPendingCount());
+            List<String> progress = new ArrayList<>();
+
+            pipeline.run(progress::add);
+
+            assertEquals(290, pipeline.getCopiedCount(), "Threads: " + copyThreads);
+            assertEquals(15, pipeline.getSkippedCount(), "Threads: " + copyThreads);
+            assertEquals(0, pipeline.getPendingCount());
+            // "Kopiere ..." und eine Meldung je Buendel (je Verzeichnis 64 + 36 Dateien)
+            assertEquals(7, progress.size(), "Threads: " + copyThreads);
+            assertEquals("305 von 305 Dateien kopiert", progress.get(progress.size() - 1));
+            assertEquals("alt", Files.readString(tempDir.resolve("NEW/c00/5.xml")));
+            assertEquals("<xml c='2' i='99'/>", Files.readString(tempDir.resolve("NEW/c02/99.xml")));
+            assertEquals(Files.getLastModifiedTime(tempDir.resolve("OLD/c01/50.xml")).toMillis(), Files.getLastModifiedTime(tempDir.resolve("NEW/c01/50.xml")).toMillis());
+
+            deleteRecursive(tempDir.resolve("NEW").toFile());
+        }
+    }
+
+    @Test
+    @DisplayName("should overwrite existing targets when configured")
+    void shouldOverwriteExisting() throws Exception {
+        FileCopyPipeline pipeline = pipeline(4, true);
+        addJobs(pipeline);
+
+        pipeline.run(null);
+
+        assertEquals(305, pipeline.getCopiedCount());
+        assertEquals(0, pipeline.getSkippedCount());
+        assertEquals("<xml c='0' i='5'/>", Files.readString(tempDir.resolve("NEW/c00/5.xml")));
+    }
+
+    @Test
+    @DisplayName("should finish the other batches and rethrow the first failure")
+    void shouldReportFailureAfterCopyingOthers() throws Exception {
+        for (int copyThreads : new int[]{1, 4}) {
+            FileCopyPipeline pipeline = pipeline(copyThreads, false);
+            // das fehlerhafte Buendel kommt zuerst
+            pipeline.add(tempDir.resolve("OLD/fehlt.xml").toFile(), tempDir.resolve("NEW/c03/fehlt.xml").toFile());
+            addJobs(pipeline);
+
+            assertThrows(IOException.class, () -> pipeline.run(null));
+
+            assertEquals(290, pipeline.getCopiedCount(), "Threads: " + copyThreads);
+            assertEquals(15, pipeline.getSkippedCount(), "Threads: " + copyThreads);
+
+            deleteRecursive(tempDir.resolve("NEW").toFile());
+        }
+    }
+
+    @Test
+    @DisplayName("link mode should hard link local sources and copy ZIP entries")
+    void linkModeShouldLinkOrCopy() throws Exception {
+        MigrationConfig config = new MigrationConfig(tempDir.resolve("OLD").toFile(), tempDir.resolve("NEW").toFile());
+        config.setTransferMode(MigrationConfig.TransferMode.LINK);
+        FileCopyPipeline pipeline = new FileCopyPipeline(config);
+        addJobs(pipeline);
+        File zipFile = tempDir.resolve("OLD.zip").toFile();
+        try (ZipOutputStream zipOut = new ZipOutputStream(Files.newOutputStream(zipFile.toPath()))) {
+            zipOut.putNextEntry(new ZipEntry("1234567891.xml"));
+            zipOut.write("<xml zip='1'/>".getBytes(StandardCharsets.UTF_8));
+            zipOut.closeEntry();
+        }
+
+        try (ItsqZipTestSet zipTestSet = ItsqZipTestSet.mount(zipFile)) {
+            pipeline.add(new File(zipTestSet.getRootDir(), "1234567891.xml"), tempDir.resolve("NEW/zip/1234567891.xml").toFile());
+            pipeline.run(null);
+        }
+
+        assertEquals(291, pipeline.getCopiedCount());
+        assertEquals(15, pipeline.getSkippedCount());
+        assertEquals(290, pipeline.getLinkedCount());
+        Path linkedTarget = tempDir.resolve("NEW/c02/99.xml");
+        assertTrue(Files.isSameFile(tempDir.resolve("OLD/c02/99.xml"), linkedTarget));
+        assertFalse(Files.isSymbolicLink(linkedTarget));
+        assertEquals("alt", Files.readString(tempDir.resolve("NEW/c00/5.xml")));
+        Path copiedTarget = tempDir.resolve("NEW/zip/1234567891.xml");
+        assertTrue(Files.isRegularFile(copiedTarget, LinkOption.NOFOLLOW_LINKS));
+        assertEquals("<xml zip='1'/>", Files.readString(copiedTarget));
+        assertFalse(Files.exists(tempDir.resolve("NEW/c02/99.xml.part"), LinkOption.NOFOLLOW_LINKS));
+
+        // Speichern im Ziel loest den Link, die Quelle bleibt unveraendert
+        ItsqFiles.writeAtomically(linkedTarget.toFile(), "<xml neu='1'/>".getBytes(StandardCharsets.UTF_8));
+        assertEquals("<xml neu='1'/>", Files.readString(linkedTarget));
+        assertEquals("<xml c='2' i='99'/>", Files.readString(tempDir.resolve("OLD/c02/99.xml")));
+    }
+
+    private static void deleteRecursive(File file) {
+        File[] children = file.listFiles();
+        if (children != null) {
+            for (File child : children) {
+                deleteRecursive(child);
+            }
+        }
+        assertTrue(file.delete());
+    }
+}
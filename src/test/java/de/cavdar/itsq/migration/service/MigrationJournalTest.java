@@ -0,0 +1,152 @@
+package de.cavdar.itsq.migration.service;
+
+import de.cavdar.itsq.migration.model.MigrationConfig;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.FileTime;
+import java.security.MessageDigest;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for MigrationJournal and the journaled FileCopyPipeline.
+ */
+@DisplayName("MigrationJournal Tests")
+class MigrationJournalTest {
+
+    @TempDir
+    Path tempDir;
+
+    private Path sourceRoot;
+    private Path targetRoot;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        sourceRoot = tempDir.resolve("OLD");
+        targetRoot = tempDir.resolve("NEW");
+        for (int c = 0; c < 2; c++) {
+            Path sourceDir = Files.createDirectories(sourceRoot.resolve("c0" + c));
+            for (int i = 0; i < 50; i++) {
+                Files.writeString(sourceDir.resolve(i + ".xml"), "<xml c='" + c + "' i='" + i + "'/>", StandardCharsets.UTF_8);
+            }
+        }
+    }
+
+    /**
+     * Uebertraegt alle Quellen mit Journal, wie es FileMigrator tut.
+     */
+    private FileCopyPipeline migrate(boolean overwriteExisting) throws Exception {
+        MigrationConfig config = new MigrationConfig(sourceRoot.toFile(), targetRoot.toFile());
+        config.setOverwriteExisting(overwriteExisting);
+        FileCopyPipeline pipeline = new FileCopyPipeline(config);
+        for (int c = 0; c < 2; c++) {
+            for (int i = 0; i < 50; i++) {
+                pipeline.add(sourceRoot.resolve("c0" + c).resolve(i + ".xml").toFile(), targetRoot.resolve("c0" + c).resolve(i + ".xml").toFile());
+            }
+        }
+        try (MigrationJournal journal = MigrationJournal.open(targetRoot.toFile())) {
+            pipeline.setJournal(journal);
+            pipeline.run(null);
+        }
+        return pipeline;
+    }
+
+    @Test
+    @DisplayName("rerun should transfer only new and changed sources")
+    void rerunShouldBeIncremental() throws Exception {
+        Files.createDirectories(targetRoot);
+        FileCopyPipeline first = migrate(false);
+        assertEquals(100, first.getCopiedCount());
+
+        // geaenderter Inhalt, nur neue Aenderungszeit, geloeschtes Ziel
+        Path changed = sourceRoot.resolve("c00/1.xml");
+        Files.writeString(changed, "<xml neu='1'/>", StandardCharsets.UTF_8);
+        Files.setLastModifiedTime(changed, FileTime.fromMillis(System.currentTimeMillis() + 5000));
+        Path touched = sourceRoot.resolve("c01/2.xml");
+        FileTime touchedTime = FileTime.fromMillis(System.currentTimeMillis() + 10000);
+        Files.setLastModifiedTime(touched, touchedTime);
+        Files.delete(targetRoot.resolve("c01/3.xml"));
+
+        FileCopyPipeline second = migrate(true);
+
+        assertEquals(2, second.getCopiedCount());
+        assertEquals(98, second.getSkippedCount());
+        assertEquals(98, second.getUnchangedCount());
+        assertEquals("<xml neu='1'/>", Files.readString(targetRoot.resolve("c00/1.xml")));
+        assertEquals(touchedTime.toMillis(), Files.getLastModifiedTime(targetRoot.resolve("c01/2.xml")).toMillis());
+        try (MigrationJournal journal = MigrationJournal.open(targetRoot.toFile())) {
+            assertEquals(100, journal.size());
+            MigrationJournal.Entry entry = journal.get(targetRoot.resolve("c00/1.xml").toFile());
+            assertEquals(Files.size(changed), entry.size());
+            assertArrayEquals(MessageDigest.getInstance("SHA-256").digest(Files.readAllBytes(changed)), entry.hash());
+        }
+    }
+
+    @Test
+    @DisplayName("should not overwrite targets changed after the migration")
+    void shouldKeepForeignChanges() throws Exception {
+        Files.createDirectories(targetRoot);
+        migrate(false);
+        Path edited = targetRoot.resolve("c00/7.xml");
+        Files.writeString(edited, "<xml bearbeitet='1'/>", StandardCharsets.UTF_8);
+        Path changed = sourceRoot.resolve("c00/7.xml");
+        Files.writeString(changed, "<xml neu='7'/>", StandardCharsets.UTF_8);
+        Files.setLastModifiedTime(changed, FileTime.fromMillis(System.currentTimeMillis() + 5000));
+
+        FileCopyPipeline rerun = migrate(false);
+
+        assertEquals(0, rerun.getCopiedCount());
+        assertEquals(99, rerun.getUnchangedCount());
+        assertEquals("<xml bearbeitet='1'/>", Files.readString(edited));
+    }
+
+    @Test
+    @DisplayName("should resume after an interrupted run with a truncated journal")
+    void shouldResumeAfterCrash() throws Exception {
+        Files.createDirectories(targetRoot);
+        migrate(false);
+        // Abbruch simulieren: ein halb geschriebener Eintrag am Ende, eine Zieldatei ohne Eintrag fehlt noch
+        File journalFile = targetRoot.resolve(MigrationJournal.JOURNAL_FILENAME).toFile();
+        Files.write(journalFile.toPath(), new byte[]{0, 12, 'c', '0'}, StandardOpenOption.APPEND);
+        Files.delete(targetRoot.resolve("c01/49.xml"));
+
+        FileCopyPipeline resumed = migrate(false);
+
+        assertEquals(1, resumed.getCopiedCount());
+        assertEquals(99, resumed.getUnchangedCount());
+        assertTrue(Files.exists(targetRoot.resolve("c01/49.xml")));
+        assertFalse(Files.exists(targetRoot.resolve("c01/49.xml.part")));
+        try (MigrationJournal journal = MigrationJournal.open(targetRoot.toFile())) {
+            assertEquals(100, journal.size());
+        }
+    }
+
+    @Test
+    @DisplayName("should adopt matching targets copied before the journal existed")
+    void shouldAdoptExistingCopies() throws Exception {
+        for (int c = 0; c < 2; c++) {
+            Path targetDir = Files.createDirectories(targetRoot.resolve("c0" + c));
+            for (int i = 0; i < 50; i++) {
+                Path source = sourceRoot.resolve("c0" + c).resolve(i + ".xml");
+                Files.copy(source, targetDir.resolve(i + ".xml"), StandardCopyOption.COPY_ATTRIBUTES);
+            }
+        }
+        Files.writeString(targetRoot.resolve("c00/0.xml"), "<xml alt='0'/>", StandardCharsets.UTF_8);
+
+        FileCopyPipeline adopted = migrate(false);
+
+        assertEquals(0, adopted.getCopiedCount());
+        assertEquals(99, adopted.getUnchangedCount());
+        assertEquals(100, adopted.getSkippedCount());
+        assertEquals("<xml alt='0'/>", Files.readString(targetRoot.resolve("c00/0.xml")));
+    }
+}
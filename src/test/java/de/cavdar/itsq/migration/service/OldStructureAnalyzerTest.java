@@ -0,0 +1,116 @@
+package de.cavdar.itsq.migration.service;
+
+import de.cavdar.itsq.migration.model.MigrationConfig;
+import de.cavdar.itsq.migration.model.TestCasePhaseAssignment;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for the single-walk mode of OldStructureAnalyzer.
+ */
+@DisplayName("OldStructureAnalyzer Tests")
+class OldStructureAnalyzerTest {
+
+    @TempDir
+    Path tempDir;
+
+    private void write(String relativePath, String content) throws Exception {
+        Path file = tempDir.resolve(relativePath);
+        Files.createDirectories(file.getParent());
+        Files.writeString(file, content, StandardCharsets.UTF_8);
+    }
+
+    @BeforeEach
+    void setUp() throws Exception {
+        for (int c = 1; c <= 12; c++) {
+            String customerDir = "REF-EXPORTS/c" + (c < 10 ? "0" + c : c);
+            write(customerDir + "/Options.cfg", "KEY=" + c);
+            for (int s = 1; s <= 3; s++) {
+                long crefo = 1234560000L + c * 10 + s;
+                write(customerDir + "/Relevanz_" + s + "/Relevanz.properties", "# Kommentar\np01=" + crefo + " # Stammsatz\nn02=" + (crefo + 5000) + "\n");
+                write(customerDir + "/Relevanz_" + s + "/p01_stammsatz_" + crefo + ".xml", "<xml/>");
+                write((s == 1 ? "ARCHIV-BESTAND-PH1/" : "ARCHIV-BESTAND-PH2/") + crefo + ".xml", "<xml/>");
+            }
+        }
+        // Szenario ohne Relevanz.properties, fremde Verzeichnisse und Dateien
+        write("REF-EXPORTS/c01/Relevanz_9/p01_stammsatz_1234567890.xml", "<xml/>");
+        write("REF-EXPORTS/c01/Archiv/Relevanz.properties", "p01=1234567890\n");
+        write("REF-EXPORTS/kunde/Relevanz_1/Relevanz.properties", "p01=1234567890\n");
+        write("ANDERES/REF-EXPORTS/c99/Relevanz_1/Relevanz.properties", "p01=1234567890\n");
+        write("ARCHIV-BESTAND-PH1/TestCrefos.properties", "1234560011::[]\n");
+        write("ARCHIV-BESTAND-PH1/unter/1234567890.xml", "<xml/>");
+        write("ARCHIV-BESTAND-PH2/kein-crefo.xml", "<xml/>");
+    }
+
+    private OldStructureAnalyzer analyze(boolean singleWalk, int parallelism) throws Exception {
+        MigrationConfig config = new MigrationConfig(tempDir.toFile(), tempDir.resolve("NEW").toFile());
+        config.setSingleWalkAnalysis(singleWalk);
+        OldStructureAnalyzer analyzer = new OldStructureAnalyzer(config);
+        analyzer.setParallelism(parallelism);
+        analyzer.analyze();
+        return analyzer;
+    }
+
+    private static List<String> describe(OldStructureAnalyzer analyzer) {
+        List<String> lines = new ArrayList<>();
+        for (Map.Entry<String, Map<String, List<TestCasePhaseAssignment>>> customer : analyzer.getCustomerScenarioAssignments().entrySet()) {
+            for (Map.Entry<String, List<TestCasePhaseAssignment>> scenario : customer.getValue().entrySet()) {
+                for (TestCasePhaseAssignment assignment : scenario.getValue()) {
+                    lines.add(customer.getKey() + "/" + scenario.getKey() + "/" + assignment.getTestFallName() + "=" + assignment.getCrefoNr()
+                            + " " + assignment.getTestFallInfo() + " " + assignment.getSourceRefExportXml());
+                }
+            }
+        }
+        return lines;
+    }
+
+    @Test
+    @DisplayName("single walk should find the same structure as the directory scan")
+    void singleWalkShouldMatchDirectoryScan() throws Exception {
+        OldStructureAnalyzer expected = analyze(false, 1);
+
+        for (int parallelism : new int[]{1, 4}) {
+            OldStructureAnalyzer actual = analyze(true, parallelism);
+
+            assertEquals(expected.getCustomerKeys(), actual.getCustomerKeys());
+            assertEquals(describe(expected), describe(actual));
+            assertEquals(expected.getPhase1Crefos(), actual.getPhase1Crefos());
+            assertEquals(expected.getPhase2Crefos(), actual.getPhase2Crefos());
+            assertEquals(expected.getTestCrefosPropsPhase1(), actual.getTestCrefosPropsPhase1());
+            assertNull(actual.getTestCrefosPropsPhase2());
+            assertEquals(expected.getTotalScenarios(), actual.getTotalScenarios());
+            for (String customerKey : expected.getCustomerKeys()) {
+                assertEquals(expected.getOptionsCfgFile(customerKey), actual.getOptionsCfgFile(customerKey));
+            }
+            assertEquals(expected.getArchivBestandXmlPhase1(1234560011L), actual.getArchivBestandXmlPhase1(1234560011L));
+            assertNull(actual.getArchivBestandXmlPhase2(1234560011L));
+        }
+    }
+
+    @Test
+    @DisplayName("single walk should skip foreign directories and files")
+    void singleWalkShouldSkipForeignEntries() throws Exception {
+        OldStructureAnalyzer analyzer = analyze(true, 4);
+
+        assertEquals(12, analyzer.getCustomerKeys().size());
+        assertEquals("c01", analyzer.getCustomerKeys().get(0));
+        assertEquals(36, analyzer.getTotalScenarios());
+        assertEquals(72, analyzer.getTotalTestCases());
+        assertEquals(12, analyzer.getPhase1Crefos().size());
+        assertEquals(24, analyzer.getPhase2Crefos().size());
+        assertFalse(analyzer.hasCrefoInPhase1(1234567890L));
+        assertEquals(new File(tempDir.toFile(), "REF-EXPORTS/c12/Options.cfg".replace('/', File.separatorChar)), analyzer.getOptionsCfgFile("c12"));
+    }
+}
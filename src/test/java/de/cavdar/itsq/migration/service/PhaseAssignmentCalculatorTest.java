@@ -0,0 +1,85 @@
+package de.cavdar.itsq.migration.service;
+
+import de.cavdar.itsq.TestSupportClientKonstanten.TEST_PHASE;
+import de.cavdar.itsq.migration.model.MigrationConfig;
+import de.cavdar.itsq.migration.model.MigrationResult;
+import de.cavdar.itsq.migration.model.TestCasePhaseAssignment;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for the assignment index of PhaseAssignmentCalculator.
+ */
+@DisplayName("PhaseAssignmentCalculator Tests")
+class PhaseAssignmentCalculatorTest {
+
+    @TempDir
+    Path tempDir;
+
+    private PhaseAssignmentCalculator calculator;
+
+    private void writeScenario(String customer, String scenario, String relevanz) throws Exception {
+        Path scenarioDir = Files.createDirectories(tempDir.resolve("REF-EXPORTS").resolve(customer).resolve(scenario));
+        Files.writeString(scenarioDir.resolve("Relevanz.properties"), relevanz, StandardCharsets.UTF_8);
+    }
+
+    private void writeArchivBestand(String phaseDir, long crefo) throws Exception {
+        Path archivDir = Files.createDirectories(tempDir.resolve(phaseDir));
+        Files.writeString(archivDir.resolve(crefo + ".xml"), "<xml/>", StandardCharsets.UTF_8);
+    }
+
+    @BeforeEach
+    void setUp() throws Exception {
+        writeScenario("c01", "Relevanz_1", "p01=1234567891\nn02=1234567892\np03=1234567893\n");
+        writeScenario("c01", "Relevanz_2", "p01=1234567893\n");
+        writeScenario("c02", "Relevanz_1", "p01=1234567894\n");
+        writeArchivBestand("ARCHIV-BESTAND-PH1", 1234567891L);
+        writeArchivBestand("ARCHIV-BESTAND-PH2", 1234567893L);
+
+        MigrationConfig config = new MigrationConfig(tempDir.toFile(), tempDir.resolve("NEW").toFile());
+        OldStructureAnalyzer analyzer = new OldStructureAnalyzer(config);
+        analyzer.analyze();
+        calculator = new PhaseAssignmentCalculator(analyzer, new MigrationResult());
+    }
+
+    @Test
+    @DisplayName("should answer nothing before the assignments are calculated")
+    void shouldBeEmptyBeforeCalculation() {
+        assertTrue(calculator.getCustomersForPhase(TEST_PHASE.PHASE_1).isEmpty());
+        assertFalse(calculator.hasValidTestCasesForPhase("c01", TEST_PHASE.PHASE_1));
+        assertTrue(calculator.getValidTestCases("c01", "Relevanz_1", TEST_PHASE.PHASE_1).isEmpty());
+    }
+
+    @Test
+    @DisplayName("should answer customer, scenario and test case queries from the index")
+    void shouldQueryIndex() {
+        calculator.calculateAssignments();
+
+        assertEquals(Set.of("c01"), calculator.getCustomersForPhase(TEST_PHASE.PHASE_1));
+        assertEquals(Set.of("c01"), calculator.getCustomersForPhase(TEST_PHASE.PHASE_2));
+        assertTrue(calculator.hasValidTestCasesForPhase("c01", TEST_PHASE.PHASE_2));
+        assertFalse(calculator.hasValidTestCasesForPhase("c02", TEST_PHASE.PHASE_1));
+        assertFalse(calculator.hasValidTestCasesForPhase("unbekannt", TEST_PHASE.PHASE_1));
+
+        assertEquals(List.of("Relevanz_1"), List.copyOf(calculator.getScenariosForCustomerAndPhase("c01", TEST_PHASE.PHASE_1)));
+        assertEquals(List.of("Relevanz_1", "Relevanz_2"), List.copyOf(calculator.getScenariosForCustomerAndPhase("c01", TEST_PHASE.PHASE_2)));
+        assertTrue(calculator.getScenariosForCustomerAndPhase("c02", TEST_PHASE.PHASE_2).isEmpty());
+
+        List<TestCasePhaseAssignment> phase1Cases = calculator.getValidTestCases("c01", "Relevanz_1", TEST_PHASE.PHASE_1);
+        assertEquals(List.of("p01", "n02"), phase1Cases.stream().map(TestCasePhaseAssignment::getTestFallName).toList());
+        List<TestCasePhaseAssignment> phase2Cases = calculator.getValidTestCases("c01", "Relevanz_1", TEST_PHASE.PHASE_2);
+        assertEquals(List.of("n02", "p03"), phase2Cases.stream().map(TestCasePhaseAssignment::getTestFallName).toList());
+        assertThrows(UnsupportedOperationException.class, () -> phase2Cases.remove(0));
+        assertTrue(calculator.getValidTestCases("c01", "Relevanz_3", TEST_PHASE.PHASE_2).isEmpty());
+    }
+}